@@ -18,3 +18,8 @@ aepLibrary {
 dependencies {    
     implementation("com.adobe.marketing.mobile:core:$mavenCoreVersion")
 }
+
+// Run the benchmark unit tests with -PuserProfile.benchmark=true
+tasks.withType<Test>().configureEach {
+    systemProperty("userProfile.benchmark", project.findProperty("userProfile.benchmark") ?: "false")
+}
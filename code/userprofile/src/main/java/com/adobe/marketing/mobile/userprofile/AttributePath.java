@@ -0,0 +1,127 @@
+/*
+  Copyright 2026 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile.userprofile;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Addresses a value nested in the map-valued attributes. A path is either a JSON pointer, such as
+ * {@code /preferences/notifications/email}, or a dot separated path, such as {@code
+ * preferences.notifications.email}. Its first segment is the attribute key.
+ *
+ * <p>The maps along the path are copied rather than modified, as the previous attribute value may
+ * still be referenced by a snapshot of the profile.
+ */
+final class AttributePath {
+
+    private AttributePath() {}
+
+    /**
+     * Splits the path into its segments. The {@code ~1} and {@code ~0} escape sequences of a JSON
+     * pointer are decoded to {@code /} and {@code ~}.
+     *
+     * @param path the JSON pointer or dot separated path
+     * @return the path segments, or null if the path is invalid
+     */
+    @Nullable static List<String> parse(@Nullable final String path) {
+        if (path == null || path.isEmpty()) {
+            return null;
+        }
+        List<String> segments = new ArrayList<>();
+        if (path.charAt(0) == '/') {
+            for (String segment : path.substring(1).split("/", -1)) {
+                segments.add(segment.replace("~1", "/").replace("~0", "~"));
+            }
+        } else {
+            for (String segment : path.split("\\.", -1)) {
+                if (segment.isEmpty()) {
+                    return null;
+                }
+                segments.add(segment);
+            }
+        }
+        return segments.get(0).isEmpty() ? null : Collections.unmodifiableList(segments);
+    }
+
+    /**
+     * Returns the value at the given path, below the attribute value.
+     *
+     * @param value the attribute value
+     * @param segments the path segments, the first one being the attribute key
+     * @return the nested value, or null if the path does not exist
+     */
+    @Nullable static Object get(
+            @Nullable final Object value, @NonNull final List<String> segments) {
+        Object current = value;
+        for (int i = 1; i < segments.size(); i++) {
+            if (!(current instanceof Map)) {
+                return null;
+            }
+            current = ((Map<?, ?>) current).get(segments.get(i));
+        }
+        return current;
+    }
+
+    /**
+     * Returns a copy of the attribute value in which the value at the given path is replaced, or
+     * removed. The missing maps along the path are created.
+     *
+     * @param value the attribute value, or null if the attribute does not exist
+     * @param segments the path segments, the first one being the attribute key, with at least two
+     *     segments
+     * @param nestedValue the new nested value, or null to remove it
+     * @return the updated attribute value, or null if a value along the path is not a map
+     */
+    @Nullable static Map<String, Object> with(
+            @Nullable final Object value,
+            @NonNull final List<String> segments,
+            @Nullable final Object nestedValue) {
+        return with(value, segments, 1, nestedValue);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Nullable private static Map<String, Object> with(
+            @Nullable final Object value,
+            @NonNull final List<String> segments,
+            final int index,
+            @Nullable final Object nestedValue) {
+        Map<String, Object> copy;
+        if (value == null) {
+            copy = new HashMap<>();
+        } else if (value instanceof Map) {
+            copy = new HashMap<>((Map<String, Object>) value);
+        } else {
+            return null;
+        }
+        String segment = segments.get(index);
+        if (index == segments.size() - 1) {
+            if (nestedValue == null) {
+                copy.remove(segment);
+            } else {
+                copy.put(segment, nestedValue);
+            }
+            return copy;
+        }
+        Map<String, Object> child = with(copy.get(segment), segments, index + 1, nestedValue);
+        if (child == null) {
+            return null;
+        }
+        copy.put(segment, child);
+        return copy;
+    }
+}
@@ -0,0 +1,107 @@
+/*
+  Copyright 2026 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile.userprofile;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.adobe.marketing.mobile.services.Log;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A {@link ProfileStore} that keeps the whole profile in a file, encoded with the {@link
+ * ProfileBinaryCodec}.
+ */
+class BinaryProfileStore implements ProfileStore {
+
+    static final String PROFILE_FILE_NAME = "profile.bin";
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+    private static final String CLASS_NAME = "BinaryProfileStore";
+    private final File directory;
+    private final File profileFile;
+
+    BinaryProfileStore(@NonNull final File directory) {
+        this.directory = directory;
+        this.profileFile = new File(directory, PROFILE_FILE_NAME);
+    }
+
+    @NonNull @Override
+    public String getMode() {
+        return UserProfileConstants.StorageMode.BINARY;
+    }
+
+    @Override
+    public boolean exists() {
+        return profileFile.exists();
+    }
+
+    @Nullable @Override
+    public Map<String, Object> load() {
+        try {
+            if (!profileFile.exists()) {
+                return new HashMap<>();
+            }
+            return ProfileBinaryCodec.decode(FileUtils.readBytes(profileFile));
+        } catch (IOException e) {
+            Log.error(
+                    UserProfileConstants.LOG_TAG,
+                    CLASS_NAME,
+                    "Could not load persistent profile data: %s",
+                    e);
+            return null;
+        }
+    }
+
+    @Override
+    public boolean save(
+            @NonNull final Map<String, Object> data, @Nullable final Set<String> changedKeys) {
+        if (!directory.exists() && !directory.mkdirs()) {
+            Log.error(
+                    UserProfileConstants.LOG_TAG,
+                    CLASS_NAME,
+                    "Could not create the profile directory (%s)",
+                    directory);
+            return false;
+        }
+        byte[] bytes = ProfileBinaryCodec.encode(data);
+        File tempFile = new File(profileFile.getPath() + TEMP_FILE_SUFFIX);
+        try {
+            try (OutputStream out = new FileOutputStream(tempFile)) {
+                out.write(bytes);
+            }
+            FileUtils.replaceFile(tempFile, profileFile);
+        } catch (IOException e) {
+            Log.error(
+                    UserProfileConstants.LOG_TAG,
+                    CLASS_NAME,
+                    "Profile Data is not persisted : %s",
+                    e);
+            return false;
+        }
+        Log.trace(
+                UserProfileConstants.LOG_TAG,
+                CLASS_NAME,
+                "Profile Data is persisted (%d bytes)",
+                bytes.length);
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        FileUtils.deleteFile(profileFile);
+    }
+}
@@ -0,0 +1,155 @@
+/*
+  Copyright 2026 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile.userprofile;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Computes the {@link UserProfileConstants.CounterOperation}s on numeric attributes.
+ *
+ * <p>Integral values are computed as {@code long}s, and stay integral unless the operand is not.
+ * The other values are computed as {@code double}s. The result is boxed once, as a {@link Long} or
+ * a {@link Double}, to be stored in the profile.
+ *
+ * <p>A profile value must be valid json, so an operation with a NaN or infinite operand, or whose
+ * {@code double} result overflows to infinity, is rejected as a {@code long} overflow is.
+ */
+final class CounterOperations {
+
+    private CounterOperations() {}
+
+    /**
+     * Returns whether the operation is one of the {@link UserProfileConstants.CounterOperation}s.
+     *
+     * @param operation the operation name
+     * @return {@code true} for a counter operation
+     */
+    static boolean isCounterOperation(@Nullable final String operation) {
+        return UserProfileConstants.CounterOperation.INCREMENT.equals(operation)
+                || UserProfileConstants.CounterOperation.DECREMENT.equals(operation)
+                || UserProfileConstants.CounterOperation.MIN.equals(operation)
+                || UserProfileConstants.CounterOperation.MAX.equals(operation);
+    }
+
+    /**
+     * Returns the result of the operation on the current attribute value.
+     *
+     * @param current the attribute value, or null if the attribute does not exist
+     * @param operation the {@link UserProfileConstants.CounterOperation} name
+     * @param operand the operand
+     * @return the new attribute value, which is the current value itself if it is unchanged, or
+     *     null if the operation is unknown, overflows or its operand is not finite
+     */
+    @Nullable static Number apply(
+            @Nullable final Object current,
+            @NonNull final String operation,
+            @NonNull final Number operand) {
+        if (!isFinite(operand)) {
+            return null;
+        }
+        Number value = current instanceof Number ? (Number) current : null;
+        switch (operation) {
+            case UserProfileConstants.CounterOperation.INCREMENT:
+                return add(value != null ? value : 0L, operand, false);
+            case UserProfileConstants.CounterOperation.DECREMENT:
+                return add(value != null ? value : 0L, operand, true);
+            case UserProfileConstants.CounterOperation.MIN:
+                return value != null && compare(value, operand) <= 0 ? value : normalize(operand);
+            case UserProfileConstants.CounterOperation.MAX:
+                return value != null && compare(value, operand) >= 0 ? value : normalize(operand);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Reads an operand, which may be a number or its {@link String} representation, as the rules
+     * consequence values are.
+     *
+     * @param value the operand value
+     * @return the operand, or null if it is not a finite number
+     */
+    @Nullable static Number parseOperand(@Nullable final Object value) {
+        if (value instanceof Number) {
+            return isFinite((Number) value) ? (Number) value : null;
+        }
+        if (!(value instanceof String)) {
+            return null;
+        }
+        String text = ((String) value).trim();
+        try {
+            return Long.parseLong(text);
+        } catch (NumberFormatException e) {
+            // not an integer, try a decimal number
+        }
+        try {
+            double parsed = Double.parseDouble(text);
+            return isFinite(parsed) ? parsed : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    @Nullable private static Number add(
+            @NonNull final Number value, @NonNull final Number operand, final boolean subtract) {
+        if (isIntegral(value) && isIntegral(operand)) {
+            long a = value.longValue();
+            long b = operand.longValue();
+            long result = subtract ? a - b : a + b;
+            // the sign of the result is wrong if and only if the operation overflowed
+            boolean overflow =
+                    subtract ? ((a ^ b) & (a ^ result)) < 0 : ((a ^ result) & (b ^ result)) < 0;
+            return overflow ? null : result;
+        }
+        double b = operand.doubleValue();
+        double result = value.doubleValue() + (subtract ? -b : b);
+        return isFinite(result) ? result : null;
+    }
+
+    /**
+     * Compares two numbers by their numeric value, whatever their type.
+     *
+     * @param a the first number
+     * @param b the second number
+     * @return a negative value, zero or a positive value as {@code a} is lower than, equal to or
+     *     greater than {@code b}
+     */
+    static int compare(@NonNull final Number a, @NonNull final Number b) {
+        if (isIntegral(a) && isIntegral(b)) {
+            return Long.compare(a.longValue(), b.longValue());
+        }
+        return Double.compare(a.doubleValue(), b.doubleValue());
+    }
+
+    @NonNull private static Number normalize(@NonNull final Number value) {
+        if (isIntegral(value)) {
+            return value instanceof Long ? value : Long.valueOf(value.longValue());
+        }
+        return value instanceof Double ? value : Double.valueOf(value.doubleValue());
+    }
+
+    private static boolean isFinite(@NonNull final Number value) {
+        return isIntegral(value) || isFinite(value.doubleValue());
+    }
+
+    private static boolean isFinite(final double value) {
+        return !Double.isNaN(value) && !Double.isInfinite(value);
+    }
+
+    private static boolean isIntegral(@NonNull final Number value) {
+        return value instanceof Long
+                || value instanceof Integer
+                || value instanceof Short
+                || value instanceof Byte;
+    }
+}
@@ -0,0 +1,74 @@
+/*
+  Copyright 2026 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile.userprofile;
+
+import androidx.annotation.NonNull;
+import com.adobe.marketing.mobile.services.Log;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+class FileUtils {
+    private static final String CLASS_NAME = "FileUtils";
+
+    /**
+     * Replaces the given file by a completely written temporary file, so a reader never sees a
+     * partially written file.
+     *
+     * @param tempFile the temporary {@link File} holding the new content
+     * @param file the {@link File} to replace
+     * @throws IOException if the file could not be replaced
+     */
+    static void replaceFile(@NonNull final File tempFile, @NonNull final File file)
+            throws IOException {
+        if (!tempFile.renameTo(file)) {
+            deleteFile(tempFile);
+            throw new IOException("Could not replace " + file.getName());
+        }
+    }
+
+    /**
+     * Reads the whole content of the given file.
+     *
+     * @param file the {@link File} to read
+     * @return the content of the file
+     * @throws IOException if the file could not be read
+     */
+    @NonNull static byte[] readBytes(@NonNull final File file) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream((int) file.length());
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    /**
+     * Deletes the given file if it exists, logging a warning when it cannot be deleted.
+     *
+     * @param file the {@link File} to delete
+     */
+    static void deleteFile(@NonNull final File file) {
+        if (file.exists() && !file.delete()) {
+            Log.warning(
+                    UserProfileConstants.LOG_TAG,
+                    CLASS_NAME,
+                    "Could not delete the profile file (%s)",
+                    file.getName());
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/*
+  Copyright 2026 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile.userprofile;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.adobe.marketing.mobile.services.Log;
+import com.adobe.marketing.mobile.services.NamedCollection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import org.json.JSONArray;
+import org.json.JSONException;
+
+/**
+ * A {@link ProfileStore} that writes every attribute under its own key, so that persisting a change
+ * only re-encodes and writes the touched attributes.
+ *
+ * <p>The list of stored attribute names is kept as a json array under {@value #KEY_INDEX}. It is
+ * only rewritten when attributes are added or removed, not when existing values are updated.
+ */
+class IncrementalProfileStore implements ProfileStore {
+
+    static final String KEY_INDEX = "user_profile_keys";
+    static final String KEY_ATTRIBUTE_PREFIX = "user_profile_attr.";
+    private static final String CLASS_NAME = "IncrementalProfileStore";
+    private final NamedCollection namedCollection;
+    private final Set<String> indexedKeys = new HashSet<>();
+    private final ProfileJsonEncoder encoder = new ProfileJsonEncoder();
+
+    IncrementalProfileStore(@NonNull final NamedCollection namedCollection) {
+        this.namedCollection = namedCollection;
+    }
+
+    @NonNull @Override
+    public String getMode() {
+        return UserProfileConstants.StorageMode.INCREMENTAL;
+    }
+
+    @Override
+    public boolean exists() {
+        return namedCollection.contains(KEY_INDEX);
+    }
+
+    @Nullable @Override
+    public Map<String, Object> load() {
+        if (!readIndex()) {
+            return null;
+        }
+        Map<String, Object> data = new HashMap<>();
+        for (String key : indexedKeys) {
+            String json = namedCollection.getString(attributeKey(key), null);
+            if (json == null) {
+                continue;
+            }
+            try {
+                data.putAll(ProfileJsonDecoder.decode(json));
+            } catch (JSONException e) {
+                // a single unreadable attribute should not discard the rest of the profile
+                Log.error(
+                        UserProfileConstants.LOG_TAG,
+                        CLASS_NAME,
+                        "Could not load the profile attribute [%s]: %s",
+                        key,
+                        e);
+            }
+        }
+        return data;
+    }
+
+    @Override
+    public boolean save(
+            @NonNull final Map<String, Object> data, @Nullable final Set<String> changedKeys) {
+        int written = 0;
+        Set<String> removedKeys = new HashSet<>();
+        boolean indexChanged = false;
+        if (changedKeys == null) {
+            // the whole profile is written, the stored keys missing from it are removed
+            removedKeys.addAll(indexedKeys);
+            removedKeys.removeAll(data.keySet());
+            indexChanged = !removedKeys.isEmpty() || !indexedKeys.equals(data.keySet());
+        }
+        for (String key : changedKeys != null ? changedKeys : data.keySet()) {
+            Object value = data.get(key);
+            if (value != null) {
+                namedCollection.setString(attributeKey(key), encode(key, value));
+                written++;
+                indexChanged |= indexedKeys.add(key);
+            } else if (indexedKeys.remove(key)) {
+                removedKeys.add(key);
+                indexChanged = true;
+            }
+        }
+
+        if (changedKeys == null) {
+            indexedKeys.clear();
+            indexedKeys.addAll(data.keySet());
+        }
+        if (indexChanged) {
+            namedCollection.setString(KEY_INDEX, new JSONArray(indexedKeys).toString());
+        }
+        for (String key : removedKeys) {
+            namedCollection.remove(attributeKey(key));
+        }
+        Log.trace(
+                UserProfileConstants.LOG_TAG,
+                CLASS_NAME,
+                "Profile Data is persisted, %d attribute(s) written and %d removed",
+                written,
+                removedKeys.size());
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        readIndex();
+        for (String key : indexedKeys) {
+            namedCollection.remove(attributeKey(key));
+        }
+        namedCollection.remove(KEY_INDEX);
+        indexedKeys.clear();
+    }
+
+    /**
+     * Reads the stored attribute names into {@link #indexedKeys}.
+     *
+     * @return {@code True} if the index was missing or was read successfully
+     */
+    private boolean readIndex() {
+        indexedKeys.clear();
+        String index = namedCollection.getString(KEY_INDEX, null);
+        if (index == null) {
+            return true;
+        }
+        try {
+            JSONArray keys = new JSONArray(index);
+            for (int i = 0; i < keys.length(); i++) {
+                indexedKeys.add(keys.getString(i));
+            }
+            return true;
+        } catch (JSONException e) {
+            Log.error(
+                    UserProfileConstants.LOG_TAG,
+                    CLASS_NAME,
+                    "Could not load the profile attribute index: %s",
+                    e);
+            return false;
+        }
+    }
+
+    private static String attributeKey(@NonNull final String key) {
+        return KEY_ATTRIBUTE_PREFIX + key;
+    }
+
+    private String encode(@NonNull final String key, @NonNull final Object value) {
+        return encoder.encode(Collections.singletonMap(key, value));
+    }
+}
@@ -0,0 +1,380 @@
+/*
+  Copyright 2026 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile.userprofile;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import com.adobe.marketing.mobile.services.Log;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.json.JSONException;
+
+/**
+ * A {@link ProfileStore} that keeps a snapshot of the profile plus an append-only journal of the
+ * changes made since the snapshot, both as files in the given directory.
+ *
+ * <p>Persisting a change appends one line per updated or removed attribute to the journal. Loading
+ * reads the snapshot and replays the journal on top of it. Once the journal grows larger than
+ * {@link #COMPACTION_RATIO} times the snapshot, it is compacted on a background thread: the journal
+ * is sealed and a fresh one is started right away, then a new snapshot is written and the sealed
+ * journal is deleted. If the process dies during a compaction, the sealed journal is replayed again
+ * on load, which is safe as every record sets or removes a whole attribute. If the process dies
+ * while appending, the torn last record is dropped on load, and the profile is written as a new
+ * snapshot so that the next records are not appended after it.
+ */
+class JournalProfileStore implements ProfileStore {
+
+    static final String SNAPSHOT_FILE_NAME = "profile.snapshot";
+    static final String JOURNAL_FILE_NAME = "profile.journal";
+    static final String SEALED_JOURNAL_FILE_NAME = "profile.journal.sealed";
+    static final int COMPACTION_RATIO = 2;
+    static final long MIN_COMPACTION_BYTES = 16 * 1024L;
+    private static final String RECORD_SET = "set";
+    private static final String RECORD_REMOVE = "remove";
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+    private static final String COMPACTION_FILE_SUFFIX = ".compact";
+    private static final String CLASS_NAME = "JournalProfileStore";
+    private static final long COMPACTION_THREAD_KEEP_ALIVE_SECONDS = 30;
+
+    /**
+     * Runs the compactions of every store one after the other. Its thread is only started for a
+     * compaction, and stops once it has been idle for a while.
+     */
+    private static final Executor COMPACTION_EXECUTOR =
+            new ThreadPoolExecutor(
+                    0,
+                    1,
+                    COMPACTION_THREAD_KEEP_ALIVE_SECONDS,
+                    TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>());
+
+    private final File directory;
+    private final File snapshotFile;
+    private final File journalFile;
+    private final File sealedJournalFile;
+    private final Executor compactionExecutor;
+    private boolean compacting;
+
+    JournalProfileStore(@NonNull final File directory) {
+        this(directory, COMPACTION_EXECUTOR);
+    }
+
+    @VisibleForTesting
+    JournalProfileStore(@NonNull final File directory, @NonNull final Executor compactionExecutor) {
+        this.directory = directory;
+        this.snapshotFile = new File(directory, SNAPSHOT_FILE_NAME);
+        this.journalFile = new File(directory, JOURNAL_FILE_NAME);
+        this.sealedJournalFile = new File(directory, SEALED_JOURNAL_FILE_NAME);
+        this.compactionExecutor = compactionExecutor;
+    }
+
+    @NonNull @Override
+    public String getMode() {
+        return UserProfileConstants.StorageMode.JOURNAL;
+    }
+
+    @Override
+    public synchronized boolean exists() {
+        return snapshotFile.exists() || journalFile.exists() || sealedJournalFile.exists();
+    }
+
+    @Nullable @Override
+    public synchronized Map<String, Object> load() {
+        Map<String, Object> data = new HashMap<>();
+        try {
+            if (snapshotFile.exists()) {
+                try (Reader reader =
+                        new InputStreamReader(
+                                new FileInputStream(snapshotFile), StandardCharsets.UTF_8)) {
+                    data.putAll(ProfileJsonDecoder.decode(reader));
+                }
+            }
+        } catch (IOException | JSONException e) {
+            Log.error(
+                    UserProfileConstants.LOG_TAG,
+                    CLASS_NAME,
+                    "Could not load the profile snapshot: %s",
+                    e);
+            return null;
+        }
+        int[] records = {0};
+        // the live journal holds the newest records, it is replayed even if the sealed one is not
+        boolean sealedComplete = replay(sealedJournalFile, data, records);
+        boolean liveComplete = replay(journalFile, data, records);
+        Log.trace(
+                UserProfileConstants.LOG_TAG,
+                CLASS_NAME,
+                "Profile Data is loaded from the snapshot and %d journal record(s)",
+                records[0]);
+        if (!sealedComplete || !liveComplete) {
+            recoverTornJournal(data);
+        }
+        return data;
+    }
+
+    @Override
+    public synchronized boolean save(
+            @NonNull final Map<String, Object> data, @Nullable final Set<String> changedKeys) {
+        if (!directory.exists() && !directory.mkdirs()) {
+            Log.error(
+                    UserProfileConstants.LOG_TAG,
+                    CLASS_NAME,
+                    "Could not create the profile directory (%s)",
+                    directory);
+            return false;
+        }
+        try {
+            if (changedKeys == null) {
+                writeSnapshot(data);
+                FileUtils.deleteFile(journalFile);
+                FileUtils.deleteFile(sealedJournalFile);
+                return true;
+            }
+            appendRecords(data, changedKeys);
+        } catch (IOException e) {
+            Log.error(
+                    UserProfileConstants.LOG_TAG,
+                    CLASS_NAME,
+                    "Profile Data is not persisted : %s",
+                    e);
+            return false;
+        }
+        if (needsCompaction()) {
+            startCompaction(data);
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized void clear() {
+        FileUtils.deleteFile(snapshotFile);
+        FileUtils.deleteFile(journalFile);
+        FileUtils.deleteFile(sealedJournalFile);
+    }
+
+    private void appendRecords(
+            @NonNull final Map<String, Object> data, @NonNull final Set<String> changedKeys)
+            throws IOException {
+        StringBuilder records = new StringBuilder();
+        for (String key : changedKeys) {
+            Object value = data.get(key);
+            Map<String, Object> record;
+            if (value == null) {
+                record = Collections.singletonMap(RECORD_REMOVE, key);
+            } else {
+                record =
+                        Collections.singletonMap(
+                                RECORD_SET, (Object) Collections.singletonMap(key, value));
+            }
+            ProfileJsonEncoder.write(record, records);
+            records.append('\n');
+        }
+        // the records are appended with a single write, so a crash can only tear the last one
+        try (Writer writer =
+                new OutputStreamWriter(
+                        new FileOutputStream(journalFile, true), StandardCharsets.UTF_8)) {
+            writer.append(records);
+        }
+    }
+
+    private boolean needsCompaction() {
+        if (compacting || sealedJournalFile.exists()) {
+            return false;
+        }
+        long journalSize = journalFile.length();
+        return journalSize >= MIN_COMPACTION_BYTES
+                && journalSize > COMPACTION_RATIO * snapshotFile.length();
+    }
+
+    /**
+     * Seals the current journal and writes a new snapshot of the given profile in the background.
+     * The changes persisted while the snapshot is being written go to a fresh journal.
+     *
+     * @param data the current profile attributes, which include every change of the sealed journal
+     */
+    private void startCompaction(@NonNull final Map<String, Object> data) {
+        if (!journalFile.renameTo(sealedJournalFile)) {
+            Log.warning(
+                    UserProfileConstants.LOG_TAG,
+                    CLASS_NAME,
+                    "Could not seal the profile journal, compaction is skipped");
+            return;
+        }
+        compacting = true;
+        final Map<String, Object> snapshot = new HashMap<>(data);
+        compactionExecutor.execute(() -> compact(snapshot));
+    }
+
+    private void compact(@NonNull final Map<String, Object> snapshot) {
+        File tempFile = new File(snapshotFile.getPath() + COMPACTION_FILE_SUFFIX);
+        try {
+            // the snapshot is written without holding the lock, so saves are not blocked
+            writeJsonFile(tempFile, snapshot);
+            synchronized (this) {
+                compacting = false;
+                if (!sealedJournalFile.exists()) {
+                    // a full save or clear happened meanwhile and made this snapshot outdated
+                    FileUtils.deleteFile(tempFile);
+                    return;
+                }
+                FileUtils.replaceFile(tempFile, snapshotFile);
+                FileUtils.deleteFile(sealedJournalFile);
+            }
+            Log.trace(
+                    UserProfileConstants.LOG_TAG,
+                    CLASS_NAME,
+                    "Profile journal is compacted into a snapshot of %d attribute(s)",
+                    snapshot.size());
+        } catch (IOException | RuntimeException e) {
+            synchronized (this) {
+                compacting = false;
+            }
+            // the sealed journal is kept and replayed on load, the next full save removes it
+            Log.error(
+                    UserProfileConstants.LOG_TAG,
+                    CLASS_NAME,
+                    "Could not compact the profile journal: %s",
+                    e);
+        }
+    }
+
+    /**
+     * Writes the profile recovered from a journal with an unreadable record as a new snapshot, and
+     * deletes the journals. Otherwise the next records would be appended after the unreadable one,
+     * and would never be replayed.
+     *
+     * @param data the profile attributes read up to the unreadable record
+     */
+    private void recoverTornJournal(@NonNull final Map<String, Object> data) {
+        try {
+            writeSnapshot(data);
+            FileUtils.deleteFile(journalFile);
+            FileUtils.deleteFile(sealedJournalFile);
+        } catch (IOException e) {
+            // the journal is left as is, and the next full save replaces it
+            Log.error(
+                    UserProfileConstants.LOG_TAG,
+                    CLASS_NAME,
+                    "Could not rewrite the profile after an unreadable journal record: %s",
+                    e);
+        }
+    }
+
+    private void writeSnapshot(@NonNull final Map<String, Object> data) throws IOException {
+        File tempFile = new File(snapshotFile.getPath() + TEMP_FILE_SUFFIX);
+        writeJsonFile(tempFile, data);
+        FileUtils.replaceFile(tempFile, snapshotFile);
+    }
+
+    /**
+     * Applies the records of the given journal file to the profile. Reading stops at the first
+     * unreadable record, which can only be the last one if the process died while appending it. A
+     * journal whose last record is not terminated is not fully replayed either.
+     *
+     * @param file the journal file
+     * @param data the profile attributes to update
+     * @param records the number of records applied, incremented for every record
+     * @return {@code True} if the whole file was replayed
+     */
+    @SuppressWarnings("unchecked")
+    private boolean replay(
+            @NonNull final File file,
+            @NonNull final Map<String, Object> data,
+            @NonNull final int[] records) {
+        if (!file.exists()) {
+            return true;
+        }
+        int count = 0;
+        try (BufferedReader reader =
+                new BufferedReader(
+                        new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                Map<String, Object> record = ProfileJsonDecoder.decode(line);
+                Object removedKey = record.get(RECORD_REMOVE);
+                Object attributes = record.get(RECORD_SET);
+                if (removedKey instanceof String) {
+                    data.remove(removedKey);
+                } else if (attributes instanceof Map) {
+                    data.putAll((Map<String, Object>) attributes);
+                } else {
+                    throw new JSONException("Unknown journal record");
+                }
+                count++;
+                records[0]++;
+            }
+            if (!endsWithLineBreak(file)) {
+                // the last record is complete, but the next one would be appended on its line
+                Log.warning(
+                        UserProfileConstants.LOG_TAG,
+                        CLASS_NAME,
+                        "The last record of the profile journal (%s) is not terminated",
+                        file.getName());
+                return false;
+            }
+        } catch (IOException | JSONException e) {
+            Log.warning(
+                    UserProfileConstants.LOG_TAG,
+                    CLASS_NAME,
+                    "Stopped replaying the profile journal (%s) after %d record(s): %s",
+                    file.getName(),
+                    count,
+                    e);
+            return false;
+        }
+        return true;
+    }
+
+    private static boolean endsWithLineBreak(@NonNull final File file) throws IOException {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+            long length = randomAccessFile.length();
+            if (length == 0) {
+                return true;
+            }
+            randomAccessFile.seek(length - 1);
+            return randomAccessFile.read() == '\n';
+        }
+    }
+
+    /** Encodes the given profile straight into the given file. */
+    private static void writeJsonFile(
+            @NonNull final File file, @NonNull final Map<String, Object> data) throws IOException {
+        try (Writer writer =
+                new BufferedWriter(
+                        new OutputStreamWriter(
+                                new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            ProfileJsonEncoder.write(data, writer);
+        }
+    }
+}
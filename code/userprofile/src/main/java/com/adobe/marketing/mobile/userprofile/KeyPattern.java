@@ -0,0 +1,106 @@
+/*
+  Copyright 2026 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile.userprofile;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Matches the attribute keys against glob patterns, where {@code *} matches any sequence of
+ * characters and {@code ?} matches any single character. A pattern also matches itself, so a key
+ * containing these characters is still found by its exact name.
+ */
+final class KeyPattern {
+
+    private static final char ANY_SEQUENCE = '*';
+    private static final char ANY_CHARACTER = '?';
+
+    private KeyPattern() {}
+
+    /**
+     * Returns whether the key is a pattern, rather than the name of a single attribute.
+     *
+     * @param key the attribute key
+     * @return {@code true} if the key contains a wildcard
+     */
+    static boolean isPattern(@NonNull final String key) {
+        return key.indexOf(ANY_SEQUENCE) >= 0 || key.indexOf(ANY_CHARACTER) >= 0;
+    }
+
+    /**
+     * Returns the part of the pattern before its first wildcard, which every matching key starts
+     * with.
+     *
+     * @param pattern the pattern
+     * @return the literal prefix of the pattern
+     */
+    @NonNull static String literalPrefix(@NonNull final String pattern) {
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == ANY_SEQUENCE || c == ANY_CHARACTER) {
+                return pattern.substring(0, i);
+            }
+        }
+        return pattern;
+    }
+
+    /**
+     * Returns whether the pattern is a literal prefix followed by a single {@code *}, which every
+     * key starting with the prefix matches.
+     *
+     * @param pattern the pattern
+     * @return {@code true} for a prefix pattern
+     */
+    static boolean isPrefixPattern(@NonNull final String pattern) {
+        return literalPrefix(pattern).length() == pattern.length() - 1
+                && pattern.charAt(pattern.length() - 1) == ANY_SEQUENCE;
+    }
+
+    /**
+     * Returns whether the key matches the pattern.
+     *
+     * @param pattern the pattern
+     * @param key the attribute key
+     * @return {@code true} if the key matches
+     */
+    static boolean matches(@NonNull final String pattern, @NonNull final String key) {
+        int p = 0;
+        int k = 0;
+        // the position after the last '*', and the key position it was tried from
+        int starPattern = -1;
+        int starKey = 0;
+        while (k < key.length()) {
+            if (p < pattern.length()) {
+                char c = pattern.charAt(p);
+                if (c == ANY_SEQUENCE) {
+                    starPattern = ++p;
+                    starKey = k;
+                    continue;
+                }
+                if (c == ANY_CHARACTER || c == key.charAt(k)) {
+                    p++;
+                    k++;
+                    continue;
+                }
+            }
+            if (starPattern < 0) {
+                return false;
+            }
+            // let the last '*' match one more character
+            p = starPattern;
+            k = ++starKey;
+        }
+        while (p < pattern.length() && pattern.charAt(p) == ANY_SEQUENCE) {
+            p++;
+        }
+        return p == pattern.length();
+    }
+}
@@ -0,0 +1,59 @@
+/*
+  Copyright 2026 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile.userprofile;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Applies a JSON merge patch, as defined by RFC 7386, to an attribute value. The maps of the patch
+ * are merged into the maps of the value, a null value removes the member, and any other value
+ * replaces it.
+ *
+ * <p>The maps of the attribute value are copied rather than modified, as the previous value may
+ * still be referenced by a snapshot of the profile. The maps the patch does not reach are shared
+ * with the previous value.
+ */
+final class MergePatch {
+
+    private MergePatch() {}
+
+    /**
+     * Returns the result of merging the patch into the value.
+     *
+     * @param value the attribute value, or null if the attribute does not exist; a value which is
+     *     not a map is replaced
+     * @param patch the merge patch
+     * @return the merged value
+     */
+    @SuppressWarnings("unchecked")
+    @NonNull static Map<String, Object> apply(
+            @Nullable final Object value, @NonNull final Map<String, Object> patch) {
+        Map<String, Object> merged =
+                value instanceof Map ? new HashMap<>((Map<String, Object>) value) : new HashMap<>();
+        for (Map.Entry<String, Object> entry : patch.entrySet()) {
+            Object patchValue = entry.getValue();
+            if (patchValue == null) {
+                merged.remove(entry.getKey());
+            } else if (patchValue instanceof Map) {
+                merged.put(
+                        entry.getKey(),
+                        apply(merged.get(entry.getKey()), (Map<String, Object>) patchValue));
+            } else {
+                merged.put(entry.getKey(), patchValue);
+            }
+        }
+        return merged;
+    }
+}
@@ -0,0 +1,230 @@
+/*
+  Copyright 2026 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile.userprofile;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+import com.adobe.marketing.mobile.services.Log;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides when the changes made to a {@link ProfileData} are written to disk.
+ *
+ * <p>By default every change is persisted right away. When a write-behind window is configured,
+ * changes are only marked as pending and a single {@link ProfileData#persist()} is scheduled on a
+ * background thread, absorbing all the changes made until it runs. Each new change postpones the
+ * write by the window, but a change is never left unpersisted for longer than the configured
+ * maximum delay.
+ *
+ * <p>With asynchronous writes, changes are persisted as soon as possible but on the background
+ * thread, so that encoding and writing the profile does not delay the caller. As there is a single
+ * background thread and every write holds all the changes made before it, the writes are applied in
+ * order. {@link #flush()} is the durability barrier: it returns once every change requested before
+ * the call is on disk.
+ *
+ * <p>A failed write keeps its changes pending. With a window or asynchronous writes, it is retried
+ * on the background thread after the window, and at least {@link
+ * UserProfileConstants#PERSIST_RETRY_DELAY_MS} later.
+ */
+class PersistScheduler {
+
+    private static final String CLASS_NAME = "PersistScheduler";
+    private final ProfileData profileData;
+    private final Object lock = new Object();
+    private ScheduledExecutorService executor;
+    private ScheduledFuture<?> scheduledFlush;
+    private long windowMs = UserProfileConstants.DEFAULT_PERSIST_WINDOW_MS;
+    private long maxDelayMs = UserProfileConstants.DEFAULT_PERSIST_MAX_DELAY_MS;
+    private boolean asyncWrites;
+    private long firstPendingTimeMs;
+    private int pendingWrites;
+    private int writesInProgress;
+    private long absorbedWrites;
+    private long flushCount;
+
+    PersistScheduler(@NonNull final ProfileData profileData) {
+        this(profileData, null);
+    }
+
+    @VisibleForTesting
+    PersistScheduler(
+            @NonNull final ProfileData profileData, final ScheduledExecutorService executor) {
+        this.profileData = profileData;
+        this.executor = executor;
+    }
+
+    /**
+     * Updates the write-behind settings. Setting a window of {@code 0} without asynchronous writes
+     * goes back to persisting every change right away on the caller thread, in which case the
+     * pending changes are written immediately.
+     *
+     * @param windowMs the time in milliseconds to wait for more changes before writing
+     * @param maxDelayMs the maximum time in milliseconds a change may stay unpersisted; values
+     *     smaller than {@code windowMs} are raised to it
+     * @param asyncWrites whether changes are written on the background thread when no window is set
+     */
+    void configure(final long windowMs, final long maxDelayMs, final boolean asyncWrites) {
+        synchronized (lock) {
+            this.windowMs = Math.max(0, windowMs);
+            this.maxDelayMs = Math.max(this.windowMs, maxDelayMs);
+            this.asyncWrites = asyncWrites;
+            if (this.windowMs > 0 || asyncWrites || pendingWrites == 0) {
+                return;
+            }
+        }
+        flush();
+    }
+
+    /**
+     * Requests the current profile to be persisted.
+     *
+     * @return {@code True} if the profile was persisted, or the write was scheduled
+     */
+    boolean requestPersist() {
+        synchronized (lock) {
+            if (windowMs > 0 || asyncWrites) {
+                long now = currentTimeMs();
+                if (pendingWrites == 0) {
+                    firstPendingTimeMs = now;
+                } else {
+                    absorbedWrites++;
+                }
+                pendingWrites++;
+                long remainingDelay = firstPendingTimeMs + maxDelayMs - now;
+                schedule(Math.max(0, Math.min(windowMs, remainingDelay)));
+                return true;
+            }
+        }
+        return profileData.persist();
+    }
+
+    /**
+     * Writes the pending changes to disk right away, or waits for the background write which
+     * already took them.
+     *
+     * @return {@code True} if there was nothing to write or the profile was persisted
+     */
+    boolean flush() {
+        int writes;
+        synchronized (lock) {
+            if (scheduledFlush != null) {
+                scheduledFlush.cancel(false);
+                scheduledFlush = null;
+            }
+            writes = pendingWrites;
+            pendingWrites = 0;
+            if (writes == 0) {
+                awaitWritesInProgress();
+                return pendingWrites == 0;
+            }
+            writesInProgress++;
+        }
+        boolean persisted = profileData.persist();
+        synchronized (lock) {
+            writesInProgress--;
+            lock.notifyAll();
+            if (!persisted) {
+                // keep the changes pending and try again after the next window, or after a short
+                // delay when the writes are asynchronous
+                if (pendingWrites == 0) {
+                    firstPendingTimeMs = currentTimeMs();
+                }
+                pendingWrites += writes;
+                if (windowMs > 0 || asyncWrites) {
+                    schedule(Math.max(windowMs, UserProfileConstants.PERSIST_RETRY_DELAY_MS));
+                }
+                return false;
+            }
+            flushCount++;
+            Log.trace(
+                    UserProfileConstants.LOG_TAG,
+                    CLASS_NAME,
+                    "Persisted %d profile change(s) in one write, %d write(s) absorbed in %d"
+                            + " flush(es) so far",
+                    writes,
+                    absorbedWrites,
+                    flushCount);
+        }
+        return true;
+    }
+
+    /** Writes the pending changes and stops the background thread. */
+    void shutdown() {
+        flush();
+        synchronized (lock) {
+            if (scheduledFlush != null) {
+                // the retry of a failed write, which would outlive the background thread
+                scheduledFlush.cancel(false);
+                scheduledFlush = null;
+            }
+            if (executor != null) {
+                executor.shutdown();
+                executor = null;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of persist requests which were merged into another write.
+     *
+     * @return the number of absorbed writes
+     */
+    long getAbsorbedWrites() {
+        synchronized (lock) {
+            return absorbedWrites;
+        }
+    }
+
+    /**
+     * Returns the number of write-behind flushes which persisted the profile.
+     *
+     * @return the number of flushes
+     */
+    long getFlushCount() {
+        synchronized (lock) {
+            return flushCount;
+        }
+    }
+
+    /** Waits until the writes started by other threads complete. Must hold {@link #lock}. */
+    private void awaitWritesInProgress() {
+        boolean interrupted = false;
+        while (writesInProgress > 0) {
+            try {
+                lock.wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void schedule(final long delayMs) {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+        }
+        if (executor == null) {
+            executor = Executors.newSingleThreadScheduledExecutor();
+        }
+        Runnable flushTask = this::flush;
+        scheduledFlush = executor.schedule(flushTask, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private static long currentTimeMs() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+}
@@ -0,0 +1,418 @@
+/*
+  Copyright 2026 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile.userprofile;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An immutable {@link Map} of the profile attributes, stored as a hash array mapped trie.
+ *
+ * <p>{@link #with(String, Object)} and {@link #without(String)} return a new map and leave this one
+ * unchanged. The new map shares every node of the trie with this one, except for the path to the
+ * changed attribute, so that an update copies {@code O(log n)} small arrays instead of the whole
+ * profile. A map can therefore be handed out as a snapshot of the profile without being copied.
+ *
+ * <p>Every trie level is indexed by five bits of the key hash, and holds its attributes and child
+ * nodes in an array sized to the number of its members. Keys whose hashes are equal are kept in a
+ * collision node.
+ */
+final class PersistentProfileMap extends AbstractMap<String, Object> {
+
+    static final PersistentProfileMap EMPTY =
+            new PersistentProfileMap(new BitmapNode(0, new Object[0]), 0);
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    /** The deepest path: seven bitmap nodes consume the 32 bits of the hash, then a collision. */
+    private static final int MAX_DEPTH = 8;
+
+    /** The key of an array pair whose value is a child node. */
+    private static final Object CHILD = new Object();
+
+    private static final Object NOT_FOUND = new Object();
+
+    private final Node root;
+    private final int size;
+    private Set<Map.Entry<String, Object>> entrySet;
+
+    private PersistentProfileMap(@NonNull final Node root, final int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * Returns a map holding the attributes of the given map.
+     *
+     * @param map the attributes
+     * @return the map, {@code map} itself if it is already a {@link PersistentProfileMap}
+     */
+    @NonNull static PersistentProfileMap of(@NonNull final Map<String, ?> map) {
+        if (map instanceof PersistentProfileMap) {
+            return (PersistentProfileMap) map;
+        }
+        PersistentProfileMap result = EMPTY;
+        for (Map.Entry<String, ?> entry : map.entrySet()) {
+            result = result.with(entry.getKey(), entry.getValue());
+        }
+        return result;
+    }
+
+    /**
+     * Returns a map with the given attribute added or replaced.
+     *
+     * @param key the attribute key
+     * @param value the attribute value
+     * @return the new map, or this map if it already holds the same value instance
+     */
+    @NonNull PersistentProfileMap with(@Nullable final String key, @Nullable final Object value) {
+        boolean[] added = new boolean[1];
+        Node newRoot = root.put(0, hash(key), key, value, added);
+        if (newRoot == root) {
+            return this;
+        }
+        return new PersistentProfileMap(newRoot, added[0] ? size + 1 : size);
+    }
+
+    /**
+     * Returns a map without the given attribute.
+     *
+     * @param key the attribute key
+     * @return the new map, or this map if it does not hold the attribute
+     */
+    @NonNull PersistentProfileMap without(@Nullable final String key) {
+        Node newRoot = root.remove(0, hash(key), key);
+        if (newRoot == root) {
+            return this;
+        }
+        return newRoot == null ? EMPTY : new PersistentProfileMap(newRoot, size - 1);
+    }
+
+    @Override
+    public Object get(@Nullable final Object key) {
+        Object value = root.get(0, hash(key), key);
+        return value == NOT_FOUND ? null : value;
+    }
+
+    @Override
+    public boolean containsKey(@Nullable final Object key) {
+        return root.get(0, hash(key), key) != NOT_FOUND;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @NonNull @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+        if (entrySet == null) {
+            entrySet =
+                    new AbstractSet<Map.Entry<String, Object>>() {
+                        @NonNull @Override
+                        public Iterator<Map.Entry<String, Object>> iterator() {
+                            return new EntryIterator(root);
+                        }
+
+                        @Override
+                        public int size() {
+                            return size;
+                        }
+                    };
+        }
+        return entrySet;
+    }
+
+    private static int hash(@Nullable final Object key) {
+        int hash = key == null ? 0 : key.hashCode();
+        // spread the high bits, as the first levels only use the low bits
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean keyEquals(@Nullable final Object key, @Nullable final Object other) {
+        return key == null ? other == null : key.equals(other);
+    }
+
+    /**
+     * A trie node. Its array holds key and value pairs; a pair whose key is {@link #CHILD} holds a
+     * child node instead of an attribute.
+     */
+    private abstract static class Node {
+        final Object[] array;
+
+        Node(@NonNull final Object[] array) {
+            this.array = array;
+        }
+
+        /** Returns the value of the key, or {@link #NOT_FOUND}. */
+        abstract Object get(int shift, int hash, @Nullable Object key);
+
+        /** Returns a node holding the attribute, or this node if it already holds it. */
+        abstract Node put(
+                int shift, int hash, @Nullable String key, @Nullable Object value, boolean[] added);
+
+        /** Returns a node without the key, this node if it does not hold it, or null if empty. */
+        abstract Node remove(int shift, int hash, @Nullable Object key);
+    }
+
+    /** A node with a member for each bit set in its bitmap. */
+    private static final class BitmapNode extends Node {
+        private final int bitmap;
+
+        BitmapNode(final int bitmap, @NonNull final Object[] array) {
+            super(array);
+            this.bitmap = bitmap;
+        }
+
+        @Override
+        Object get(final int shift, final int hash, @Nullable final Object key) {
+            int bit = bit(shift, hash);
+            if ((bitmap & bit) == 0) {
+                return NOT_FOUND;
+            }
+            int index = index(bit);
+            Object memberKey = array[index];
+            if (memberKey == CHILD) {
+                return ((Node) array[index + 1]).get(shift + BITS, hash, key);
+            }
+            return keyEquals(key, memberKey) ? array[index + 1] : NOT_FOUND;
+        }
+
+        @Override
+        Node put(
+                final int shift,
+                final int hash,
+                @Nullable final String key,
+                @Nullable final Object value,
+                @NonNull final boolean[] added) {
+            int bit = bit(shift, hash);
+            int index = index(bit);
+            if ((bitmap & bit) == 0) {
+                added[0] = true;
+                Object[] newArray = new Object[array.length + 2];
+                System.arraycopy(array, 0, newArray, 0, index);
+                newArray[index] = key;
+                newArray[index + 1] = value;
+                System.arraycopy(array, index, newArray, index + 2, array.length - index);
+                return new BitmapNode(bitmap | bit, newArray);
+            }
+            Object memberKey = array[index];
+            Object memberValue = array[index + 1];
+            if (memberKey == CHILD) {
+                Node child = (Node) memberValue;
+                Node newChild = child.put(shift + BITS, hash, key, value, added);
+                return newChild == child ? this : copyAndSet(index + 1, newChild);
+            }
+            if (keyEquals(key, memberKey)) {
+                return memberValue == value ? this : copyAndSet(index + 1, value);
+            }
+            // two attributes share the bits of this level, push them down to a new node
+            added[0] = true;
+            Node child =
+                    createNode(shift + BITS, (String) memberKey, memberValue, hash, key, value);
+            Object[] newArray = array.clone();
+            newArray[index] = CHILD;
+            newArray[index + 1] = child;
+            return new BitmapNode(bitmap, newArray);
+        }
+
+        @Override
+        Node remove(final int shift, final int hash, @Nullable final Object key) {
+            int bit = bit(shift, hash);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            int index = index(bit);
+            Object memberKey = array[index];
+            if (memberKey == CHILD) {
+                Node child = (Node) array[index + 1];
+                Node newChild = child.remove(shift + BITS, hash, key);
+                if (newChild == child) {
+                    return this;
+                }
+                if (newChild != null) {
+                    return copyAndSet(index + 1, newChild);
+                }
+            } else if (!keyEquals(key, memberKey)) {
+                return this;
+            }
+            if (bitmap == bit) {
+                return null;
+            }
+            Object[] newArray = new Object[array.length - 2];
+            System.arraycopy(array, 0, newArray, 0, index);
+            System.arraycopy(array, index + 2, newArray, index, array.length - index - 2);
+            return new BitmapNode(bitmap & ~bit, newArray);
+        }
+
+        private Node copyAndSet(final int index, @Nullable final Object value) {
+            Object[] newArray = array.clone();
+            newArray[index] = value;
+            return new BitmapNode(bitmap, newArray);
+        }
+
+        private int index(final int bit) {
+            return 2 * Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        private static int bit(final int shift, final int hash) {
+            return 1 << ((hash >>> shift) & MASK);
+        }
+
+        private static Node createNode(
+                final int shift,
+                @Nullable final String key1,
+                @Nullable final Object value1,
+                final int hash2,
+                @Nullable final String key2,
+                @Nullable final Object value2) {
+            int hash1 = hash(key1);
+            if (hash1 == hash2) {
+                return new CollisionNode(hash1, new Object[] {key1, value1, key2, value2});
+            }
+            boolean[] added = new boolean[1];
+            return new BitmapNode(0, new Object[0])
+                    .put(shift, hash1, key1, value1, added)
+                    .put(shift, hash2, key2, value2, added);
+        }
+    }
+
+    /** A node holding the attributes whose keys have the same hash. */
+    private static final class CollisionNode extends Node {
+        private final int hash;
+
+        CollisionNode(final int hash, @NonNull final Object[] array) {
+            super(array);
+            this.hash = hash;
+        }
+
+        @Override
+        Object get(final int shift, final int hash, @Nullable final Object key) {
+            int index = indexOf(key);
+            return index < 0 ? NOT_FOUND : array[index + 1];
+        }
+
+        @Override
+        Node put(
+                final int shift,
+                final int hash,
+                @Nullable final String key,
+                @Nullable final Object value,
+                @NonNull final boolean[] added) {
+            if (hash != this.hash) {
+                // the key only shares the hash bits consumed so far, nest this node one level down
+                BitmapNode parent =
+                        new BitmapNode(
+                                BitmapNode.bit(shift, this.hash), new Object[] {CHILD, this});
+                return parent.put(shift, hash, key, value, added);
+            }
+            int index = indexOf(key);
+            if (index >= 0) {
+                if (array[index + 1] == value) {
+                    return this;
+                }
+                Object[] newArray = array.clone();
+                newArray[index + 1] = value;
+                return new CollisionNode(hash, newArray);
+            }
+            added[0] = true;
+            Object[] newArray = new Object[array.length + 2];
+            System.arraycopy(array, 0, newArray, 0, array.length);
+            newArray[array.length] = key;
+            newArray[array.length + 1] = value;
+            return new CollisionNode(hash, newArray);
+        }
+
+        @Override
+        Node remove(final int shift, final int hash, @Nullable final Object key) {
+            int index = indexOf(key);
+            if (index < 0) {
+                return this;
+            }
+            if (array.length == 2) {
+                return null;
+            }
+            Object[] newArray = new Object[array.length - 2];
+            System.arraycopy(array, 0, newArray, 0, index);
+            System.arraycopy(array, index + 2, newArray, index, array.length - index - 2);
+            return new CollisionNode(this.hash, newArray);
+        }
+
+        private int indexOf(@Nullable final Object key) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (keyEquals(key, array[i])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    /** Walks the trie depth first, without copying it. */
+    private static final class EntryIterator implements Iterator<Map.Entry<String, Object>> {
+        private final Object[][] arrays = new Object[MAX_DEPTH][];
+        private final int[] positions = new int[MAX_DEPTH];
+        private int depth;
+        private Map.Entry<String, Object> next;
+
+        EntryIterator(@NonNull final Node root) {
+            arrays[0] = root.array;
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Map.Entry<String, Object> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Map.Entry<String, Object> entry = next;
+            advance();
+            return entry;
+        }
+
+        private void advance() {
+            next = null;
+            while (depth >= 0) {
+                Object[] array = arrays[depth];
+                int position = positions[depth];
+                if (position >= array.length) {
+                    arrays[depth] = null;
+                    depth--;
+                    continue;
+                }
+                positions[depth] = position + 2;
+                if (array[position] == CHILD) {
+                    depth++;
+                    arrays[depth] = ((Node) array[position + 1]).array;
+                    positions[depth] = 0;
+                } else {
+                    next =
+                            new AbstractMap.SimpleImmutableEntry<>(
+                                    (String) array[position], array[position + 1]);
+                    return;
+                }
+            }
+        }
+    }
+}
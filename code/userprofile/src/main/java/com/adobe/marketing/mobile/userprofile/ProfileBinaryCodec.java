@@ -0,0 +1,361 @@
+/*
+  Copyright 2026 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile.userprofile;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.adobe.marketing.mobile.services.Log;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.reflect.Array;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Encodes the nested {@link Map} used by {@link ProfileData} in a compact binary format.
+ *
+ * <p>The encoded profile starts with the {@link #MAGIC} bytes and a format version, followed by a
+ * dictionary holding every map key once, and the type-tagged profile values. Map members refer to
+ * their key by its index in the dictionary, integers are stored as variable length numbers, and
+ * strings are length-prefixed UTF-8.
+ *
+ * <p>Decoding also accepts a json object, so that a profile written as json can still be read.
+ */
+class ProfileBinaryCodec {
+
+    static final byte[] MAGIC = {'U', 'P', 'B'};
+    static final int VERSION = 1;
+    private static final String CLASS_NAME = "ProfileBinaryCodec";
+    private static final int TYPE_NULL = 0;
+    private static final int TYPE_FALSE = 1;
+    private static final int TYPE_TRUE = 2;
+    private static final int TYPE_INTEGER = 3;
+    private static final int TYPE_DOUBLE = 4;
+    private static final int TYPE_STRING = 5;
+    private static final int TYPE_MAP = 6;
+    private static final int TYPE_LIST = 7;
+
+    private ProfileBinaryCodec() {}
+
+    /**
+     * Encodes the given profile.
+     *
+     * @param data the profile attributes
+     * @return the encoded profile
+     */
+    @NonNull static byte[] encode(@NonNull final Map<String, ?> data) {
+        Map<String, Integer> dictionary = new LinkedHashMap<>();
+        collectKeys(data, dictionary);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 + 16 * dictionary.size());
+        out.write(MAGIC, 0, MAGIC.length);
+        out.write(VERSION);
+        writeVarint(out, dictionary.size());
+        for (String key : dictionary.keySet()) {
+            writeString(out, key);
+        }
+        writeMap(out, data, dictionary);
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodes a profile encoded by {@link #encode(Map)}, or a json object.
+     *
+     * @param bytes the encoded profile
+     * @return a nested {@link Map}
+     * @throws IOException if the profile is truncated, corrupted or of an unsupported version
+     */
+    @NonNull static Map<String, Object> decode(@NonNull final byte[] bytes) throws IOException {
+        if (!hasMagic(bytes)) {
+            return decodeJson(bytes);
+        }
+        Reader reader = new Reader(bytes, MAGIC.length);
+        int version = reader.readByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported profile format version " + version);
+        }
+        int dictionarySize = reader.readLength();
+        String[] dictionary = new String[dictionarySize];
+        for (int i = 0; i < dictionarySize; i++) {
+            dictionary[i] = reader.readString();
+        }
+        Map<String, Object> data = reader.readMap(dictionary);
+        if (reader.position != bytes.length) {
+            throw new IOException("Unexpected content after the profile");
+        }
+        return data;
+    }
+
+    /**
+     * Returns whether the given bytes start with the binary profile header.
+     *
+     * @param bytes the encoded profile
+     * @return {@code true} if the bytes use the binary format
+     */
+    static boolean hasMagic(@NonNull final byte[] bytes) {
+        if (bytes.length < MAGIC.length) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (bytes[i] != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Map<String, Object> decodeJson(@NonNull final byte[] bytes) throws IOException {
+        try (InputStreamReader reader =
+                new InputStreamReader(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8)) {
+            return ProfileJsonDecoder.decode(reader);
+        } catch (JSONException e) {
+            throw new IOException("The profile is neither binary nor json: " + e.getMessage());
+        }
+    }
+
+    private static void collectKeys(
+            @NonNull final Map<String, ?> map, @NonNull final Map<String, Integer> dictionary) {
+        for (Map.Entry<String, ?> entry : map.entrySet()) {
+            if (entry.getValue() == null) {
+                continue;
+            }
+            String key = String.valueOf(entry.getKey());
+            if (!dictionary.containsKey(key)) {
+                dictionary.put(key, dictionary.size());
+            }
+            collectValueKeys(entry.getValue(), dictionary);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void collectValueKeys(
+            @Nullable final Object value, @NonNull final Map<String, Integer> dictionary) {
+        if (value instanceof Map) {
+            collectKeys((Map<String, ?>) value, dictionary);
+        } else if (value instanceof Collection) {
+            for (Object element : (Collection<?>) value) {
+                collectValueKeys(element, dictionary);
+            }
+        } else if (value != null && value.getClass().isArray()) {
+            for (int i = 0; i < Array.getLength(value); i++) {
+                collectValueKeys(Array.get(value, i), dictionary);
+            }
+        }
+    }
+
+    private static void writeMap(
+            @NonNull final ByteArrayOutputStream out,
+            @NonNull final Map<String, ?> map,
+            @NonNull final Map<String, Integer> dictionary) {
+        int size = 0;
+        for (Object value : map.values()) {
+            if (value != null) {
+                size++;
+            }
+        }
+        writeVarint(out, size);
+        for (Map.Entry<String, ?> entry : map.entrySet()) {
+            if (entry.getValue() == null) {
+                continue;
+            }
+            writeVarint(out, dictionary.get(String.valueOf(entry.getKey())));
+            writeValue(out, entry.getValue(), dictionary);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void writeValue(
+            @NonNull final ByteArrayOutputStream out,
+            @Nullable final Object value,
+            @NonNull final Map<String, Integer> dictionary) {
+        if (value == null || value == JSONObject.NULL) {
+            out.write(TYPE_NULL);
+        } else if (value instanceof Boolean) {
+            out.write((Boolean) value ? TYPE_TRUE : TYPE_FALSE);
+        } else if (value instanceof Integer
+                || value instanceof Long
+                || value instanceof Short
+                || value instanceof Byte) {
+            out.write(TYPE_INTEGER);
+            long number = ((Number) value).longValue();
+            // zigzag encoding keeps small negative numbers short
+            writeVarint(out, (number << 1) ^ (number >> 63));
+        } else if (value instanceof Number) {
+            double number = ((Number) value).doubleValue();
+            if (Double.isNaN(number) || Double.isInfinite(number)) {
+                throw new IllegalArgumentException("Profile values must be finite numbers");
+            }
+            out.write(TYPE_DOUBLE);
+            long bits = Double.doubleToLongBits(number);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                out.write((int) (bits >>> shift));
+            }
+        } else if (value instanceof Map) {
+            out.write(TYPE_MAP);
+            writeMap(out, (Map<String, ?>) value, dictionary);
+        } else if (value instanceof Collection) {
+            out.write(TYPE_LIST);
+            Collection<?> collection = (Collection<?>) value;
+            writeVarint(out, collection.size());
+            for (Object element : collection) {
+                writeValue(out, element, dictionary);
+            }
+        } else if (value.getClass().isArray()) {
+            List<Object> elements = new ArrayList<>();
+            for (int i = 0; i < Array.getLength(value); i++) {
+                elements.add(Array.get(value, i));
+            }
+            writeValue(out, elements, dictionary);
+        } else {
+            out.write(TYPE_STRING);
+            writeString(out, value.toString());
+        }
+    }
+
+    private static void writeString(
+            @NonNull final ByteArrayOutputStream out, @NonNull final String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static void writeVarint(@NonNull final ByteArrayOutputStream out, final long value) {
+        long remaining = value;
+        while ((remaining & ~0x7FL) != 0) {
+            out.write((int) ((remaining & 0x7F) | 0x80));
+            remaining >>>= 7;
+        }
+        out.write((int) remaining);
+    }
+
+    /** Reads the values of an encoded profile, checking every length against the input. */
+    private static final class Reader {
+        private final byte[] bytes;
+        private int position;
+
+        Reader(@NonNull final byte[] bytes, final int position) {
+            this.bytes = bytes;
+            this.position = position;
+        }
+
+        Map<String, Object> readMap(@NonNull final String[] dictionary) throws IOException {
+            int size = readLength();
+            Map<String, Object> map = new HashMap<>();
+            for (int i = 0; i < size; i++) {
+                long keyIndex = readVarint();
+                if (keyIndex < 0 || keyIndex >= dictionary.length) {
+                    throw new IOException("Invalid key index " + keyIndex);
+                }
+                String key = dictionary[(int) keyIndex];
+                int type = readByte();
+                if (type == TYPE_LIST) {
+                    // lists are not supported in a profile, as when reading json
+                    skipList(dictionary);
+                    Log.error(
+                            UserProfileConstants.LOG_TAG,
+                            CLASS_NAME,
+                            "Profile Data doesn't support Array value.");
+                } else {
+                    map.put(key, readValue(type, dictionary));
+                }
+            }
+            return map;
+        }
+
+        private Object readValue(final int type, @NonNull final String[] dictionary)
+                throws IOException {
+            switch (type) {
+                case TYPE_NULL:
+                    return JSONObject.NULL;
+                case TYPE_FALSE:
+                    return Boolean.FALSE;
+                case TYPE_TRUE:
+                    return Boolean.TRUE;
+                case TYPE_INTEGER:
+                    long zigzag = readVarint();
+                    long number = (zigzag >>> 1) ^ -(zigzag & 1);
+                    if (number >= Integer.MIN_VALUE && number <= Integer.MAX_VALUE) {
+                        return (int) number;
+                    }
+                    return number;
+                case TYPE_DOUBLE:
+                    long bits = 0;
+                    for (int i = 0; i < 8; i++) {
+                        bits = (bits << 8) | readByte();
+                    }
+                    return Double.longBitsToDouble(bits);
+                case TYPE_STRING:
+                    return readString();
+                case TYPE_MAP:
+                    return readMap(dictionary);
+                case TYPE_LIST:
+                    skipList(dictionary);
+                    return JSONObject.NULL;
+                default:
+                    throw new IOException("Unknown value type " + type);
+            }
+        }
+
+        private void skipList(@NonNull final String[] dictionary) throws IOException {
+            int size = readLength();
+            for (int i = 0; i < size; i++) {
+                readValue(readByte(), dictionary);
+            }
+        }
+
+        String readString() throws IOException {
+            int length = readLength();
+            if (length > bytes.length - position) {
+                throw new IOException("Truncated profile");
+            }
+            String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        int readByte() throws IOException {
+            if (position >= bytes.length) {
+                throw new IOException("Truncated profile");
+            }
+            return bytes[position++] & 0xFF;
+        }
+
+        int readLength() throws IOException {
+            long length = readVarint();
+            // every element takes at least one byte
+            if (length < 0 || length > bytes.length - position) {
+                throw new IOException("Invalid length " + length);
+            }
+            return (int) length;
+        }
+
+        long readVarint() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Invalid variable length number");
+        }
+    }
+}
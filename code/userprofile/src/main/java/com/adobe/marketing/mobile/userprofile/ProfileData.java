@@ -11,6 +11,7 @@
 
 package com.adobe.marketing.mobile.userprofile;
 
+import android.content.Context;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
@@ -19,21 +20,119 @@ import com.adobe.marketing.mobile.services.NamedCollection;
 import com.adobe.marketing.mobile.services.ServiceProvider;
 import com.adobe.marketing.mobile.util.DataReader;
 import com.adobe.marketing.mobile.util.DataReaderException;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeSet;
 import org.json.JSONException;
-import org.json.JSONObject;
 
+/**
+ * Holds the profile attributes in memory and persists them through a {@link ProfileStore}.
+ *
+ * <p>The methods of this class are synchronized, as the profile may be persisted from a background
+ * thread by the {@link PersistScheduler} while it is updated on the event hub thread. Writes are
+ * serialized by a separate lock, which also guards the stores: {@link #persist()} only holds the
+ * instance lock to take a snapshot of the profile, so that the profile can be read and updated
+ * while the snapshot is encoded and written.
+ *
+ * <p>The attributes are kept in a {@link PersistentProfileMap}, which is replaced rather than
+ * modified by every update. Taking a snapshot of the profile, to persist or to share it, is
+ * therefore free and the snapshot never sees the later updates.
+ *
+ * <p>The profile can be bounded by a quota on the number of attributes, on its encoded size and on
+ * the encoded size of each attribute. When the profile exceeds its quota, the least recently used
+ * attributes are evicted and reported to the {@link EvictionListener}.
+ *
+ * <p>Attributes can be written with a time to live. Their expiration times are kept in a min-heap,
+ * so that the expired attributes are found without scanning the profile; they are removed in a
+ * batch by {@link #purgeExpired()}, which is also called before every update, and are no longer
+ * returned by {@link #get(String)} once expired.
+ *
+ * <p>The attribute keys are also kept sorted, so that the keys matching a pattern are found from
+ * the literal prefix of the pattern, without scanning the profile.
+ *
+ * <p>Every attribute has a version, which changes whenever its value changes, so that a write can
+ * be made conditional on the attribute being unchanged since it was read. The versions are only
+ * kept in memory.
+ */
 class ProfileData {
 
+    /** Receives the attributes evicted to keep the profile within its quota. */
+    interface EvictionListener {
+
+        /**
+         * Called with the {@link ProfileData} lock held, after the attributes were removed.
+         *
+         * @param keys the evicted attribute keys, least recently used first
+         */
+        void onAttributesEvicted(@NonNull Set<String> keys);
+    }
+
+    /** The source of the current time, replaced in tests. */
+    interface Clock {
+
+        /** Returns the current time, in milliseconds since the epoch. */
+        long currentTimeMillis();
+    }
+
     private static final String USER_PROFILE_DATASTORE_NAME = "ADBUserProfile";
-    private static final String KEY_USER_PROFILE = "user_profile";
-    private static final String EMPTY_JSON = "{}";
+    private static final String USER_PROFILE_DIRECTORY_NAME = "adbuserprofile";
+    private static final String KEY_LAZY_LOAD = "user_profile_lazy_load";
+    private static final String KEY_EXPIRATIONS = "user_profile_expirations";
+    private static final String KEY_RESERVED_PROFILE_VERSION = "user_profile_reserved_version";
     private static final String CLASS_NAME = "PersistentProfileData";
     private final NamedCollection namedCollection;
-    private Map<String, Object> data = new HashMap<>();
+    private final File storageDirectory;
+    private PersistentProfileMap data = PersistentProfileMap.EMPTY;
+    private final Set<String> changedKeys = new HashSet<>();
+
+    /** The attribute keys, sorted to look up the keys with a given prefix. */
+    private final TreeSet<String> keyIndex = new TreeSet<>();
+
+    /**
+     * The version of every attribute, taken from a sequence incremented by every value change, so
+     * that an attribute removed and written again does not get its previous version back.
+     */
+    private final Map<String, Long> versions = new HashMap<>();
+
+    private long lastVersion;
+
+    /** The attribute keys, least recently used first. */
+    private final Map<String, Boolean> recency = new LinkedHashMap<>(16, 0.75f, true);
+
+    /** The encoded size of every attribute, only tracked with a profile size quota. */
+    private final Map<String, Integer> encodedSizes = new HashMap<>();
+
+    private long encodedSize;
+    private int maxAttributes;
+    private long maxProfileBytes;
+    private int maxAttributeBytes;
+    private EvictionListener evictionListener;
+
+    /** The expiration time of the attributes written with a time to live. */
+    private final Map<String, Long> expirations = new HashMap<>();
+
+    /**
+     * The expiration index, soonest first. An entry whose attribute was rewritten, removed or given
+     * another expiration time since is stale, and is skipped when it reaches the head.
+     */
+    private final PriorityQueue<Expiration> expirationQueue = new PriorityQueue<>();
+
+    private boolean expirationsChanged;
+    private Clock clock = System::currentTimeMillis;
+    private final Object writeLock = new Object();
+    private ProfileStore store;
+    private ProfileStore previousStore;
 
     ProfileData() throws MissingPlatformServicesException {
         namedCollection =
@@ -44,59 +143,280 @@ class ProfileData {
             throw new MissingPlatformServicesException(
                     "Failed to create a NamedCollection service with the collection name"
                             + " [ADBUserProfile]");
+        storageDirectory = getStorageDirectory();
+        store = createStore(UserProfileConstants.StorageMode.SINGLE_KEY);
     }
 
     @VisibleForTesting
     ProfileData(final NamedCollection namedCollection) {
+        this(namedCollection, null);
+    }
+
+    @VisibleForTesting
+    ProfileData(final NamedCollection namedCollection, @Nullable final File storageDirectory) {
         this.namedCollection = namedCollection;
+        this.storageDirectory = storageDirectory;
+        store = createStore(UserProfileConstants.StorageMode.SINGLE_KEY);
     }
 
     /**
-     * Loads the saved profile json string into the internal Map.
+     * Loads the saved profile into the internal Map.
+     *
+     * <p>The profile is read from the layout it was last persisted with, which also becomes the
+     * layout used by the following {@link #persist()} calls until {@link #setStorageMode(String)}
+     * selects another one.
      *
      * @return {@code True} indicating the stored data was retrieved and parsed to a {@code Map}
      *     correctly
      */
     boolean loadPersistenceData() {
-        String json = namedCollection.getString(KEY_USER_PROFILE, EMPTY_JSON);
-        try {
-            if (json == null) return true;
-            JSONObject jsonObject = new JSONObject(json);
-            this.data = JSONUtils.convertJsonObjectToNestedMap(jsonObject);
+        synchronized (writeLock) {
+            if (store == null) return false;
+            for (String mode :
+                    Arrays.asList(
+                            UserProfileConstants.StorageMode.JOURNAL,
+                            UserProfileConstants.StorageMode.BINARY,
+                            UserProfileConstants.StorageMode.SHARDED,
+                            UserProfileConstants.StorageMode.SNAPSHOT,
+                            UserProfileConstants.StorageMode.INCREMENTAL)) {
+                if (isFileBased(mode) && storageDirectory == null) {
+                    continue;
+                }
+                ProfileStore storedLayout = createStore(mode);
+                if (storedLayout.exists()) {
+                    if (store.exists()) {
+                        // a previous migration was interrupted before the old layout was removed
+                        previousStore = store;
+                    }
+                    store = storedLayout;
+                    break;
+                }
+            }
+            Map<String, Object> storedExpirations = loadExpirations();
+            Map<String, Object> storedData = store.load();
+            if (storedData == null) {
+                return false;
+            }
+            synchronized (this) {
+                Map<String, Object> immutableData = new HashMap<>();
+                for (Map.Entry<String, Object> entry : storedData.entrySet()) {
+                    immutableData.put(entry.getKey(), immutableValue(entry.getValue()));
+                }
+                this.data = PersistentProfileMap.of(immutableData);
+                changedKeys.clear();
+                keyIndex.clear();
+                keyIndex.addAll(storedData.keySet());
+                recency.clear();
+                versions.clear();
+                for (String key : storedData.keySet()) {
+                    recency.put(key, Boolean.TRUE);
+                    versions.put(key, ++lastVersion);
+                }
+                trackEncodedSizes(maxProfileBytes > 0);
+                expirations.clear();
+                expirationQueue.clear();
+                for (Map.Entry<String, Object> entry : storedExpirations.entrySet()) {
+                    if (storedData.containsKey(entry.getKey())
+                            && entry.getValue() instanceof Number) {
+                        setExpiration(entry.getKey(), ((Number) entry.getValue()).longValue());
+                    }
+                }
+                expirationsChanged = false;
+            }
             return true;
-        } catch (JSONException e) {
-            Log.error(
+        }
+    }
+
+    /**
+     * Selects the layout used to persist the profile. When it differs from the current layout, the
+     * whole profile is rewritten with the new layout and the data stored with the previous layout
+     * is removed.
+     *
+     * @param mode the {@link UserProfileConstants.StorageMode} name; unknown names select the
+     *     default layout
+     * @return {@code True} if the profile is persisted with the requested layout
+     */
+    boolean setStorageMode(@Nullable final String mode) {
+        synchronized (writeLock) {
+            if (store == null) return false;
+            ProfileStore newStore = createStore(mode);
+            if (newStore.getMode().equals(store.getMode())) {
+                return true;
+            }
+            Log.debug(
                     UserProfileConstants.LOG_TAG,
                     CLASS_NAME,
-                    "Could not load persistent profile data: %s",
-                    e);
-            return false;
+                    "Switching the profile storage mode from (%s) to (%s)",
+                    store.getMode(),
+                    newStore.getMode());
+            if (previousStore == null || previousStore.getMode().equals(newStore.getMode())) {
+                // the layout being left behind is removed once the new one is fully written
+                previousStore = store;
+            }
+            store = newStore;
+            return persist();
         }
     }
 
     /**
-     * Persist the internal {@code Map} to disk. The disk copy is a json string of the Map.
+     * Returns whether the profile should be loaded in the background when the extension is
+     * registered, as requested by the configuration of the previous launch.
+     *
+     * @return {@code True} if lazy loading is enabled
+     */
+    synchronized boolean isLazyLoadingEnabled() {
+        return namedCollection != null && namedCollection.getBoolean(KEY_LAZY_LOAD, false);
+    }
+
+    /**
+     * Remembers whether the profile should be loaded in the background on the next launch. The
+     * setting is kept with the profile, as the configuration is not available yet when the
+     * extension is registered.
+     *
+     * @param enabled whether lazy loading is enabled
+     */
+    synchronized void setLazyLoadingEnabled(final boolean enabled) {
+        if (namedCollection == null || isLazyLoadingEnabled() == enabled) {
+            return;
+        }
+        namedCollection.setBoolean(KEY_LAZY_LOAD, enabled);
+    }
+
+    /**
+     * Returns the highest profile version reserved by the previous launches. The versions shared by
+     * this launch start above it, so that they keep increasing across launches.
+     *
+     * @return the reserved profile version, {@code 0} if none was reserved
+     */
+    synchronized long getReservedProfileVersion() {
+        return namedCollection != null
+                ? namedCollection.getLong(KEY_RESERVED_PROFILE_VERSION, 0)
+                : 0;
+    }
+
+    /**
+     * Reserves the profile versions up to the given one, which can then be shared without writing
+     * them one by one.
+     *
+     * @param version the highest reserved profile version
+     */
+    synchronized void reserveProfileVersions(final long version) {
+        if (namedCollection != null) {
+            namedCollection.setLong(KEY_RESERVED_PROFILE_VERSION, version);
+        }
+    }
+
+    /**
+     * Sets the listener notified of the evicted attributes.
+     *
+     * @param listener the {@link EvictionListener}, or null
+     */
+    synchronized void setEvictionListener(@Nullable final EvictionListener listener) {
+        this.evictionListener = listener;
+    }
+
+    /**
+     * Sets the quota of the profile and evicts the least recently used attributes if the profile
+     * exceeds it. A limit of {@code 0} or less disables it. The attribute size limit only applies
+     * to the attributes written afterwards.
+     *
+     * @param maxAttributes the maximum number of attributes
+     * @param maxProfileBytes the maximum size of the profile encoded as json, in bytes
+     * @param maxAttributeBytes the maximum size of an attribute encoded as a json object member, in
+     *     bytes; larger attributes are not written
+     * @return the evicted attribute keys
+     */
+    @NonNull synchronized Set<String> setQuota(
+            final int maxAttributes, final long maxProfileBytes, final int maxAttributeBytes) {
+        if (this.maxAttributes == Math.max(0, maxAttributes)
+                && this.maxProfileBytes == Math.max(0, maxProfileBytes)
+                && this.maxAttributeBytes == Math.max(0, maxAttributeBytes)) {
+            // the profile was kept within this quota by every update
+            return new HashSet<>();
+        }
+        boolean trackingSizes = this.maxProfileBytes > 0;
+        this.maxAttributes = Math.max(0, maxAttributes);
+        this.maxProfileBytes = Math.max(0, maxProfileBytes);
+        this.maxAttributeBytes = Math.max(0, maxAttributeBytes);
+        if (trackingSizes != this.maxProfileBytes > 0) {
+            // the encoded sizes are kept up to date by every update while they are tracked
+            trackEncodedSizes(this.maxProfileBytes > 0);
+        }
+        return enforceQuota();
+    }
+
+    /**
+     * Replaces the source of the current time used to expire the attributes.
+     *
+     * @param clock the {@link Clock}
+     */
+    @VisibleForTesting
+    synchronized void setClock(@NonNull final Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Persist the internal {@code Map} to disk. Depending on the storage mode, either the whole
+     * profile or only the attributes changed since the last call are written. Nothing is written if
+     * the profile did not change since the last successful call.
+     *
+     * <p>Concurrent calls are serialized, and each one writes the profile as it was when its write
+     * started, so the last write always holds the latest changes. When this method returns, every
+     * change made before it was called is on disk.
      *
      * @return {@code True} indicating if saving to disk was successful.
      */
     boolean persist() {
-        try {
-            if (namedCollection == null) return false;
-            String json = new JSONObject(data).toString();
-            namedCollection.setString(KEY_USER_PROFILE, json);
-            Log.trace(
-                    UserProfileConstants.LOG_TAG,
-                    CLASS_NAME,
-                    "Profile Data is persisted : %s",
-                    json);
-            return true;
-        } catch (Exception e) {
-            Log.error(
-                    UserProfileConstants.LOG_TAG,
-                    CLASS_NAME,
-                    "Profile Data is not persisted : %s",
-                    e);
-            return false;
+        synchronized (writeLock) {
+            Map<String, Object> snapshot;
+            Set<String> savedKeys;
+            Map<String, Object> savedExpirations = null;
+            synchronized (this) {
+                if (namedCollection == null) return false;
+                boolean fullWrite = previousStore != null;
+                if (changedKeys.isEmpty() && !fullWrite && !expirationsChanged) {
+                    return true;
+                }
+                snapshot = data;
+                savedKeys = fullWrite ? null : new HashSet<>(changedKeys);
+                changedKeys.clear();
+                if (expirationsChanged) {
+                    savedExpirations = new HashMap<>(expirations);
+                    expirationsChanged = false;
+                }
+            }
+            boolean saved;
+            try {
+                if (savedExpirations != null) {
+                    // written first: if the profile write does not complete, an attribute may
+                    // expire early, but never outlives its time to live
+                    saveExpirations(savedExpirations);
+                }
+                saved =
+                        (savedKeys != null && savedKeys.isEmpty())
+                                || store.save(snapshot, savedKeys);
+                if (saved && previousStore != null) {
+                    previousStore.clear();
+                    previousStore = null;
+                }
+            } catch (Exception e) {
+                Log.error(
+                        UserProfileConstants.LOG_TAG,
+                        CLASS_NAME,
+                        "Profile Data is not persisted : %s",
+                        e);
+                saved = false;
+            }
+            if (!saved) {
+                synchronized (this) {
+                    // written again by the next call, a failed full write is retried as well
+                    if (savedKeys != null) {
+                        changedKeys.addAll(savedKeys);
+                    }
+                    expirationsChanged |= savedExpirations != null;
+                }
+            }
+            return saved;
         }
     }
 
@@ -104,11 +424,66 @@ class ProfileData {
      * Deletes the given keys from the internal map.
      *
      * @param keys The {@link String} keys which have to be deleted
+     * @return the keys which existed and were deleted, and the keys which expired
      */
-    void delete(@NonNull final List<String> keys) {
+    @NonNull synchronized Set<String> delete(@NonNull final List<String> keys) {
+        Set<String> deletedKeys = purgeExpired();
         for (String key : keys) {
-            data.remove(key);
+            delete(key, deletedKeys, false);
+        }
+        return deletedKeys;
+    }
+
+    /**
+     * Deletes every attribute matching one of the given {@link KeyPattern}s from the internal map.
+     * A pattern without wildcards deletes the attribute with that key only.
+     *
+     * @param patterns The {@link String} patterns of the keys which have to be deleted
+     * @return the keys which existed and were deleted, and the keys which expired
+     */
+    @NonNull synchronized Set<String> deleteMatching(@NonNull final List<String> patterns) {
+        Set<String> deletedKeys = purgeExpired();
+        for (String pattern : patterns) {
+            delete(pattern, deletedKeys, true);
+        }
+        return deletedKeys;
+    }
+
+    private void delete(
+            @NonNull final String key,
+            @NonNull final Set<String> deletedKeys,
+            final boolean matching) {
+        List<String> matchingKeys =
+                matching && KeyPattern.isPattern(key)
+                        ? findKeys(key)
+                        : Collections.singletonList(key);
+        for (String matchingKey : matchingKeys) {
+            if (updateOrDelete(matchingKey, null, 0)) {
+                deletedKeys.add(matchingKey);
+            }
+        }
+    }
+
+    /**
+     * Returns the keys of the attributes matching the given {@link KeyPattern}, in ascending order.
+     * Only the keys starting with the literal prefix of the pattern are visited.
+     *
+     * @param pattern the pattern
+     * @return the matching attribute keys, without the expired attributes
+     */
+    @NonNull synchronized List<String> findKeys(@NonNull final String pattern) {
+        List<String> keys = new ArrayList<>();
+        String prefix = KeyPattern.literalPrefix(pattern);
+        boolean prefixPattern = KeyPattern.isPrefixPattern(pattern);
+        for (String key : keyIndex.tailSet(prefix, true)) {
+            if (!key.startsWith(prefix)) {
+                break;
+            }
+            if ((prefixPattern || KeyPattern.matches(pattern, key)) && !isExpired(key)) {
+                keys.add(key);
+            }
         }
+        return keys;
     }
 
     /**
@@ -117,7 +492,11 @@ class ProfileData {
      * @param key A {@link String} profile key
      * @return the {@link Object} value for the given key
      */
-    @Nullable Object get(final String key) {
+    @Nullable synchronized Object get(final String key) {
+        if (isExpired(key)) {
+            return null;
+        }
+        recency.get(key);
         return data.get(key);
     }
 
@@ -127,7 +506,11 @@ class ProfileData {
      * @param key A {@link String} profile key
      * @return the {@link Map} value for the given key
      */
-    @Nullable Map<String, Object> getMap(final String key) {
+    @Nullable synchronized Map<String, Object> getMap(final String key) {
+        if (isExpired(key)) {
+            return null;
+        }
+        recency.get(key);
         try {
             return DataReader.getTypedMap(Object.class, data, key);
         } catch (DataReaderException e) {
@@ -135,6 +518,353 @@ class ProfileData {
         }
     }
 
+    /**
+     * Returns the version of the attribute, which changes every time its value changes.
+     *
+     * @param key the attribute key
+     * @return the attribute version, or {@code 0} if the attribute does not exist
+     */
+    synchronized long getVersion(@Nullable final String key) {
+        Long version = versions.get(key);
+        return version != null && !isExpired(key) ? version : 0;
+    }
+
+    /**
+     * Sets the attribute to the given value if its current value equals the expected one, in a
+     * single step. Numbers are equal when they have the same numeric value, whatever their type.
+     * The attribute loses its time to live, as with {@link #updateOrDelete(Map)}.
+     *
+     * @param key the attribute key
+     * @param expectedValue the expected current value, or null if the attribute must not exist
+     * @param value the new value, or null to remove the attribute
+     * @return the keys of the attributes which changed, expired or were evicted, or null if the
+     *     current value is not the expected one
+     */
+    @Nullable synchronized Set<String> compareAndSet(
+            @NonNull final String key,
+            @Nullable final Object expectedValue,
+            @Nullable final Object value) {
+        Set<String> updatedKeys = purgeExpired();
+        if (!valueEquals(expectedValue, data.get(key))) {
+            return null;
+        }
+        updatedKeys.addAll(updateOrDelete(Collections.singletonMap(key, value), 0));
+        return updatedKeys;
+    }
+
+    /**
+     * Sets the attribute to the given value if its current version is the expected one, as {@link
+     * #compareAndSet(String, Object, Object)} does for its value.
+     *
+     * @param key the attribute key
+     * @param expectedVersion the expected current version, or {@code 0} if the attribute must not
+     *     exist
+     * @param value the new value, or null to remove the attribute
+     * @return the keys of the attributes which changed, expired or were evicted, or null if the
+     *     current version is not the expected one
+     */
+    @Nullable synchronized Set<String> compareVersionAndSet(
+            @NonNull final String key, final long expectedVersion, @Nullable final Object value) {
+        Set<String> updatedKeys = purgeExpired();
+        if (getVersion(key) != expectedVersion) {
+            return null;
+        }
+        updatedKeys.addAll(updateOrDelete(Collections.singletonMap(key, value), 0));
+        return updatedKeys;
+    }
+
+    private static boolean valueEquals(
+            @Nullable final Object expected, @Nullable final Object value) {
+        if (expected instanceof Number && value instanceof Number) {
+            // the numbers read back from disk may not have the type they were written with
+            return CounterOperations.compare((Number) expected, (Number) value) == 0;
+        }
+        return expected == null ? value == null : expected.equals(value);
+    }
+
+    /**
+     * Returns the value at the given {@link AttributePath}, nested in a map-valued attribute.
+     *
+     * @param path the JSON pointer or dot separated path
+     * @return the nested value, or null if the path is invalid or does not exist
+     */
+    @Nullable synchronized Object getPath(@Nullable final String path) {
+        List<String> segments = AttributePath.parse(path);
+        if (segments == null) {
+            return null;
+        }
+        return AttributePath.get(get(segments.get(0)), segments);
+    }
+
+    /**
+     * Updates the values at the given {@link AttributePath}s, nested in map-valued attributes, and
+     * removes them when the given value is null. The missing maps along a path are created. Only
+     * the attributes containing the paths are changed, and they keep their time to live.
+     *
+     * <p>A path which goes through a value which is not a map is skipped.
+     *
+     * @param values the new values, by JSON pointer or dot separated path
+     * @return the keys of the attributes which changed, and the keys which expired or were evicted
+     */
+    @NonNull synchronized Set<String> updateOrDeletePaths(
+            @NonNull final Map<String, Object> values) {
+        Set<String> updatedKeys = purgeExpired();
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            List<String> segments = AttributePath.parse(entry.getKey());
+            if (segments == null) {
+                Log.debug(
+                        UserProfileConstants.LOG_TAG,
+                        CLASS_NAME,
+                        "Invalid profile attribute path [%s], skipping it",
+                        entry.getKey());
+                continue;
+            }
+            if (updateOrDeletePath(segments, entry.getValue())) {
+                updatedKeys.add(segments.get(0));
+            }
+        }
+        updatedKeys.addAll(enforceQuota());
+        return updatedKeys;
+    }
+
+    /**
+     * Merges the given patch into the profile, with the JSON merge patch semantics of {@link
+     * MergePatch}: the map values of the patch are merged into the attributes, the null values
+     * remove the attributes, and the other values replace them. The merged attributes keep their
+     * time to live, and only the attributes whose value actually changed are marked for
+     * persistence.
+     *
+     * @param patch the merge patch, by attribute key
+     * @return the keys of the attributes which changed, and the keys which expired or were evicted
+     */
+    @SuppressWarnings("unchecked")
+    @NonNull synchronized Set<String> merge(@NonNull final Map<String, Object> patch) {
+        Set<String> updatedKeys = purgeExpired();
+        for (Map.Entry<String, Object> entry : patch.entrySet()) {
+            String key = entry.getKey();
+            Object value = entry.getValue();
+            if (value instanceof Map) {
+                value = MergePatch.apply(data.get(key), (Map<String, Object>) value);
+            }
+            Long expirationTime = expirations.get(key);
+            if (updateOrDelete(key, value, expirationTime != null ? expirationTime : 0)) {
+                updatedKeys.add(key);
+            }
+        }
+        updatedKeys.addAll(enforceQuota());
+        return updatedKeys;
+    }
+
+    /**
+     * Applies a {@link UserProfileConstants.CounterOperation} to a numeric attribute, in place of
+     * reading it and writing it back. The attribute keeps its time to live.
+     *
+     * @param key the attribute key
+     * @param operation the {@link UserProfileConstants.CounterOperation} name
+     * @param operand the operand
+     * @return the key of the attribute if it changed, and the keys which expired or were evicted
+     */
+    @NonNull synchronized Set<String> applyCounterOperation(
+            @NonNull final String key,
+            @NonNull final String operation,
+            @NonNull final Number operand) {
+        Set<String> updatedKeys = purgeExpired();
+        if (applyCounter(key, operation, operand)) {
+            updatedKeys.add(key);
+        }
+        updatedKeys.addAll(enforceQuota());
+        return updatedKeys;
+    }
+
+    /**
+     * Applies the operations of a transaction in order, as a single change: the profile is only
+     * checked against its quota once they are all applied, and no snapshot of the profile sees some
+     * of them only.
+     *
+     * <p>The transaction is all-or-nothing: the results of its counter operations are computed
+     * against a staged view of the profile first, and the whole transaction is rejected if one of
+     * its operations cannot be applied, such as an increment which would overflow or a value
+     * exceeding the attribute quota.
+     *
+     * @param operations the {@link UserProfileConstants.TransactionOperation}s, which must be valid
+     * @return the keys of the attributes which changed, and the keys which expired or were evicted;
+     *     only the expired keys if the transaction is rejected
+     */
+    @NonNull synchronized Set<String> applyTransaction(
+            @NonNull final List<Map<String, Object>> operations) {
+        Set<String> updatedKeys = purgeExpired();
+        List<Number> counterValues = stageTransaction(operations);
+        if (counterValues == null) {
+            Log.warning(
+                    UserProfileConstants.LOG_TAG,
+                    CLASS_NAME,
+                    "The transaction is rejected, one of its operations cannot be applied");
+            return updatedKeys;
+        }
+        Iterator<Number> counterValue = counterValues.iterator();
+        for (Map<String, Object> operation : operations) {
+            String name = (String) operation.get(UserProfileConstants.TransactionOperation.NAME);
+            String key = (String) operation.get(UserProfileConstants.TransactionOperation.KEY);
+            Object value = operation.get(UserProfileConstants.TransactionOperation.VALUE);
+            if (UserProfileConstants.TransactionOperation.REMOVE.equals(name)) {
+                delete(key, updatedKeys, false);
+            } else if (UserProfileConstants.TransactionOperation.REMOVE_MATCHING.equals(name)) {
+                delete(key, updatedKeys, true);
+            } else if (UserProfileConstants.TransactionOperation.SET.equals(name)) {
+                if (updateOrDelete(key, value, 0)) {
+                    updatedKeys.add(key);
+                }
+            } else if (updateCounter(key, counterValue.next())) {
+                updatedKeys.add(key);
+            }
+        }
+        updatedKeys.addAll(enforceQuota());
+        return updatedKeys;
+    }
+
+    /**
+     * Validates the operations of a transaction against a staged view of the profile, which is not
+     * modified: the values they set, compute or remove are staged in order, so an operation sees
+     * the changes of the previous ones.
+     *
+     * @param operations the {@link UserProfileConstants.TransactionOperation}s
+     * @return the results of the counter operations in order, or null if one of the operations
+     *     cannot be applied
+     */
+    @Nullable private List<Number> stageTransaction(
+            @NonNull final List<Map<String, Object>> operations) {
+        Map<String, Object> staged = new HashMap<>();
+        List<Number> counterValues = new ArrayList<>();
+        for (Map<String, Object> operation : operations) {
+            String name = (String) operation.get(UserProfileConstants.TransactionOperation.NAME);
+            String key = (String) operation.get(UserProfileConstants.TransactionOperation.KEY);
+            Object value = operation.get(UserProfileConstants.TransactionOperation.VALUE);
+            if (UserProfileConstants.TransactionOperation.REMOVE.equals(name)) {
+                staged.put(key, null);
+            } else if (UserProfileConstants.TransactionOperation.REMOVE_MATCHING.equals(name)
+                    && KeyPattern.isPattern(key)) {
+                for (String matchingKey : findKeys(key)) {
+                    staged.put(matchingKey, null);
+                }
+                for (Map.Entry<String, Object> entry : staged.entrySet()) {
+                    if (KeyPattern.matches(key, entry.getKey())) {
+                        entry.setValue(null);
+                    }
+                }
+            } else if (UserProfileConstants.TransactionOperation.REMOVE_MATCHING.equals(name)) {
+                staged.put(key, null);
+            } else if (UserProfileConstants.TransactionOperation.SET.equals(name)) {
+                if (exceedsAttributeQuota(key, value)) {
+                    return null;
+                }
+                staged.put(key, value);
+            } else {
+                Object current = staged.containsKey(key) ? staged.get(key) : data.get(key);
+                Number counterValue = counterValue(key, current, name, (Number) value);
+                if (counterValue == null || exceedsAttributeQuota(key, counterValue)) {
+                    return null;
+                }
+                staged.put(key, counterValue);
+                counterValues.add(counterValue);
+            }
+        }
+        return counterValues;
+    }
+
+    private boolean applyCounter(
+            @NonNull final String key,
+            @NonNull final String operation,
+            @NonNull final Number operand) {
+        Number value = counterValue(key, data.get(key), operation, operand);
+        return value != null && updateCounter(key, value);
+    }
+
+    @Nullable private static Number counterValue(
+            @NonNull final String key,
+            @Nullable final Object current,
+            @NonNull final String operation,
+            @NonNull final Number operand) {
+        Number value = CounterOperations.apply(current, operation, operand);
+        if (value == null) {
+            Log.warning(
+                    UserProfileConstants.LOG_TAG,
+                    CLASS_NAME,
+                    "The (%s) operation cannot be applied to the profile attribute [%s]",
+                    operation,
+                    key);
+        }
+        return value;
+    }
+
+    /** Writes the result of a counter operation, which keeps the time to live of the attribute. */
+    private boolean updateCounter(@NonNull final String key, @NonNull final Number value) {
+        Long expirationTime = expirations.get(key);
+        return updateOrDelete(key, value, expirationTime != null ? expirationTime : 0);
+    }
+
+    /**
+     * Returns whether a value exceeds the attribute quota, so {@link #updateOrDelete(String,
+     * Object, long)} would not write it.
+     */
+    private boolean exceedsAttributeQuota(@NonNull final String key, @Nullable final Object value) {
+        if (value == null || maxAttributeBytes <= 0 || value.equals(data.get(key))) {
+            return false;
+        }
+        int size = encodedSize(key, value);
+        if (size <= maxAttributeBytes) {
+            return false;
+        }
+        Log.warning(
+                UserProfileConstants.LOG_TAG,
+                CLASS_NAME,
+                "The profile attribute [%s] cannot be written, its size (%d bytes) exceeds the"
+                        + " quota of %d bytes",
+                key,
+                size,
+                maxAttributeBytes);
+        return true;
+    }
+
+    /**
+     * Removes the values at the given {@link AttributePath}s, as {@link #updateOrDeletePaths(Map)}
+     * does for null values.
+     *
+     * @param paths the JSON pointers or dot separated paths
+     * @return the keys of the attributes which changed, and the keys which expired
+     */
+    @NonNull synchronized Set<String> deletePaths(@NonNull final List<String> paths) {
+        Map<String, Object> values = new HashMap<>();
+        for (String path : paths) {
+            values.put(path, null);
+        }
+        return updateOrDeletePaths(values);
+    }
+
+    private boolean updateOrDeletePath(
+            @NonNull final List<String> segments, @Nullable final Object value) {
+        String key = segments.get(0);
+        Long expirationTime = expirations.get(key);
+        long keptExpirationTime = expirationTime != null ? expirationTime : 0;
+        if (segments.size() == 1) {
+            return updateOrDelete(key, value, keptExpirationTime);
+        }
+        Object attribute = data.get(key);
+        if (value == null && AttributePath.get(attribute, segments) == null) {
+            return false;
+        }
+        Map<String, Object> updated = AttributePath.with(attribute, segments, value);
+        if (updated == null) {
+            Log.warning(
+                    UserProfileConstants.LOG_TAG,
+                    CLASS_NAME,
+                    "The profile attribute path [%s] goes through a value which is not a map, it"
+                            + " is not written",
+                    segments);
+            return false;
+        }
+        return updateOrDelete(key, updated, keptExpirationTime);
+    }
+
     /**
      * Update the internal map with the key and value supplied.
      *
@@ -144,30 +874,366 @@ class ProfileData {
      *   <li>If the attribute key did not exist before, it will be created.
      *   <li>If it did exist, it will be updated.
      *   <li>If it did exist, and the attribute value is null, the key will be deleted from the map.
+     *   <li>If it did exist with an equal value, nothing changes.
+     *   <li>If the attribute is larger than the attribute size quota, it is not written.
      * </ul>
      *
+     * <p>The attributes written lose their time to live, if any. The expired attributes are removed
+     * first, and the least recently used attributes are then evicted if the profile exceeds its
+     * quota.
+     *
      * @param profileAttributes A {@code Map} of the profile data to be updated.
+     * @return the keys whose value was actually created, updated, deleted, expired or evicted
      */
-    void updateOrDelete(@NonNull final Map<String, Object> profileAttributes) {
+    @NonNull synchronized Set<String> updateOrDelete(
+            @NonNull final Map<String, Object> profileAttributes) {
+        return updateOrDelete(profileAttributes, 0);
+    }
+
+    /**
+     * Updates the internal map as {@link #updateOrDelete(Map)} does, and expires the written
+     * attributes after the given time to live. Writing an attribute again with its current value
+     * restarts its time to live.
+     *
+     * @param profileAttributes A {@code Map} of the profile data to be updated.
+     * @param timeToLiveMs the time to live of the written attributes, in milliseconds; {@code 0} or
+     *     less writes attributes which do not expire
+     * @return the keys whose value or expiration time changed, and the keys which were deleted,
+     *     expired or evicted
+     */
+    @NonNull synchronized Set<String> updateOrDelete(
+            @NonNull final Map<String, Object> profileAttributes, final long timeToLiveMs) {
+        Set<String> updatedKeys = purgeExpired();
+        long expirationTime = timeToLiveMs > 0 ? clock.currentTimeMillis() + timeToLiveMs : 0;
         for (Map.Entry<String, Object> entry : profileAttributes.entrySet()) {
-            updateOrDelete(entry.getKey(), entry.getValue());
+            if (updateOrDelete(entry.getKey(), entry.getValue(), expirationTime)) {
+                updatedKeys.add(entry.getKey());
+            }
         }
+        updatedKeys.addAll(enforceQuota());
+        return updatedKeys;
     }
 
-    private void updateOrDelete(@NonNull final String key, @Nullable final Object value) {
+    private boolean updateOrDelete(
+            @NonNull final String key, @Nullable final Object value, final long expirationTime) {
         if (value == null) {
-            data.remove(key);
+            if (!data.containsKey(key)) {
+                return false;
+            }
+            recency.remove(key);
+            remove(key);
         } else {
-            data.put(key, value);
+            recency.put(key, Boolean.TRUE);
+            if (value.equals(data.get(key))) {
+                return setExpiration(key, expirationTime);
+            }
+            int size = maxAttributeBytes > 0 || maxProfileBytes > 0 ? encodedSize(key, value) : 0;
+            if (maxAttributeBytes > 0 && size > maxAttributeBytes) {
+                Log.warning(
+                        UserProfileConstants.LOG_TAG,
+                        CLASS_NAME,
+                        "The profile attribute [%s] is not written, its size (%d bytes) exceeds"
+                                + " the quota of %d bytes",
+                        key,
+                        size,
+                        maxAttributeBytes);
+                if (!data.containsKey(key)) {
+                    recency.remove(key);
+                }
+                return false;
+            }
+            data = data.with(key, immutableValue(value));
+            keyIndex.add(key);
+            versions.put(key, ++lastVersion);
+            if (maxProfileBytes > 0) {
+                Integer previousSize = encodedSizes.put(key, size);
+                encodedSize += size - (previousSize != null ? previousSize : 0);
+            }
+            setExpiration(key, expirationTime);
         }
+        changedKeys.add(key);
+        return true;
     }
 
     /**
-     * Returns a {@code Collections#unmodifiableMap(Map)} copy of the internal Map.
+     * Returns an immutable deep copy of an attribute value. The nested maps and lists of the
+     * profile are shared by every snapshot, so neither their readers nor the caller which provided
+     * them can modify the stored profile.
      *
-     * @return A copy of the internal {@link Map}
+     * @param value the attribute value
+     * @return the value, with its maps and lists copied into unmodifiable ones
      */
-    Map<String, Object> getMap() {
-        return Collections.unmodifiableMap(data);
+    @Nullable private static Object immutableValue(@Nullable final Object value) {
+        if (value instanceof Map) {
+            Map<Object, Object> copy = new HashMap<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                copy.put(entry.getKey(), immutableValue(entry.getValue()));
+            }
+            return Collections.unmodifiableMap(copy);
+        }
+        if (value instanceof List) {
+            List<Object> copy = new ArrayList<>();
+            for (Object item : (List<?>) value) {
+                copy.add(immutableValue(item));
+            }
+            return Collections.unmodifiableList(copy);
+        }
+        return value;
+    }
+
+    private void remove(@NonNull final String key) {
+        data = data.without(key);
+        keyIndex.remove(key);
+        versions.remove(key);
+        Integer size = encodedSizes.remove(key);
+        if (size != null) {
+            encodedSize -= size;
+        }
+        setExpiration(key, 0);
+    }
+
+    /**
+     * Removes the attributes whose time to live has elapsed.
+     *
+     * @return the expired attribute keys
+     */
+    @NonNull synchronized Set<String> purgeExpired() {
+        Set<String> expiredKeys = new HashSet<>();
+        long now = clock.currentTimeMillis();
+        Expiration next;
+        while ((next = expirationQueue.peek()) != null && next.time <= now) {
+            expirationQueue.poll();
+            if (!next.isCurrent(expirations)) {
+                continue;
+            }
+            recency.remove(next.key);
+            remove(next.key);
+            changedKeys.add(next.key);
+            expiredKeys.add(next.key);
+        }
+        if (!expiredKeys.isEmpty()) {
+            Log.debug(
+                    UserProfileConstants.LOG_TAG,
+                    CLASS_NAME,
+                    "Removed %d expired profile attribute(s)",
+                    expiredKeys.size());
+        }
+        return expiredKeys;
+    }
+
+    /**
+     * Returns when the next attribute expires.
+     *
+     * @return the expiration time, in milliseconds since the epoch, or {@code 0} if no attribute
+     *     has a time to live
+     */
+    synchronized long getNextExpirationTime() {
+        Expiration next;
+        while ((next = expirationQueue.peek()) != null && !next.isCurrent(expirations)) {
+            expirationQueue.poll();
+        }
+        return next != null ? next.time : 0;
+    }
+
+    private boolean isExpired(@Nullable final String key) {
+        if (expirations.isEmpty()) {
+            return false;
+        }
+        Long expirationTime = expirations.get(key);
+        return expirationTime != null && expirationTime <= clock.currentTimeMillis();
+    }
+
+    /**
+     * Sets or clears the expiration time of an attribute.
+     *
+     * @return {@code true} if the expiration time changed
+     */
+    private boolean setExpiration(@NonNull final String key, final long expirationTime) {
+        Long previous =
+                expirationTime > 0 ? expirations.put(key, expirationTime) : expirations.remove(key);
+        if (previous == null ? expirationTime <= 0 : previous == expirationTime) {
+            return false;
+        }
+        if (expirationTime > 0) {
+            expirationQueue.add(new Expiration(key, expirationTime));
+            if (expirationQueue.size() > 2 * expirations.size() + 16) {
+                // most entries are stale, rebuild the index from the current expirations
+                expirationQueue.clear();
+                for (Map.Entry<String, Long> entry : expirations.entrySet()) {
+                    expirationQueue.add(new Expiration(entry.getKey(), entry.getValue()));
+                }
+            }
+        }
+        expirationsChanged = true;
+        return true;
+    }
+
+    @NonNull private Map<String, Object> loadExpirations() {
+        String json = namedCollection.getString(KEY_EXPIRATIONS, null);
+        if (json == null) {
+            return Collections.emptyMap();
+        }
+        try {
+            return ProfileJsonDecoder.decode(json);
+        } catch (JSONException e) {
+            // the attributes are kept, without their time to live
+            Log.warning(
+                    UserProfileConstants.LOG_TAG,
+                    CLASS_NAME,
+                    "Could not load the profile attribute expirations: %s",
+                    e);
+            return Collections.emptyMap();
+        }
+    }
+
+    private void saveExpirations(@NonNull final Map<String, Object> savedExpirations) {
+        if (savedExpirations.isEmpty()) {
+            namedCollection.remove(KEY_EXPIRATIONS);
+        } else {
+            namedCollection.setString(
+                    KEY_EXPIRATIONS, new ProfileJsonEncoder().encode(savedExpirations));
+        }
+    }
+
+    /**
+     * Evicts the least recently used attributes until the profile is within its quota.
+     *
+     * @return the evicted attribute keys
+     */
+    private Set<String> enforceQuota() {
+        Set<String> evictedKeys = new LinkedHashSet<>();
+        Iterator<String> leastRecentlyUsed = recency.keySet().iterator();
+        while (exceedsQuota() && leastRecentlyUsed.hasNext()) {
+            String key = leastRecentlyUsed.next();
+            leastRecentlyUsed.remove();
+            remove(key);
+            changedKeys.add(key);
+            evictedKeys.add(key);
+        }
+        if (evictedKeys.isEmpty()) {
+            return evictedKeys;
+        }
+        Log.debug(
+                UserProfileConstants.LOG_TAG,
+                CLASS_NAME,
+                "Evicted %d profile attribute(s) to stay within the quota",
+                evictedKeys.size());
+        if (evictionListener != null) {
+            evictionListener.onAttributesEvicted(Collections.unmodifiableSet(evictedKeys));
+        }
+        return evictedKeys;
+    }
+
+    private boolean exceedsQuota() {
+        if (maxAttributes > 0 && data.size() > maxAttributes) {
+            return true;
+        }
+        // the members are separated by commas and enclosed in braces
+        long profileBytes = data.isEmpty() ? 2 : encodedSize + data.size() + 1;
+        return maxProfileBytes > 0 && profileBytes > maxProfileBytes;
+    }
+
+    /** Starts or stops tracking the encoded size of every attribute. */
+    private void trackEncodedSizes(final boolean enabled) {
+        encodedSizes.clear();
+        encodedSize = 0;
+        if (!enabled) {
+            return;
+        }
+        for (Map.Entry<String, Object> entry : data.entrySet()) {
+            int size = encodedSize(entry.getKey(), entry.getValue());
+            encodedSizes.put(entry.getKey(), size);
+            encodedSize += size;
+        }
+    }
+
+    private static int encodedSize(@NonNull final String key, @Nullable final Object value) {
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return ProfileJsonEncoder.encodedSize(key, value);
+        } catch (IllegalArgumentException e) {
+            // the value cannot be persisted anyway, see persist()
+            return 0;
+        }
+    }
+
+    /**
+     * Returns an immutable snapshot of the profile, which is not affected by the later updates.
+     *
+     * @return the profile attributes
+     */
+    synchronized Map<String, Object> getMap() {
+        return data;
+    }
+
+    private ProfileStore createStore(@Nullable final String mode) {
+        if (namedCollection == null) return null;
+        if (UserProfileConstants.StorageMode.INCREMENTAL.equals(mode)) {
+            return new IncrementalProfileStore(namedCollection);
+        }
+        if (UserProfileConstants.StorageMode.SHARDED.equals(mode)) {
+            return new ShardedProfileStore(namedCollection);
+        }
+        if (isFileBased(mode)) {
+            if (storageDirectory == null) {
+                Log.warning(
+                        UserProfileConstants.LOG_TAG,
+                        CLASS_NAME,
+                        "The application context is not available, the (%s) storage mode falls"
+                                + " back to the default layout",
+                        mode);
+            } else if (UserProfileConstants.StorageMode.JOURNAL.equals(mode)) {
+                return new JournalProfileStore(storageDirectory);
+            } else if (UserProfileConstants.StorageMode.SNAPSHOT.equals(mode)) {
+                return new SnapshotProfileStore(storageDirectory);
+            } else {
+                return new BinaryProfileStore(storageDirectory);
+            }
+        }
+        return new SingleKeyProfileStore(namedCollection);
+    }
+
+    private static boolean isFileBased(@Nullable final String mode) {
+        return UserProfileConstants.StorageMode.JOURNAL.equals(mode)
+                || UserProfileConstants.StorageMode.SNAPSHOT.equals(mode)
+                || UserProfileConstants.StorageMode.BINARY.equals(mode);
+    }
+
+    /**
+     * Returns the directory for the file based layouts, inside the application files directory.
+     *
+     * @return the storage directory, or null if the application context is not available
+     */
+    @Nullable private static File getStorageDirectory() {
+        Context context =
+                ServiceProvider.getInstance().getAppContextService().getApplicationContext();
+        if (context == null) {
+            return null;
+        }
+        return new File(context.getFilesDir(), USER_PROFILE_DIRECTORY_NAME);
+    }
+
+    /** An entry of the expiration index. */
+    private static final class Expiration implements Comparable<Expiration> {
+        final String key;
+        final long time;
+
+        Expiration(@NonNull final String key, final long time) {
+            this.key = key;
+            this.time = time;
+        }
+
+        /** Returns whether the attribute still expires at this time. */
+        boolean isCurrent(@NonNull final Map<String, Long> expirations) {
+            Long current = expirations.get(key);
+            return current != null && current == time;
+        }
+
+        @Override
+        public int compareTo(@NonNull final Expiration other) {
+            return Long.compare(time, other.time);
+        }
     }
 }
@@ -0,0 +1,355 @@
+/*
+  Copyright 2026 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile.userprofile;
+
+import androidx.annotation.NonNull;
+import com.adobe.marketing.mobile.services.Log;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Map;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Decodes a json object into the nested {@link Map} used by {@link ProfileData} in a single pass,
+ * without building an intermediate {@link JSONObject} tree.
+ *
+ * <p>The result matches the conversion of a {@link JSONObject} tree into nested maps: integral
+ * numbers are decoded as {@link Integer} or {@link Long}, other numbers as {@link Double}, {@code
+ * null} as {@link JSONObject#NULL}, and array values are skipped as they are not supported in a
+ * profile.
+ */
+class ProfileJsonDecoder {
+
+    /** Receives the members of a json object as they are decoded. */
+    interface MemberHandler {
+
+        /**
+         * Called with every member of the object, in order.
+         *
+         * @param key the member name
+         * @param value the decoded member value
+         * @return {@code false} to stop decoding the object
+         */
+        boolean onMember(@NonNull String key, @NonNull Object value);
+    }
+
+    private static final String CLASS_NAME = "ProfileJsonDecoder";
+    private static final int BUFFER_SIZE = 1024;
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private final StringBuilder token = new StringBuilder();
+    private int position;
+    private int limit;
+
+    private ProfileJsonDecoder(@NonNull final Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Decodes the given json object.
+     *
+     * @param json a json object {@link String}
+     * @return a nested {@link Map}
+     * @throws JSONException if the input is not a valid json object
+     */
+    @NonNull static Map<String, Object> decode(@NonNull final String json) throws JSONException {
+        try {
+            return decode(new StringReader(json));
+        } catch (IOException e) {
+            // not thrown by a StringReader
+            throw new JSONException(e.toString());
+        }
+    }
+
+    /**
+     * Decodes the json object read from the given {@link Reader}, which is not closed.
+     *
+     * @param reader the {@link Reader} providing a json object
+     * @return a nested {@link Map}
+     * @throws JSONException if the input is not a valid json object
+     * @throws IOException if the input could not be read
+     */
+    @NonNull static Map<String, Object> decode(@NonNull final Reader reader)
+            throws JSONException, IOException {
+        ProfileJsonDecoder decoder = new ProfileJsonDecoder(reader);
+        if (decoder.nextNonWhitespace() != '{') {
+            throw decoder.syntaxError("Expected a json object");
+        }
+        Map<String, Object> map = decoder.readObject();
+        if (decoder.nextNonWhitespace() != -1) {
+            throw decoder.syntaxError("Unexpected content after the json object");
+        }
+        return map;
+    }
+
+    /**
+     * Decodes the json object read from the given {@link Reader} one member at a time, so that the
+     * object is never held in memory as a whole. The reader is not closed.
+     *
+     * @param reader the {@link Reader} providing a json object
+     * @param handler receives the members of the object
+     * @return {@code false} if the handler stopped the decoding before the end of the object
+     * @throws JSONException if the input is not a valid json object
+     * @throws IOException if the input could not be read
+     */
+    static boolean decodeMembers(@NonNull final Reader reader, @NonNull final MemberHandler handler)
+            throws JSONException, IOException {
+        ProfileJsonDecoder decoder = new ProfileJsonDecoder(reader);
+        if (decoder.nextNonWhitespace() != '{') {
+            throw decoder.syntaxError("Expected a json object");
+        }
+        if (!decoder.readMembers(handler)) {
+            return false;
+        }
+        if (decoder.nextNonWhitespace() != -1) {
+            throw decoder.syntaxError("Unexpected content after the json object");
+        }
+        return true;
+    }
+
+    /** Reads an object whose opening brace was consumed. */
+    private Map<String, Object> readObject() throws JSONException, IOException {
+        Map<String, Object> map = new HashMap<>();
+        readMembers(
+                (key, value) -> {
+                    map.put(key, value);
+                    return true;
+                });
+        return map;
+    }
+
+    /**
+     * Reads the members of an object whose opening brace was consumed.
+     *
+     * @return {@code false} if the handler stopped reading before the closing brace
+     */
+    private boolean readMembers(@NonNull final MemberHandler handler)
+            throws JSONException, IOException {
+        int c = nextNonWhitespace();
+        if (c == '}') {
+            return true;
+        }
+        while (true) {
+            if (c != '"') {
+                throw syntaxError("Expected a member name");
+            }
+            String key = readString();
+            if (nextNonWhitespace() != ':') {
+                throw syntaxError("Expected ':' after a member name");
+            }
+            c = nextNonWhitespace();
+            if (c == '[') {
+                skipArray();
+                Log.error(
+                        UserProfileConstants.LOG_TAG,
+                        CLASS_NAME,
+                        "Profile Data doesn't support Array value.");
+            } else if (!handler.onMember(key, readValue(c))) {
+                return false;
+            }
+            c = nextNonWhitespace();
+            if (c == '}') {
+                return true;
+            }
+            if (c != ',') {
+                throw syntaxError("Expected ',' or '}' in a json object");
+            }
+            c = nextNonWhitespace();
+        }
+    }
+
+    private Object readValue(final int first) throws JSONException, IOException {
+        switch (first) {
+            case '{':
+                return readObject();
+            case '"':
+                return readString();
+            case 't':
+                expectLiteral("rue");
+                return Boolean.TRUE;
+            case 'f':
+                expectLiteral("alse");
+                return Boolean.FALSE;
+            case 'n':
+                expectLiteral("ull");
+                return JSONObject.NULL;
+            default:
+                if (first == '-' || (first >= '0' && first <= '9')) {
+                    return readNumber(first);
+                }
+                throw syntaxError("Unexpected value");
+        }
+    }
+
+    /** Skips an array whose opening bracket was consumed, including any nested value. */
+    private void skipArray() throws JSONException, IOException {
+        int c = nextNonWhitespace();
+        if (c == ']') {
+            return;
+        }
+        while (true) {
+            if (c == '[') {
+                skipArray();
+            } else {
+                readValue(c);
+            }
+            c = nextNonWhitespace();
+            if (c == ']') {
+                return;
+            }
+            if (c != ',') {
+                throw syntaxError("Expected ',' or ']' in a json array");
+            }
+            c = nextNonWhitespace();
+        }
+    }
+
+    /** Reads a string whose opening quote was consumed. */
+    private String readString() throws JSONException, IOException {
+        token.setLength(0);
+        while (true) {
+            // copy the unescaped runs of the buffer at once
+            int start = position;
+            while (position < limit) {
+                char c = buffer[position];
+                if (c == '"' || c == '\\') {
+                    break;
+                }
+                position++;
+            }
+            token.append(buffer, start, position - start);
+            int c = next();
+            if (c == -1) {
+                throw syntaxError("Unterminated string");
+            }
+            if (c == '"') {
+                return token.toString();
+            }
+            if (c == '\\') {
+                token.append(readEscape());
+            } else {
+                // the buffer was refilled in the middle of the string
+                token.append((char) c);
+            }
+        }
+    }
+
+    private char readEscape() throws JSONException, IOException {
+        int c = next();
+        switch (c) {
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            case '"':
+            case '\\':
+            case '/':
+                return (char) c;
+            case 'u':
+                int value = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(next(), 16);
+                    if (digit < 0) {
+                        throw syntaxError("Invalid unicode escape");
+                    }
+                    value = (value << 4) | digit;
+                }
+                return (char) value;
+            default:
+                throw syntaxError("Invalid escape sequence");
+        }
+    }
+
+    private Object readNumber(final int first) throws JSONException, IOException {
+        token.setLength(0);
+        token.append((char) first);
+        boolean integral = true;
+        while (true) {
+            int c = peek();
+            if (c >= '0' && c <= '9' || c == '-' || c == '+') {
+                token.append((char) c);
+            } else if (c == '.' || c == 'e' || c == 'E') {
+                token.append((char) c);
+                integral = false;
+            } else {
+                break;
+            }
+            position++;
+        }
+        String number = token.toString();
+        try {
+            if (integral) {
+                try {
+                    long longValue = Long.parseLong(number);
+                    if (longValue >= Integer.MIN_VALUE && longValue <= Integer.MAX_VALUE) {
+                        return (int) longValue;
+                    }
+                    return longValue;
+                } catch (NumberFormatException e) {
+                    // too large for a long, decoded as a double below
+                }
+            }
+            return Double.valueOf(number);
+        } catch (NumberFormatException e) {
+            throw syntaxError("Invalid number " + number);
+        }
+    }
+
+    private void expectLiteral(@NonNull final String rest) throws JSONException, IOException {
+        for (int i = 0; i < rest.length(); i++) {
+            if (next() != rest.charAt(i)) {
+                throw syntaxError("Invalid literal");
+            }
+        }
+    }
+
+    private int nextNonWhitespace() throws IOException {
+        int c;
+        do {
+            c = next();
+        } while (c == ' ' || c == '\n' || c == '\r' || c == '\t');
+        return c;
+    }
+
+    private int next() throws IOException {
+        int c = peek();
+        if (c != -1) {
+            position++;
+        }
+        return c;
+    }
+
+    private int peek() throws IOException {
+        if (position == limit) {
+            limit = reader.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position];
+    }
+
+    private JSONException syntaxError(@NonNull final String message) {
+        return new JSONException(message);
+    }
+}
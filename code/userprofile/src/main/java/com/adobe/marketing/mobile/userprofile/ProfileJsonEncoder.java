@@ -0,0 +1,247 @@
+/*
+  Copyright 2026 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile.userprofile;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.util.Collection;
+import java.util.Map;
+import org.json.JSONObject;
+
+/**
+ * Encodes the nested {@link Map} used by {@link ProfileData} as a json object, writing directly
+ * from the map instead of wrapping it into {@link JSONObject} instances first.
+ *
+ * <p>The output is valid json which {@link JSONObject} and {@link ProfileJsonDecoder} decode to the
+ * same map, but it is not byte for byte the output of {@code JSONObject#toString()}: for instance
+ * {@code /} is not escaped. An encoder instance keeps its buffer between calls, so it should only
+ * be used by one thread at a time.
+ */
+class ProfileJsonEncoder {
+
+    /** Buffers grown larger than this many characters are released after use. */
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    private StringBuilder buffer = new StringBuilder();
+
+    /**
+     * Encodes the given map using the buffer of this encoder.
+     *
+     * @param map the profile attributes
+     * @return the json object {@link String}
+     */
+    @NonNull String encode(@NonNull final Map<String, ?> map) {
+        buffer.setLength(0);
+        try {
+            write(map, buffer);
+            return buffer.toString();
+        } catch (IOException e) {
+            // not thrown by a StringBuilder
+            throw new IllegalStateException(e);
+        } finally {
+            if (buffer.capacity() > MAX_RETAINED_CAPACITY) {
+                buffer = new StringBuilder();
+            } else {
+                buffer.setLength(0);
+            }
+        }
+    }
+
+    /**
+     * Writes the given map as a json object to the given {@link Appendable}.
+     *
+     * @param map the profile attributes
+     * @param out where the json is written
+     * @throws IOException if the json could not be written
+     * @throws IllegalArgumentException if the map contains a non-finite number
+     */
+    static void write(@NonNull final Map<String, ?> map, @NonNull final Appendable out)
+            throws IOException {
+        out.append('{');
+        boolean first = true;
+        for (Map.Entry<String, ?> entry : map.entrySet()) {
+            if (entry.getValue() == null) {
+                continue;
+            }
+            if (!first) {
+                out.append(',');
+            }
+            first = false;
+            writeString(String.valueOf(entry.getKey()), out);
+            out.append(':');
+            writeValue(entry.getValue(), out);
+        }
+        out.append('}');
+    }
+
+    /**
+     * Returns the size in UTF-8 bytes of the given attribute written as a json object member, as in
+     * {@code "key":value}.
+     *
+     * @param key the attribute key
+     * @param value the attribute value
+     * @return the encoded size in bytes
+     * @throws IllegalArgumentException if the value contains a non-finite number
+     */
+    static int encodedSize(@NonNull final String key, @NonNull final Object value) {
+        ByteCounter counter = new ByteCounter();
+        try {
+            writeString(key, counter);
+            counter.append(':');
+            writeValue(value, counter);
+        } catch (IOException e) {
+            // not thrown by a ByteCounter
+            throw new IllegalStateException(e);
+        }
+        return counter.count;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void writeValue(@Nullable final Object value, @NonNull final Appendable out)
+            throws IOException {
+        if (value == null || value == JSONObject.NULL) {
+            out.append("null");
+        } else if (value instanceof String) {
+            writeString((String) value, out);
+        } else if (value instanceof Boolean) {
+            out.append(value.toString());
+        } else if (value instanceof Number) {
+            writeNumber((Number) value, out);
+        } else if (value instanceof Map) {
+            write((Map<String, ?>) value, out);
+        } else if (value instanceof Collection) {
+            out.append('[');
+            boolean first = true;
+            for (Object element : (Collection<?>) value) {
+                if (!first) {
+                    out.append(',');
+                }
+                first = false;
+                writeValue(element, out);
+            }
+            out.append(']');
+        } else if (value.getClass().isArray()) {
+            out.append('[');
+            for (int i = 0; i < Array.getLength(value); i++) {
+                if (i > 0) {
+                    out.append(',');
+                }
+                writeValue(Array.get(value, i), out);
+            }
+            out.append(']');
+        } else {
+            writeString(value.toString(), out);
+        }
+    }
+
+    private static void writeNumber(@NonNull final Number number, @NonNull final Appendable out)
+            throws IOException {
+        if (number instanceof Double || number instanceof Float) {
+            double value = number.doubleValue();
+            if (Double.isNaN(value) || Double.isInfinite(value)) {
+                throw new IllegalArgumentException("Profile values must be finite numbers");
+            }
+            // whole numbers are written without a fraction, as done by JSONObject
+            if (value == (long) value) {
+                out.append(Long.toString((long) value));
+                return;
+            }
+        }
+        out.append(number.toString());
+    }
+
+    private static void writeString(@NonNull final String value, @NonNull final Appendable out)
+            throws IOException {
+        out.append('"');
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            String escaped;
+            switch (c) {
+                case '"':
+                    escaped = "\\\"";
+                    break;
+                case '\\':
+                    escaped = "\\\\";
+                    break;
+                case '\b':
+                    escaped = "\\b";
+                    break;
+                case '\f':
+                    escaped = "\\f";
+                    break;
+                case '\n':
+                    escaped = "\\n";
+                    break;
+                case '\r':
+                    escaped = "\\r";
+                    break;
+                case '\t':
+                    escaped = "\\t";
+                    break;
+                default:
+                    if (c >= 0x20 && c != '\u2028' && c != '\u2029') {
+                        continue;
+                    }
+                    escaped = null;
+            }
+            // copy the run of characters which need no escaping at once
+            out.append(value, start, i);
+            start = i + 1;
+            if (escaped != null) {
+                out.append(escaped);
+            } else {
+                out.append("\\u")
+                        .append(HEX_DIGITS[(c >> 12) & 0xF])
+                        .append(HEX_DIGITS[(c >> 8) & 0xF])
+                        .append(HEX_DIGITS[(c >> 4) & 0xF])
+                        .append(HEX_DIGITS[c & 0xF]);
+            }
+        }
+        out.append(value, start, value.length());
+        out.append('"');
+    }
+
+    /** Counts the UTF-8 bytes of the characters appended to it. */
+    private static final class ByteCounter implements Appendable {
+        private int count;
+
+        @Override
+        public Appendable append(final CharSequence sequence) {
+            return append(sequence, 0, sequence.length());
+        }
+
+        @Override
+        public Appendable append(final CharSequence sequence, final int start, final int end) {
+            for (int i = start; i < end; i++) {
+                append(sequence.charAt(i));
+            }
+            return this;
+        }
+
+        @Override
+        public Appendable append(final char c) {
+            if (c < 0x80) {
+                count += 1;
+            } else if (c < 0x800 || Character.isSurrogate(c)) {
+                // each half of a surrogate pair counts for half of its four bytes
+                count += 2;
+            } else {
+                count += 3;
+            }
+            return this;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+  Copyright 2026 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile.userprofile;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import java.util.Map;
+import java.util.Set;
+
+/** Describes one on-disk layout used by {@link ProfileData} to persist the profile attributes. */
+interface ProfileStore {
+
+    /**
+     * Returns the storage mode name of this layout, as used by the {@code
+     * UserProfileConstants.EventDataKeys.Configuration#STORAGE_MODE} configuration key.
+     *
+     * @return the storage mode name
+     */
+    @NonNull String getMode();
+
+    /**
+     * Checks if the profile was persisted with this layout.
+     *
+     * @return {@code True} if data written with this layout exists in the persistence
+     */
+    boolean exists();
+
+    /**
+     * Reads the persisted profile attributes.
+     *
+     * @return the profile attributes, or null if the stored data could not be decoded
+     */
+    @Nullable Map<String, Object> load();
+
+    /**
+     * Writes the given profile attributes to the persistence.
+     *
+     * @param data the full profile attributes
+     * @param changedKeys the keys updated or removed since the last successful save, or null if the
+     *     whole profile has to be written
+     * @return {@code True} if the data was saved successfully
+     */
+    boolean save(@NonNull Map<String, Object> data, @Nullable Set<String> changedKeys);
+
+    /** Removes all data written with this layout from the persistence. */
+    void clear();
+}
@@ -0,0 +1,219 @@
+/*
+  Copyright 2026 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile.userprofile;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.adobe.marketing.mobile.services.Log;
+import com.adobe.marketing.mobile.services.NamedCollection;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.json.JSONException;
+
+/**
+ * A {@link ProfileStore} that spreads the attributes over several buckets by the hash of their key,
+ * each bucket being a json object stored under its own key. Persisting a change only re-encodes and
+ * writes the buckets holding the changed attributes, and every bucket is decoded on its own when
+ * loading.
+ *
+ * <p>The number of buckets is a power of two which grows and shrinks with the number of attributes,
+ * and is stored under {@value #KEY_BUCKET_COUNT}. The bucket keys include the bucket count, so that
+ * when the profile is redistributed over a new number of buckets, the previous buckets stay
+ * readable until the new ones are fully written.
+ *
+ * <p>The keys held by every bucket are indexed in memory once the profile is loaded or fully
+ * written, so that the changed buckets are rebuilt without scanning the whole profile.
+ */
+class ShardedProfileStore implements ProfileStore {
+
+    static final String KEY_BUCKET_COUNT = "user_profile_buckets";
+    static final String KEY_BUCKET_PREFIX = "user_profile_bucket.";
+
+    /** The average number of attributes a bucket should hold. */
+    static final int TARGET_BUCKET_SIZE = 32;
+
+    static final int MAX_BUCKET_COUNT = 64;
+    private static final String CLASS_NAME = "ShardedProfileStore";
+    private final NamedCollection namedCollection;
+    private final ProfileJsonEncoder encoder = new ProfileJsonEncoder();
+
+    /** The keys held by every bucket, null until the profile is loaded or fully written. */
+    private List<Set<String>> bucketIndex;
+
+    ShardedProfileStore(@NonNull final NamedCollection namedCollection) {
+        this.namedCollection = namedCollection;
+    }
+
+    @NonNull @Override
+    public String getMode() {
+        return UserProfileConstants.StorageMode.SHARDED;
+    }
+
+    @Override
+    public boolean exists() {
+        return namedCollection.contains(KEY_BUCKET_COUNT);
+    }
+
+    @Nullable @Override
+    public Map<String, Object> load() {
+        int bucketCount = namedCollection.getInt(KEY_BUCKET_COUNT, 0);
+        Map<String, Object> data = new HashMap<>();
+        List<Set<String>> index = newBucketIndex(bucketCount);
+        for (int bucket = 0; bucket < bucketCount; bucket++) {
+            String json = namedCollection.getString(bucketKey(bucketCount, bucket), null);
+            if (json == null) {
+                continue;
+            }
+            try {
+                Map<String, Object> content = ProfileJsonDecoder.decode(json);
+                data.putAll(content);
+                for (String key : content.keySet()) {
+                    index.get(bucketOf(key, bucketCount)).add(key);
+                }
+            } catch (JSONException e) {
+                // a single unreadable bucket should not discard the rest of the profile
+                Log.error(
+                        UserProfileConstants.LOG_TAG,
+                        CLASS_NAME,
+                        "Could not load the profile bucket [%d]: %s",
+                        bucket,
+                        e);
+            }
+        }
+        bucketIndex = index;
+        return data;
+    }
+
+    @Override
+    public boolean save(
+            @NonNull final Map<String, Object> data, @Nullable final Set<String> changedKeys) {
+        int bucketCount = namedCollection.getInt(KEY_BUCKET_COUNT, 0);
+        int newBucketCount = resizeBucketCount(bucketCount, data.size());
+        Set<Integer> buckets = new HashSet<>();
+        if (changedKeys == null
+                || newBucketCount != bucketCount
+                || bucketIndex == null
+                || bucketIndex.size() != bucketCount) {
+            bucketIndex = newBucketIndex(newBucketCount);
+            for (String key : data.keySet()) {
+                bucketIndex.get(bucketOf(key, newBucketCount)).add(key);
+            }
+            for (int bucket = 0; bucket < newBucketCount; bucket++) {
+                buckets.add(bucket);
+            }
+        } else {
+            for (String key : changedKeys) {
+                int bucket = bucketOf(key, bucketCount);
+                if (data.containsKey(key)) {
+                    bucketIndex.get(bucket).add(key);
+                } else {
+                    bucketIndex.get(bucket).remove(key);
+                }
+                buckets.add(bucket);
+            }
+        }
+        writeBuckets(data, newBucketCount, buckets);
+        if (newBucketCount != bucketCount) {
+            // the new buckets are complete, the previous ones can be dropped
+            namedCollection.setInt(KEY_BUCKET_COUNT, newBucketCount);
+            removeBuckets(bucketCount);
+        }
+        Log.trace(
+                UserProfileConstants.LOG_TAG,
+                CLASS_NAME,
+                "Profile Data is persisted, %d of %d bucket(s) written",
+                buckets.size(),
+                newBucketCount);
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        removeBuckets(namedCollection.getInt(KEY_BUCKET_COUNT, 0));
+        namedCollection.remove(KEY_BUCKET_COUNT);
+        bucketIndex = null;
+    }
+
+    /**
+     * Returns the number of buckets to use for the given number of attributes. The current number
+     * is kept unless it is too small, or four times larger than needed, so that a profile whose
+     * size hovers around a threshold is not redistributed on every write.
+     *
+     * @param bucketCount the current number of buckets, {@code 0} if nothing is stored yet
+     * @param attributeCount the number of attributes of the profile
+     * @return the number of buckets, a power of two
+     */
+    static int resizeBucketCount(final int bucketCount, final int attributeCount) {
+        int needed = 1;
+        while (needed < MAX_BUCKET_COUNT && needed * TARGET_BUCKET_SIZE < attributeCount) {
+            needed <<= 1;
+        }
+        if (bucketCount > 0 && bucketCount >= needed && bucketCount < needed * 4) {
+            return bucketCount;
+        }
+        return needed;
+    }
+
+    /**
+     * Returns the bucket holding the given attribute.
+     *
+     * @param key the attribute key
+     * @param bucketCount the number of buckets, a power of two
+     * @return the bucket index
+     */
+    static int bucketOf(@NonNull final String key, final int bucketCount) {
+        int hash = key.hashCode();
+        // spread the high bits, as only the low bits select the bucket
+        hash ^= hash >>> 16;
+        return hash & (bucketCount - 1);
+    }
+
+    private void writeBuckets(
+            @NonNull final Map<String, Object> data,
+            final int bucketCount,
+            @NonNull final Set<Integer> buckets) {
+        for (int bucket : buckets) {
+            Set<String> keys = bucketIndex.get(bucket);
+            if (keys.isEmpty()) {
+                namedCollection.remove(bucketKey(bucketCount, bucket));
+                continue;
+            }
+            Map<String, Object> content = new HashMap<>();
+            for (String key : keys) {
+                content.put(key, data.get(key));
+            }
+            namedCollection.setString(bucketKey(bucketCount, bucket), encoder.encode(content));
+        }
+    }
+
+    private void removeBuckets(final int bucketCount) {
+        for (int bucket = 0; bucket < bucketCount; bucket++) {
+            namedCollection.remove(bucketKey(bucketCount, bucket));
+        }
+    }
+
+    private static List<Set<String>> newBucketIndex(final int bucketCount) {
+        List<Set<String>> index = new ArrayList<>(bucketCount);
+        for (int bucket = 0; bucket < bucketCount; bucket++) {
+            index.add(new HashSet<>());
+        }
+        return index;
+    }
+
+    private static String bucketKey(final int bucketCount, final int bucket) {
+        return KEY_BUCKET_PREFIX + bucketCount + "." + bucket;
+    }
+}
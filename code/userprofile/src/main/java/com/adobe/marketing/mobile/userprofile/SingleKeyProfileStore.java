@@ -0,0 +1,82 @@
+/*
+  Copyright 2026 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile.userprofile;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.adobe.marketing.mobile.services.Log;
+import com.adobe.marketing.mobile.services.NamedCollection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import org.json.JSONException;
+
+/**
+ * The default {@link ProfileStore}, which keeps the whole profile as one json string under the
+ * {@value #KEY_USER_PROFILE} key.
+ */
+class SingleKeyProfileStore implements ProfileStore {
+
+    static final String KEY_USER_PROFILE = "user_profile";
+    private static final String EMPTY_JSON = "{}";
+    private static final String CLASS_NAME = "SingleKeyProfileStore";
+    private final NamedCollection namedCollection;
+    private final ProfileJsonEncoder encoder = new ProfileJsonEncoder();
+
+    SingleKeyProfileStore(@NonNull final NamedCollection namedCollection) {
+        this.namedCollection = namedCollection;
+    }
+
+    @NonNull @Override
+    public String getMode() {
+        return UserProfileConstants.StorageMode.SINGLE_KEY;
+    }
+
+    @Override
+    public boolean exists() {
+        return namedCollection.contains(KEY_USER_PROFILE);
+    }
+
+    @Nullable @Override
+    public Map<String, Object> load() {
+        String json = namedCollection.getString(KEY_USER_PROFILE, EMPTY_JSON);
+        try {
+            if (json == null) return new HashMap<>();
+            return ProfileJsonDecoder.decode(json);
+        } catch (JSONException e) {
+            Log.error(
+                    UserProfileConstants.LOG_TAG,
+                    CLASS_NAME,
+                    "Could not load persistent profile data: %s",
+                    e);
+            return null;
+        }
+    }
+
+    @Override
+    public boolean save(
+            @NonNull final Map<String, Object> data, @Nullable final Set<String> changedKeys) {
+        String json = encoder.encode(data);
+        namedCollection.setString(KEY_USER_PROFILE, json);
+        Log.trace(
+                UserProfileConstants.LOG_TAG,
+                CLASS_NAME,
+                "Profile Data is persisted (%d characters)",
+                json.length());
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        namedCollection.remove(KEY_USER_PROFILE);
+    }
+}
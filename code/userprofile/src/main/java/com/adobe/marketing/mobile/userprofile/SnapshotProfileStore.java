@@ -0,0 +1,268 @@
+/*
+  Copyright 2026 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile.userprofile;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.adobe.marketing.mobile.services.Log;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+import org.json.JSONException;
+
+/**
+ * A {@link ProfileStore} that keeps the whole profile in one of two alternating slot files, so that
+ * a write interrupted by the process dying or by a power loss never damages the last complete
+ * snapshot.
+ *
+ * <p>Every snapshot is stored as {@code <generation>:<checksum>:<json>}, where the generation is
+ * incremented by every save and the checksum is the CRC32 of the generation and the json. A save
+ * always overwrites the slot holding the older generation. When loading, the slot with the highest
+ * generation whose checksum matches is decoded; a torn or corrupted snapshot is detected by its
+ * checksum without being parsed, and the previous snapshot is used instead.
+ *
+ * <p>Every slot is written to a temporary file which is synced and then renamed over the slot, so a
+ * slot is only ever replaced by a complete snapshot. The slots are separate files, so that a
+ * damaged slot never affects the other one.
+ */
+class SnapshotProfileStore implements ProfileStore {
+
+    static final String SLOT_FILE_PREFIX = "profile.slot.";
+    static final int SLOT_COUNT = 2;
+    private static final char SEPARATOR = ':';
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+    private static final String CLASS_NAME = "SnapshotProfileStore";
+    private final File directory;
+    private final ProfileJsonEncoder encoder = new ProfileJsonEncoder();
+
+    /** The generation of the latest valid snapshot, {@code -1} when not known yet. */
+    private long generation = -1;
+
+    SnapshotProfileStore(@NonNull final File directory) {
+        this.directory = directory;
+    }
+
+    @NonNull @Override
+    public String getMode() {
+        return UserProfileConstants.StorageMode.SNAPSHOT;
+    }
+
+    @Override
+    public boolean exists() {
+        for (int slot = 0; slot < SLOT_COUNT; slot++) {
+            if (slotFile(slot).exists()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Nullable @Override
+    public Map<String, Object> load() {
+        Snapshot latest = null;
+        boolean stored = false;
+        for (int slot = 0; slot < SLOT_COUNT; slot++) {
+            String value = readSlot(slot);
+            if (value == null) {
+                continue;
+            }
+            stored = true;
+            Snapshot snapshot = Snapshot.parse(value);
+            if (snapshot == null) {
+                Log.warning(
+                        UserProfileConstants.LOG_TAG,
+                        CLASS_NAME,
+                        "The profile snapshot in slot %d is incomplete or corrupted, ignoring it",
+                        slot);
+            } else if (latest == null || snapshot.generation > latest.generation) {
+                latest = snapshot;
+            }
+        }
+        if (latest == null) {
+            generation = readLatestGeneration();
+            if (stored) {
+                Log.error(
+                        UserProfileConstants.LOG_TAG,
+                        CLASS_NAME,
+                        "Could not load persistent profile data: no valid snapshot");
+                return null;
+            }
+            return new HashMap<>();
+        }
+        try {
+            Map<String, Object> data = ProfileJsonDecoder.decode(latest.json);
+            generation = latest.generation;
+            return data;
+        } catch (JSONException e) {
+            // not expected once the checksum matched
+            Log.error(
+                    UserProfileConstants.LOG_TAG,
+                    CLASS_NAME,
+                    "Could not load persistent profile data: %s",
+                    e);
+            return null;
+        }
+    }
+
+    @Override
+    public boolean save(
+            @NonNull final Map<String, Object> data, @Nullable final Set<String> changedKeys) {
+        if (generation < 0) {
+            generation = readLatestGeneration();
+        }
+        if (!directory.exists() && !directory.mkdirs()) {
+            Log.error(
+                    UserProfileConstants.LOG_TAG,
+                    CLASS_NAME,
+                    "Could not create the profile directory (%s)",
+                    directory);
+            return false;
+        }
+        long nextGeneration = generation + 1;
+        String json = encoder.encode(data);
+        String value =
+                nextGeneration
+                        + String.valueOf(SEPARATOR)
+                        + checksum(nextGeneration, json)
+                        + SEPARATOR
+                        + json;
+        // the slot of the next generation holds the older snapshot, the latest one is kept
+        File slotFile = slotFile((int) (nextGeneration % SLOT_COUNT));
+        File tempFile = new File(slotFile.getPath() + TEMP_FILE_SUFFIX);
+        try {
+            try (FileOutputStream out = new FileOutputStream(tempFile)) {
+                out.write(value.getBytes(StandardCharsets.UTF_8));
+                out.getFD().sync();
+            }
+            FileUtils.replaceFile(tempFile, slotFile);
+        } catch (IOException e) {
+            Log.error(
+                    UserProfileConstants.LOG_TAG,
+                    CLASS_NAME,
+                    "Profile Data is not persisted : %s",
+                    e);
+            return false;
+        }
+        generation = nextGeneration;
+        Log.trace(
+                UserProfileConstants.LOG_TAG,
+                CLASS_NAME,
+                "Profile Data is persisted (generation %d, %d characters)",
+                nextGeneration,
+                json.length());
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        for (int slot = 0; slot < SLOT_COUNT; slot++) {
+            FileUtils.deleteFile(slotFile(slot));
+        }
+        generation = -1;
+    }
+
+    /**
+     * Returns the highest generation stored in either slot, whether or not the snapshot is valid,
+     * so that a save never reuses the generation of a corrupted snapshot.
+     */
+    private long readLatestGeneration() {
+        long latest = 0;
+        for (int slot = 0; slot < SLOT_COUNT; slot++) {
+            String value = readSlot(slot);
+            if (value == null) {
+                continue;
+            }
+            int end = value.indexOf(SEPARATOR);
+            try {
+                latest = Math.max(latest, Long.parseLong(value.substring(0, Math.max(0, end))));
+            } catch (NumberFormatException e) {
+                // the header itself is damaged
+            }
+        }
+        return latest;
+    }
+
+    private File slotFile(final int slot) {
+        return new File(directory, SLOT_FILE_PREFIX + slot);
+    }
+
+    /**
+     * Reads the content of the given slot.
+     *
+     * @return the stored snapshot, or null if the slot is empty or cannot be read
+     */
+    @Nullable private String readSlot(final int slot) {
+        File file = slotFile(slot);
+        if (!file.exists()) {
+            return null;
+        }
+        try {
+            return new String(FileUtils.readBytes(file), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            Log.warning(
+                    UserProfileConstants.LOG_TAG,
+                    CLASS_NAME,
+                    "Could not read the profile snapshot in slot %d: %s",
+                    slot,
+                    e);
+            return null;
+        }
+    }
+
+    private static long checksum(final long generation, @NonNull final String json) {
+        CRC32 crc = new CRC32();
+        crc.update(Long.toString(generation).getBytes(StandardCharsets.UTF_8));
+        crc.update(json.getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+
+    /** A stored snapshot whose header was read and whose checksum matched. */
+    private static final class Snapshot {
+        final long generation;
+        final String json;
+
+        private Snapshot(final long generation, @NonNull final String json) {
+            this.generation = generation;
+            this.json = json;
+        }
+
+        /**
+         * Reads the header of a stored snapshot and verifies its checksum.
+         *
+         * @param value the stored slot value
+         * @return the snapshot, or null if it is incomplete or corrupted
+         */
+        @Nullable static Snapshot parse(@NonNull final String value) {
+            int generationEnd = value.indexOf(SEPARATOR);
+            int checksumEnd = generationEnd < 0 ? -1 : value.indexOf(SEPARATOR, generationEnd + 1);
+            if (checksumEnd < 0) {
+                return null;
+            }
+            try {
+                long generation = Long.parseLong(value.substring(0, generationEnd));
+                long checksum = Long.parseLong(value.substring(generationEnd + 1, checksumEnd));
+                String json = value.substring(checksumEnd + 1);
+                if (generation <= 0 || checksum(generation, json) != checksum) {
+                    return null;
+                }
+                return new Snapshot(generation, json);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+}
@@ -15,6 +15,9 @@ final class UserProfileConstants {
     static final String LOG_TAG = "UserProfile";
     static final String FRIENDLY_NAME = "UserProfile";
     static final String MODULE_NAME = "com.adobe.module.userProfile";
+    static final long DEFAULT_PERSIST_WINDOW_MS = 0L;
+    static final long DEFAULT_PERSIST_MAX_DELAY_MS = 5000L;
+    static final long PERSIST_RETRY_DELAY_MS = 1000L;
 
     private UserProfileConstants() {}
 
@@ -34,6 +37,74 @@ final class UserProfileConstants {
             private RuleEngine() {}
         }
 
+        static final class Configuration {
+
+            /**
+             * The configuration key selecting the layout used to persist the profile. A {@link
+             * String} value, one of the {@link UserProfileConstants.StorageMode} names, is
+             * expected.
+             */
+            static final String STORAGE_MODE = "userProfile.storageMode";
+
+            /**
+             * The configuration key for the write-behind window in milliseconds. When greater than
+             * {@code 0}, the profile changes made within the window are persisted with a single
+             * write.
+             */
+            static final String PERSIST_WINDOW_MS = "userProfile.persistWindowMs";
+
+            /**
+             * The configuration key for the maximum time in milliseconds a profile change may stay
+             * unpersisted when a write-behind window is used.
+             */
+            static final String PERSIST_MAX_DELAY_MS = "userProfile.persistMaxDelayMs";
+
+            /**
+             * The configuration key to write the profile changes on a background thread. A {@code
+             * Boolean} value is expected.
+             */
+            static final String PERSIST_ASYNC = "userProfile.persistAsync";
+
+            /**
+             * The configuration key to load the profile in the background when the extension is
+             * registered. A {@code Boolean} value is expected, which applies from the next launch.
+             */
+            static final String LAZY_LOAD = "userProfile.lazyLoad";
+
+            /**
+             * The configuration key for the maximum number of profile attributes. An {@code
+             * Integer} value is expected, {@code 0} meaning no limit.
+             */
+            static final String MAX_ATTRIBUTES = "userProfile.maxAttributes";
+
+            /**
+             * The configuration key for the maximum size in bytes of the profile encoded as json. A
+             * {@code Long} value is expected, {@code 0} meaning no limit.
+             */
+            static final String MAX_PROFILE_BYTES = "userProfile.maxProfileBytes";
+
+            /**
+             * The configuration key for the maximum size in bytes of a single profile attribute
+             * encoded as json. An {@code Integer} value is expected, {@code 0} meaning no limit.
+             */
+            static final String MAX_ATTRIBUTE_BYTES = "userProfile.maxAttributeBytes";
+
+            /**
+             * The configuration key to only include the changed attributes in the UserProfile
+             * Response events. A {@code Boolean} value is expected.
+             */
+            static final String DELTA_EVENTS = "userProfile.deltaEvents";
+
+            private Configuration() {}
+        }
+
+        static final class Lifecycle {
+            static final String LIFECYCLE_ACTION_KEY = "action";
+            static final String LIFECYCLE_PAUSE = "pause";
+
+            private Lifecycle() {}
+        }
+
         static final class UserProfile {
 
             /**
@@ -54,6 +125,185 @@ final class UserProfileConstants {
             /** This is the EventData key for the UserProfile Request Reset event. */
             static final String REMOVE_DATA_KEYS = "userprofileremovekeys";
 
+            /**
+             * This is the EventData key for the UserProfile Request Reset event removing the
+             * attributes matching patterns.
+             */
+            static final String REMOVE_DATA_PATTERNS = "userprofileremovepatterns";
+
+            /**
+             * This is the EventData key for the UserProfile Request Profile event. The value
+             * expected is a {@link java.util.Map} of the nested values to update, by JSON pointer
+             * or dot separated path.
+             */
+            static final String UPDATE_DATA_PATHS = "userprofileupdatepaths";
+
+            /**
+             * This is the EventData key for the UserProfile Request Profile event. The value
+             * expected is a {@link java.util.Map}, the JSON merge patch to apply to the profile.
+             */
+            static final String MERGE_DATA_KEY = "userprofilemergekey";
+
+            /**
+             * This is the EventData key for the UserProfile Request Profile event. A {@link String}
+             * value is expected, the key of the attribute to which the counter operation applies.
+             */
+            static final String COUNTER_KEY = "userprofilecounterkey";
+
+            /**
+             * This is the EventData key for the UserProfile Request Profile event. A {@link String}
+             * value is expected, the {@link CounterOperation} name.
+             */
+            static final String COUNTER_OPERATION = "userprofilecounteroperation";
+
+            /**
+             * This is the EventData key for the UserProfile Request Profile event. A {@link Number}
+             * value is expected, the operand of the counter operation.
+             */
+            static final String COUNTER_VALUE = "userprofilecountervalue";
+
+            /**
+             * This is the EventData key for the UserProfile Request Profile and Response events.
+             * The request value is a {@link java.util.List} of attribute keys or patterns, and the
+             * response value is a {@link java.util.Map} of the attributes found, each one being a
+             * {@link java.util.Map} of its {@link #ATTRIBUTE_VALUE} and {@link #ATTRIBUTE_VERSION}.
+             */
+            static final String GET_DATA_VERSIONS = "userprofilegetversions";
+
+            /**
+             * This is the EventData key for the UserProfile Request Profile event. A {@link String}
+             * value is expected, the key of the attribute to compare and set.
+             */
+            static final String COMPARE_AND_SET_KEY = "userprofilecaskey";
+
+            /**
+             * This is the EventData key for the UserProfile Request Profile event. The value is the
+             * new attribute value, a null or missing value removing the attribute.
+             */
+            static final String COMPARE_AND_SET_VALUE = "userprofilecasvalue";
+
+            /**
+             * This is the EventData key for the UserProfile Request Profile event. The value is the
+             * value the attribute must have for the compare and set to apply, a null or missing
+             * value requiring the attribute not to exist.
+             */
+            static final String EXPECTED_VALUE = "userprofileexpectedvalue";
+
+            /**
+             * This is the EventData key for the UserProfile Request Profile event. A {@code Long}
+             * value is expected, the version the attribute must have for the compare and set to
+             * apply, {@code 0} requiring the attribute not to exist. It takes precedence over
+             * {@link #EXPECTED_VALUE}.
+             */
+            static final String EXPECTED_VERSION = "userprofileexpectedversion";
+
+            /**
+             * This is the EventData key for the UserProfile Response event answering a compare and
+             * set request. The {@code Boolean} value tells whether the new value was applied.
+             */
+            static final String COMPARE_AND_SET_SUCCEEDED = "succeeded";
+
+            /**
+             * This is the EventData key for the UserProfile Response event answering a compare and
+             * set request, and of the attributes answering a versions request. The value is the
+             * current attribute value, or null if the attribute does not exist.
+             */
+            static final String ATTRIBUTE_VALUE = "value";
+
+            /**
+             * This is the EventData key for the UserProfile Response event answering a compare and
+             * set request, and of the attributes answering a versions request. The {@code Long}
+             * value is the current attribute version, or {@code 0} if the attribute does not exist.
+             */
+            static final String ATTRIBUTE_VERSION = "version";
+
+            /**
+             * This is the EventData key for the UserProfile Request Profile event. The value
+             * expected is a {@link java.util.List} of the {@link TransactionOperation}s to apply in
+             * order, as a single change.
+             */
+            static final String TRANSACTION_OPERATIONS = "userprofiletransaction";
+
+            /**
+             * This is the EventData key for the UserProfile Request Profile event. The value
+             * expected is a {@link java.util.Map} of the next chunk of attributes of an import.
+             */
+            static final String IMPORT_DATA = "userprofileimportdata";
+
+            /**
+             * This is the EventData key for the UserProfile Request Profile and Response events of
+             * an import. The {@link String} value identifies the import the chunk belongs to.
+             */
+            static final String IMPORT_ID = "userprofileimportid";
+
+            /**
+             * This is the EventData key for the UserProfile Request Profile event. The {@code
+             * Boolean} value tells whether the chunk is the last one of the import, after which the
+             * imported attributes are persisted and shared.
+             */
+            static final String IMPORT_COMPLETE = "userprofileimportcomplete";
+
+            /**
+             * This is the EventData key for the UserProfile Request Profile and Response events.
+             * The request value is a {@link java.util.List} of JSON pointers or dot separated
+             * paths, and the response value is a {@link java.util.Map} of the nested values found,
+             * by path.
+             */
+            static final String GET_DATA_PATHS = "userprofilegetpaths";
+
+            /**
+             * This is the EventData key for the UserProfile Request Reset event. The value expected
+             * is a {@link java.util.List} of the JSON pointers or dot separated paths to remove.
+             */
+            static final String REMOVE_DATA_PATHS = "userprofileremovepaths";
+
+            /**
+             * This is the EventData key for the UserProfile Request Profile and Request Reset
+             * events. A {@code Boolean} value is expected, requesting the changes to be on disk
+             * before they are shared.
+             */
+            static final String DURABLE = "userprofiledurable";
+
+            /**
+             * This is the EventData key for the UserProfile Request Profile event. A {@code Long}
+             * value is expected, the time to live of the updated attributes in seconds.
+             */
+            static final String TIME_TO_LIVE = "userprofilettl";
+
+            /**
+             * This is the EventData key for the UserProfile Notification event dispatched when
+             * attributes are evicted. The value is a {@link java.util.List} of the evicted
+             * attribute keys.
+             */
+            static final String EVICTED_KEYS = "evictedkeys";
+
+            /**
+             * This is the EventData key for the UserProfile shared state and Response events when
+             * delta events are enabled. The value is a {@code Long} incremented by every profile
+             * change. The versions keep increasing across launches, but the first version of a
+             * launch is not the next one of the previous launch.
+             */
+            static final String PROFILE_VERSION = "userprofileversion";
+
+            /**
+             * This is the EventData key for the UserProfile Response event when delta events are
+             * enabled. The value is a {@link java.util.Map} of the created and updated attributes.
+             */
+            static final String CHANGED_ATTRIBUTES = "userprofilechangedattributes";
+
+            /**
+             * This is the EventData key for the UserProfile Response event when delta events are
+             * enabled. The value is a {@link java.util.List} of the removed attribute keys.
+             */
+            static final String REMOVED_KEYS = "userprofileremovedkeys";
+
+            /**
+             * This is the EventData key for the UserProfile Response event dispatched after a
+             * profile change, or in response to a change request which left the profile unchanged.
+             * The value is the {@link String} unique identifier of the request event, if any.
+             */
+            static final String REQUEST_EVENT_ID = "userprofilerequesteventid";
+
             /**
              * This is the EventData key for the Rules Response content event. A {@link String}
              * value is expected indicating the type of operation (write or delete).
@@ -72,10 +322,94 @@ final class UserProfileConstants {
              */
             static final String CONSEQUENCE_VALUE = "value";
 
+            /**
+             * This is the EventData key for the Rules Response content event. A {@code Long} value
+             * representing the time to live of the written attribute in seconds
+             */
+            static final String CONSEQUENCE_TIME_TO_LIVE = "ttl";
+
             private UserProfile() {}
         }
     }
 
+    /** The layouts which can be used to persist the profile attributes. */
+    static final class StorageMode {
+        /** The whole profile is stored as one json string. This is the default layout. */
+        static final String SINGLE_KEY = "singleKey";
+
+        /** Every attribute is stored under its own key and only changed attributes are written. */
+        static final String INCREMENTAL = "incremental";
+
+        /**
+         * Changes are appended to a journal file which is compacted into a snapshot file in the
+         * background.
+         */
+        static final String JOURNAL = "journal";
+
+        /**
+         * The whole profile is stored as a json file, alternating between two checksummed slot
+         * files so that an interrupted write cannot lose the previous profile.
+         */
+        static final String SNAPSHOT = "snapshot";
+
+        /**
+         * The attributes are spread over several json objects by the hash of their key, and only
+         * the objects holding changed attributes are written.
+         */
+        static final String SHARDED = "sharded";
+
+        /** The whole profile is stored in a file with a compact binary encoding. */
+        static final String BINARY = "binary";
+
+        private StorageMode() {}
+    }
+
+    /**
+     * The operations which can be applied to a numeric attribute, also used as rules consequence
+     * operations.
+     */
+    static final class CounterOperation {
+        /** Adds the operand to the attribute, which counts as {@code 0} if it is not a number. */
+        static final String INCREMENT = "increment";
+
+        /** Subtracts the operand from the attribute, as {@link #INCREMENT} does. */
+        static final String DECREMENT = "decrement";
+
+        /** Sets the attribute to the operand if it is lower, or if it is not a number. */
+        static final String MIN = "min";
+
+        /** Sets the attribute to the operand if it is greater, or if it is not a number. */
+        static final String MAX = "max";
+
+        private CounterOperation() {}
+    }
+
+    /**
+     * The operations of a transaction, which also accepts the {@link CounterOperation}s. Each
+     * operation is a {@link java.util.Map} of its name, attribute key and value.
+     */
+    static final class TransactionOperation {
+        /** Sets the attribute to the value, or removes it if the value is null. */
+        static final String SET = "set";
+
+        /** Removes the attribute with the key, even if the key contains wildcards. */
+        static final String REMOVE = "remove";
+
+        /** Removes the attributes matching the key, a {@code KeyPattern}. */
+        static final String REMOVE_MATCHING = "removeMatching";
+
+        /** The name of the operation, a {@link String}. */
+        static final String NAME = "operation";
+
+        /** The key of the attribute to which the operation applies, a {@link String}. */
+        static final String KEY = "key";
+
+        /** The value of a set operation, or the {@link Number} operand of a counter operation. */
+        static final String VALUE = "value";
+
+        private TransactionOperation() {}
+    }
+
     /**
      * This class groups the profile keys that are maintained by the User Profile extension as a
      * aggregated count of the number of occurrences.
@@ -87,8 +421,10 @@ final class UserProfileConstants {
          * The value is a Map of {messageId:Count} of the number of times a message was triggered.
          */
         static final String ADOBE_MESSAGE_TRIGGERED = "a.triggered";
+
         /** The value is a Map of {messageId:Count} of the number of times a message was viewed. */
         static final String ADOBE_MESSAGE_VIEWED = "a.viewed";
+
         /** The value is a Map of {messageId:Count} of the number of times a message was clicked. */
         static final String ADOBE_MESSAGE_CLICKED = "a.clicked";
     }
@@ -23,9 +23,18 @@ import com.adobe.marketing.mobile.services.Log;
 import com.adobe.marketing.mobile.util.DataReader;
 import com.adobe.marketing.mobile.util.StringUtils;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
 
 /**
  * The UserProfileExtension will be responsible for managing the Client Side Operation Profile.
@@ -45,12 +54,16 @@ import java.util.Map;
  *   <li>{@code EventType#RULES_ENGINE} - {@code EventSource#RESPONSE_CONTENT}
  *   <li>{@code EventType#HUB} - {@code EventSource#BOOTED}
  *   <li>{@code EventType.USERPROFILE} - {@code EventSource#REQUEST_RESET}
+ *   <li>{@code EventType#CONFIGURATION} - {@code EventSource#RESPONSE_CONTENT}
+ *   <li>{@code EventType#GENERIC_LIFECYCLE} - {@code EventSource#REQUEST_CONTENT}
  * </ol>
  *
  * <p>The UserProfileExtension dispatches the following {@code Event}s:
  *
  * <ol>
  *   <li>{@code EventType.USERPROFILE} - {@code EventSource.RESPONSE_PROFILE}
+ *   <li>{@code EventType.USERPROFILE} - {@code EventSource.NOTIFICATION}, when attributes are
+ *       evicted to keep the profile within its quota
  * </ol>
  *
  * <p>
@@ -58,7 +71,38 @@ import java.util.Map;
 public class UserProfileExtension extends Extension {
 
     static final String CLASS_NAME = "UserProfileExtension";
+
+    /** The number of profile versions reserved at once. */
+    private static final long PROFILE_VERSION_RESERVATION = 1000;
+
+    /** The event data keys of the requests which are only answered when the profile changes. */
+    private static final List<String> CHANGE_REQUEST_KEYS =
+            Arrays.asList(
+                    UserProfileConstants.EventDataKeys.UserProfile.UPDATE_DATA_KEY,
+                    UserProfileConstants.EventDataKeys.UserProfile.UPDATE_DATA_PATHS,
+                    UserProfileConstants.EventDataKeys.UserProfile.MERGE_DATA_KEY,
+                    UserProfileConstants.EventDataKeys.UserProfile.COUNTER_KEY,
+                    UserProfileConstants.EventDataKeys.UserProfile.TRANSACTION_OPERATIONS,
+                    UserProfileConstants.EventDataKeys.UserProfile.REMOVE_DATA_KEYS,
+                    UserProfileConstants.EventDataKeys.UserProfile.REMOVE_DATA_PATHS,
+                    UserProfileConstants.EventDataKeys.UserProfile.REMOVE_DATA_PATTERNS);
+
+    /** The profile of the latest shared state, null until the profile is loaded. */
+    private static volatile Map<String, Object> publishedProfile;
+
     private ProfileData profileData;
+    private PersistScheduler persistScheduler;
+    private boolean deltaEvents;
+    private long profileVersion;
+
+    /** The highest profile version which can be shared before more versions are reserved. */
+    private long reservedProfileVersion;
+
+    private volatile FutureTask<Boolean> pendingLoad;
+    private ExecutorService loadExecutor;
+
+    /** The keys changed by every import which did not receive its last chunk yet, by import id. */
+    private final Map<String, Set<String>> pendingImports = new HashMap<>();
 
     protected UserProfileExtension(@NonNull final ExtensionApi extensionApi) {
         super(extensionApi);
@@ -93,12 +137,92 @@ public class UserProfileExtension extends Extension {
                         EventType.RULES_ENGINE,
                         EventSource.RESPONSE_CONTENT,
                         this::handleRulesEvent);
-        if (loadProfileDataIfNeeded() && !profileData.getMap().isEmpty()) {
-            updateSharedStateAndDispatchEvent(null);
+        getApi().registerEventListener(
+                        EventType.CONFIGURATION,
+                        EventSource.RESPONSE_CONTENT,
+                        this::handleConfigurationResponseEvent);
+        getApi().registerEventListener(
+                        EventType.GENERIC_LIFECYCLE,
+                        EventSource.REQUEST_CONTENT,
+                        this::handleLifecycleRequestEvent);
+        if (!createProfileDataIfNeeded()) {
+            return;
+        }
+        if (profileData.isLazyLoadingEnabled()) {
+            startLazyLoad();
+        } else {
+            loadProfileDataAndShareState();
+        }
+    }
+
+    /**
+     * Holds the events while the profile is being loaded in the background, so that they are
+     * handled with the persisted profile. The event hub keeps them queued meanwhile, and the event
+     * processing is restarted once the load completes.
+     *
+     * @param event the next {@link Event} to be handled
+     * @return {@code true}, once the profile load is completed
+     */
+    @Override
+    public boolean readyForEvent(@NonNull final Event event) {
+        FutureTask<Boolean> load = pendingLoad;
+        if (load == null) {
+            return true;
+        }
+        if (!load.isDone()) {
+            return false;
+        }
+        try {
+            if (!load.get()) {
+                Log.warning(
+                        UserProfileConstants.LOG_TAG,
+                        CLASS_NAME,
+                        "Could not load the persisted profile data");
+            }
+        } catch (ExecutionException e) {
+            Log.error(
+                    UserProfileConstants.LOG_TAG,
+                    CLASS_NAME,
+                    "Could not load the persisted profile data - (%s)",
+                    e);
+        } catch (InterruptedException e) {
+            // not thrown once the load is done
+            Thread.currentThread().interrupt();
         }
+        pendingLoad = null;
+        return true;
+    }
+
+    @Override
+    protected void onUnregistered() {
+        if (persistScheduler != null) {
+            persistScheduler.shutdown();
+        }
+        if (loadExecutor != null) {
+            loadExecutor.shutdown();
+        }
+        publishedProfile = null;
+    }
+
+    /**
+     * Returns the profile attributes of the latest UserProfile shared state, without going through
+     * the event hub.
+     *
+     * @return an immutable snapshot of the profile, or null if the profile is not loaded yet
+     */
+    @Nullable static Map<String, Object> getProfileSnapshot() {
+        return publishedProfile;
     }
 
     void handleProfileRequestEvent(@NonNull final Event event) {
+        long previousVersion = profileVersion;
+        routeProfileRequestEvent(event);
+        if (profileVersion == previousVersion && isChangeRequest(event)) {
+            acknowledgeChangeRequest(event);
+        }
+    }
+
+    private void routeProfileRequestEvent(@NonNull final Event event) {
         if (profileData == null) {
             Log.debug(
                     UserProfileConstants.LOG_TAG,
@@ -121,6 +245,30 @@ public class UserProfileExtension extends Extension {
         } else if (eventData.containsKey(
                 UserProfileConstants.EventDataKeys.UserProfile.GET_DATA_ATTRIBUTES)) {
             handleProfileGetAttributesEvent(event);
+        } else if (eventData.containsKey(
+                UserProfileConstants.EventDataKeys.UserProfile.UPDATE_DATA_PATHS)) {
+            handleProfileUpdatePathsEvent(event);
+        } else if (eventData.containsKey(
+                UserProfileConstants.EventDataKeys.UserProfile.MERGE_DATA_KEY)) {
+            handleProfileMergeEvent(event);
+        } else if (eventData.containsKey(
+                UserProfileConstants.EventDataKeys.UserProfile.COUNTER_KEY)) {
+            handleProfileCounterEvent(event);
+        } else if (eventData.containsKey(
+                UserProfileConstants.EventDataKeys.UserProfile.TRANSACTION_OPERATIONS)) {
+            handleProfileTransactionEvent(event);
+        } else if (eventData.containsKey(
+                UserProfileConstants.EventDataKeys.UserProfile.IMPORT_ID)) {
+            handleProfileImportEvent(event);
+        } else if (eventData.containsKey(
+                UserProfileConstants.EventDataKeys.UserProfile.GET_DATA_PATHS)) {
+            handleProfileGetPathsEvent(event);
+        } else if (eventData.containsKey(
+                UserProfileConstants.EventDataKeys.UserProfile.GET_DATA_VERSIONS)) {
+            handleProfileGetVersionsEvent(event);
+        } else if (eventData.containsKey(
+                UserProfileConstants.EventDataKeys.UserProfile.COMPARE_AND_SET_KEY)) {
+            handleProfileCompareAndSetEvent(event);
         } else {
             Log.debug(
                     UserProfileConstants.LOG_TAG,
@@ -129,7 +277,59 @@ public class UserProfileExtension extends Extension {
         }
     }
 
+    /**
+     * Returns whether the given request {@code Event} asks for a profile change which is only
+     * answered when the profile changes, as the ones dispatched by the update, merge, counter,
+     * transaction and remove public APIs. The get, compare and set and import requests are always
+     * answered by their handler.
+     *
+     * @param event the {@code EventType.USERPROFILE} request {@link Event}
+     * @return {@code true} if the request is a profile change
+     */
+    private boolean isChangeRequest(@NonNull final Event event) {
+        Map<String, Object> eventData = event.getEventData();
+        if (eventData == null) {
+            return false;
+        }
+        for (String changeKey : CHANGE_REQUEST_KEYS) {
+            if (eventData.containsKey(changeKey)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Answers a profile change request which did not change the profile, or could not be applied,
+     * so that the read cache of the public API knows that it was handled. The response only carries
+     * the id of the request: no shared state is created.
+     *
+     * @param event the request {@link Event}
+     */
+    private void acknowledgeChangeRequest(@NonNull final Event event) {
+        getApi().dispatch(
+                        new Event.Builder(
+                                        "UserProfile Response Event",
+                                        EventType.USERPROFILE,
+                                        EventSource.RESPONSE_PROFILE)
+                                .setEventData(
+                                        Collections.singletonMap(
+                                                UserProfileConstants.EventDataKeys.UserProfile
+                                                        .REQUEST_EVENT_ID,
+                                                event.getUniqueIdentifier()))
+                                .inResponseToEvent(event)
+                                .build());
+    }
+
     void handleProfileResetEvent(@NonNull final Event event) {
+        long previousVersion = profileVersion;
+        routeProfileResetEvent(event);
+        if (profileVersion == previousVersion && isChangeRequest(event)) {
+            acknowledgeChangeRequest(event);
+        }
+    }
+
+    private void routeProfileResetEvent(@NonNull final Event event) {
         if (profileData == null) {
             Log.debug(
                     UserProfileConstants.LOG_TAG,
@@ -148,6 +348,18 @@ public class UserProfileExtension extends Extension {
             return;
         }
 
+        if (eventData.containsKey(
+                UserProfileConstants.EventDataKeys.UserProfile.REMOVE_DATA_PATHS)) {
+            handleProfileDeletePathsEvent(event);
+            return;
+        }
+
+        if (eventData.containsKey(
+                UserProfileConstants.EventDataKeys.UserProfile.REMOVE_DATA_PATTERNS)) {
+            handleProfileDeleteMatchingEvent(event);
+            return;
+        }
+
         if (!eventData.containsKey(
                 UserProfileConstants.EventDataKeys.UserProfile.REMOVE_DATA_KEYS)) {
             Log.debug(
@@ -178,7 +390,13 @@ public class UserProfileExtension extends Extension {
                             event.getEventData(),
                             UserProfileConstants.EventDataKeys.UserProfile.UPDATE_DATA_KEY);
             if (profileAttributes.size() > 0) {
-                updateProfilesAndDispatchSharedState(profileAttributes, event);
+                updateProfilesAndDispatchSharedState(
+                        profileAttributes,
+                        DataReader.optLong(
+                                event.getEventData(),
+                                UserProfileConstants.EventDataKeys.UserProfile.TIME_TO_LIVE,
+                                0),
+                        event);
             }
         } catch (Exception e) {
             Log.error(
@@ -194,6 +412,9 @@ public class UserProfileExtension extends Extension {
      * EventType.USERPROFILE} {@code EventSource.RESPONSE_PROFILE} {@code Event} with above profile
      * data.
      *
+     * <p>The expired attributes are removed first, and shared if there are any. A key which is a
+     * {@link KeyPattern}, such as {@code cart.item.*}, retrieves every attribute matching it.
+     *
      * @param event {@link Event}, containing keys of profile data which will be retrieved from
      *     memory.
      */
@@ -206,7 +427,17 @@ public class UserProfileExtension extends Extension {
                             event.getEventData(),
                             UserProfileConstants.EventDataKeys.UserProfile.GET_DATA_ATTRIBUTES);
             if (nameList != null && nameList.size() > 0) {
+                purgeExpiredAttributes(event);
                 for (String name : nameList) {
+                    if (KeyPattern.isPattern(name)) {
+                        for (String key : profileData.findKeys(name)) {
+                            Object attribute = profileData.get(key);
+                            if (attribute != null) {
+                                map.put(key, attribute);
+                            }
+                        }
+                        continue;
+                    }
                     Object attribute = profileData.get(name);
 
                     if (attribute != null) {
@@ -267,6 +498,429 @@ public class UserProfileExtension extends Extension {
         }
     }
 
+    /**
+     * Handles the {@code EventType.USERPROFILE} - {@code EventSource.REQUEST_PROFILE} {@code Event}
+     * dispatched when the "updateUserAttributesAtPaths" public API is called. Updates the values
+     * nested in the map-valued attributes, then persists and shares the profile.
+     *
+     * @param event {@link Event}, containing the nested values by path
+     */
+    void handleProfileUpdatePathsEvent(@NonNull final Event event) {
+        try {
+            Map<String, Object> values =
+                    DataReader.getTypedMap(
+                            Object.class,
+                            event.getEventData(),
+                            UserProfileConstants.EventDataKeys.UserProfile.UPDATE_DATA_PATHS);
+            if (values.size() > 0) {
+                shareChanges(profileData.updateOrDeletePaths(values), event);
+            }
+        } catch (Exception e) {
+            Log.error(
+                    UserProfileConstants.LOG_TAG,
+                    CLASS_NAME,
+                    "Could not extract the profile path update request data from the Event - (%s)",
+                    e);
+        }
+    }
+
+    /**
+     * Handles the {@code EventType.USERPROFILE} - {@code EventSource.REQUEST_PROFILE} {@code Event}
+     * dispatched when the "mergeUserAttributes" public API is called. Applies the JSON merge patch
+     * to the profile, then persists and shares the profile.
+     *
+     * @param event {@link Event}, containing the merge patch
+     */
+    void handleProfileMergeEvent(@NonNull final Event event) {
+        try {
+            Map<String, Object> patch =
+                    DataReader.getTypedMap(
+                            Object.class,
+                            event.getEventData(),
+                            UserProfileConstants.EventDataKeys.UserProfile.MERGE_DATA_KEY);
+            if (patch.size() > 0) {
+                shareChanges(profileData.merge(patch), event);
+            }
+        } catch (Exception e) {
+            Log.error(
+                    UserProfileConstants.LOG_TAG,
+                    CLASS_NAME,
+                    "Could not extract the profile merge request data from the Event - (%s)",
+                    e);
+        }
+    }
+
+    /**
+     * Handles the {@code EventType.USERPROFILE} - {@code EventSource.REQUEST_PROFILE} {@code Event}
+     * dispatched by the counter public APIs, such as "incrementUserAttribute". Applies the counter
+     * operation to the attribute, then persists and shares the profile.
+     *
+     * @param event {@link Event}, containing the attribute key, the operation and its operand
+     */
+    void handleProfileCounterEvent(@NonNull final Event event) {
+        try {
+            Map<String, Object> eventData = event.getEventData();
+            String key =
+                    DataReader.getString(
+                            eventData, UserProfileConstants.EventDataKeys.UserProfile.COUNTER_KEY);
+            String operation =
+                    DataReader.getString(
+                            eventData,
+                            UserProfileConstants.EventDataKeys.UserProfile.COUNTER_OPERATION);
+            Number operand =
+                    CounterOperations.parseOperand(
+                            eventData.get(
+                                    UserProfileConstants.EventDataKeys.UserProfile.COUNTER_VALUE));
+            if (StringUtils.isNullOrEmpty(key)
+                    || !CounterOperations.isCounterOperation(operation)
+                    || operand == null) {
+                Log.debug(
+                        UserProfileConstants.LOG_TAG,
+                        CLASS_NAME,
+                        "Invalid counter operation (%s) on the attribute [%s], ignoring event",
+                        operation,
+                        key);
+                return;
+            }
+            shareChanges(profileData.applyCounterOperation(key, operation, operand), event);
+        } catch (Exception e) {
+            Log.error(
+                    UserProfileConstants.LOG_TAG,
+                    CLASS_NAME,
+                    "Could not extract the profile counter request data from the Event - (%s)",
+                    e);
+        }
+    }
+
+    /**
+     * Handles the {@code EventType.USERPROFILE} - {@code EventSource.REQUEST_PROFILE} {@code Event}
+     * dispatched when the "applyTransaction" public API is called. Applies the operations in order,
+     * then persists and shares the profile once for all of them. The whole transaction is ignored
+     * if one of its operations is invalid, or cannot be applied.
+     *
+     * @param event {@link Event}, containing the list of {@link
+     *     UserProfileConstants.TransactionOperation}s
+     */
+    void handleProfileTransactionEvent(@NonNull final Event event) {
+        List<Map<String, Object>> operations = new ArrayList<>();
+        try {
+            List<Map<String, Object>> requestedOperations =
+                    DataReader.getTypedListOfMap(
+                            Object.class,
+                            event.getEventData(),
+                            UserProfileConstants.EventDataKeys.UserProfile.TRANSACTION_OPERATIONS);
+            for (Map<String, Object> operation : requestedOperations) {
+                Map<String, Object> validOperation = validateTransactionOperation(operation);
+                if (validOperation == null) {
+                    Log.debug(
+                            UserProfileConstants.LOG_TAG,
+                            CLASS_NAME,
+                            "Invalid transaction operation (%s), ignoring event",
+                            operation);
+                    return;
+                }
+                operations.add(validOperation);
+            }
+        } catch (Exception e) {
+            Log.error(
+                    UserProfileConstants.LOG_TAG,
+                    CLASS_NAME,
+                    "Could not extract the profile transaction request data from the Event - (%s)",
+                    e);
+            return;
+        }
+        if (operations.size() > 0) {
+            shareChanges(profileData.applyTransaction(operations), event);
+        }
+    }
+
+    /**
+     * Handles the {@code EventType.USERPROFILE} - {@code EventSource.REQUEST_PROFILE} {@code Event}
+     * carrying a chunk of the attributes imported by the "importUserAttributes" public API. The
+     * chunk is applied to the profile right away, but the profile is only persisted and shared
+     * once, with the last chunk of the import.
+     *
+     * <p>Every chunk is answered by a {@code EventType.USERPROFILE} {@code
+     * EventSource.RESPONSE_PROFILE} {@code Event}, so that the next chunk is only read once this
+     * one is applied.
+     *
+     * @param event {@link Event}, containing the import id, the attributes of the chunk and whether
+     *     it is the last one
+     */
+    void handleProfileImportEvent(@NonNull final Event event) {
+        Map<String, Object> eventData = event.getEventData();
+        String importId =
+                DataReader.optString(
+                        eventData, UserProfileConstants.EventDataKeys.UserProfile.IMPORT_ID, null);
+        if (StringUtils.isNullOrEmpty(importId)) {
+            Log.debug(
+                    UserProfileConstants.LOG_TAG, CLASS_NAME, "Invalid import id, ignoring event");
+            return;
+        }
+        Set<String> importedKeys = pendingImports.get(importId);
+        if (importedKeys == null) {
+            importedKeys = new HashSet<>();
+            pendingImports.put(importId, importedKeys);
+        }
+        Map<String, Object> attributes =
+                DataReader.optTypedMap(
+                        Object.class,
+                        eventData,
+                        UserProfileConstants.EventDataKeys.UserProfile.IMPORT_DATA,
+                        null);
+        if (attributes != null && !attributes.isEmpty()) {
+            importedKeys.addAll(profileData.updateOrDelete(attributes));
+        }
+        if (DataReader.optBoolean(
+                eventData, UserProfileConstants.EventDataKeys.UserProfile.IMPORT_COMPLETE, false)) {
+            pendingImports.remove(importId);
+            shareChanges(importedKeys, event);
+        }
+
+        Map<String, Object> eventDataMap = new HashMap<>();
+        eventDataMap.put(UserProfileConstants.EventDataKeys.UserProfile.IMPORT_ID, importId);
+        // lets the read cache know that the last chunk was handled, even when nothing changed
+        eventDataMap.put(
+                UserProfileConstants.EventDataKeys.UserProfile.REQUEST_EVENT_ID,
+                event.getUniqueIdentifier());
+        getApi().dispatch(
+                        new Event.Builder(
+                                        "UserProfile Response Event",
+                                        EventType.USERPROFILE,
+                                        EventSource.RESPONSE_PROFILE)
+                                .setEventData(eventDataMap)
+                                .inResponseToEvent(event)
+                                .build());
+    }
+
+    /**
+     * Handles the {@code EventType.USERPROFILE} - {@code EventSource.REQUEST_PROFILE} {@code Event}
+     * dispatched when the "getUserAttributesAtPaths" public API is called, and dispatches the
+     * nested values found in a {@code EventType.USERPROFILE} {@code EventSource.RESPONSE_PROFILE}
+     * {@code Event}.
+     *
+     * @param event {@link Event}, containing the paths of the nested values
+     */
+    void handleProfileGetPathsEvent(@NonNull final Event event) {
+        Map<String, Object> values = new HashMap<>();
+        try {
+            List<String> paths =
+                    DataReader.getTypedList(
+                            String.class,
+                            event.getEventData(),
+                            UserProfileConstants.EventDataKeys.UserProfile.GET_DATA_PATHS);
+            if (paths == null || paths.isEmpty()) {
+                return;
+            }
+            purgeExpiredAttributes(event);
+            for (String path : paths) {
+                Object value = profileData.getPath(path);
+                if (value != null) {
+                    values.put(path, value);
+                }
+            }
+        } catch (Exception e) {
+            Log.error(
+                    UserProfileConstants.LOG_TAG,
+                    CLASS_NAME,
+                    "Could not find specific data from persisted profile data - (%s)",
+                    e);
+            return;
+        }
+
+        Map<String, Object> eventDataMap = new HashMap<>();
+        eventDataMap.put(UserProfileConstants.EventDataKeys.UserProfile.GET_DATA_PATHS, values);
+        getApi().dispatch(
+                        new Event.Builder(
+                                        "UserProfile Response Event",
+                                        EventType.USERPROFILE,
+                                        EventSource.RESPONSE_PROFILE)
+                                .setEventData(eventDataMap)
+                                .inResponseToEvent(event)
+                                .build());
+    }
+
+    /**
+     * Handles the {@code EventType.USERPROFILE} - {@code EventSource.REQUEST_PROFILE} {@code Event}
+     * dispatched when the "getVersionedUserAttributes" public API is called, and dispatches the
+     * attributes found with their version in a {@code EventType.USERPROFILE} {@code
+     * EventSource.RESPONSE_PROFILE} {@code Event}.
+     *
+     * @param event {@link Event}, containing the attribute keys or patterns
+     */
+    void handleProfileGetVersionsEvent(@NonNull final Event event) {
+        Map<String, Object> attributes = new HashMap<>();
+        try {
+            List<String> names =
+                    DataReader.getTypedList(
+                            String.class,
+                            event.getEventData(),
+                            UserProfileConstants.EventDataKeys.UserProfile.GET_DATA_VERSIONS);
+            if (names == null || names.isEmpty()) {
+                return;
+            }
+            purgeExpiredAttributes(event);
+            for (String name : names) {
+                List<String> keys =
+                        KeyPattern.isPattern(name)
+                                ? profileData.findKeys(name)
+                                : Collections.singletonList(name);
+                for (String key : keys) {
+                    Object value = profileData.get(key);
+                    if (value != null) {
+                        attributes.put(key, createVersionedAttribute(key, value));
+                    }
+                }
+            }
+        } catch (Exception e) {
+            Log.error(
+                    UserProfileConstants.LOG_TAG,
+                    CLASS_NAME,
+                    "Could not find specific data from persisted profile data - (%s)",
+                    e);
+            return;
+        }
+
+        Map<String, Object> eventDataMap = new HashMap<>();
+        eventDataMap.put(
+                UserProfileConstants.EventDataKeys.UserProfile.GET_DATA_VERSIONS, attributes);
+        getApi().dispatch(
+                        new Event.Builder(
+                                        "UserProfile Response Event",
+                                        EventType.USERPROFILE,
+                                        EventSource.RESPONSE_PROFILE)
+                                .setEventData(eventDataMap)
+                                .inResponseToEvent(event)
+                                .build());
+    }
+
+    /**
+     * Handles the {@code EventType.USERPROFILE} - {@code EventSource.REQUEST_PROFILE} {@code Event}
+     * dispatched by the compare and set public APIs. Sets the attribute if its current version, or
+     * else its current value, is the expected one, then persists and shares the profile.
+     *
+     * <p>A {@code EventType.USERPROFILE} {@code EventSource.RESPONSE_PROFILE} {@code Event} is
+     * always dispatched in response, telling whether the attribute was set along with its current
+     * value and version.
+     *
+     * @param event {@link Event}, containing the attribute key, the expected version or value and
+     *     the new value
+     */
+    void handleProfileCompareAndSetEvent(@NonNull final Event event) {
+        Map<String, Object> eventData = event.getEventData();
+        String key =
+                DataReader.optString(
+                        eventData,
+                        UserProfileConstants.EventDataKeys.UserProfile.COMPARE_AND_SET_KEY,
+                        null);
+        if (StringUtils.isNullOrEmpty(key)) {
+            Log.debug(
+                    UserProfileConstants.LOG_TAG,
+                    CLASS_NAME,
+                    "Invalid compare and set attribute key, ignoring event");
+            return;
+        }
+        Object value =
+                eventData.get(UserProfileConstants.EventDataKeys.UserProfile.COMPARE_AND_SET_VALUE);
+        purgeExpiredAttributes(event);
+        Set<String> changedKeys;
+        if (eventData.containsKey(
+                UserProfileConstants.EventDataKeys.UserProfile.EXPECTED_VERSION)) {
+            long expectedVersion =
+                    DataReader.optLong(
+                            eventData,
+                            UserProfileConstants.EventDataKeys.UserProfile.EXPECTED_VERSION,
+                            -1);
+            changedKeys = profileData.compareVersionAndSet(key, expectedVersion, value);
+        } else {
+            changedKeys =
+                    profileData.compareAndSet(
+                            key,
+                            eventData.get(
+                                    UserProfileConstants.EventDataKeys.UserProfile.EXPECTED_VALUE),
+                            value);
+        }
+        if (changedKeys != null) {
+            shareChanges(changedKeys, event);
+        } else {
+            Log.debug(
+                    UserProfileConstants.LOG_TAG,
+                    CLASS_NAME,
+                    "The profile attribute [%s] changed since it was read, it is not set",
+                    key);
+        }
+
+        Map<String, Object> eventDataMap = createVersionedAttribute(key, profileData.get(key));
+        eventDataMap.put(
+                UserProfileConstants.EventDataKeys.UserProfile.COMPARE_AND_SET_SUCCEEDED,
+                changedKeys != null);
+        // lets the read cache know that the change was handled, even when it was not applied
+        eventDataMap.put(
+                UserProfileConstants.EventDataKeys.UserProfile.REQUEST_EVENT_ID,
+                event.getUniqueIdentifier());
+        getApi().dispatch(
+                        new Event.Builder(
+                                        "UserProfile Response Event",
+                                        EventType.USERPROFILE,
+                                        EventSource.RESPONSE_PROFILE)
+                                .setEventData(eventDataMap)
+                                .inResponseToEvent(event)
+                                .build());
+    }
+
+    /**
+     * Handles the {@code EventType.USERPROFILE} - {@code EventSource.REQUEST_RESET} {@code Event}
+     * dispatched when the "removeUserAttributesAtPaths" public API is called. Removes the values
+     * nested in the map-valued attributes, then persists and shares the profile.
+     *
+     * @param event {@link Event}, containing the paths of the nested values
+     */
+    void handleProfileDeletePathsEvent(@NonNull final Event event) {
+        try {
+            List<String> paths =
+                    DataReader.getTypedList(
+                            String.class,
+                            event.getEventData(),
+                            UserProfileConstants.EventDataKeys.UserProfile.REMOVE_DATA_PATHS);
+            if (paths.size() > 0) {
+                shareChanges(profileData.deletePaths(paths), event);
+            }
+        } catch (Exception e) {
+            Log.error(
+                    UserProfileConstants.LOG_TAG,
+                    CLASS_NAME,
+                    "Could not extract the profile path removal request data from the Event - (%s)",
+                    e);
+        }
+    }
+
+    /**
+     * Handles the {@code EventType.USERPROFILE} - {@code EventSource.REQUEST_RESET} {@code Event}
+     * dispatched when the "removeUserAttributesMatching" public API is called. Removes every
+     * attribute matching one of the patterns, then persists and shares the profile.
+     *
+     * @param event {@link Event}, containing the {@link KeyPattern}s of the attribute keys
+     */
+    void handleProfileDeleteMatchingEvent(@NonNull final Event event) {
+        try {
+            List<String> patterns =
+                    DataReader.getTypedList(
+                            String.class,
+                            event.getEventData(),
+                            UserProfileConstants.EventDataKeys.UserProfile.REMOVE_DATA_PATTERNS);
+            if (patterns.size() > 0) {
+                shareChanges(profileData.deleteMatching(patterns), event);
+            }
+        } catch (Exception e) {
+            Log.error(
+                    UserProfileConstants.LOG_TAG,
+                    CLASS_NAME,
+                    "Could not extract the profile pattern removal request data from the Event -"
+                            + " (%s)",
+                    e);
+        }
+    }
+
     /**
      * Handler for {@code EventType.RULES_ENGINE} - {@code EventSource.RESPONSE_CONTENT} {@code
      * Event}.
@@ -280,6 +934,8 @@ public class UserProfileExtension extends Extension {
      *       consequence with write operation
      *   <li>Calls {@link UserProfileExtension#handleDeleteConsequence(Map, Event)} if it is
      *       consequence with delete operation
+     *   <li>Calls {@link UserProfileExtension#handleCounterConsequence(Map, String, Event)} if it
+     *       is consequence with a counter operation
      *   <li>Logs and returns if it is consequence with invalid operation
      * </ul>
      *
@@ -346,6 +1002,8 @@ public class UserProfileExtension extends Extension {
             } else if (UserProfileConstants.EventDataKeys.RuleEngine.CONSEQUENCE_OPERATION_DELETE
                     .equals(operation)) {
                 handleDeleteConsequence(consequenceDetail, event);
+            } else if (CounterOperations.isCounterOperation(operation)) {
+                handleCounterConsequence(consequenceDetail, operation, event);
             } else {
                 Log.debug(
                         UserProfileConstants.LOG_TAG,
@@ -362,6 +1020,108 @@ public class UserProfileExtension extends Extension {
         }
     }
 
+    /**
+     * Handler for {@code EventType.CONFIGURATION} - {@code EventSource.RESPONSE_CONTENT} {@code
+     * Event}.
+     *
+     * <p>Applies the profile storage mode, the write-behind settings, the profile quota and the
+     * delta events setting from the configuration, and remembers whether the profile should be
+     * loaded lazily on the next launch. When the storage mode changes, the persisted profile is
+     * migrated to the new layout; the profile attributes themselves do not change, so no shared
+     * state is created. A shared state is only created when attributes are evicted by a smaller
+     * quota.
+     *
+     * @param event an {@code EventType#CONFIGURATION} - {@code EventSource#RESPONSE_CONTENT} {@link
+     *     Event}
+     */
+    void handleConfigurationResponseEvent(@NonNull final Event event) {
+        if (profileData == null) {
+            Log.debug(
+                    UserProfileConstants.LOG_TAG,
+                    CLASS_NAME,
+                    "Unable to work with Persisted profile data.");
+            return;
+        }
+        String storageMode =
+                DataReader.optString(
+                        event.getEventData(),
+                        UserProfileConstants.EventDataKeys.Configuration.STORAGE_MODE,
+                        UserProfileConstants.StorageMode.SINGLE_KEY);
+        profileData.setLazyLoadingEnabled(
+                DataReader.optBoolean(
+                        event.getEventData(),
+                        UserProfileConstants.EventDataKeys.Configuration.LAZY_LOAD,
+                        false));
+        if (!profileData.setStorageMode(storageMode)) {
+            Log.warning(
+                    UserProfileConstants.LOG_TAG,
+                    CLASS_NAME,
+                    "Could not persist the profile with the storage mode (%s)",
+                    storageMode);
+        }
+        persistScheduler.configure(
+                DataReader.optLong(
+                        event.getEventData(),
+                        UserProfileConstants.EventDataKeys.Configuration.PERSIST_WINDOW_MS,
+                        UserProfileConstants.DEFAULT_PERSIST_WINDOW_MS),
+                DataReader.optLong(
+                        event.getEventData(),
+                        UserProfileConstants.EventDataKeys.Configuration.PERSIST_MAX_DELAY_MS,
+                        UserProfileConstants.DEFAULT_PERSIST_MAX_DELAY_MS),
+                DataReader.optBoolean(
+                        event.getEventData(),
+                        UserProfileConstants.EventDataKeys.Configuration.PERSIST_ASYNC,
+                        false));
+        deltaEvents =
+                DataReader.optBoolean(
+                        event.getEventData(),
+                        UserProfileConstants.EventDataKeys.Configuration.DELTA_EVENTS,
+                        false);
+        Set<String> evictedKeys =
+                profileData.setQuota(
+                        DataReader.optInt(
+                                event.getEventData(),
+                                UserProfileConstants.EventDataKeys.Configuration.MAX_ATTRIBUTES,
+                                0),
+                        DataReader.optLong(
+                                event.getEventData(),
+                                UserProfileConstants.EventDataKeys.Configuration.MAX_PROFILE_BYTES,
+                                0),
+                        DataReader.optInt(
+                                event.getEventData(),
+                                UserProfileConstants.EventDataKeys.Configuration
+                                        .MAX_ATTRIBUTE_BYTES,
+                                0));
+        if (!evictedKeys.isEmpty() && persistScheduler.requestPersist()) {
+            updateSharedStateAndDispatchEvent(event, evictedKeys);
+        }
+    }
+
+    /**
+     * Handler for {@code EventType.GENERIC_LIFECYCLE} - {@code EventSource.REQUEST_CONTENT} {@code
+     * Event}.
+     *
+     * <p>Removes and shares the expired attributes, and writes the pending write-behind profile
+     * changes when the application is paused, as the process may be killed while in the background.
+     *
+     * @param event an {@code EventType#GENERIC_LIFECYCLE} - {@code EventSource#REQUEST_CONTENT}
+     *     {@link Event}
+     */
+    void handleLifecycleRequestEvent(@NonNull final Event event) {
+        if (persistScheduler == null) {
+            return;
+        }
+        purgeExpiredAttributes(event);
+        String action =
+                DataReader.optString(
+                        event.getEventData(),
+                        UserProfileConstants.EventDataKeys.Lifecycle.LIFECYCLE_ACTION_KEY,
+                        null);
+        if (UserProfileConstants.EventDataKeys.Lifecycle.LIFECYCLE_PAUSE.equals(action)) {
+            persistScheduler.flush();
+        }
+    }
+
     /**
      * This method is called to handle write-operation consequence on the UserProfileExtension.
      *
@@ -370,7 +1130,7 @@ public class UserProfileExtension extends Extension {
      * triggered/viewed or clicked keys. Message aggregate table is created and updated. On
      * successful update, a valid shared state for the given {#sharedStateVersion} will be created
      * and an {@code EventType.USERPROFILE} - {@code EventSource.RESPONSE_PROFILE} {@code Event} is
-     * dispatched.
+     * dispatched. The attribute expires after the time to live of the consequence details, if any.
      *
      * @param consequenceDetails a {@link Map} representing the consequence details with write
      *     profile key and value
@@ -397,7 +1157,13 @@ public class UserProfileExtension extends Extension {
                     (writeValue == null) ? null : replaceValueForIAMKey(writeKey, writeValue);
             Map<String, Object> profileAttribute = new HashMap<>();
             profileAttribute.put(writeKey, updatedWriteValue);
-            updateProfilesAndDispatchSharedState(profileAttribute, event);
+            updateProfilesAndDispatchSharedState(
+                    profileAttribute,
+                    DataReader.optLong(
+                            consequenceDetails,
+                            UserProfileConstants.EventDataKeys.UserProfile.CONSEQUENCE_TIME_TO_LIVE,
+                            0),
+                    event);
         } catch (Exception e) {
             Log.error(
                     UserProfileConstants.LOG_TAG,
@@ -407,6 +1173,52 @@ public class UserProfileExtension extends Extension {
         }
     }
 
+    /**
+     * This method is called to handle a {@link UserProfileConstants.CounterOperation} consequence
+     * on the userProfileExtension. The operand is read from the consequence value, which may be a
+     * token expanded {@code String}; it defaults to {@code 1} for the increment and decrement
+     * operations.
+     *
+     * @param consequenceDetails a {@link Map} representing the consequence details
+     * @param operation the {@link UserProfileConstants.CounterOperation} name
+     * @param event The {@link Event} for which the shared state is being set.
+     */
+    private void handleCounterConsequence(
+            @NonNull final Map<String, Object> consequenceDetails,
+            @NonNull final String operation,
+            @NonNull final Event event) {
+        String key =
+                DataReader.optString(
+                        consequenceDetails,
+                        UserProfileConstants.EventDataKeys.UserProfile.CONSEQUENCE_KEY,
+                        null);
+        if (StringUtils.isNullOrEmpty(key)) {
+            Log.debug(
+                    UserProfileConstants.LOG_TAG,
+                    CLASS_NAME,
+                    "Invalid counter key from the user profile consequence");
+            return;
+        }
+        Object value =
+                consequenceDetails.get(
+                        UserProfileConstants.EventDataKeys.UserProfile.CONSEQUENCE_VALUE);
+        Number operand = CounterOperations.parseOperand(value);
+        if (value == null
+                && (UserProfileConstants.CounterOperation.INCREMENT.equals(operation)
+                        || UserProfileConstants.CounterOperation.DECREMENT.equals(operation))) {
+            operand = 1L;
+        }
+        if (operand == null) {
+            Log.debug(
+                    UserProfileConstants.LOG_TAG,
+                    CLASS_NAME,
+                    "Invalid (%s) operand from the user profile consequence",
+                    operation);
+            return;
+        }
+        shareChanges(profileData.applyCounterOperation(key, operation, operand), event);
+    }
+
     /**
      * This method is called to handle delete-operation consequence on the userProfileExtension.
      *
@@ -457,14 +1269,32 @@ public class UserProfileExtension extends Extension {
      *   <li>Invalid or null key.
      * </ul>
      *
+     * <p>Nothing is persisted or shared when every attribute already has the given value and no
+     * attribute expired.
+     *
      * @param profileAttribute {@link Map} of profile attributes with key-value pair that needs to
      *     be updated
+     * @param timeToLiveSeconds the time to live of the updated attributes, in seconds; {@code 0} or
+     *     less for attributes which do not expire
      */
     private void updateProfilesAndDispatchSharedState(
-            @NonNull final Map<String, Object> profileAttribute, @NonNull final Event event) {
-        profileData.updateOrDelete(profileAttribute);
-        if (profileData.persist()) {
-            updateSharedStateAndDispatchEvent(event);
+            @NonNull final Map<String, Object> profileAttribute,
+            final long timeToLiveSeconds,
+            @NonNull final Event event) {
+        Set<String> updatedKeys =
+                timeToLiveSeconds > 0
+                        ? profileData.updateOrDelete(
+                                profileAttribute, TimeUnit.SECONDS.toMillis(timeToLiveSeconds))
+                        : profileData.updateOrDelete(profileAttribute);
+        if (updatedKeys.isEmpty()) {
+            Log.trace(
+                    UserProfileConstants.LOG_TAG,
+                    CLASS_NAME,
+                    "The profile attributes are unchanged, skipping the profile update");
+            return;
+        }
+        if (requestPersist(event)) {
+            updateSharedStateAndDispatchEvent(event, updatedKeys);
         }
     }
 
@@ -480,16 +1310,81 @@ public class UserProfileExtension extends Extension {
      *   <li>when on invalid or null key.
      * </ul>
      *
+     * <p>Nothing is persisted or shared when none of the keys exists in the profile.
+     *
      * @param keys the {@link List<String>} profile keys that needs to be deleted
      */
     private void deleteProfileAndDispatchSharedState(
             @NonNull final List<String> keys, @NonNull final Event event) {
-        profileData.delete(keys);
-        if (profileData.persist()) {
-            updateSharedStateAndDispatchEvent(event);
+        Set<String> deletedKeys = profileData.delete(keys);
+        if (deletedKeys.isEmpty()) {
+            Log.trace(
+                    UserProfileConstants.LOG_TAG,
+                    CLASS_NAME,
+                    "The profile attributes to remove do not exist, skipping the profile update");
+            return;
+        }
+        if (requestPersist(event)) {
+            updateSharedStateAndDispatchEvent(event, deletedKeys);
+        }
+    }
+
+    /**
+     * Persists and shares the profile once the given attributes changed, unless none did.
+     *
+     * @param changedKeys the keys of the changed attributes
+     * @param event the {@link Event} which changed the profile
+     */
+    private void shareChanges(@NonNull final Set<String> changedKeys, @NonNull final Event event) {
+        if (changedKeys.isEmpty()) {
+            Log.trace(
+                    UserProfileConstants.LOG_TAG,
+                    CLASS_NAME,
+                    "The profile attributes are unchanged, skipping the profile update");
+            return;
+        }
+        if (requestPersist(event)) {
+            updateSharedStateAndDispatchEvent(event, changedKeys);
         }
     }
 
+    /**
+     * Removes the attributes whose time to live has elapsed, then persists and shares the profile
+     * once for all of them.
+     *
+     * @param event the {@link Event} for which the shared state is being set, or null
+     */
+    private void purgeExpiredAttributes(@Nullable final Event event) {
+        Set<String> expiredKeys = profileData.purgeExpired();
+        if (expiredKeys.isEmpty()) {
+            return;
+        }
+        if (persistScheduler.requestPersist()) {
+            updateSharedStateAndDispatchEvent(event, expiredKeys);
+        }
+    }
+
+    /**
+     * Requests the profile changes made for the given {@code Event} to be persisted. When the event
+     * asks for a durable change, waits until the changes are on disk, even if they would otherwise
+     * be written later or on a background thread.
+     *
+     * @param event the {@link Event} which changed the profile
+     * @return {@code true} if the changes were persisted or their write was scheduled
+     */
+    private boolean requestPersist(@NonNull final Event event) {
+        if (!persistScheduler.requestPersist()) {
+            return false;
+        }
+        if (!DataReader.optBoolean(
+                event.getEventData(),
+                UserProfileConstants.EventDataKeys.UserProfile.DURABLE,
+                false)) {
+            return true;
+        }
+        return persistScheduler.flush();
+    }
+
     /**
      * This method creates/maintains a message aggregate table, keeping track of the count of
      * message triggered/clicked/viewed for each messageId.
@@ -539,28 +1434,162 @@ public class UserProfileExtension extends Extension {
      * <p>Creates an {@code EventData} from {@code #profileData} instance, then updates the shared
      * state and dispatches the event with the prepared {@code EventData}
      *
+     * <p>When delta events are enabled, the shared state also holds the profile version, and the
+     * event only holds the version with the changed attributes and the removed keys. The shared
+     * state always holds the whole profile. The versions are reserved in blocks in the persistence,
+     * so that the versions of a launch are all higher than the ones of the previous launches.
+     *
+     * <p>The event also holds the unique identifier of the given {@code Event}, when there is one.
+     *
      * @param event The {@link Event} for which the shared state is being set.
+     * @param changedKeys the keys of the attributes changed since the previous shared state, or
+     *     null to dispatch the whole profile
      */
-    private void updateSharedStateAndDispatchEvent(@Nullable final Event event) {
+    private void updateSharedStateAndDispatchEvent(
+            @Nullable final Event event, @Nullable final Set<String> changedKeys) {
         Map<String, Object> eventDataMap = new HashMap<>();
-        if (profileData != null) {
+        Map<String, Object> profile = profileData != null ? profileData.getMap() : null;
+        if (profile != null) {
+            eventDataMap.put(
+                    UserProfileConstants.EventDataKeys.UserProfile.USER_PROFILE_DATA_KEY, profile);
+        }
+        profileVersion++;
+        if (deltaEvents && profileData != null && profileVersion > reservedProfileVersion) {
+            // the reservation is only written once for a block of versions
+            reservedProfileVersion = profileVersion + PROFILE_VERSION_RESERVATION - 1;
+            profileData.reserveProfileVersions(reservedProfileVersion);
+        }
+        if (deltaEvents) {
             eventDataMap.put(
-                    UserProfileConstants.EventDataKeys.UserProfile.USER_PROFILE_DATA_KEY,
-                    profileData.getMap());
+                    UserProfileConstants.EventDataKeys.UserProfile.PROFILE_VERSION, profileVersion);
         }
 
         getApi().createSharedState(eventDataMap, event);
+        publishedProfile = profile;
 
+        Map<String, Object> responseData = eventDataMap;
+        if (deltaEvents && changedKeys != null && profile != null) {
+            responseData = createDelta(profile, changedKeys);
+        }
+        if (event != null) {
+            // lets the listeners tell when the changes they requested are applied
+            responseData = new HashMap<>(responseData);
+            responseData.put(
+                    UserProfileConstants.EventDataKeys.UserProfile.REQUEST_EVENT_ID,
+                    event.getUniqueIdentifier());
+        }
         final Event responseEvent =
                 new Event.Builder(
                                 "UserProfile Response Event",
                                 EventType.USERPROFILE,
                                 EventSource.RESPONSE_PROFILE)
-                        .setEventData(eventDataMap)
+                        .setEventData(responseData)
                         .build();
         getApi().dispatch(responseEvent);
     }
 
+    /**
+     * Creates the {@code EventData} of a delta UserProfile Response event.
+     *
+     * @param profile the profile attributes
+     * @param changedKeys the keys of the attributes changed since the previous shared state
+     * @return the profile version, the changed attributes and the removed keys
+     */
+    @NonNull private Map<String, Object> createDelta(
+            @NonNull final Map<String, Object> profile, @NonNull final Set<String> changedKeys) {
+        Map<String, Object> changedAttributes = new HashMap<>();
+        List<String> removedKeys = new ArrayList<>();
+        for (String key : changedKeys) {
+            if (profile.containsKey(key)) {
+                changedAttributes.put(key, profile.get(key));
+            } else {
+                removedKeys.add(key);
+            }
+        }
+        Map<String, Object> delta = new HashMap<>();
+        delta.put(UserProfileConstants.EventDataKeys.UserProfile.PROFILE_VERSION, profileVersion);
+        delta.put(
+                UserProfileConstants.EventDataKeys.UserProfile.CHANGED_ATTRIBUTES,
+                changedAttributes);
+        delta.put(UserProfileConstants.EventDataKeys.UserProfile.REMOVED_KEYS, removedKeys);
+        return delta;
+    }
+
+    /**
+     * Checks a transaction operation, and parses the operand of a counter operation.
+     *
+     * @param operation the {@link UserProfileConstants.TransactionOperation}
+     * @return a copy of the operation with its parsed operand, or null if it is invalid
+     */
+    @Nullable private static Map<String, Object> validateTransactionOperation(
+            @Nullable final Map<String, Object> operation) {
+        if (operation == null) {
+            return null;
+        }
+        String name =
+                DataReader.optString(
+                        operation, UserProfileConstants.TransactionOperation.NAME, null);
+        String key =
+                DataReader.optString(
+                        operation, UserProfileConstants.TransactionOperation.KEY, null);
+        if (name == null || StringUtils.isNullOrEmpty(key)) {
+            return null;
+        }
+        Object value = operation.get(UserProfileConstants.TransactionOperation.VALUE);
+        if (CounterOperations.isCounterOperation(name)) {
+            value = CounterOperations.parseOperand(value);
+            if (value == null) {
+                return null;
+            }
+        } else if (!UserProfileConstants.TransactionOperation.SET.equals(name)
+                && !UserProfileConstants.TransactionOperation.REMOVE.equals(name)
+                && !UserProfileConstants.TransactionOperation.REMOVE_MATCHING.equals(name)) {
+            return null;
+        }
+        Map<String, Object> validOperation = new HashMap<>(operation);
+        validOperation.put(UserProfileConstants.TransactionOperation.VALUE, value);
+        return validOperation;
+    }
+
+    /**
+     * Creates the value and version of an attribute, as returned by the versions and compare and
+     * set requests.
+     *
+     * @param key the attribute key
+     * @param value the current attribute value, or null if it does not exist
+     * @return a new {@link Map} of the attribute value and version
+     */
+    @NonNull private Map<String, Object> createVersionedAttribute(
+            @NonNull final String key, @Nullable final Object value) {
+        Map<String, Object> attribute = new HashMap<>();
+        attribute.put(UserProfileConstants.EventDataKeys.UserProfile.ATTRIBUTE_VALUE, value);
+        attribute.put(
+                UserProfileConstants.EventDataKeys.UserProfile.ATTRIBUTE_VERSION,
+                value != null ? profileData.getVersion(key) : 0L);
+        return attribute;
+    }
+
+    /**
+     * Dispatches an {@code EventType.USERPROFILE} - {@code EventSource.NOTIFICATION} {@code Event}
+     * listing the attributes evicted to keep the profile within its quota.
+     *
+     * @param evictedKeys the evicted attribute keys
+     */
+    private void dispatchEvictionEvent(@NonNull final Set<String> evictedKeys) {
+        Map<String, Object> eventDataMap = new HashMap<>();
+        eventDataMap.put(
+                UserProfileConstants.EventDataKeys.UserProfile.EVICTED_KEYS,
+                new ArrayList<>(evictedKeys));
+        final Event evictionEvent =
+                new Event.Builder(
+                                "UserProfile Eviction Event",
+                                EventType.USERPROFILE,
+                                EventSource.NOTIFICATION)
+                        .setEventData(eventDataMap)
+                        .build();
+        getApi().dispatch(evictionEvent);
+    }
+
     /**
      * Attempts to instantiate the instance of {@code PersistentProfileData} to {@code #profileData}
      * variable.
@@ -572,10 +1601,12 @@ public class UserProfileExtension extends Extension {
      * @return {@link boolean} indicating whether the instantiation of {@link #profileData} variable
      *     was successful
      */
-    private boolean loadProfileDataIfNeeded() {
+    private boolean createProfileDataIfNeeded() {
         if (profileData == null) {
             try {
                 profileData = new ProfileData();
+                profileData.setEvictionListener(this::dispatchEvictionEvent);
+                persistScheduler = new PersistScheduler(profileData);
             } catch (MissingPlatformServicesException e) {
                 Log.debug(
                         UserProfileConstants.LOG_TAG,
@@ -584,8 +1615,58 @@ public class UserProfileExtension extends Extension {
                         e);
                 return false;
             }
-            return profileData.loadPersistenceData();
         }
         return true;
     }
+
+    /**
+     * Loads the persisted profile into {@link #profileData} and shares it, unless it is empty. The
+     * attributes which expired since the profile was persisted are removed first.
+     *
+     * @return {@code true} if the persisted profile was loaded
+     */
+    private boolean loadProfileDataAndShareState() {
+        profileVersion = profileData.getReservedProfileVersion();
+        reservedProfileVersion = profileVersion;
+        if (!profileData.loadPersistenceData()) {
+            return false;
+        }
+        if (!profileData.purgeExpired().isEmpty()) {
+            persistScheduler.requestPersist();
+        }
+        Map<String, Object> profile = profileData.getMap();
+        if (!profile.isEmpty()) {
+            updateSharedStateAndDispatchEvent(null, null);
+        } else {
+            publishedProfile = profile;
+        }
+        return true;
+    }
+
+    /**
+     * Loads the persisted profile on a background thread, so that the registration of the extension
+     * is not delayed by reading the profile. The initial shared state is created as soon as the
+     * load completes, and {@link #readyForEvent(Event)} holds the events until then.
+     */
+    private void startLazyLoad() {
+        FutureTask<Boolean> load =
+                new FutureTask<>(
+                        () -> {
+                            try {
+                                return loadProfileDataAndShareState();
+                            } finally {
+                                // the events held by readyForEvent are processed again
+                                getApi().startEvents();
+                            }
+                        });
+        pendingLoad = load;
+        if (loadExecutor == null) {
+            loadExecutor = Executors.newSingleThreadExecutor();
+        }
+        loadExecutor.execute(load);
+        Log.debug(
+                UserProfileConstants.LOG_TAG,
+                CLASS_NAME,
+                "Loading the persisted profile in the background");
+    }
 }
@@ -0,0 +1,164 @@
+/*
+  Copyright 2026 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile.userprofile;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.adobe.marketing.mobile.UserProfile;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * The helpers of the {@link UserProfile} public API, which is in another package. This class is not
+ * part of the public API, and may change in any release.
+ */
+public final class UserProfileInternal {
+
+    /** Receives the attributes read by {@link #readAttributeChunks(Reader, int, ChunkHandler)}. */
+    public interface ChunkHandler {
+
+        /**
+         * Called with every chunk of attributes, in order.
+         *
+         * @param attributes the attributes of the chunk, a null value removing the attribute
+         * @return {@code false} to stop reading
+         */
+        boolean onChunk(@NonNull Map<String, Object> attributes);
+    }
+
+    private UserProfileInternal() {}
+
+    /**
+     * Returns the profile attributes of the latest UserProfile shared state, without going through
+     * the event hub. This method is used by the synchronous {@link UserProfile} getters.
+     *
+     * @return an immutable snapshot of the profile, or null if the profile is not loaded yet
+     */
+    @Nullable public static Map<String, Object> getProfileSnapshot() {
+        return UserProfileExtension.getProfileSnapshot();
+    }
+
+    /**
+     * Returns the attributes with the given keys, where a key can also be a pattern such as {@code
+     * cart.item.*}. This method is used by {@link UserProfile} to answer several requests with a
+     * single profile.
+     *
+     * @param attributes the profile attributes, or null
+     * @param keys the attribute keys or patterns
+     * @return the existing attributes among the keys, and the attributes matching the patterns
+     */
+    @NonNull public static Map<String, Object> selectAttributes(
+            @Nullable final Map<String, Object> attributes, @Nullable final List<String> keys) {
+        Map<String, Object> selection = new HashMap<>();
+        if (attributes == null || keys == null) {
+            return selection;
+        }
+        List<String> patterns = new ArrayList<>();
+        for (String key : keys) {
+            if (key == null) {
+                continue;
+            }
+            if (KeyPattern.isPattern(key)) {
+                patterns.add(key);
+            }
+            Object value = attributes.get(key);
+            if (value != null) {
+                selection.put(key, value);
+            }
+        }
+        if (patterns.isEmpty()) {
+            return selection;
+        }
+        for (Map.Entry<String, Object> entry : attributes.entrySet()) {
+            if (entry.getValue() == null) {
+                continue;
+            }
+            for (String pattern : patterns) {
+                if (KeyPattern.matches(pattern, entry.getKey())) {
+                    selection.put(entry.getKey(), entry.getValue());
+                    break;
+                }
+            }
+        }
+        return selection;
+    }
+
+    /**
+     * Reads the attributes of a json object in chunks, without holding the whole object in memory.
+     * This method is used by {@link UserProfile} to import attributes.
+     *
+     * <p>A json {@code null} attribute is read as null, which removes the attribute. In the nested
+     * objects, a json {@code null} member is dropped, as a merge patch removes it.
+     *
+     * @param reader the {@link Reader} providing a json object, which is not closed
+     * @param chunkSize the maximum number of attributes in a chunk
+     * @param handler receives the chunks, the last one holding the remaining attributes
+     * @return {@code false} if the handler stopped the reading
+     * @throws IOException if the input could not be read, or is not a valid json object
+     */
+    @SuppressWarnings("unchecked")
+    public static boolean readAttributeChunks(
+            @NonNull final Reader reader, final int chunkSize, @NonNull final ChunkHandler handler)
+            throws IOException {
+        Map<String, Object>[] chunk = new Map[] {new HashMap<>()};
+        try {
+            boolean completed =
+                    ProfileJsonDecoder.decodeMembers(
+                            reader,
+                            (key, value) -> {
+                                chunk[0].put(key, withoutJsonNulls(value));
+                                if (chunk[0].size() < chunkSize) {
+                                    return true;
+                                }
+                                Map<String, Object> fullChunk = chunk[0];
+                                chunk[0] = new HashMap<>();
+                                return handler.onChunk(fullChunk);
+                            });
+            return completed && (chunk[0].isEmpty() || handler.onChunk(chunk[0]));
+        } catch (JSONException e) {
+            throw new IOException("Invalid json object: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Removes the {@link JSONObject#NULL}s of a decoded json value, which are not valid event data.
+     * The decoded maps are modified in place.
+     *
+     * @param value the decoded value
+     * @return the value, or null for a json {@code null}
+     */
+    @SuppressWarnings("unchecked")
+    @Nullable private static Object withoutJsonNulls(@Nullable final Object value) {
+        if (value == JSONObject.NULL) {
+            return null;
+        }
+        if (value instanceof Map) {
+            Iterator<Object> members = ((Map<String, Object>) value).values().iterator();
+            while (members.hasNext()) {
+                Object member = members.next();
+                if (member == JSONObject.NULL) {
+                    members.remove();
+                } else {
+                    withoutJsonNulls(member);
+                }
+            }
+        }
+        return value;
+    }
+}
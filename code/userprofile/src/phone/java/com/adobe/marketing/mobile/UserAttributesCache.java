@@ -0,0 +1,184 @@
+/*
+  Copyright 2026 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.adobe.marketing.mobile.userprofile.UserProfileInternal;
+import com.adobe.marketing.mobile.util.DataReader;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Caches the profile for {@link UserProfile#getUserAttributes(List, AdobeCallback)}, from the
+ * UserProfile Response events dispatched by the extension after every profile change.
+ *
+ * <p>The cache is fresh once it holds a whole profile and every change requested through the {@link
+ * UserProfile} APIs since was answered by its Response event. A change which leaves the profile
+ * unchanged is answered as well, by a Response event without the profile. A pending change is still
+ * given up after a timeout, in case its response is lost.
+ *
+ * <p>A bulk change, such as an import, changes the profile over several requests whose responses do
+ * not hold the profile. The cache is emptied when it starts, and is not used until it ends.
+ */
+class UserAttributesCache {
+
+    /** The source of the current time, replaced in tests. */
+    interface Clock {
+
+        /** Returns the current time, in milliseconds. */
+        long currentTimeMillis();
+    }
+
+    private static final String USER_PROFILE_DATA_KEY = "userprofiledata";
+    private static final String PROFILE_VERSION = "userprofileversion";
+    private static final String CHANGED_ATTRIBUTES = "userprofilechangedattributes";
+    private static final String REMOVED_KEYS = "userprofileremovedkeys";
+    private static final String REQUEST_EVENT_ID = "userprofilerequesteventid";
+
+    private final long pendingChangeTimeoutMs;
+    private final Clock clock;
+
+    /** The cached profile, or null if it is not known. */
+    private Map<String, Object> profile;
+
+    /** The version of the cached profile, or {@code -1} if the delta events are disabled. */
+    private long version = -1;
+
+    /** The time each change requested through the public APIs was dispatched, by event id. */
+    private final Map<String, Long> pendingChanges = new HashMap<>();
+
+    /** The number of bulk changes in progress. */
+    private int bulkChanges;
+
+    private long hitCount;
+    private long missCount;
+
+    UserAttributesCache(final long pendingChangeTimeoutMs, @NonNull final Clock clock) {
+        this.pendingChangeTimeoutMs = pendingChangeTimeoutMs;
+        this.clock = clock;
+    }
+
+    /**
+     * Returns the attributes with the given keys or patterns, if the cache is fresh.
+     *
+     * @param keys the attribute keys or patterns
+     * @return the existing attributes among the keys, or null on a cache miss
+     */
+    @Nullable synchronized Map<String, Object> get(@NonNull final List<String> keys) {
+        if (!isFresh()) {
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        return UserProfileInternal.selectAttributes(profile, keys);
+    }
+
+    /**
+     * Records a profile change requested through the public APIs, after which the cache is not
+     * fresh until the change is answered.
+     *
+     * @param event the dispatched request {@link Event}
+     */
+    synchronized void onChangeRequested(@NonNull final Event event) {
+        pendingChanges.put(event.getUniqueIdentifier(), clock.currentTimeMillis());
+    }
+
+    /** Records the start of a bulk change, after which the cache is not fresh until it ends. */
+    synchronized void onBulkChangeStarted() {
+        bulkChanges++;
+        profile = null;
+    }
+
+    /**
+     * Records the end of a bulk change. The request which completes it must have been recorded by
+     * {@link #onChangeRequested(Event)}, so that the cache stays stale until it is answered.
+     */
+    synchronized void onBulkChangeEnded() {
+        bulkChanges--;
+    }
+
+    /**
+     * Updates the cache from a UserProfile Response event. The events answering a get request are
+     * ignored.
+     *
+     * @param eventData the event data
+     */
+    @SuppressWarnings("unchecked")
+    synchronized void onResponseEvent(@Nullable final Map<String, Object> eventData) {
+        if (eventData == null) {
+            return;
+        }
+        Object requestEventId = eventData.get(REQUEST_EVENT_ID);
+        if (requestEventId != null) {
+            pendingChanges.remove(requestEventId);
+        }
+        long eventVersion = DataReader.optLong(eventData, PROFILE_VERSION, -1);
+        Object data = eventData.get(USER_PROFILE_DATA_KEY);
+        if (data instanceof Map) {
+            profile = (Map<String, Object>) data;
+            version = eventVersion;
+            return;
+        }
+        Object changedAttributes = eventData.get(CHANGED_ATTRIBUTES);
+        if (!(changedAttributes instanceof Map)) {
+            return;
+        }
+        if (profile == null || version < 0 || eventVersion != version + 1) {
+            // a change was missed, wait for the next whole profile
+            profile = null;
+            return;
+        }
+        Map<String, Object> updated = new HashMap<>(profile);
+        updated.putAll((Map<String, Object>) changedAttributes);
+        Object removedKeys = eventData.get(REMOVED_KEYS);
+        if (removedKeys instanceof List) {
+            updated.keySet().removeAll((List<?>) removedKeys);
+        }
+        profile = updated;
+        version = eventVersion;
+    }
+
+    /** Empties the cache, and resets its counters. The bulk changes in progress are kept. */
+    synchronized void clear() {
+        profile = null;
+        version = -1;
+        pendingChanges.clear();
+        hitCount = 0;
+        missCount = 0;
+    }
+
+    synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    synchronized long getMissCount() {
+        return missCount;
+    }
+
+    private boolean isFresh() {
+        if (profile == null || bulkChanges > 0) {
+            return false;
+        }
+        long now = clock.currentTimeMillis();
+        Iterator<Long> dispatchTimes = pendingChanges.values().iterator();
+        while (dispatchTimes.hasNext()) {
+            if (now - dispatchTimes.next() < pendingChangeTimeoutMs) {
+                return false;
+            }
+            dispatchTimes.remove();
+        }
+        return true;
+    }
+}
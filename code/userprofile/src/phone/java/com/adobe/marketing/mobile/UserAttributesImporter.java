@@ -0,0 +1,159 @@
+/*
+  Copyright 2026 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.adobe.marketing.mobile.services.Log;
+import com.adobe.marketing.mobile.userprofile.UserProfileInternal;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Imports the attributes of a json object into the profile for {@link
+ * UserProfile#importUserAttributes(Reader, UserProfile.ImportListener)}.
+ *
+ * <p>The json object is decoded as it is read, and its attributes are dispatched in chunks of a
+ * bounded size. A chunk is only read once the previous one was applied by the UserProfile
+ * extension, so that at most one chunk is held in memory whatever the size of the import. A last
+ * request completes the import, after which the extension persists and shares the profile once.
+ */
+class UserAttributesImporter {
+
+    /** Dispatches the requests of an import. */
+    interface Dispatcher {
+
+        /**
+         * Dispatches the request. The callback must eventually be called, or failed.
+         *
+         * @param eventData the request event data
+         * @param callback receives the response event
+         */
+        void dispatch(
+                @NonNull Map<String, Object> eventData,
+                @NonNull AdobeCallbackWithError<Event> callback);
+    }
+
+    private static final String LOG_TAG = "UserProfile";
+    private static final String CLASS_NAME = "UserAttributesImporter";
+    private static final String IMPORT_DATA = "userprofileimportdata";
+    private static final String IMPORT_ID = "userprofileimportid";
+    private static final String IMPORT_COMPLETE = "userprofileimportcomplete";
+
+    private final Dispatcher dispatcher;
+    private final int chunkSize;
+    private final long timeoutMs;
+
+    UserAttributesImporter(
+            @NonNull final Dispatcher dispatcher, final int chunkSize, final long timeoutMs) {
+        this.dispatcher = dispatcher;
+        this.chunkSize = chunkSize;
+        this.timeoutMs = timeoutMs;
+    }
+
+    /**
+     * Imports the attributes read from the given {@link Reader}, which is not closed. This method
+     * blocks until the import is completed, and must not be called on the event hub threads.
+     *
+     * <p>The chunks imported before a failure are kept, and are persisted and shared as well.
+     *
+     * @param reader the {@link Reader} providing a json object
+     * @param listener receives the progress and the outcome of the import, or null
+     */
+    void importAttributes(
+            @NonNull final Reader reader, @Nullable final UserProfile.ImportListener listener) {
+        String importId = UUID.randomUUID().toString();
+        long[] importedCount = {0};
+        AdobeError[] error = {null};
+        try {
+            UserProfileInternal.readAttributeChunks(
+                    reader,
+                    chunkSize,
+                    chunk -> {
+                        error[0] = send(importId, chunk, false);
+                        if (error[0] != null) {
+                            return false;
+                        }
+                        importedCount[0] += chunk.size();
+                        if (listener != null) {
+                            listener.onProgress(importedCount[0]);
+                        }
+                        return true;
+                    });
+        } catch (IOException e) {
+            Log.warning(LOG_TAG, CLASS_NAME, "Could not read the imported attributes: %s", e);
+            error[0] = AdobeError.UNEXPECTED_ERROR;
+        }
+        AdobeError completionError = send(importId, null, true);
+        if (error[0] == null) {
+            error[0] = completionError;
+        }
+        if (listener == null) {
+            return;
+        }
+        if (error[0] != null) {
+            listener.onFailure(error[0], importedCount[0]);
+        } else {
+            listener.onComplete(importedCount[0]);
+        }
+    }
+
+    /**
+     * Dispatches a request of the import, and waits for its response.
+     *
+     * @return the error, or null if the request was answered
+     */
+    @Nullable private AdobeError send(
+            @NonNull final String importId,
+            @Nullable final Map<String, Object> chunk,
+            final boolean complete) {
+        Map<String, Object> eventData = new HashMap<>();
+        eventData.put(IMPORT_ID, importId);
+        if (chunk != null) {
+            eventData.put(IMPORT_DATA, chunk);
+        }
+        if (complete) {
+            eventData.put(IMPORT_COMPLETE, true);
+        }
+        CountDownLatch answered = new CountDownLatch(1);
+        AdobeError[] error = {AdobeError.CALLBACK_TIMEOUT};
+        dispatcher.dispatch(
+                eventData,
+                new AdobeCallbackWithError<Event>() {
+                    @Override
+                    public void fail(final AdobeError adobeError) {
+                        error[0] = adobeError;
+                        answered.countDown();
+                    }
+
+                    @Override
+                    public void call(final Event event) {
+                        error[0] = null;
+                        answered.countDown();
+                    }
+                });
+        try {
+            if (!answered.await(timeoutMs, TimeUnit.MILLISECONDS)) {
+                return AdobeError.CALLBACK_TIMEOUT;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return AdobeError.UNEXPECTED_ERROR;
+        }
+        return error[0];
+    }
+}
@@ -0,0 +1,149 @@
+/*
+  Copyright 2026 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.adobe.marketing.mobile.userprofile.UserProfileInternal;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Coalesces the {@link UserProfile#getUserAttributes(List, AdobeCallback)} requests.
+ *
+ * <p>A request is dispatched right away when no other request is waiting for its response. The
+ * requests made while one is waiting are queued, and dispatched together as a single request for
+ * the union of their keys once the response arrives. Every callback then receives the attributes of
+ * its own keys, read after it was called.
+ *
+ * <p>There is no time window: a request made when no other request is waiting is never delayed, and
+ * so is never batched with the requests which follow it. In a burst of calls, the first one is
+ * dispatched alone and the following ones are batched behind it.
+ */
+class UserAttributesRequestBatcher {
+
+    /** Dispatches a request for the given keys. */
+    interface Dispatcher {
+
+        /**
+         * Dispatches the request. The callback must eventually be called, or failed.
+         *
+         * @param keys the attribute keys
+         * @param callback receives the existing attributes among the keys
+         */
+        void dispatch(
+                @NonNull List<String> keys,
+                @NonNull AdobeCallbackWithError<Map<String, Object>> callback);
+    }
+
+    private final Dispatcher dispatcher;
+    private boolean requestInFlight;
+    private final Set<String> pendingKeys = new LinkedHashSet<>();
+    private final List<Request> pendingRequests = new ArrayList<>();
+
+    UserAttributesRequestBatcher(@NonNull final Dispatcher dispatcher) {
+        this.dispatcher = dispatcher;
+    }
+
+    /**
+     * Requests the attributes with the given keys.
+     *
+     * @param keys the attribute keys
+     * @param callback receives the existing attributes among the keys
+     */
+    void request(
+            @NonNull final List<String> keys,
+            @NonNull final AdobeCallback<Map<String, Object>> callback) {
+        Request request = new Request(keys, callback);
+        synchronized (this) {
+            if (requestInFlight) {
+                pendingKeys.addAll(keys);
+                pendingRequests.add(request);
+                return;
+            }
+            requestInFlight = true;
+        }
+        List<Request> requests = new ArrayList<>(1);
+        requests.add(request);
+        send(keys, requests);
+    }
+
+    private void send(@NonNull final List<String> keys, @NonNull final List<Request> requests) {
+        dispatcher.dispatch(
+                keys,
+                new AdobeCallbackWithError<Map<String, Object>>() {
+                    @Override
+                    public void fail(final AdobeError adobeError) {
+                        sendPendingRequests();
+                        for (Request request : requests) {
+                            request.fail(adobeError);
+                        }
+                    }
+
+                    @Override
+                    public void call(final Map<String, Object> attributes) {
+                        sendPendingRequests();
+                        if (requests.size() == 1) {
+                            requests.get(0).callback.call(attributes);
+                            return;
+                        }
+                        for (Request request : requests) {
+                            request.callback.call(request.project(attributes));
+                        }
+                    }
+                });
+    }
+
+    /** Dispatches the requests queued while the previous request was waiting, as one request. */
+    private void sendPendingRequests() {
+        List<String> keys;
+        List<Request> requests;
+        synchronized (this) {
+            if (pendingRequests.isEmpty()) {
+                requestInFlight = false;
+                return;
+            }
+            keys = new ArrayList<>(pendingKeys);
+            requests = new ArrayList<>(pendingRequests);
+            pendingKeys.clear();
+            pendingRequests.clear();
+        }
+        send(keys, requests);
+    }
+
+    /** A request waiting for its attributes. */
+    private static final class Request {
+        final List<String> keys;
+        final AdobeCallback<Map<String, Object>> callback;
+
+        Request(
+                @NonNull final List<String> keys,
+                @NonNull final AdobeCallback<Map<String, Object>> callback) {
+            this.keys = keys;
+            this.callback = callback;
+        }
+
+        @NonNull Map<String, Object> project(@Nullable final Map<String, Object> attributes) {
+            return UserProfileInternal.selectAttributes(attributes, keys);
+        }
+
+        @SuppressWarnings("unchecked")
+        void fail(@NonNull final AdobeError adobeError) {
+            if (callback instanceof AdobeCallbackWithError) {
+                ((AdobeCallbackWithError<Map<String, Object>>) callback).fail(adobeError);
+            }
+        }
+    }
+}
@@ -12,23 +12,97 @@
 package com.adobe.marketing.mobile;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import com.adobe.marketing.mobile.services.Log;
 import com.adobe.marketing.mobile.userprofile.UserProfileExtension;
+import com.adobe.marketing.mobile.userprofile.UserProfileInternal;
 import com.adobe.marketing.mobile.util.DataReader;
 import com.adobe.marketing.mobile.util.DataReaderException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class UserProfile {
+
+    /**
+     * Receives the progress and the outcome of {@link #importUserAttributes(Reader,
+     * ImportListener)}.
+     */
+    public interface ImportListener {
+
+        /**
+         * Called after every chunk of attributes is imported.
+         *
+         * @param importedCount the number of attributes imported so far
+         */
+        void onProgress(long importedCount);
+
+        /**
+         * Called once all the attributes are imported, and the profile is persisted and shared.
+         *
+         * @param importedCount the number of attributes imported
+         */
+        void onComplete(long importedCount);
+
+        /**
+         * Called when the import stops before all the attributes are imported. The attributes
+         * imported until then are kept.
+         *
+         * @param error the {@link AdobeError}
+         * @param importedCount the number of attributes imported
+         */
+        void onFailure(@NonNull AdobeError error, long importedCount);
+    }
+
     private static final String LOG_TAG = "UserProfile";
     private static final String EXTENSION_VERSION = "3.0.1";
     private static final String CLASS_NAME = "UserProfile";
     private static final String UPDATE_DATA_KEY = "userprofileupdatekey";
     private static final String GET_DATA_ATTRIBUTES = "userprofilegetattributes";
     private static final String REMOVE_DATA_KEYS = "userprofileremovekeys";
+    private static final String DURABLE = "userprofiledurable";
+    private static final String TIME_TO_LIVE = "userprofilettl";
+    private static final String UPDATE_DATA_PATHS = "userprofileupdatepaths";
+    private static final String MERGE_DATA_KEY = "userprofilemergekey";
+    private static final String COUNTER_KEY = "userprofilecounterkey";
+    private static final String COUNTER_OPERATION = "userprofilecounteroperation";
+    private static final String COUNTER_VALUE = "userprofilecountervalue";
+    private static final String GET_DATA_PATHS = "userprofilegetpaths";
+    private static final String GET_DATA_VERSIONS = "userprofilegetversions";
+    private static final String COMPARE_AND_SET_KEY = "userprofilecaskey";
+    private static final String COMPARE_AND_SET_VALUE = "userprofilecasvalue";
+    private static final String EXPECTED_VALUE = "userprofileexpectedvalue";
+    private static final String EXPECTED_VERSION = "userprofileexpectedversion";
+    private static final String COMPARE_AND_SET_SUCCEEDED = "succeeded";
+    private static final String ATTRIBUTE_VALUE = "value";
+    private static final String ATTRIBUTE_VERSION = "version";
+    private static final String REMOVE_DATA_PATHS = "userprofileremovepaths";
+    private static final String REMOVE_DATA_PATTERNS = "userprofileremovepatterns";
+    private static final String TRANSACTION_OPERATIONS = "userprofiletransaction";
+    private static final String IMPORT_COMPLETE = "userprofileimportcomplete";
     private static final long API_TIMEOUT = 5000L;
+    private static final int IMPORT_CHUNK_SIZE = 500;
     public static final Class<? extends Extension> EXTENSION = UserProfileExtension.class;
+    private static final UserAttributesRequestBatcher GET_ATTRIBUTES_BATCHER =
+            new UserAttributesRequestBatcher(
+                    (keys, callback) ->
+                            dispatchGetEvent(
+                                    "getUserAttributes", GET_DATA_ATTRIBUTES, keys, callback));
+    private static final UserAttributesCache READ_CACHE =
+            new UserAttributesCache(API_TIMEOUT, System::currentTimeMillis);
+    private static volatile boolean readCacheEnabled;
+    private static final ExecutorService IMPORT_EXECUTOR = Executors.newSingleThreadExecutor();
+    private static final UserAttributesImporter IMPORTER =
+            new UserAttributesImporter(
+                    UserProfile::dispatchImportRequest, IMPORT_CHUNK_SIZE, API_TIMEOUT);
+    private static boolean readCacheListenerRegistered;
 
     private UserProfile() {}
 
@@ -52,6 +126,51 @@ public class UserProfile {
      * @param attributeMap HashMap of profile attributes key-value pairs to be set.
      */
     public static void updateUserAttributes(@NonNull final Map<String, Object> attributeMap) {
+        updateUserAttributes(attributeMap, false);
+    }
+
+    /**
+     * UserProfile API to set user profile attributes keys and values.
+     *
+     * <p>Same as {@link #updateUserAttributes(Map)}. When {@code durable} is {@code true}, the
+     * updated attributes are written to disk before the userprofile shared state is updated, even
+     * if the profile changes are otherwise written in the background.
+     *
+     * @param attributeMap HashMap of profile attributes key-value pairs to be set.
+     * @param durable whether the attributes must be on disk before they are shared
+     */
+    public static void updateUserAttributes(
+            @NonNull final Map<String, Object> attributeMap, final boolean durable) {
+        updateUserAttributes(attributeMap, durable, 0);
+    }
+
+    /**
+     * UserProfile API to set user profile attributes keys and values which expire.
+     *
+     * <p>Same as {@link #updateUserAttributes(Map)}, except that the attributes are removed once
+     * the given time to live has elapsed. Setting an attribute again restarts its time to live, and
+     * setting it without a time to live keeps it until it is removed.
+     *
+     * @param attributeMap HashMap of profile attributes key-value pairs to be set.
+     * @param timeToLiveSeconds the time after which the attributes are removed, in seconds
+     */
+    public static void updateUserAttributes(
+            @NonNull final Map<String, Object> attributeMap, final long timeToLiveSeconds) {
+        if (timeToLiveSeconds <= 0) {
+            Log.debug(
+                    LOG_TAG,
+                    CLASS_NAME,
+                    "updateUserAttributes - the time to live must be positive, no event was"
+                            + " dispatched");
+            return;
+        }
+        updateUserAttributes(attributeMap, false, timeToLiveSeconds);
+    }
+
+    private static void updateUserAttributes(
+            @NonNull final Map<String, Object> attributeMap,
+            final boolean durable,
+            final long timeToLiveSeconds) {
         if (attributeMap == null || attributeMap.isEmpty()) {
             Log.debug(
                     LOG_TAG,
@@ -62,6 +181,12 @@ public class UserProfile {
         }
         Map<String, Object> eventDataMap = new HashMap<>();
         eventDataMap.put(UPDATE_DATA_KEY, attributeMap);
+        if (durable) {
+            eventDataMap.put(DURABLE, true);
+        }
+        if (timeToLiveSeconds > 0) {
+            eventDataMap.put(TIME_TO_LIVE, timeToLiveSeconds);
+        }
         Event event =
                 new Event.Builder(
                                 "UserProfileUpdate",
@@ -69,7 +194,423 @@ public class UserProfile {
                                 EventSource.REQUEST_PROFILE)
                         .setEventData(eventDataMap)
                         .build();
-        MobileCore.dispatchEvent(event);
+        dispatchChange(event);
+    }
+
+    /**
+     * UserProfile API to merge a patch into the user profile, with the JSON merge patch semantics
+     * of RFC 7386.
+     *
+     * <p>A map value is merged into the existing attribute, recursively, so that nested values can
+     * be changed without sending the whole attribute. A null value removes the attribute or nested
+     * value, and any other value replaces it. The merged attributes keep their time to live.
+     *
+     * @param patch the merge patch, by attribute key
+     */
+    public static void mergeUserAttributes(@NonNull final Map<String, Object> patch) {
+        if (patch == null || patch.isEmpty()) {
+            Log.debug(
+                    LOG_TAG,
+                    CLASS_NAME,
+                    "mergeUserAttributes - the given patch is null or empty, no event was"
+                            + " dispatched");
+            return;
+        }
+        Map<String, Object> eventDataMap = new HashMap<>();
+        eventDataMap.put(MERGE_DATA_KEY, patch);
+        dispatchChange(
+                new Event.Builder(
+                                "UserProfileMerge",
+                                EventType.USERPROFILE,
+                                EventSource.REQUEST_PROFILE)
+                        .setEventData(eventDataMap)
+                        .build());
+    }
+
+    /**
+     * UserProfile API to add to a numeric attribute, atomically, without reading it first.
+     *
+     * <p>An attribute which does not exist or is not a number counts as {@code 0}. The attribute
+     * keeps its time to live. An increment which would overflow a {@code long} is not applied.
+     *
+     * @param key the attribute key
+     * @param by the amount to add
+     */
+    public static void incrementUserAttribute(@NonNull final String key, final long by) {
+        dispatchCounterOperation("incrementUserAttribute", key, "increment", by);
+    }
+
+    /**
+     * UserProfile API to add to a numeric attribute, as {@link #incrementUserAttribute(String,
+     * long)} does. The attribute becomes a decimal number. A NaN or infinite amount, or an
+     * increment whose result would be infinite, is not applied.
+     *
+     * @param key the attribute key
+     * @param by the amount to add
+     */
+    public static void incrementUserAttribute(@NonNull final String key, final double by) {
+        dispatchCounterOperation("incrementUserAttribute", key, "increment", by);
+    }
+
+    /**
+     * UserProfile API to subtract from a numeric attribute, as {@link
+     * #incrementUserAttribute(String, long)} adds to it.
+     *
+     * @param key the attribute key
+     * @param by the amount to subtract
+     */
+    public static void decrementUserAttribute(@NonNull final String key, final long by) {
+        dispatchCounterOperation("decrementUserAttribute", key, "decrement", by);
+    }
+
+    /**
+     * UserProfile API to subtract from a numeric attribute, as {@link
+     * #incrementUserAttribute(String, double)} adds to it.
+     *
+     * @param key the attribute key
+     * @param by the amount to subtract
+     */
+    public static void decrementUserAttribute(@NonNull final String key, final double by) {
+        dispatchCounterOperation("decrementUserAttribute", key, "decrement", by);
+    }
+
+    /**
+     * UserProfile API to lower a numeric attribute to the given value, atomically. The attribute is
+     * set to the value if it is lower than the current one, or if the attribute does not exist or
+     * is not a number.
+     *
+     * @param key the attribute key
+     * @param value the value
+     */
+    public static void updateUserAttributeToMin(
+            @NonNull final String key, @NonNull final Number value) {
+        dispatchCounterOperation("updateUserAttributeToMin", key, "min", value);
+    }
+
+    /**
+     * UserProfile API to raise a numeric attribute to the given value, atomically. The attribute is
+     * set to the value if it is greater than the current one, or if the attribute does not exist or
+     * is not a number.
+     *
+     * @param key the attribute key
+     * @param value the value
+     */
+    public static void updateUserAttributeToMax(
+            @NonNull final String key, @NonNull final Number value) {
+        dispatchCounterOperation("updateUserAttributeToMax", key, "max", value);
+    }
+
+    private static void dispatchCounterOperation(
+            @NonNull final String apiName,
+            @NonNull final String key,
+            @NonNull final String operation,
+            @NonNull final Number value) {
+        if (key == null || key.isEmpty() || value == null) {
+            Log.debug(
+                    LOG_TAG,
+                    CLASS_NAME,
+                    "%s - the given key or value is null or empty, no event was dispatched",
+                    apiName);
+            return;
+        }
+        Map<String, Object> eventDataMap = new HashMap<>();
+        eventDataMap.put(COUNTER_KEY, key);
+        eventDataMap.put(COUNTER_OPERATION, operation);
+        eventDataMap.put(COUNTER_VALUE, value);
+        dispatchChange(
+                new Event.Builder(
+                                "UserProfileCounter",
+                                EventType.USERPROFILE,
+                                EventSource.REQUEST_PROFILE)
+                        .setEventData(eventDataMap)
+                        .build());
+    }
+
+    /**
+     * UserProfile API to get attributes with their version. The version of an attribute changes
+     * every time its value changes, so that it can be set with {@link
+     * #updateUserAttributeIfVersion(String, long, Object, AdobeCallback)} only if it did not change
+     * since it was read.
+     *
+     * <p>Each attribute found is a {@link Map} of its {@code value} and its {@code Long} {@code
+     * version}. The versions are kept in memory, and are only valid until the application is
+     * restarted.
+     *
+     * @param keys Attribute keys or patterns, as with {@link #getUserAttributes(List,
+     *     AdobeCallback)}.
+     * @param callback An {@link AdobeCallback} invoked with the attributes found, by key
+     */
+    @SuppressWarnings("unchecked")
+    public static void getVersionedUserAttributes(
+            @NonNull final List<String> keys,
+            @NonNull final AdobeCallback<Map<String, Object>> callback) {
+        if (callback == null) {
+            Log.debug(
+                    LOG_TAG,
+                    CLASS_NAME,
+                    "getVersionedUserAttributes - the given AdobeCallback is null, no event was"
+                            + " dispatched");
+            return;
+        }
+        if (keys == null || keys.isEmpty()) {
+            Log.debug(
+                    LOG_TAG,
+                    CLASS_NAME,
+                    "getVersionedUserAttributes - the given key list is null or empty, no event"
+                            + " was dispatched");
+            callback.call(new HashMap<>());
+            return;
+        }
+        dispatchGetEvent(
+                "getVersionedUserAttributes",
+                GET_DATA_VERSIONS,
+                keys,
+                new AdobeCallbackWithError<Map<String, Object>>() {
+                    @Override
+                    public void fail(final AdobeError adobeError) {
+                        if (callback instanceof AdobeCallbackWithError) {
+                            ((AdobeCallbackWithError<Map<String, Object>>) callback)
+                                    .fail(adobeError);
+                        }
+                    }
+
+                    @Override
+                    public void call(final Map<String, Object> attributes) {
+                        callback.call(attributes);
+                    }
+                });
+    }
+
+    /**
+     * UserProfile API to set an attribute only if its current value is the expected one. The
+     * comparison and the update are made in a single step by the UserProfile extension, so that no
+     * other change can happen in between. Numbers are equal when they have the same numeric value.
+     *
+     * <p>The callback is invoked with a {@link Map} of {@code succeeded}, a {@code Boolean} telling
+     * whether the attribute was set, and of the current {@code value} and {@code version} of the
+     * attribute, to retry from when it was not set.
+     *
+     * @param key the attribute key
+     * @param expectedValue the expected current value, or null if the attribute must not exist
+     * @param value the new value, or null to remove the attribute
+     * @param callback An optional {@link AdobeCallback} invoked with the outcome
+     */
+    public static void compareAndSetUserAttribute(
+            @NonNull final String key,
+            @Nullable final Object expectedValue,
+            @Nullable final Object value,
+            @Nullable final AdobeCallback<Map<String, Object>> callback) {
+        Map<String, Object> eventDataMap = new HashMap<>();
+        eventDataMap.put(EXPECTED_VALUE, expectedValue);
+        dispatchCompareAndSet("compareAndSetUserAttribute", key, value, eventDataMap, callback);
+    }
+
+    /**
+     * UserProfile API to set an attribute only if its current version is the expected one, as
+     * {@link #compareAndSetUserAttribute(String, Object, Object, AdobeCallback)} does for its
+     * value.
+     *
+     * @param key the attribute key
+     * @param expectedVersion the version returned by {@link #getVersionedUserAttributes(List,
+     *     AdobeCallback)}, or {@code 0} if the attribute must not exist
+     * @param value the new value, or null to remove the attribute
+     * @param callback An optional {@link AdobeCallback} invoked with the outcome
+     */
+    public static void updateUserAttributeIfVersion(
+            @NonNull final String key,
+            final long expectedVersion,
+            @Nullable final Object value,
+            @Nullable final AdobeCallback<Map<String, Object>> callback) {
+        Map<String, Object> eventDataMap = new HashMap<>();
+        eventDataMap.put(EXPECTED_VERSION, expectedVersion);
+        dispatchCompareAndSet("updateUserAttributeIfVersion", key, value, eventDataMap, callback);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void dispatchCompareAndSet(
+            @NonNull final String apiName,
+            @NonNull final String key,
+            @Nullable final Object value,
+            @NonNull final Map<String, Object> eventDataMap,
+            @Nullable final AdobeCallback<Map<String, Object>> callback) {
+        if (key == null || key.isEmpty()) {
+            Log.debug(
+                    LOG_TAG,
+                    CLASS_NAME,
+                    "%s - the given key is null or empty, no event was dispatched",
+                    apiName);
+            return;
+        }
+        eventDataMap.put(COMPARE_AND_SET_KEY, key);
+        eventDataMap.put(COMPARE_AND_SET_VALUE, value);
+        Event event =
+                new Event.Builder(
+                                "UserProfileCompareAndSet",
+                                EventType.USERPROFILE,
+                                EventSource.REQUEST_PROFILE)
+                        .setEventData(eventDataMap)
+                        .build();
+        if (callback == null) {
+            dispatchChange(event);
+            return;
+        }
+        if (readCacheEnabled) {
+            READ_CACHE.onChangeRequested(event);
+        }
+        MobileCore.dispatchEventWithResponseCallback(
+                event,
+                API_TIMEOUT,
+                new AdobeCallbackWithError<Event>() {
+                    @Override
+                    public void fail(final AdobeError adobeError) {
+                        if (callback instanceof AdobeCallbackWithError) {
+                            ((AdobeCallbackWithError<Map<String, Object>>) callback)
+                                    .fail(adobeError);
+                        }
+                    }
+
+                    @Override
+                    public void call(final Event event) {
+                        Map<String, Object> eventData = event.getEventData();
+                        Map<String, Object> outcome = new HashMap<>();
+                        outcome.put(
+                                COMPARE_AND_SET_SUCCEEDED,
+                                DataReader.optBoolean(eventData, COMPARE_AND_SET_SUCCEEDED, false));
+                        outcome.put(
+                                ATTRIBUTE_VALUE,
+                                eventData != null ? eventData.get(ATTRIBUTE_VALUE) : null);
+                        outcome.put(
+                                ATTRIBUTE_VERSION,
+                                DataReader.optLong(eventData, ATTRIBUTE_VERSION, 0));
+                        callback.call(outcome);
+                    }
+                });
+    }
+
+    /**
+     * UserProfile API to apply several changes in order, as a single change: the profile is
+     * persisted and shared once, after all of them are applied, so no listener sees some of them
+     * only. This replaces consecutive calls, such as {@link #removeUserAttributes(List)} followed
+     * by {@link #updateUserAttributes(Map)}, which each persist and share the profile.
+     *
+     * <p>The whole transaction is ignored if one of its changes is invalid, and none of its changes
+     * are applied if one of them cannot be, such as an increment which would overflow.
+     *
+     * @param transaction the changes to apply
+     */
+    public static void applyTransaction(@NonNull final UserProfileTransaction transaction) {
+        applyTransaction(transaction, false);
+    }
+
+    /**
+     * UserProfile API to apply several changes in order, as a single change.
+     *
+     * <p>Same as {@link #applyTransaction(UserProfileTransaction)}. When {@code durable} is {@code
+     * true}, the changes are written to disk before the userprofile shared state is updated.
+     *
+     * @param transaction the changes to apply
+     * @param durable whether the changes must be on disk before they are shared
+     */
+    public static void applyTransaction(
+            @NonNull final UserProfileTransaction transaction, final boolean durable) {
+        if (transaction == null || transaction.isEmpty()) {
+            Log.debug(
+                    LOG_TAG,
+                    CLASS_NAME,
+                    "applyTransaction - the given transaction is null or empty, no event was"
+                            + " dispatched");
+            return;
+        }
+        Map<String, Object> eventDataMap = new HashMap<>();
+        eventDataMap.put(TRANSACTION_OPERATIONS, transaction.getOperations());
+        if (durable) {
+            eventDataMap.put(DURABLE, true);
+        }
+        dispatchChange(
+                new Event.Builder(
+                                "UserProfileTransaction",
+                                EventType.USERPROFILE,
+                                EventSource.REQUEST_PROFILE)
+                        .setEventData(eventDataMap)
+                        .build());
+    }
+
+    /**
+     * UserProfile API to import attributes from a UTF-8 encoded json object, as {@link
+     * #importUserAttributes(Reader, ImportListener)} does.
+     *
+     * @param inputStream the {@link InputStream} providing a json object, closed once the import is
+     *     completed
+     * @param listener An optional {@link ImportListener} receiving the progress and the outcome
+     */
+    public static void importUserAttributes(
+            @NonNull final InputStream inputStream, @Nullable final ImportListener listener) {
+        if (inputStream == null) {
+            Log.debug(
+                    LOG_TAG,
+                    CLASS_NAME,
+                    "importUserAttributes - the given input stream is null, no event was"
+                            + " dispatched");
+            return;
+        }
+        importUserAttributes(new InputStreamReader(inputStream, StandardCharsets.UTF_8), listener);
+    }
+
+    /**
+     * UserProfile API to import the attributes of a json object, such as a profile migrated from
+     * another store, as {@link #updateUserAttributes(Map)} would set them.
+     *
+     * <p>The json object is read on a background thread, and its attributes are applied in chunks,
+     * so that the import is never held in memory as a whole. The profile is persisted and shared
+     * once, after the last chunk. The imports are applied one after the other.
+     *
+     * @param reader the {@link Reader} providing a json object, closed once the import is completed
+     * @param listener An optional {@link ImportListener} receiving the progress and the outcome
+     */
+    public static void importUserAttributes(
+            @NonNull final Reader reader, @Nullable final ImportListener listener) {
+        if (reader == null) {
+            Log.debug(
+                    LOG_TAG,
+                    CLASS_NAME,
+                    "importUserAttributes - the given reader is null, no event was dispatched");
+            return;
+        }
+        IMPORT_EXECUTOR.execute(
+                () -> {
+                    READ_CACHE.onBulkChangeStarted();
+                    try {
+                        IMPORTER.importAttributes(reader, listener);
+                    } finally {
+                        READ_CACHE.onBulkChangeEnded();
+                        try {
+                            reader.close();
+                        } catch (IOException e) {
+                            Log.trace(
+                                    LOG_TAG,
+                                    CLASS_NAME,
+                                    "importUserAttributes - could not close the reader: %s",
+                                    e);
+                        }
+                    }
+                });
+    }
+
+    private static void dispatchImportRequest(
+            @NonNull final Map<String, Object> eventData,
+            @NonNull final AdobeCallbackWithError<Event> callback) {
+        Event event =
+                new Event.Builder(
+                                "UserProfileImport",
+                                EventType.USERPROFILE,
+                                EventSource.REQUEST_PROFILE)
+                        .setEventData(eventData)
+                        .build();
+        if (eventData.containsKey(IMPORT_COMPLETE)) {
+            // the read cache is stale until the imported profile is shared
+            READ_CACHE.onChangeRequested(event);
+        }
+        MobileCore.dispatchEventWithResponseCallback(event, API_TIMEOUT, callback);
     }
 
     /**
@@ -78,9 +619,26 @@ public class UserProfile {
      * <p>If the attribute does not exist, this API has no effects. If the attribute exists, then
      * the User Attribute will be removed
      *
+     * <p>Each key is removed as given, even if it contains {@code *} or {@code ?}. See {@link
+     * #removeUserAttributesMatching(List)} to remove the attributes matching a pattern.
+     *
      * @param attributeNames A List of attribute keys which have to be removed.
      */
     public static void removeUserAttributes(@NonNull final List<String> attributeNames) {
+        removeUserAttributes(attributeNames, false);
+    }
+
+    /**
+     * UserProfile API to remove attributes.
+     *
+     * <p>Same as {@link #removeUserAttributes(List)}. When {@code durable} is {@code true}, the
+     * attributes are removed from disk before the userprofile shared state is updated.
+     *
+     * @param attributeNames A List of attribute keys which have to be removed.
+     * @param durable whether the removal must be on disk before it is shared
+     */
+    public static void removeUserAttributes(
+            @NonNull final List<String> attributeNames, final boolean durable) {
         if (attributeNames == null || attributeNames.isEmpty()) {
             Log.debug(
                     LOG_TAG,
@@ -92,6 +650,9 @@ public class UserProfile {
         Log.trace(LOG_TAG, CLASS_NAME, "Removing user attributes");
         Map<String, Object> eventDataMap = new HashMap<>();
         eventDataMap.put(REMOVE_DATA_KEYS, attributeNames);
+        if (durable) {
+            eventDataMap.put(DURABLE, true);
+        }
         Event event =
                 new Event.Builder(
                                 "RemoveUserProfile",
@@ -99,17 +660,23 @@ public class UserProfile {
                                 EventSource.REQUEST_RESET)
                         .setEventData(eventDataMap)
                         .build();
-        MobileCore.dispatchEvent(event);
+        dispatchChange(event);
     }
 
     /**
      * UserProfile API to get attributes with provided keys.
      *
+     * <p>An attribute key can also be a pattern, where {@code *} matches any sequence of characters
+     * and {@code ?} any single character: {@code cart.item.*} gets every attribute whose key starts
+     * with {@code cart.item.}.
+     *
+     * <p>The requests made while a previous request is waiting for its response are dispatched
+     * together, as a single request.
+     *
      * @param keys Attribute key.
      * @param callback An {@link AdobeCallback} invoked after profile attributes retrieved from
      *     memory
      */
-    @SuppressWarnings("rawtypes")
     public static void getUserAttributes(
             @NonNull final List<String> keys,
             @NonNull final AdobeCallback<Map<String, Object>> callback) {
@@ -131,64 +698,290 @@ public class UserProfile {
             callback.call(new HashMap<>());
             return;
         }
+        if (readCacheEnabled) {
+            Map<String, Object> attributes = READ_CACHE.get(keys);
+            if (attributes != null) {
+                callback.call(attributes);
+                return;
+            }
+        }
         Log.trace(LOG_TAG, CLASS_NAME, "Getting user attributes");
+        GET_ATTRIBUTES_BATCHER.request(keys, callback);
+    }
 
-        Map<String, Object> eventDataMap = new HashMap<>();
-        eventDataMap.put(GET_DATA_ATTRIBUTES, keys);
-        Event event =
-                new Event.Builder(
-                                "getUserAttributes",
-                                EventType.USERPROFILE,
-                                EventSource.REQUEST_PROFILE)
-                        .setEventData(eventDataMap)
-                        .build();
+    /**
+     * UserProfile API to enable or disable the read cache of {@link #getUserAttributes(List,
+     * AdobeCallback)}, which is disabled by default.
+     *
+     * <p>The cache is filled from the events dispatched by the UserProfile extension after every
+     * profile change. While it is fresh, the attributes are returned right away, without
+     * dispatching an event. It is not fresh until the first profile change after it is enabled, nor
+     * until the changes requested through this class since were applied; the attributes are then
+     * requested from the extension. An attribute may still be returned after its time to live
+     * elapsed, until the extension removes it.
+     *
+     * <p>Disabling the cache empties it and resets its counters.
+     *
+     * @param enabled whether the read cache is enabled
+     */
+    public static void setReadCacheEnabled(final boolean enabled) {
+        synchronized (READ_CACHE) {
+            if (enabled && !readCacheListenerRegistered) {
+                MobileCore.registerEventListener(
+                        EventType.USERPROFILE,
+                        EventSource.RESPONSE_PROFILE,
+                        event -> {
+                            if (readCacheEnabled) {
+                                READ_CACHE.onResponseEvent(event.getEventData());
+                            }
+                        });
+                readCacheListenerRegistered = true;
+            }
+            if (!enabled) {
+                READ_CACHE.clear();
+            }
+            readCacheEnabled = enabled;
+        }
+    }
 
-        AdobeCallbackWithError<Map<String, Object>> adobeCallbackWithError =
-                new AdobeCallbackWithError<Map<String, Object>>() {
-                    final AdobeCallbackWithError userCallbackWithError =
-                            callback instanceof AdobeCallbackWithError
-                                    ? (AdobeCallbackWithError) callback
-                                    : null;
+    /**
+     * Returns how many {@link #getUserAttributes(List, AdobeCallback)} calls were answered by the
+     * read cache since it was enabled.
+     *
+     * @return the read cache hit count
+     */
+    public static long getReadCacheHitCount() {
+        return READ_CACHE.getHitCount();
+    }
 
+    /**
+     * Returns how many {@link #getUserAttributes(List, AdobeCallback)} calls could not be answered
+     * by the read cache since it was enabled, and dispatched an event.
+     *
+     * @return the read cache miss count
+     */
+    public static long getReadCacheMissCount() {
+        return READ_CACHE.getMissCount();
+    }
+
+    /**
+     * UserProfile API to get values nested in map-valued attributes.
+     *
+     * <p>A path is either a JSON pointer, such as {@code /preferences/notifications/email}, or a
+     * dot separated path, such as {@code preferences.notifications.email}, whose first segment is
+     * the attribute key.
+     *
+     * @param paths the paths of the nested values
+     * @param callback An {@link AdobeCallback} invoked with the nested values found, by path
+     */
+    @SuppressWarnings("unchecked")
+    public static void getUserAttributesAtPaths(
+            @NonNull final List<String> paths,
+            @NonNull final AdobeCallback<Map<String, Object>> callback) {
+        if (callback == null) {
+            Log.debug(
+                    LOG_TAG,
+                    CLASS_NAME,
+                    "getUserAttributesAtPaths - the given AdobeCallback is null, no event was"
+                            + " dispatched");
+            return;
+        }
+        if (paths == null || paths.isEmpty()) {
+            Log.debug(
+                    LOG_TAG,
+                    CLASS_NAME,
+                    "getUserAttributesAtPaths - the given path list is null or empty, no event was"
+                            + " dispatched");
+            callback.call(new HashMap<>());
+            return;
+        }
+        dispatchGetEvent(
+                "getUserAttributesAtPaths",
+                GET_DATA_PATHS,
+                paths,
+                new AdobeCallbackWithError<Map<String, Object>>() {
                     @Override
                     public void fail(final AdobeError adobeError) {
-                        if (userCallbackWithError != null) {
-                            userCallbackWithError.fail(adobeError);
+                        if (callback instanceof AdobeCallbackWithError) {
+                            ((AdobeCallbackWithError<Map<String, Object>>) callback)
+                                    .fail(adobeError);
                         }
                     }
 
                     @Override
-                    public void call(final Map<String, Object> profileMap) {
-                        callback.call(profileMap);
+                    public void call(final Map<String, Object> values) {
+                        callback.call(values);
                     }
-                };
+                });
+    }
+
+    /**
+     * UserProfile API to set values nested in map-valued attributes, without sending the whole
+     * attributes again. The missing maps along a path are created, and the attributes keep their
+     * time to live.
+     *
+     * @param values the nested values to set, by path as with {@link
+     *     #getUserAttributesAtPaths(List, AdobeCallback)}
+     */
+    public static void updateUserAttributesAtPaths(@NonNull final Map<String, Object> values) {
+        if (values == null || values.isEmpty()) {
+            Log.debug(
+                    LOG_TAG,
+                    CLASS_NAME,
+                    "updateUserAttributesAtPaths - the given value map is null or empty, no event"
+                            + " was dispatched");
+            return;
+        }
+        Map<String, Object> eventDataMap = new HashMap<>();
+        eventDataMap.put(UPDATE_DATA_PATHS, values);
+        dispatchChange(
+                new Event.Builder(
+                                "UserProfileUpdatePaths",
+                                EventType.USERPROFILE,
+                                EventSource.REQUEST_PROFILE)
+                        .setEventData(eventDataMap)
+                        .build());
+    }
+
+    /**
+     * UserProfile API to remove values nested in map-valued attributes. The maps containing them
+     * are kept, even when they become empty.
+     *
+     * @param paths the paths of the nested values, as with {@link #getUserAttributesAtPaths(List,
+     *     AdobeCallback)}
+     */
+    public static void removeUserAttributesAtPaths(@NonNull final List<String> paths) {
+        if (paths == null || paths.isEmpty()) {
+            Log.debug(
+                    LOG_TAG,
+                    CLASS_NAME,
+                    "removeUserAttributesAtPaths - the given path list is null or empty, no event"
+                            + " was dispatched");
+            return;
+        }
+        Map<String, Object> eventDataMap = new HashMap<>();
+        eventDataMap.put(REMOVE_DATA_PATHS, paths);
+        dispatchChange(
+                new Event.Builder(
+                                "RemoveUserProfilePaths",
+                                EventType.USERPROFILE,
+                                EventSource.REQUEST_RESET)
+                        .setEventData(eventDataMap)
+                        .build());
+    }
+
+    /**
+     * UserProfile API to remove the attributes matching patterns.
+     *
+     * <p>In a pattern, {@code *} matches any sequence of characters and {@code ?} any single
+     * character: {@code cart.item.*} removes every attribute whose key starts with {@code
+     * cart.item.}. A pattern without these characters removes the attribute with that key only.
+     *
+     * @param patterns the patterns of the attribute keys which have to be removed
+     */
+    public static void removeUserAttributesMatching(@NonNull final List<String> patterns) {
+        if (patterns == null || patterns.isEmpty()) {
+            Log.debug(
+                    LOG_TAG,
+                    CLASS_NAME,
+                    "removeUserAttributesMatching - the given pattern list is null or empty, no"
+                            + " event was dispatched");
+            return;
+        }
+        Map<String, Object> eventDataMap = new HashMap<>();
+        eventDataMap.put(REMOVE_DATA_PATTERNS, patterns);
+        dispatchChange(
+                new Event.Builder(
+                                "RemoveUserProfilePatterns",
+                                EventType.USERPROFILE,
+                                EventSource.REQUEST_RESET)
+                        .setEventData(eventDataMap)
+                        .build());
+    }
+
+    private static void dispatchChange(@NonNull final Event event) {
+        if (readCacheEnabled) {
+            READ_CACHE.onChangeRequested(event);
+        }
+        MobileCore.dispatchEvent(event);
+    }
+
+    private static void dispatchGetEvent(
+            @NonNull final String eventName,
+            @NonNull final String dataKey,
+            @NonNull final List<String> keys,
+            @NonNull final AdobeCallbackWithError<Map<String, Object>> callback) {
+        Map<String, Object> eventDataMap = new HashMap<>();
+        eventDataMap.put(dataKey, keys);
+        Event event =
+                new Event.Builder(eventName, EventType.USERPROFILE, EventSource.REQUEST_PROFILE)
+                        .setEventData(eventDataMap)
+                        .build();
         MobileCore.dispatchEventWithResponseCallback(
                 event,
                 API_TIMEOUT,
                 new AdobeCallbackWithError<Event>() {
                     @Override
                     public void fail(final AdobeError adobeError) {
-                        adobeCallbackWithError.fail(adobeError);
+                        callback.fail(adobeError);
                     }
 
                     @Override
                     public void call(final Event event) {
+                        Map<String, Object> profileMap;
                         try {
-                            Map<String, Object> profileMap =
+                            profileMap =
                                     DataReader.getTypedMap(
-                                            Object.class,
-                                            event.getEventData(),
-                                            GET_DATA_ATTRIBUTES);
-                            callback.call(profileMap);
+                                            Object.class, event.getEventData(), dataKey);
                         } catch (DataReaderException e) {
                             Log.error(
                                     LOG_TAG,
                                     CLASS_NAME,
                                     "Failed to retrieve user attributes from given user profile"
                                             + " event.");
-                            adobeCallbackWithError.fail(AdobeError.UNEXPECTED_ERROR);
+                            callback.fail(AdobeError.UNEXPECTED_ERROR);
+                            return;
                         }
+                        callback.call(profileMap);
                     }
                 });
     }
+
+    /**
+     * UserProfile API to get attributes with provided keys synchronously.
+     *
+     * <p>The attributes are read from the profile last shared by the UserProfile extension, without
+     * dispatching an event, so this API returns immediately and can be called from the main thread.
+     * The updates and removals requested just before the call may not be applied yet; use {@link
+     * #getUserAttributes(List, AdobeCallback)} to read the profile once they are.
+     *
+     * @param keys Attribute keys or patterns, as with {@link #getUserAttributes(List,
+     *     AdobeCallback)}.
+     * @return the existing attributes among the given keys, or null if the profile is not loaded
+     *     yet
+     */
+    @Nullable public static Map<String, Object> getUserAttributesSync(
+            @NonNull final List<String> keys) {
+        Map<String, Object> profile = UserProfileInternal.getProfileSnapshot();
+        if (profile == null) {
+            Log.debug(
+                    LOG_TAG,
+                    CLASS_NAME,
+                    "getUserAttributesSync - the user profile is not loaded yet");
+            return null;
+        }
+        return UserProfileInternal.selectAttributes(profile, keys);
+    }
+
+    /**
+     * UserProfile API to get all the attributes without blocking.
+     *
+     * <p>Returns the profile last shared by the UserProfile extension. The returned map is an
+     * immutable snapshot, which is not affected by the later profile changes.
+     *
+     * @return the user profile attributes, or null if the profile is not loaded yet
+     */
+    @Nullable public static Map<String, Object> getUserProfileSnapshot() {
+        return UserProfileInternal.getProfileSnapshot();
+    }
 }
@@ -0,0 +1,151 @@
+/*
+  Copyright 2026 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An ordered list of profile changes, applied by {@link UserProfile#applyTransaction(
+ * UserProfileTransaction)} as a single change: the profile is persisted and shared once, after all
+ * of them are applied.
+ *
+ * <p>The changes with a null or empty key are ignored.
+ */
+public final class UserProfileTransaction {
+
+    private static final String OPERATION_NAME = "operation";
+    private static final String OPERATION_KEY = "key";
+    private static final String OPERATION_VALUE = "value";
+
+    private final List<Map<String, Object>> operations = new ArrayList<>();
+
+    /**
+     * Sets an attribute, as {@link UserProfile#updateUserAttributes(Map)} does.
+     *
+     * @param key the attribute key
+     * @param value the attribute value, or null to remove the attribute
+     * @return this transaction
+     */
+    @NonNull public UserProfileTransaction set(
+            @NonNull final String key, @Nullable final Object value) {
+        return add("set", key, value);
+    }
+
+    /**
+     * Removes an attribute, as {@link UserProfile#removeUserAttributes(List)} does.
+     *
+     * @param key the attribute key
+     * @return this transaction
+     */
+    @NonNull public UserProfileTransaction remove(@NonNull final String key) {
+        return add("remove", key, null);
+    }
+
+    /**
+     * Removes the attributes matching a pattern, as {@link
+     * UserProfile#removeUserAttributesMatching(List)} does.
+     *
+     * @param pattern the pattern of the attribute keys
+     * @return this transaction
+     */
+    @NonNull public UserProfileTransaction removeMatching(@NonNull final String pattern) {
+        return add("removeMatching", pattern, null);
+    }
+
+    /**
+     * Adds to a numeric attribute, as {@link UserProfile#incrementUserAttribute(String, long)}
+     * does.
+     *
+     * @param key the attribute key
+     * @param by the amount to add
+     * @return this transaction
+     */
+    @NonNull public UserProfileTransaction increment(@NonNull final String key, final long by) {
+        return add("increment", key, by);
+    }
+
+    /**
+     * Adds to a numeric attribute, as {@link UserProfile#incrementUserAttribute(String, double)}
+     * does.
+     *
+     * @param key the attribute key
+     * @param by the amount to add
+     * @return this transaction
+     */
+    @NonNull public UserProfileTransaction increment(@NonNull final String key, final double by) {
+        return add("increment", key, by);
+    }
+
+    /**
+     * Subtracts from a numeric attribute, as {@link UserProfile#decrementUserAttribute(String,
+     * long)} does.
+     *
+     * @param key the attribute key
+     * @param by the amount to subtract
+     * @return this transaction
+     */
+    @NonNull public UserProfileTransaction decrement(@NonNull final String key, final long by) {
+        return add("decrement", key, by);
+    }
+
+    /**
+     * Subtracts from a numeric attribute, as {@link UserProfile#decrementUserAttribute(String,
+     * double)} does.
+     *
+     * @param key the attribute key
+     * @param by the amount to subtract
+     * @return this transaction
+     */
+    @NonNull public UserProfileTransaction decrement(@NonNull final String key, final double by) {
+        return add("decrement", key, by);
+    }
+
+    /**
+     * Returns whether the transaction has no changes.
+     *
+     * @return {@code true} if no change was added
+     */
+    public boolean isEmpty() {
+        return operations.isEmpty();
+    }
+
+    /**
+     * Returns a copy of the changes, as the event data of the transaction.
+     *
+     * @return the changes, in order
+     */
+    @NonNull List<Map<String, Object>> getOperations() {
+        List<Map<String, Object>> copy = new ArrayList<>();
+        for (Map<String, Object> operation : operations) {
+            copy.add(new HashMap<>(operation));
+        }
+        return copy;
+    }
+
+    @NonNull private UserProfileTransaction add(
+            @NonNull final String name, @NonNull final String key, @Nullable final Object value) {
+        if (key == null || key.isEmpty()) {
+            return this;
+        }
+        Map<String, Object> operation = new HashMap<>();
+        operation.put(OPERATION_NAME, name);
+        operation.put(OPERATION_KEY, key);
+        operation.put(OPERATION_VALUE, value);
+        operations.add(operation);
+        return this;
+    }
+}
@@ -12,6 +12,7 @@
 package com.adobe.marketing.mobile;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
@@ -19,6 +20,7 @@ import static org.mockito.ArgumentMatchers.anyLong;
 
 import com.adobe.marketing.mobile.userprofile.UserProfileExtension;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -68,6 +70,131 @@ public class PublicAPITests {
         }
     }
 
+    @Test
+    public void test_updateUserAttributesAtPaths() {
+        try (MockedStatic<MobileCore> mobileCoreMockedStatic =
+                Mockito.mockStatic(MobileCore.class)) {
+            mobileCoreMockedStatic.reset();
+            ArgumentCaptor<Event> eventCaptor = ArgumentCaptor.forClass(Event.class);
+            Map<String, Object> values = new HashMap<>();
+            values.put("/preferences/notifications/email", true);
+            UserProfile.updateUserAttributesAtPaths(values);
+            mobileCoreMockedStatic.verify(() -> MobileCore.dispatchEvent(eventCaptor.capture()));
+            Event dispatchedEvent = eventCaptor.getValue();
+            assertEquals("com.adobe.eventSource.requestProfile", dispatchedEvent.getSource());
+            assertEquals(values, dispatchedEvent.getEventData().get("userprofileupdatepaths"));
+
+            UserProfile.removeUserAttributesAtPaths(Arrays.asList("preferences.language"));
+            mobileCoreMockedStatic.verify(
+                    () -> MobileCore.dispatchEvent(eventCaptor.capture()), Mockito.times(2));
+            dispatchedEvent = eventCaptor.getValue();
+            assertEquals("com.adobe.eventSource.requestReset", dispatchedEvent.getSource());
+            assertEquals(
+                    Arrays.asList("preferences.language"),
+                    dispatchedEvent.getEventData().get("userprofileremovepaths"));
+        }
+    }
+
+    @Test
+    public void test_removeUserAttributesMatching() {
+        try (MockedStatic<MobileCore> mobileCoreMockedStatic =
+                Mockito.mockStatic(MobileCore.class)) {
+            mobileCoreMockedStatic.reset();
+            ArgumentCaptor<Event> eventCaptor = ArgumentCaptor.forClass(Event.class);
+            UserProfile.removeUserAttributesMatching(Arrays.asList("cart.item.*"));
+            mobileCoreMockedStatic.verify(() -> MobileCore.dispatchEvent(eventCaptor.capture()));
+            Event dispatchedEvent = eventCaptor.getValue();
+            assertEquals("com.adobe.eventSource.requestReset", dispatchedEvent.getSource());
+            assertEquals(
+                    Arrays.asList("cart.item.*"),
+                    dispatchedEvent.getEventData().get("userprofileremovepatterns"));
+            assertFalse(dispatchedEvent.getEventData().containsKey("userprofileremovekeys"));
+
+            UserProfile.removeUserAttributesMatching(Collections.emptyList());
+            mobileCoreMockedStatic.verifyNoMoreInteractions();
+        }
+    }
+
+    @Test
+    public void test_mergeUserAttributes() {
+        try (MockedStatic<MobileCore> mobileCoreMockedStatic =
+                Mockito.mockStatic(MobileCore.class)) {
+            mobileCoreMockedStatic.reset();
+            ArgumentCaptor<Event> eventCaptor = ArgumentCaptor.forClass(Event.class);
+            Map<String, Object> patch = new HashMap<>();
+            patch.put("preferences", Collections.singletonMap("language", "en"));
+            patch.put("key1", null);
+            UserProfile.mergeUserAttributes(patch);
+            mobileCoreMockedStatic.verify(() -> MobileCore.dispatchEvent(eventCaptor.capture()));
+            Event dispatchedEvent = eventCaptor.getValue();
+            assertEquals("UserProfileMerge", dispatchedEvent.getName());
+            assertEquals("com.adobe.eventSource.requestProfile", dispatchedEvent.getSource());
+            assertEquals(patch, dispatchedEvent.getEventData().get("userprofilemergekey"));
+
+            UserProfile.mergeUserAttributes(new HashMap<>());
+            mobileCoreMockedStatic.verifyNoMoreInteractions();
+        }
+    }
+
+    @Test
+    public void test_incrementUserAttribute() {
+        try (MockedStatic<MobileCore> mobileCoreMockedStatic =
+                Mockito.mockStatic(MobileCore.class)) {
+            mobileCoreMockedStatic.reset();
+            ArgumentCaptor<Event> eventCaptor = ArgumentCaptor.forClass(Event.class);
+            UserProfile.incrementUserAttribute("visits", 2);
+            mobileCoreMockedStatic.verify(() -> MobileCore.dispatchEvent(eventCaptor.capture()));
+            Event dispatchedEvent = eventCaptor.getValue();
+            assertEquals("com.adobe.eventSource.requestProfile", dispatchedEvent.getSource());
+            Map<String, Object> eventData = dispatchedEvent.getEventData();
+            assertEquals("visits", eventData.get("userprofilecounterkey"));
+            assertEquals("increment", eventData.get("userprofilecounteroperation"));
+            assertEquals(2L, eventData.get("userprofilecountervalue"));
+
+            UserProfile.updateUserAttributeToMax("bestScore", 1.5);
+            mobileCoreMockedStatic.verify(
+                    () -> MobileCore.dispatchEvent(eventCaptor.capture()), Mockito.times(2));
+            eventData = eventCaptor.getValue().getEventData();
+            assertEquals("max", eventData.get("userprofilecounteroperation"));
+            assertEquals(1.5, eventData.get("userprofilecountervalue"));
+
+            UserProfile.incrementUserAttribute("", 1);
+            mobileCoreMockedStatic.verifyNoMoreInteractions();
+        }
+    }
+
+    @Test
+    public void test_updateUserAttributes_durable() {
+        try (MockedStatic<MobileCore> mobileCoreMockedStatic =
+                Mockito.mockStatic(MobileCore.class)) {
+            mobileCoreMockedStatic.reset();
+            ArgumentCaptor<Event> eventCaptor = ArgumentCaptor.forClass(Event.class);
+            Map<String, Object> profileMap = new HashMap<>();
+            profileMap.put("Key1", "Value1");
+            UserProfile.updateUserAttributes(profileMap, true);
+            mobileCoreMockedStatic.verify(() -> MobileCore.dispatchEvent(eventCaptor.capture()));
+            Map<String, Object> eventData = eventCaptor.getValue().getEventData();
+            assertEquals(profileMap, eventData.get("userprofileupdatekey"));
+            assertEquals(true, eventData.get("userprofiledurable"));
+        }
+    }
+
+    @Test
+    public void test_updateUserAttributes_timeToLive() {
+        try (MockedStatic<MobileCore> mobileCoreMockedStatic =
+                Mockito.mockStatic(MobileCore.class)) {
+            mobileCoreMockedStatic.reset();
+            ArgumentCaptor<Event> eventCaptor = ArgumentCaptor.forClass(Event.class);
+            Map<String, Object> profileMap = new HashMap<>();
+            profileMap.put("Key1", "Value1");
+            UserProfile.updateUserAttributes(profileMap, 3600L);
+            mobileCoreMockedStatic.verify(() -> MobileCore.dispatchEvent(eventCaptor.capture()));
+            Map<String, Object> eventData = eventCaptor.getValue().getEventData();
+            assertEquals(profileMap, eventData.get("userprofileupdatekey"));
+            assertEquals(3600L, eventData.get("userprofilettl"));
+        }
+    }
+
     @Test
     public void test_updateUserAttributes_withNullMap() {
         try (MockedStatic<MobileCore> mobileCoreMockedStatic =
@@ -170,4 +297,79 @@ public class PublicAPITests {
             mobileCoreMockedStatic.verifyNoInteractions();
         }
     }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void test_updateUserAttributeIfVersion() {
+        try (MockedStatic<MobileCore> mobileCoreMockedStatic =
+                Mockito.mockStatic(MobileCore.class)) {
+            mobileCoreMockedStatic.reset();
+            ArgumentCaptor<Event> eventCaptor = ArgumentCaptor.forClass(Event.class);
+            ArgumentCaptor<AdobeCallbackWithError<Event>> callbackCaptor =
+                    ArgumentCaptor.forClass(AdobeCallbackWithError.class);
+            Map<String, Object>[] outcome = new Map[1];
+            UserProfile.updateUserAttributeIfVersion("count", 7L, 2, value -> outcome[0] = value);
+            mobileCoreMockedStatic.verify(
+                    () ->
+                            MobileCore.dispatchEventWithResponseCallback(
+                                    eventCaptor.capture(), anyLong(), callbackCaptor.capture()));
+            Map<String, Object> eventData = eventCaptor.getValue().getEventData();
+            assertEquals("count", eventData.get("userprofilecaskey"));
+            assertEquals(7L, eventData.get("userprofileexpectedversion"));
+            assertEquals(2, eventData.get("userprofilecasvalue"));
+
+            Map<String, Object> responseData = new HashMap<>();
+            responseData.put("succeeded", false);
+            responseData.put("value", 3);
+            responseData.put("version", 9L);
+            responseData.put(
+                    "userprofilerequesteventid", eventCaptor.getValue().getUniqueIdentifier());
+            callbackCaptor
+                    .getValue()
+                    .call(
+                            new Event.Builder(
+                                            "UserProfile Response Event",
+                                            EventType.USERPROFILE,
+                                            EventSource.RESPONSE_PROFILE)
+                                    .setEventData(responseData)
+                                    .build());
+            responseData.remove("userprofilerequesteventid");
+            assertEquals(responseData, outcome[0]);
+
+            // without a callback, the request is dispatched without waiting for its response
+            UserProfile.compareAndSetUserAttribute("count", 3, null, null);
+            mobileCoreMockedStatic.verify(() -> MobileCore.dispatchEvent(eventCaptor.capture()));
+            eventData = eventCaptor.getValue().getEventData();
+            assertEquals(3, eventData.get("userprofileexpectedvalue"));
+            assertTrue(eventData.containsKey("userprofilecasvalue"));
+        }
+    }
+
+    @Test
+    public void test_applyTransaction() {
+        try (MockedStatic<MobileCore> mobileCoreMockedStatic =
+                Mockito.mockStatic(MobileCore.class)) {
+            mobileCoreMockedStatic.reset();
+            ArgumentCaptor<Event> eventCaptor = ArgumentCaptor.forClass(Event.class);
+            UserProfile.applyTransaction(
+                    new UserProfileTransaction()
+                            .removeMatching("cart.item.*")
+                            .set("cart.item.1", "hat")
+                            .increment("visits", 1)
+                            .set("", "ignored"));
+            mobileCoreMockedStatic.verify(() -> MobileCore.dispatchEvent(eventCaptor.capture()));
+            Event dispatchedEvent = eventCaptor.getValue();
+            assertEquals("com.adobe.eventSource.requestProfile", dispatchedEvent.getSource());
+            List<?> operations =
+                    (List<?>) dispatchedEvent.getEventData().get("userprofiletransaction");
+            assertEquals(3, operations.size());
+            Map<?, ?> increment = (Map<?, ?>) operations.get(2);
+            assertEquals("increment", increment.get("operation"));
+            assertEquals("visits", increment.get("key"));
+            assertEquals(1L, increment.get("value"));
+
+            UserProfile.applyTransaction(new UserProfileTransaction());
+            mobileCoreMockedStatic.verifyNoMoreInteractions();
+        }
+    }
 }
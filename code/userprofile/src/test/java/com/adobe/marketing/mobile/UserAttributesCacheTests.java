@@ -0,0 +1,189 @@
+/*
+  Copyright 2026 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+
+public class UserAttributesCacheTests {
+
+    private final long[] now = {1000};
+    private UserAttributesCache cache;
+
+    @Before
+    public void setup() {
+        cache = new UserAttributesCache(5000, () -> now[0]);
+    }
+
+    @Test
+    public void test_get_missUntilProfileReceived() {
+        assertNull(cache.get(Arrays.asList("key1")));
+
+        cache.onResponseEvent(profileEvent(Collections.singletonMap("key1", "value1"), null));
+        assertEquals(
+                Collections.singletonMap("key1", "value1"),
+                cache.get(Arrays.asList("key1", "key2")));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void test_get_missWhileChangePending() {
+        cache.onResponseEvent(profileEvent(Collections.singletonMap("key1", "value1"), null));
+        Event update =
+                new Event.Builder(
+                                "UserProfileUpdate",
+                                EventType.USERPROFILE,
+                                EventSource.REQUEST_PROFILE)
+                        .build();
+        cache.onChangeRequested(update);
+        assertNull(cache.get(Arrays.asList("key1")));
+
+        // a change requested by someone else does not answer ours
+        cache.onResponseEvent(profileEvent(Collections.singletonMap("key1", "value2"), "other"));
+        assertNull(cache.get(Arrays.asList("key1")));
+
+        cache.onResponseEvent(
+                profileEvent(
+                        Collections.singletonMap("key1", "value3"), update.getUniqueIdentifier()));
+        assertEquals("value3", cache.get(Arrays.asList("key1")).get("key1"));
+    }
+
+    @Test
+    public void test_get_hitOnceUnchangedProfileAcknowledged() {
+        cache.onResponseEvent(profileEvent(Collections.singletonMap("key1", "value1"), null));
+        Event update =
+                new Event.Builder(
+                                "UserProfileUpdate",
+                                EventType.USERPROFILE,
+                                EventSource.REQUEST_PROFILE)
+                        .build();
+        cache.onChangeRequested(update);
+        assertNull(cache.get(Arrays.asList("key1")));
+
+        // answered without the profile, which did not change
+        cache.onResponseEvent(
+                Collections.singletonMap(
+                        "userprofilerequesteventid", update.getUniqueIdentifier()));
+        assertEquals("value1", cache.get(Arrays.asList("key1")).get("key1"));
+    }
+
+    @Test
+    public void test_get_pendingChangeGivenUpAfterTimeout() {
+        cache.onResponseEvent(profileEvent(Collections.singletonMap("key1", "value1"), null));
+        cache.onChangeRequested(
+                new Event.Builder(
+                                "UserProfileUpdate",
+                                EventType.USERPROFILE,
+                                EventSource.REQUEST_PROFILE)
+                        .build());
+        now[0] += 4999;
+        assertNull(cache.get(Arrays.asList("key1")));
+        now[0] += 1;
+        assertEquals("value1", cache.get(Arrays.asList("key1")).get("key1"));
+    }
+
+    @Test
+    public void test_onResponseEvent_appliesDeltas() {
+        Map<String, Object> profile = new HashMap<>();
+        profile.put("key1", "value1");
+        profile.put("key2", "value2");
+        Map<String, Object> full = profileEvent(profile, null);
+        full.put("userprofileversion", 1L);
+        cache.onResponseEvent(full);
+
+        cache.onResponseEvent(delta(2, Collections.singletonMap("key3", "value3"), "key1"));
+        Map<String, Object> expected = new HashMap<>();
+        expected.put("key2", "value2");
+        expected.put("key3", "value3");
+        assertEquals(expected, cache.get(Arrays.asList("key1", "key2", "key3")));
+
+        // a missed delta empties the cache
+        cache.onResponseEvent(delta(4, Collections.singletonMap("key4", "value4"), null));
+        assertNull(cache.get(Arrays.asList("key2")));
+    }
+
+    @Test
+    public void test_onResponseEvent_ignoresGetResponses() {
+        cache.onResponseEvent(profileEvent(Collections.singletonMap("key1", "value1"), null));
+        cache.onResponseEvent(
+                Collections.singletonMap(
+                        "userprofilegetattributes", Collections.singletonMap("key1", "other")));
+        assertEquals("value1", cache.get(Arrays.asList("key1")).get("key1"));
+    }
+
+    @Test
+    public void test_clear() {
+        cache.onResponseEvent(profileEvent(Collections.singletonMap("key1", "value1"), null));
+        cache.get(Arrays.asList("key1"));
+        cache.clear();
+        assertEquals(0, cache.getHitCount());
+        assertNull(cache.get(Arrays.asList("key1")));
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void test_get_missDuringBulkChange() {
+        cache.onResponseEvent(profileEvent(Collections.singletonMap("key1", "value1"), null));
+        cache.onBulkChangeStarted();
+        assertNull(cache.get(Arrays.asList("key1")));
+
+        // a profile shared during the bulk change is not used until it ends
+        cache.onResponseEvent(profileEvent(Collections.singletonMap("key1", "value2"), null));
+        assertNull(cache.get(Arrays.asList("key1")));
+        Event completion =
+                new Event.Builder(
+                                "UserProfileImport",
+                                EventType.USERPROFILE,
+                                EventSource.REQUEST_PROFILE)
+                        .build();
+        cache.onChangeRequested(completion);
+        cache.onBulkChangeEnded();
+        assertNull(cache.get(Arrays.asList("key1")));
+
+        cache.onResponseEvent(
+                profileEvent(
+                        Collections.singletonMap("key1", "value3"),
+                        completion.getUniqueIdentifier()));
+        assertEquals("value3", cache.get(Arrays.asList("key1")).get("key1"));
+    }
+
+    private static Map<String, Object> profileEvent(
+            final Map<String, Object> profile, final String requestEventId) {
+        Map<String, Object> eventData = new HashMap<>();
+        eventData.put("userprofiledata", profile);
+        if (requestEventId != null) {
+            eventData.put("userprofilerequesteventid", requestEventId);
+        }
+        return eventData;
+    }
+
+    private static Map<String, Object> delta(
+            final long version, final Map<String, Object> changed, final String removedKey) {
+        Map<String, Object> eventData = new HashMap<>();
+        eventData.put("userprofileversion", version);
+        eventData.put("userprofilechangedattributes", changed);
+        eventData.put(
+                "userprofileremovedkeys",
+                removedKey != null
+                        ? Collections.singletonList(removedKey)
+                        : Collections.emptyList());
+        return eventData;
+    }
+}
@@ -0,0 +1,143 @@
+/*
+  Copyright 2026 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+public class UserAttributesImporterTests {
+
+    private final List<Map<String, Object>> requests = new ArrayList<>();
+    private final List<Long> progress = new ArrayList<>();
+    private long completedCount = -1;
+    private AdobeError failure;
+    private int failedRequest = -1;
+
+    private final UserProfile.ImportListener listener =
+            new UserProfile.ImportListener() {
+                @Override
+                public void onProgress(final long importedCount) {
+                    progress.add(importedCount);
+                }
+
+                @Override
+                public void onComplete(final long importedCount) {
+                    completedCount = importedCount;
+                }
+
+                @Override
+                public void onFailure(final AdobeError error, final long importedCount) {
+                    failure = error;
+                    completedCount = importedCount;
+                }
+            };
+
+    private final UserAttributesImporter importer =
+            new UserAttributesImporter(
+                    (eventData, callback) -> {
+                        requests.add(eventData);
+                        if (requests.size() - 1 == failedRequest) {
+                            callback.fail(AdobeError.CALLBACK_TIMEOUT);
+                            return;
+                        }
+                        callback.call(
+                                new Event.Builder(
+                                                "UserProfile Response Event",
+                                                EventType.USERPROFILE,
+                                                EventSource.RESPONSE_PROFILE)
+                                        .build());
+                    },
+                    2,
+                    1000);
+
+    @Test
+    public void test_importAttributes_inChunks() {
+        importer.importAttributes(
+                new StringReader("{\"a\":1,\"b\":\"two\",\"c\":{\"d\":true},\"e\":null,\"f\":5}"),
+                listener);
+
+        // three chunks, then the completion
+        assertEquals(4, requests.size());
+        Map<String, Object> imported = new HashMap<>();
+        for (int i = 0; i < 3; i++) {
+            Map<?, ?> chunk = (Map<?, ?>) requests.get(i).get("userprofileimportdata");
+            assertTrue(chunk.size() <= 2);
+            for (Map.Entry<?, ?> entry : chunk.entrySet()) {
+                imported.put((String) entry.getKey(), entry.getValue());
+            }
+            assertFalse(requests.get(i).containsKey("userprofileimportcomplete"));
+        }
+        assertEquals(5, imported.size());
+        // a json null removes the attribute
+        assertTrue(imported.containsKey("e"));
+        assertNull(imported.get("e"));
+        assertEquals(true, requests.get(3).get("userprofileimportcomplete"));
+        assertFalse(requests.get(3).containsKey("userprofileimportdata"));
+        // every request belongs to the same import
+        Object importId = requests.get(0).get("userprofileimportid");
+        for (Map<String, Object> request : requests) {
+            assertEquals(importId, request.get("userprofileimportid"));
+        }
+
+        assertEquals(Arrays.asList(2L, 4L, 5L), progress);
+        assertEquals(5, completedCount);
+        assertNull(failure);
+    }
+
+    @Test
+    public void test_importAttributes_dropsNestedNulls() {
+        importer.importAttributes(
+                new StringReader("{\"a\":{\"b\":null,\"c\":{\"d\":null,\"e\":1}}}"), listener);
+
+        assertEquals(2, requests.size());
+        Map<?, ?> chunk = (Map<?, ?>) requests.get(0).get("userprofileimportdata");
+        Map<String, Object> nested = new HashMap<>();
+        nested.put("c", Collections.singletonMap("e", 1));
+        assertEquals(Collections.singletonMap("a", nested), chunk);
+        assertEquals(1, completedCount);
+    }
+
+    @Test
+    public void test_importAttributes_stopsOnFailedChunk() {
+        failedRequest = 1;
+        importer.importAttributes(
+                new StringReader("{\"a\":1,\"b\":2,\"c\":3,\"d\":4,\"e\":5}"), listener);
+
+        // the chunks already imported are still completed
+        assertEquals(3, requests.size());
+        assertEquals(true, requests.get(2).get("userprofileimportcomplete"));
+        assertEquals(Arrays.asList(2L), progress);
+        assertEquals(AdobeError.CALLBACK_TIMEOUT, failure);
+        assertEquals(2, completedCount);
+    }
+
+    @Test
+    public void test_importAttributes_invalidJson() {
+        importer.importAttributes(new StringReader("{\"a\":1,\"b\":2,\"c\":"), listener);
+
+        assertEquals(2, requests.size());
+        assertEquals(true, requests.get(1).get("userprofileimportcomplete"));
+        assertEquals(AdobeError.UNEXPECTED_ERROR, failure);
+        assertEquals(2, completedCount);
+    }
+}
@@ -0,0 +1,144 @@
+/*
+  Copyright 2026 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+
+public class UserAttributesRequestBatcherTests {
+
+    private final List<List<String>> dispatchedKeys = new ArrayList<>();
+    private final List<AdobeCallbackWithError<Map<String, Object>>> dispatchedCallbacks =
+            new ArrayList<>();
+    private UserAttributesRequestBatcher batcher;
+
+    @Before
+    public void setup() {
+        batcher =
+                new UserAttributesRequestBatcher(
+                        (keys, callback) -> {
+                            dispatchedKeys.add(keys);
+                            dispatchedCallbacks.add(callback);
+                        });
+    }
+
+    @Test
+    public void test_request_dispatchedRightAway() {
+        Map<String, Object> received = new HashMap<>();
+        batcher.request(Arrays.asList("key1", "key2"), received::putAll);
+        assertEquals(1, dispatchedKeys.size());
+        assertEquals(Arrays.asList("key1", "key2"), dispatchedKeys.get(0));
+
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put("key1", "value1");
+        dispatchedCallbacks.get(0).call(attributes);
+        assertEquals(attributes, received);
+
+        batcher.request(Arrays.asList("key3"), result -> {});
+        assertEquals(2, dispatchedKeys.size());
+    }
+
+    @Test
+    public void test_request_coalescedWhileWaiting() {
+        Map<String, Object> received1 = new HashMap<>();
+        Map<String, Object> received2 = new HashMap<>();
+        Map<String, Object> received3 = new HashMap<>();
+        batcher.request(Arrays.asList("key1"), received1::putAll);
+        batcher.request(Arrays.asList("key1", "key2"), received2::putAll);
+        batcher.request(Arrays.asList("key2", "key3"), received3::putAll);
+        assertEquals(1, dispatchedKeys.size());
+
+        dispatchedCallbacks.get(0).call(new HashMap<>());
+        assertEquals(2, dispatchedKeys.size());
+        assertEquals(Arrays.asList("key1", "key2", "key3"), dispatchedKeys.get(1));
+
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put("key1", "value1");
+        attributes.put("key2", "value2");
+        dispatchedCallbacks.get(1).call(attributes);
+        assertEquals(attributes, received2);
+        assertEquals(1, received3.size());
+        assertEquals("value2", received3.get("key2"));
+
+        batcher.request(Arrays.asList("key4"), result -> {});
+        assertEquals(3, dispatchedKeys.size());
+    }
+
+    @Test
+    public void test_request_coalescedWithPattern() {
+        Map<String, Object> received = new HashMap<>();
+        batcher.request(Arrays.asList("key1"), result -> {});
+        batcher.request(Arrays.asList("cart.*"), received::putAll);
+        batcher.request(Arrays.asList("key1"), result -> {});
+        dispatchedCallbacks.get(0).call(new HashMap<>());
+        assertEquals(Arrays.asList("cart.*", "key1"), dispatchedKeys.get(1));
+
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put("cart.item.1", "shoes");
+        attributes.put("cart.total", 1);
+        attributes.put("key1", "value1");
+        dispatchedCallbacks.get(1).call(attributes);
+        assertEquals(2, received.size());
+        assertEquals("shoes", received.get("cart.item.1"));
+        assertEquals(1, received.get("cart.total"));
+    }
+
+    @Test
+    public void test_request_failureFannedOut() {
+        List<AdobeError> errors = new ArrayList<>();
+        AdobeCallbackWithError<Map<String, Object>> callback =
+                new AdobeCallbackWithError<Map<String, Object>>() {
+                    @Override
+                    public void fail(AdobeError adobeError) {
+                        errors.add(adobeError);
+                    }
+
+                    @Override
+                    public void call(Map<String, Object> stringObjectMap) {}
+                };
+        batcher.request(Arrays.asList("key1"), callback);
+        batcher.request(Arrays.asList("key2"), callback);
+        batcher.request(Arrays.asList("key3"), callback);
+
+        dispatchedCallbacks.get(0).fail(AdobeError.CALLBACK_TIMEOUT);
+        assertEquals(1, errors.size());
+        assertEquals(2, dispatchedKeys.size());
+        dispatchedCallbacks.get(1).fail(AdobeError.UNEXPECTED_ERROR);
+        assertEquals(
+                Arrays.asList(
+                        AdobeError.CALLBACK_TIMEOUT,
+                        AdobeError.UNEXPECTED_ERROR,
+                        AdobeError.UNEXPECTED_ERROR),
+                errors);
+    }
+
+    @Test
+    public void test_request_nullResponseProjectedToEmptyMaps() {
+        List<Map<String, Object>> received = new ArrayList<>();
+        batcher.request(Arrays.asList("key1"), result -> {});
+        batcher.request(Arrays.asList("key1"), received::add);
+        batcher.request(Arrays.asList("key2"), received::add);
+        dispatchedCallbacks.get(0).call(null);
+        dispatchedCallbacks.get(1).call(null);
+        assertEquals(2, received.size());
+        assertEquals(0, received.get(0).size());
+        assertNull(received.get(1).get("key2"));
+    }
+}
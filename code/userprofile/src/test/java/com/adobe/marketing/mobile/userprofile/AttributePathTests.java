@@ -0,0 +1,92 @@
+/*
+  Copyright 2026 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile.userprofile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+public class AttributePathTests {
+
+    @Test
+    public void test_parse() {
+        assertEquals(Arrays.asList("a", "b", "c"), AttributePath.parse("a.b.c"));
+        assertEquals(Arrays.asList("a.b", "c"), AttributePath.parse("/a.b/c"));
+        assertEquals(Arrays.asList("a/b", "c~d"), AttributePath.parse("/a~1b/c~0d"));
+        assertEquals(Arrays.asList("a", ""), AttributePath.parse("/a/"));
+        assertEquals(Collections.singletonList("a"), AttributePath.parse("a"));
+        assertNull(AttributePath.parse("a..b"));
+        assertNull(AttributePath.parse("/"));
+        assertNull(AttributePath.parse(""));
+        assertNull(AttributePath.parse(null));
+    }
+
+    @Test
+    public void test_get() {
+        Map<String, Object> inner = new HashMap<>();
+        inner.put("email", true);
+        Map<String, Object> value = new HashMap<>();
+        value.put("notifications", inner);
+        value.put("language", "en");
+
+        assertEquals(
+                true, AttributePath.get(value, AttributePath.parse("prefs.notifications.email")));
+        assertEquals(inner, AttributePath.get(value, AttributePath.parse("prefs.notifications")));
+        assertNull(AttributePath.get(value, AttributePath.parse("prefs.language.code")));
+        assertNull(AttributePath.get(value, AttributePath.parse("prefs.missing.email")));
+    }
+
+    @Test
+    public void test_with_copiesTheMapsAlongThePath() {
+        Map<String, Object> sibling = new HashMap<>();
+        sibling.put("push", false);
+        Map<String, Object> inner = new HashMap<>();
+        inner.put("email", true);
+        Map<String, Object> value = new HashMap<>();
+        value.put("notifications", inner);
+        value.put("devices", sibling);
+
+        List<String> path = AttributePath.parse("prefs.notifications.email");
+        Map<String, Object> updated = AttributePath.with(value, path, false);
+        assertEquals(false, AttributePath.get(updated, path));
+        // the previous value is unchanged, and the subtrees off the path are shared
+        assertEquals(true, inner.get("email"));
+        assertSame(sibling, updated.get("devices"));
+
+        Map<String, Object> removed = AttributePath.with(updated, path, null);
+        assertEquals(Collections.emptyMap(), removed.get("notifications"));
+    }
+
+    @Test
+    public void test_with_createsMissingMaps() {
+        Map<String, Object> created =
+                AttributePath.with(null, AttributePath.parse("/prefs/notifications/email"), true);
+        assertEquals(
+                Collections.singletonMap("notifications", Collections.singletonMap("email", true)),
+                created);
+    }
+
+    @Test
+    public void test_with_valueNotAMap() {
+        Map<String, Object> value = new HashMap<>();
+        value.put("language", "en");
+        assertNull(AttributePath.with(value, AttributePath.parse("prefs.language.code"), "fr"));
+        assertNull(AttributePath.with("en", AttributePath.parse("prefs.code"), "fr"));
+    }
+}
@@ -0,0 +1,75 @@
+/*
+  Copyright 2026 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile.userprofile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+public class CounterOperationsTests {
+
+    @Test
+    public void test_apply_increment() {
+        assertEquals(5L, CounterOperations.apply(3, "increment", 2L));
+        assertEquals(2L, CounterOperations.apply(null, "increment", 2));
+        assertEquals(2L, CounterOperations.apply("not a number", "increment", 2L));
+        assertEquals(3.5, CounterOperations.apply(3L, "increment", 0.5));
+        assertEquals(1L, CounterOperations.apply(3L, "decrement", 2L));
+        assertEquals(-2.5, CounterOperations.apply(null, "decrement", 2.5));
+    }
+
+    @Test
+    public void test_apply_overflow() {
+        assertNull(CounterOperations.apply(Long.MAX_VALUE, "increment", 1L));
+        assertNull(CounterOperations.apply(Long.MIN_VALUE, "decrement", 1L));
+        assertNull(CounterOperations.apply(0L, "decrement", Long.MIN_VALUE));
+        assertEquals(Long.MAX_VALUE, CounterOperations.apply(-1L, "decrement", Long.MIN_VALUE));
+    }
+
+    @Test
+    public void test_apply_nonFinite() {
+        assertNull(CounterOperations.apply(1L, "increment", Double.NaN));
+        assertNull(CounterOperations.apply(1L, "decrement", Double.NEGATIVE_INFINITY));
+        assertNull(CounterOperations.apply(1L, "min", Double.NaN));
+        assertNull(CounterOperations.apply(null, "max", Float.POSITIVE_INFINITY));
+        // the double result overflows to infinity
+        assertNull(CounterOperations.apply(Double.MAX_VALUE, "increment", Double.MAX_VALUE));
+        assertNull(CounterOperations.apply(-Double.MAX_VALUE, "decrement", Double.MAX_VALUE));
+        assertEquals(Double.MAX_VALUE, CounterOperations.apply(Double.MAX_VALUE, "increment", 1L));
+    }
+
+    @Test
+    public void test_apply_minMax() {
+        Integer current = 3;
+        assertSame(current, CounterOperations.apply(current, "min", 5L));
+        assertEquals(1L, CounterOperations.apply(current, "min", 1));
+        assertSame(current, CounterOperations.apply(current, "max", 1.5));
+        assertEquals(7.5, CounterOperations.apply(current, "max", 7.5f));
+        assertEquals(4L, CounterOperations.apply(null, "max", 4));
+        assertNull(CounterOperations.apply(current, "multiply", 2L));
+    }
+
+    @Test
+    public void test_parseOperand() {
+        assertEquals(3, CounterOperations.parseOperand(3));
+        assertEquals(12L, CounterOperations.parseOperand(" 12 "));
+        assertEquals(1.5, CounterOperations.parseOperand("1.5"));
+        assertNull(CounterOperations.parseOperand("NaN"));
+        assertNull(CounterOperations.parseOperand("Infinity"));
+        assertNull(CounterOperations.parseOperand(Double.NaN));
+        assertNull(CounterOperations.parseOperand(Double.POSITIVE_INFINITY));
+        assertNull(CounterOperations.parseOperand("abc"));
+        assertNull(CounterOperations.parseOperand(true));
+    }
+}
@@ -0,0 +1,122 @@
+/*
+  Copyright 2026 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile.userprofile;
+
+import com.adobe.marketing.mobile.services.NamedCollection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A {@link NamedCollection} kept in memory, for the tests which persist and reload a profile. As
+ * with the shared preferences, reading a value with another type than it was written with throws a
+ * {@link ClassCastException}. Wrap it with {@code Mockito.spy} to verify the writes.
+ */
+class InMemoryNamedCollection implements NamedCollection {
+
+    private final Map<String, Object> values = new HashMap<>();
+
+    /**
+     * Returns the stored values by key, which the tests can read and modify directly.
+     *
+     * @return the live map of the stored values
+     */
+    Map<String, Object> getValues() {
+        return values;
+    }
+
+    @Override
+    public void setInt(final String key, final int value) {
+        values.put(key, value);
+    }
+
+    @Override
+    public int getInt(final String key, final int defaultValue) {
+        return values.containsKey(key) ? (Integer) values.get(key) : defaultValue;
+    }
+
+    @Override
+    public void setString(final String key, final String value) {
+        values.put(key, value);
+    }
+
+    @Override
+    public String getString(final String key, final String defaultValue) {
+        return values.containsKey(key) ? (String) values.get(key) : defaultValue;
+    }
+
+    @Override
+    public void setDouble(final String key, final double value) {
+        values.put(key, value);
+    }
+
+    @Override
+    public double getDouble(final String key, final double defaultValue) {
+        return values.containsKey(key) ? (Double) values.get(key) : defaultValue;
+    }
+
+    @Override
+    public void setLong(final String key, final long value) {
+        values.put(key, value);
+    }
+
+    @Override
+    public long getLong(final String key, final long defaultValue) {
+        return values.containsKey(key) ? (Long) values.get(key) : defaultValue;
+    }
+
+    @Override
+    public void setFloat(final String key, final float value) {
+        values.put(key, value);
+    }
+
+    @Override
+    public float getFloat(final String key, final float defaultValue) {
+        return values.containsKey(key) ? (Float) values.get(key) : defaultValue;
+    }
+
+    @Override
+    public void setBoolean(final String key, final boolean value) {
+        values.put(key, value);
+    }
+
+    @Override
+    public boolean getBoolean(final String key, final boolean defaultValue) {
+        return values.containsKey(key) ? (Boolean) values.get(key) : defaultValue;
+    }
+
+    @Override
+    public void setMap(final String key, final Map<String, String> value) {
+        values.put(key, new HashMap<>(value));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Map<String, String> getMap(final String key) {
+        Map<String, String> value = (Map<String, String>) values.get(key);
+        return value != null ? new HashMap<>(value) : null;
+    }
+
+    @Override
+    public boolean contains(final String key) {
+        return values.containsKey(key);
+    }
+
+    @Override
+    public void remove(final String key) {
+        values.remove(key);
+    }
+
+    @Override
+    public void removeAll() {
+        values.clear();
+    }
+}
@@ -0,0 +1,129 @@
+/*
+  Copyright 2026 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile.userprofile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+
+public class IncrementalProfileStoreTests {
+
+    private final InMemoryNamedCollection namedCollection = spy(new InMemoryNamedCollection());
+    private final Map<String, Object> storage = namedCollection.getValues();
+    private IncrementalProfileStore store;
+
+    @Before
+    public void setup() {
+        store = new IncrementalProfileStore(namedCollection);
+    }
+
+    @Test
+    public void test_save_fullProfile() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("key1", "value1");
+        data.put("key2", 2);
+        assertTrue(store.save(data, null));
+        assertTrue(store.exists());
+        assertEquals("{\"key1\":\"value1\"}", storage.get("user_profile_attr.key1"));
+        assertEquals("{\"key2\":2}", storage.get("user_profile_attr.key2"));
+        assertEquals(data, new IncrementalProfileStore(namedCollection).load());
+    }
+
+    @Test
+    public void test_save_onlyWritesChangedKeys() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("key1", "value1");
+        data.put("key2", "value2");
+        store.save(data, null);
+        clearInvocations(namedCollection);
+
+        data.put("key1", "newValue");
+        assertTrue(store.save(data, Collections.singleton("key1")));
+        verify(namedCollection).setString("user_profile_attr.key1", "{\"key1\":\"newValue\"}");
+        verify(namedCollection, never())
+                .setString("user_profile_attr.key2", "{\"key2\":\"value2\"}");
+        // the set of keys did not change, so the index is not rewritten
+        verify(namedCollection, never())
+                .setString(eq(IncrementalProfileStore.KEY_INDEX), anyString());
+    }
+
+    @Test
+    public void test_save_removedKey() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("key1", "value1");
+        data.put("key2", "value2");
+        store.save(data, null);
+
+        data.remove("key2");
+        assertTrue(store.save(data, Collections.singleton("key2")));
+        assertFalse(storage.containsKey("user_profile_attr.key2"));
+        assertEquals(
+                Collections.singletonMap("key1", "value1"),
+                new IncrementalProfileStore(namedCollection).load());
+    }
+
+    @Test
+    public void test_save_addedKey() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("key1", "value1");
+        store.save(data, null);
+
+        data.put("key2", "value2");
+        assertTrue(store.save(data, Collections.singleton("key2")));
+        assertEquals(data, new IncrementalProfileStore(namedCollection).load());
+    }
+
+    @Test
+    public void test_load_nestedMap() {
+        storage.put(IncrementalProfileStore.KEY_INDEX, "[\"key\"]");
+        storage.put("user_profile_attr.key", "{\"key\":{\"inner\":true}}");
+        assertEquals(
+                Collections.singletonMap("key", Collections.singletonMap("inner", true)),
+                store.load());
+    }
+
+    @Test
+    public void test_load_skipsCorruptedAttribute() {
+        storage.put(IncrementalProfileStore.KEY_INDEX, "[\"key1\",\"key2\",\"key3\"]");
+        storage.put("user_profile_attr.key1", "{\"key1\":\"value1\"}");
+        storage.put("user_profile_attr.key2", "{not-json");
+        assertEquals(Collections.singletonMap("key1", "value1"), store.load());
+    }
+
+    @Test
+    public void test_load_invalidIndex() {
+        storage.put(IncrementalProfileStore.KEY_INDEX, "{not-json");
+        assertNull(store.load());
+    }
+
+    @Test
+    public void test_clear() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("key1", "value1");
+        store.save(data, null);
+        new IncrementalProfileStore(namedCollection).clear();
+        assertTrue(storage.isEmpty());
+    }
+}
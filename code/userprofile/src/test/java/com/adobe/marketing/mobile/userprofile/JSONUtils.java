@@ -19,6 +19,10 @@ import java.util.Map;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
+/**
+ * The {@link JSONObject} based conversion the profile was decoded with before {@link
+ * ProfileJsonDecoder}, kept as the reference its output and performance are compared against.
+ */
 class JSONUtils {
     private static final String CLASS_NAME = "JSONUtils";
 
@@ -0,0 +1,227 @@
+/*
+  Copyright 2026 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile.userprofile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class JournalProfileStoreTests {
+
+    @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    private final List<Runnable> compactionTasks = new ArrayList<>();
+    private File directory;
+    private JournalProfileStore store;
+
+    @Before
+    public void setup() throws IOException {
+        directory = temporaryFolder.newFolder();
+        compactionTasks.clear();
+        store = new JournalProfileStore(directory, compactionTasks::add);
+    }
+
+    @Test
+    public void test_save_fullProfile() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("key1", "value1");
+        data.put("key2", 2);
+        assertTrue(store.save(data, null));
+        assertTrue(store.exists());
+        assertTrue(snapshotFile().exists());
+        assertFalse(journalFile().exists());
+        assertEquals(data, newStore().load());
+    }
+
+    @Test
+    public void test_save_appendsChangedKeys() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("key1", "value1");
+        data.put("key2", "value2");
+        store.save(data, null);
+        long snapshotSize = snapshotFile().length();
+
+        data.put("key1", "newValue");
+        data.remove("key2");
+        data.put("key3", Collections.singletonMap("inner", true));
+        assertTrue(store.save(data, Collections.singleton("key1")));
+        assertTrue(store.save(data, Collections.singleton("key2")));
+        assertTrue(store.save(data, Collections.singleton("key3")));
+
+        // the snapshot is left untouched, the changes are replayed from the journal
+        assertEquals(snapshotSize, snapshotFile().length());
+        assertTrue(journalFile().exists());
+        assertEquals(data, newStore().load());
+    }
+
+    @Test
+    public void test_load_withoutFiles() {
+        assertFalse(store.exists());
+        assertEquals(Collections.emptyMap(), store.load());
+    }
+
+    @Test
+    public void test_load_ignoresTornLastRecord() throws IOException {
+        Map<String, Object> data = new HashMap<>();
+        data.put("key1", "value1");
+        store.save(data, Collections.singleton("key1"));
+        append(journalFile(), "{\"set\":{\"key2\":\"val");
+        assertEquals(data, newStore().load());
+    }
+
+    @Test
+    public void test_save_afterTornLastRecord() throws IOException {
+        Map<String, Object> data = new HashMap<>();
+        data.put("key1", "value1");
+        store.save(data, Collections.singleton("key1"));
+        append(journalFile(), "{\"set\":{\"key2\":\"val");
+
+        // the profile read up to the torn record is rewritten, so the next records are readable
+        JournalProfileStore reloadedStore = newStore();
+        Map<String, Object> loaded = reloadedStore.load();
+        assertEquals(data, loaded);
+        assertFalse(journalFile().exists());
+        loaded.put("key3", "value3");
+        assertTrue(reloadedStore.save(loaded, Collections.singleton("key3")));
+        assertEquals(loaded, newStore().load());
+    }
+
+    @Test
+    public void test_save_afterUnterminatedLastRecord() throws IOException {
+        Map<String, Object> data = new HashMap<>();
+        data.put("key1", "value1");
+        store.save(data, Collections.singleton("key1"));
+        append(journalFile(), "{\"set\":{\"key2\":\"value2\"}}");
+
+        JournalProfileStore reloadedStore = newStore();
+        Map<String, Object> loaded = reloadedStore.load();
+        assertEquals("value2", loaded.get("key2"));
+        loaded.put("key3", "value3");
+        assertTrue(reloadedStore.save(loaded, Collections.singleton("key3")));
+        assertEquals(loaded, newStore().load());
+    }
+
+    @Test
+    public void test_load_replaysJournalAfterCorruptedSealedJournal() throws IOException {
+        Map<String, Object> data = new HashMap<>();
+        data.put("key1", "value1");
+        store.save(data, null);
+        append(sealedJournalFile(), "{\"set\":{\"key2\":\"value2\"}}\n{corrupted\n");
+        append(journalFile(), "{\"set\":{\"key3\":\"value3\"}}\n");
+
+        // the newest records are not lost with the unreadable sealed record
+        JournalProfileStore reloadedStore = newStore();
+        Map<String, Object> loaded = reloadedStore.load();
+        Map<String, Object> expected = new HashMap<>(data);
+        expected.put("key2", "value2");
+        expected.put("key3", "value3");
+        assertEquals(expected, loaded);
+        assertFalse(sealedJournalFile().exists());
+        assertFalse(journalFile().exists());
+        assertEquals(expected, newStore().load());
+    }
+
+    @Test
+    public void test_load_invalidSnapshot() throws IOException {
+        append(snapshotFile(), "{not-json");
+        assertNull(store.load());
+    }
+
+    @Test
+    public void test_compaction() {
+        Map<String, Object> data = new HashMap<>();
+        String value = new String(new char[1024]).replace('\0', 'a');
+        int i = 0;
+        while (compactionTasks.isEmpty()) {
+            data.put("key" + i, value);
+            assertTrue(store.save(data, Collections.singleton("key" + i)));
+            i++;
+        }
+        assertFalse(journalFile().exists());
+        assertTrue(sealedJournalFile().exists());
+
+        // changes made while the snapshot is written go to a new journal
+        data.put("late", "value");
+        store.save(data, Collections.singleton("late"));
+
+        compactionTasks.get(0).run();
+        assertFalse(sealedJournalFile().exists());
+        assertTrue(snapshotFile().exists());
+        assertEquals(data, newStore().load());
+    }
+
+    @Test
+    public void test_load_replaysSealedJournalAfterInterruptedCompaction() {
+        Map<String, Object> data = new HashMap<>();
+        String value = new String(new char[1024]).replace('\0', 'a');
+        int i = 0;
+        while (compactionTasks.isEmpty()) {
+            data.put("key" + i, value);
+            store.save(data, Collections.singleton("key" + i));
+            i++;
+        }
+        // the compaction never runs, as if the process was killed
+        assertEquals(data, newStore().load());
+    }
+
+    @Test
+    public void test_clear() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("key1", "value1");
+        store.save(data, null);
+        data.put("key2", "value2");
+        store.save(data, Collections.singleton("key2"));
+        store.clear();
+        assertFalse(store.exists());
+        assertFalse(snapshotFile().exists());
+        assertFalse(journalFile().exists());
+    }
+
+    private JournalProfileStore newStore() {
+        return new JournalProfileStore(directory, Runnable::run);
+    }
+
+    private File snapshotFile() {
+        return new File(directory, JournalProfileStore.SNAPSHOT_FILE_NAME);
+    }
+
+    private File journalFile() {
+        return new File(directory, JournalProfileStore.JOURNAL_FILE_NAME);
+    }
+
+    private File sealedJournalFile() {
+        return new File(directory, JournalProfileStore.SEALED_JOURNAL_FILE_NAME);
+    }
+
+    private static void append(final File file, final String content) throws IOException {
+        try (Writer writer =
+                new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8)) {
+            writer.write(content);
+        }
+    }
+}
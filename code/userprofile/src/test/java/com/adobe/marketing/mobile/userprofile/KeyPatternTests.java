@@ -0,0 +1,54 @@
+/*
+  Copyright 2026 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile.userprofile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class KeyPatternTests {
+
+    @Test
+    public void test_isPattern() {
+        assertTrue(KeyPattern.isPattern("cart.*"));
+        assertTrue(KeyPattern.isPattern("size?"));
+        assertFalse(KeyPattern.isPattern("cart.item"));
+    }
+
+    @Test
+    public void test_literalPrefix() {
+        assertEquals("cart.", KeyPattern.literalPrefix("cart.*.price"));
+        assertEquals("", KeyPattern.literalPrefix("*"));
+        assertEquals("cart", KeyPattern.literalPrefix("cart"));
+        assertTrue(KeyPattern.isPrefixPattern("cart.*"));
+        assertFalse(KeyPattern.isPrefixPattern("cart.*.price"));
+        assertFalse(KeyPattern.isPrefixPattern("cart?"));
+    }
+
+    @Test
+    public void test_matches() {
+        assertTrue(KeyPattern.matches("cart.*", "cart."));
+        assertTrue(KeyPattern.matches("cart.*", "cart.item.1"));
+        assertFalse(KeyPattern.matches("cart.*", "cart"));
+        assertTrue(KeyPattern.matches("*.price", "cart.item.price"));
+        assertFalse(KeyPattern.matches("*.price", "cart.item.prices"));
+        assertTrue(KeyPattern.matches("a*b*c", "aXbYbZc"));
+        assertFalse(KeyPattern.matches("a*b*c", "aXbYcZ"));
+        assertTrue(KeyPattern.matches("s?ze", "size"));
+        assertFalse(KeyPattern.matches("s?ze", "sze"));
+        assertTrue(KeyPattern.matches("**", ""));
+        // a pattern matches itself
+        assertTrue(KeyPattern.matches("cart.*", "cart.*"));
+    }
+}
@@ -0,0 +1,75 @@
+/*
+  Copyright 2026 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile.userprofile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+
+public class MergePatchTests {
+
+    @Test
+    public void test_apply_rfc7386Example() {
+        Map<String, Object> targetAuthor = new HashMap<>();
+        targetAuthor.put("givenName", "John");
+        targetAuthor.put("familyName", "Doe");
+        Map<String, Object> target = new HashMap<>();
+        target.put("title", "Goodbye!");
+        target.put("author", targetAuthor);
+        target.put("tags", Arrays.asList("example", "sample"));
+        target.put("content", "This will be unchanged");
+        Map<String, Object> author = new HashMap<>();
+        author.put("familyName", null);
+        Map<String, Object> patch = new HashMap<>();
+        patch.put("title", "Hello!");
+        patch.put("phoneNumber", "+01-123-456-7890");
+        patch.put("author", author);
+        patch.put("tags", Collections.singletonList("example"));
+
+        Map<String, Object> merged = MergePatch.apply(target, patch);
+        assertEquals("Hello!", merged.get("title"));
+        assertEquals("+01-123-456-7890", merged.get("phoneNumber"));
+        assertEquals(Collections.singletonMap("givenName", "John"), merged.get("author"));
+        assertEquals(Collections.singletonList("example"), merged.get("tags"));
+        assertEquals("This will be unchanged", merged.get("content"));
+        // the target is not modified
+        assertEquals(Arrays.asList("example", "sample"), target.get("tags"));
+    }
+
+    @Test
+    public void test_apply_sharesUnpatchedMaps() {
+        Map<String, Object> devices = Collections.singletonMap("push", true);
+        Map<String, Object> target = new HashMap<>();
+        target.put("devices", devices);
+        target.put("language", "en");
+
+        Map<String, Object> merged =
+                MergePatch.apply(target, Collections.singletonMap("language", "fr"));
+        assertSame(devices, merged.get("devices"));
+        assertEquals("en", target.get("language"));
+    }
+
+    @Test
+    public void test_apply_replacesValueNotAMap() {
+        Map<String, Object> patch = new HashMap<>();
+        patch.put("a", Collections.singletonMap("b", "c"));
+        patch.put("d", null);
+        assertEquals(
+                Collections.singletonMap("a", Collections.singletonMap("b", "c")),
+                MergePatch.apply("scalar", patch));
+    }
+}
@@ -0,0 +1,222 @@
+/*
+  Copyright 2026 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile.userprofile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@SuppressWarnings({"rawtypes", "unchecked"})
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class PersistSchedulerTests {
+
+    @Mock private ProfileData profileData;
+    @Mock private ScheduledExecutorService executor;
+    @Mock private ScheduledFuture scheduledFuture;
+    private PersistScheduler persistScheduler;
+
+    @Before
+    public void setup() {
+        reset(profileData, executor, scheduledFuture);
+        when(profileData.persist()).thenReturn(true);
+        when(executor.schedule(any(Runnable.class), anyLong(), any(TimeUnit.class)))
+                .thenReturn(scheduledFuture);
+        persistScheduler = new PersistScheduler(profileData, executor);
+    }
+
+    @Test
+    public void test_requestPersist_writeThroughByDefault() {
+        assertTrue(persistScheduler.requestPersist());
+        verify(profileData, times(1)).persist();
+        verify(executor, never()).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+    }
+
+    @Test
+    public void test_requestPersist_writeThroughFailure() {
+        when(profileData.persist()).thenReturn(false);
+        assertFalse(persistScheduler.requestPersist());
+    }
+
+    @Test
+    public void test_requestPersist_coalescesWritesWithinWindow() {
+        persistScheduler.configure(500, 5000, false);
+        ArgumentCaptor<Runnable> flushCaptor = ArgumentCaptor.forClass(Runnable.class);
+        ArgumentCaptor<Long> delayCaptor = ArgumentCaptor.forClass(Long.class);
+
+        assertTrue(persistScheduler.requestPersist());
+        assertTrue(persistScheduler.requestPersist());
+        assertTrue(persistScheduler.requestPersist());
+        verify(profileData, never()).persist();
+        verify(executor, times(3))
+                .schedule(flushCaptor.capture(), delayCaptor.capture(), eq(TimeUnit.MILLISECONDS));
+        assertTrue(delayCaptor.getValue() <= 500);
+        // a new request reschedules the pending write
+        verify(scheduledFuture, times(2)).cancel(false);
+
+        flushCaptor.getValue().run();
+        verify(profileData, times(1)).persist();
+        assertEquals(2, persistScheduler.getAbsorbedWrites());
+        assertEquals(1, persistScheduler.getFlushCount());
+    }
+
+    @Test
+    public void test_requestPersist_delayBoundedByMaxDelay() {
+        persistScheduler.configure(500, 100, false);
+        ArgumentCaptor<Long> delayCaptor = ArgumentCaptor.forClass(Long.class);
+        persistScheduler.requestPersist();
+        verify(executor)
+                .schedule(any(Runnable.class), delayCaptor.capture(), eq(TimeUnit.MILLISECONDS));
+        // the max delay cannot be smaller than the window
+        assertEquals(500L, (long) delayCaptor.getValue());
+    }
+
+    @Test
+    public void test_flush_withoutPendingChanges() {
+        assertTrue(persistScheduler.flush());
+        verify(profileData, never()).persist();
+    }
+
+    @Test
+    public void test_flush_failureKeepsChangesPending() {
+        persistScheduler.configure(500, 5000, false);
+        persistScheduler.requestPersist();
+        when(profileData.persist()).thenReturn(false);
+        assertFalse(persistScheduler.flush());
+        assertEquals(0, persistScheduler.getFlushCount());
+
+        when(profileData.persist()).thenReturn(true);
+        assertTrue(persistScheduler.flush());
+        verify(profileData, times(2)).persist();
+        assertEquals(1, persistScheduler.getFlushCount());
+    }
+
+    @Test
+    public void test_configure_disablingWindowFlushesPendingChanges() {
+        persistScheduler.configure(500, 5000, false);
+        persistScheduler.requestPersist();
+        verify(profileData, never()).persist();
+        persistScheduler.configure(0, 5000, false);
+        verify(profileData, times(1)).persist();
+    }
+
+    @Test
+    public void test_shutdown() {
+        persistScheduler.configure(500, 5000, false);
+        persistScheduler.requestPersist();
+        persistScheduler.shutdown();
+        verify(profileData, times(1)).persist();
+        verify(executor, times(1)).shutdown();
+    }
+
+    @Test
+    public void test_requestPersist_asyncWrites() {
+        persistScheduler.configure(0, 5000, true);
+        ArgumentCaptor<Runnable> flushCaptor = ArgumentCaptor.forClass(Runnable.class);
+        assertTrue(persistScheduler.requestPersist());
+        verify(profileData, never()).persist();
+        verify(executor).schedule(flushCaptor.capture(), eq(0L), eq(TimeUnit.MILLISECONDS));
+
+        flushCaptor.getValue().run();
+        verify(profileData, times(1)).persist();
+        assertEquals(1, persistScheduler.getFlushCount());
+    }
+
+    @Test
+    public void test_requestPersist_asyncWriteFailureIsRetried() {
+        persistScheduler.configure(0, 5000, true);
+        ArgumentCaptor<Runnable> flushCaptor = ArgumentCaptor.forClass(Runnable.class);
+        persistScheduler.requestPersist();
+        verify(executor).schedule(flushCaptor.capture(), eq(0L), eq(TimeUnit.MILLISECONDS));
+
+        when(profileData.persist()).thenReturn(false);
+        flushCaptor.getValue().run();
+        assertEquals(0, persistScheduler.getFlushCount());
+        // the changes stay pending, and are written again without waiting for another change
+        verify(executor)
+                .schedule(
+                        flushCaptor.capture(),
+                        eq(UserProfileConstants.PERSIST_RETRY_DELAY_MS),
+                        eq(TimeUnit.MILLISECONDS));
+
+        when(profileData.persist()).thenReturn(true);
+        flushCaptor.getValue().run();
+        verify(profileData, times(2)).persist();
+        assertEquals(1, persistScheduler.getFlushCount());
+    }
+
+    @Test
+    public void test_configure_disablingAsyncWritesFlushesPendingChanges() {
+        persistScheduler.configure(0, 5000, true);
+        persistScheduler.requestPersist();
+        verify(profileData, never()).persist();
+        persistScheduler.configure(0, 5000, false);
+        verify(profileData, times(1)).persist();
+    }
+
+    @Test
+    public void test_flush_waitsForBackgroundWrite() throws Exception {
+        CountDownLatch writeStarted = new CountDownLatch(1);
+        CountDownLatch releaseWrite = new CountDownLatch(1);
+        when(profileData.persist())
+                .thenAnswer(
+                        invocation -> {
+                            writeStarted.countDown();
+                            return releaseWrite.await(5, TimeUnit.SECONDS);
+                        });
+        persistScheduler.configure(0, 5000, true);
+        ArgumentCaptor<Runnable> flushCaptor = ArgumentCaptor.forClass(Runnable.class);
+        persistScheduler.requestPersist();
+        verify(executor).schedule(flushCaptor.capture(), anyLong(), any(TimeUnit.class));
+
+        ExecutorService threads = Executors.newFixedThreadPool(2);
+        try {
+            threads.execute(flushCaptor.getValue());
+            assertTrue(writeStarted.await(5, TimeUnit.SECONDS));
+            Future<Boolean> barrier = threads.submit(persistScheduler::flush);
+            try {
+                barrier.get(100, TimeUnit.MILLISECONDS);
+                fail("The flush returned before the background write completed");
+            } catch (TimeoutException e) {
+                // still waiting for the background write
+            }
+            releaseWrite.countDown();
+            assertTrue(barrier.get(5, TimeUnit.SECONDS));
+        } finally {
+            threads.shutdown();
+        }
+        verify(profileData, times(1)).persist();
+    }
+}
@@ -0,0 +1,116 @@
+/*
+  Copyright 2026 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile.userprofile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+
+public class PersistentProfileMapTests {
+
+    @Test
+    public void test_with() {
+        PersistentProfileMap map =
+                PersistentProfileMap.EMPTY.with("key1", "value1").with("key2", 2);
+        assertEquals(2, map.size());
+        assertEquals("value1", map.get("key1"));
+        assertEquals(2, map.get("key2"));
+        assertTrue(map.containsKey("key1"));
+        assertFalse(map.containsKey("key3"));
+        assertNull(map.get("key3"));
+
+        PersistentProfileMap updated = map.with("key1", "updated");
+        assertEquals(2, updated.size());
+        assertEquals("updated", updated.get("key1"));
+    }
+
+    @Test
+    public void test_with_leavesPreviousVersionUnchanged() {
+        PersistentProfileMap first = PersistentProfileMap.EMPTY.with("key1", "value1");
+        PersistentProfileMap second = first.with("key2", "value2").without("key1");
+        assertEquals(1, first.size());
+        assertEquals("value1", first.get("key1"));
+        assertFalse(first.containsKey("key2"));
+        assertEquals(1, second.size());
+        assertEquals("value2", second.get("key2"));
+    }
+
+    @Test
+    public void test_with_sameValueReturnsSameMap() {
+        String value = "value1";
+        PersistentProfileMap map = PersistentProfileMap.EMPTY.with("key1", value);
+        assertSame(map, map.with("key1", value));
+    }
+
+    @Test
+    public void test_without() {
+        PersistentProfileMap map =
+                PersistentProfileMap.EMPTY.with("key1", "value1").with("key2", "value2");
+        assertSame(map, map.without("key3"));
+        PersistentProfileMap removed = map.without("key1");
+        assertEquals(1, removed.size());
+        assertFalse(removed.containsKey("key1"));
+        assertSame(PersistentProfileMap.EMPTY, removed.without("key2"));
+    }
+
+    @Test
+    public void test_collidingKeys() {
+        // "Aa" and "BB" have the same hash code
+        PersistentProfileMap map =
+                PersistentProfileMap.EMPTY.with("Aa", "value1").with("BB", "value2");
+        assertEquals(2, map.size());
+        assertEquals("value1", map.get("Aa"));
+        assertEquals("value2", map.get("BB"));
+        assertEquals("value3", map.with("BB", "value3").get("BB"));
+
+        PersistentProfileMap removed = map.without("Aa");
+        assertEquals(1, removed.size());
+        assertNull(removed.get("Aa"));
+        assertEquals("value2", removed.get("BB"));
+        assertEquals(map, PersistentProfileMap.of(new HashMap<>(map)));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void test_put_unsupported() {
+        PersistentProfileMap.EMPTY.with("key1", "value1").put("key2", "value2");
+    }
+
+    @Test
+    public void test_randomUpdates_matchHashMap() {
+        Random random = new Random(7);
+        Map<String, Object> expected = new HashMap<>();
+        PersistentProfileMap map = PersistentProfileMap.EMPTY;
+        for (int i = 0; i < 20000; i++) {
+            // a small key space, so that keys are often replaced and removed
+            String key = "key" + random.nextInt(2000);
+            if (random.nextInt(3) == 0) {
+                expected.remove(key);
+                map = map.without(key);
+            } else {
+                expected.put(key, i);
+                map = map.with(key, i);
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        assertEquals(expected, map);
+        assertEquals(map, expected);
+        assertEquals(expected.hashCode(), map.hashCode());
+        assertEquals(expected, new HashMap<>(map));
+    }
+}
@@ -0,0 +1,100 @@
+/*
+  Copyright 2026 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile.userprofile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.json.JSONObject;
+import org.junit.Test;
+
+public class ProfileBinaryCodecTests {
+
+    @Test
+    public void test_roundTrip() throws IOException {
+        Map<String, Object> nested = new HashMap<>();
+        nested.put("int", 42);
+        nested.put("negative", -7);
+        nested.put("double", 0.25);
+        nested.put("wholeDouble", 2.0);
+        nested.put("string", "line\nbreak \u00e9\u2603");
+        nested.put("empty", "");
+        Map<String, Object> data = new HashMap<>();
+        data.put("nested", nested);
+        data.put("long", Long.MAX_VALUE);
+        data.put("min", Long.MIN_VALUE);
+        data.put("true", true);
+        data.put("false", false);
+        data.put("emptyMap", new HashMap<String, Object>());
+        data.put("null", JSONObject.NULL);
+        assertEquals(data, ProfileBinaryCodec.decode(ProfileBinaryCodec.encode(data)));
+    }
+
+    @Test
+    public void test_listsAreSkipped() throws IOException {
+        Map<String, Object> data = new HashMap<>();
+        data.put("list", Arrays.asList(1, Collections.singletonMap("a", "b"), "c"));
+        data.put("array", new int[] {1, 2});
+        data.put("key", "value");
+        assertEquals(
+                Collections.singletonMap("key", "value"),
+                ProfileBinaryCodec.decode(ProfileBinaryCodec.encode(data)));
+    }
+
+    @Test
+    public void test_smallerThanJson() {
+        Map<String, Object> data = new HashMap<>();
+        for (int i = 0; i < 100; i++) {
+            Map<String, Object> message = new HashMap<>();
+            message.put("count", i);
+            message.put("clicked", i % 2 == 0);
+            data.put("message" + i, message);
+        }
+        byte[] binary = ProfileBinaryCodec.encode(data);
+        byte[] json = new ProfileJsonEncoder().encode(data).getBytes(StandardCharsets.UTF_8);
+        assertTrue(binary.length * 2 < json.length);
+    }
+
+    @Test
+    public void test_decode_jsonFallback() throws IOException {
+        byte[] json = "{\"key\":{\"inner\":1}}".getBytes(StandardCharsets.UTF_8);
+        assertEquals(
+                Collections.singletonMap("key", Collections.singletonMap("inner", 1)),
+                ProfileBinaryCodec.decode(json));
+    }
+
+    @Test(expected = IOException.class)
+    public void test_decode_unsupportedVersion() throws IOException {
+        byte[] bytes = ProfileBinaryCodec.encode(Collections.singletonMap("key", "value"));
+        bytes[ProfileBinaryCodec.MAGIC.length] = 2;
+        ProfileBinaryCodec.decode(bytes);
+    }
+
+    @Test
+    public void test_decode_truncated() {
+        byte[] bytes = ProfileBinaryCodec.encode(Collections.singletonMap("key", "value"));
+        for (int length = 0; length < bytes.length; length++) {
+            try {
+                ProfileBinaryCodec.decode(Arrays.copyOf(bytes, length));
+                throw new AssertionError("Expected an IOException for length " + length);
+            } catch (IOException e) {
+                // expected
+            }
+        }
+    }
+}
@@ -0,0 +1,216 @@
+/*
+  Copyright 2026 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile.userprofile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Simulates the process dying or the storage being damaged while {@link ProfileData} persists the
+ * profile with the {@code snapshot} storage mode, and checks what a new {@link ProfileData} loads
+ * on the next launch.
+ */
+public class ProfileDataFaultInjectionTests {
+
+    /** What happens to the slot file replaced by the next persist. */
+    private enum Fault {
+        NONE,
+        /** The process dies before the slot file is replaced. */
+        LOST_WRITE,
+        /** The device loses power before the new slot file fully reaches the disk. */
+        TORN_WRITE,
+        /** The slot file is written with one damaged byte. */
+        CORRUPTED_WRITE
+    }
+
+    @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    private final InMemoryNamedCollection namedCollection = new InMemoryNamedCollection();
+    private final Random random = new Random(42);
+    private File directory;
+
+    @Before
+    public void setup() throws IOException {
+        directory = temporaryFolder.newFolder();
+    }
+
+    @Test
+    public void test_lostWrite_keepsPreviousProfile() throws IOException {
+        ProfileData profileData = createProfileData();
+        update(profileData, "key", "value1");
+        persist(profileData, Fault.NONE);
+
+        update(profileData, "key", "value2");
+        persist(profileData, Fault.LOST_WRITE);
+
+        assertEquals(profile("key", "value1"), relaunch());
+    }
+
+    @Test
+    public void test_tornWrite_recoversPreviousSnapshot() throws IOException {
+        ProfileData profileData = createProfileData();
+        update(profileData, "key", "value1");
+        persist(profileData, Fault.NONE);
+        update(profileData, "key", "value2");
+        persist(profileData, Fault.NONE);
+
+        update(profileData, "key", "value3");
+        persist(profileData, Fault.TORN_WRITE);
+
+        assertEquals(profile("key", "value2"), relaunch());
+    }
+
+    @Test
+    public void test_corruptedWrite_recoversPreviousSnapshot() throws IOException {
+        ProfileData profileData = createProfileData();
+        update(profileData, "key", "value1");
+        persist(profileData, Fault.NONE);
+
+        update(profileData, "key", "value2");
+        persist(profileData, Fault.CORRUPTED_WRITE);
+
+        assertEquals(profile("key", "value1"), relaunch());
+    }
+
+    @Test
+    public void test_writeAfterRecovery_keepsRecoveredSnapshot() throws IOException {
+        ProfileData profileData = createProfileData();
+        update(profileData, "key", "value1");
+        persist(profileData, Fault.NONE);
+        update(profileData, "key", "value2");
+        persist(profileData, Fault.TORN_WRITE);
+
+        ProfileData relaunched = createProfileData();
+        // the next write replaces the torn snapshot, not the recovered one
+        update(relaunched, "key", "value3");
+        persist(relaunched, Fault.TORN_WRITE);
+
+        assertEquals(profile("key", "value1"), relaunch());
+    }
+
+    @Test
+    public void test_bothSnapshotsCorrupted_loadFails() throws IOException {
+        ProfileData profileData = createProfileData();
+        update(profileData, "key", "value1");
+        persist(profileData, Fault.CORRUPTED_WRITE);
+        update(profileData, "key", "value2");
+        persist(profileData, Fault.CORRUPTED_WRITE);
+
+        assertFalse(new ProfileData(namedCollection, directory).loadPersistenceData());
+    }
+
+    @Test
+    public void test_randomFaults_alwaysRecoverLastCompleteProfile() throws IOException {
+        ProfileData profileData = createProfileData();
+        Map<String, Object> durable = new HashMap<>();
+        for (int i = 0; i < 200; i++) {
+            Fault fault = Fault.values()[random.nextInt(Fault.values().length)];
+            update(profileData, "key" + random.nextInt(20), "value" + i);
+            persist(profileData, fault);
+            if (fault == Fault.NONE) {
+                durable = new HashMap<>(profileData.getMap());
+            }
+            assertEquals(durable, relaunch());
+            if (fault != Fault.NONE) {
+                // continue from what the next launch sees
+                profileData = createProfileData();
+            }
+        }
+    }
+
+    /** Persists the profile, then applies the given fault to the slot file which was replaced. */
+    private void persist(final ProfileData profileData, final Fault fault) throws IOException {
+        Map<File, byte[]> before = readSlots();
+        assertTrue(profileData.persist());
+        File written = null;
+        for (Map.Entry<File, byte[]> slot : readSlots().entrySet()) {
+            if (!Arrays.equals(slot.getValue(), before.get(slot.getKey()))) {
+                written = slot.getKey();
+            }
+        }
+        assertNotNull(written);
+        byte[] content = FileUtils.readBytes(written);
+        switch (fault) {
+            case LOST_WRITE:
+                if (before.containsKey(written)) {
+                    writeFile(written, before.get(written));
+                } else {
+                    assertTrue(written.delete());
+                }
+                break;
+            case TORN_WRITE:
+                writeFile(written, Arrays.copyOf(content, random.nextInt(content.length)));
+                break;
+            case CORRUPTED_WRITE:
+                content[random.nextInt(content.length)] ^= 0x01;
+                writeFile(written, content);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private Map<File, byte[]> readSlots() throws IOException {
+        Map<File, byte[]> slots = new HashMap<>();
+        for (int slot = 0; slot < SnapshotProfileStore.SLOT_COUNT; slot++) {
+            File file = new File(directory, SnapshotProfileStore.SLOT_FILE_PREFIX + slot);
+            if (file.exists()) {
+                slots.put(file, FileUtils.readBytes(file));
+            }
+        }
+        return slots;
+    }
+
+    private static void writeFile(final File file, final byte[] content) throws IOException {
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(content);
+        }
+    }
+
+    private ProfileData createProfileData() {
+        ProfileData profileData = new ProfileData(namedCollection, directory);
+        assertTrue(profileData.loadPersistenceData());
+        profileData.setStorageMode(UserProfileConstants.StorageMode.SNAPSHOT);
+        return profileData;
+    }
+
+    private Map<String, Object> relaunch() {
+        ProfileData profileData = new ProfileData(namedCollection, directory);
+        assertTrue(profileData.loadPersistenceData());
+        return new HashMap<>(profileData.getMap());
+    }
+
+    private static void update(
+            final ProfileData profileData, final String key, final Object value) {
+        profileData.updateOrDelete(profile(key, value));
+    }
+
+    private static Map<String, Object> profile(final String key, final Object value) {
+        Map<String, Object> profile = new HashMap<>();
+        profile.put(key, value);
+        return profile;
+    }
+}
@@ -15,19 +15,39 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 import com.adobe.marketing.mobile.services.NamedCollection;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
@@ -38,6 +58,7 @@ public class ProfileDataTests {
 
     private ProfileData profileData;
     @Mock private NamedCollection namedCollection;
+    @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
 
     @Before
     public void setup() {
@@ -227,4 +248,737 @@ public class ProfileDataTests {
         assertEquals(profileMap1, profileData.getMap());
         assertEquals("value1", profileData.get("key1"));
     }
+
+    @Test
+    public void test_setStorageMode_migratesToIncremental() {
+        profileData.updateOrDelete(
+                new HashMap<String, Object>() {
+                    {
+                        put("key1", "value1");
+                    }
+                });
+        assertTrue(profileData.setStorageMode("incremental"));
+        verify(namedCollection).setString("user_profile_attr.key1", "{\"key1\":\"value1\"}");
+        verify(namedCollection).setString("user_profile_keys", "[\"key1\"]");
+        verify(namedCollection).remove("user_profile");
+    }
+
+    @Test
+    public void test_setStorageMode_migratesToSharded() {
+        profileData.updateOrDelete(
+                new HashMap<String, Object>() {
+                    {
+                        put("key1", "value1");
+                    }
+                });
+        assertTrue(profileData.setStorageMode("sharded"));
+        verify(namedCollection).setString("user_profile_bucket.1.0", "{\"key1\":\"value1\"}");
+        verify(namedCollection).setInt("user_profile_buckets", 1);
+        verify(namedCollection).remove("user_profile");
+    }
+
+    @Test
+    public void test_setStorageMode_sameMode() {
+        assertTrue(profileData.setStorageMode("singleKey"));
+        verifyNoInteractions(namedCollection);
+    }
+
+    @Test
+    public void test_setStorageMode_unknownModeUsesSingleKey() {
+        assertTrue(profileData.setStorageMode("unknown"));
+        verifyNoInteractions(namedCollection);
+    }
+
+    @Test
+    public void test_loadPersistenceData_incrementalLayout() {
+        when(namedCollection.contains("user_profile_keys")).thenReturn(true);
+        when(namedCollection.getString("user_profile_keys", null)).thenReturn("[\"key1\"]");
+        when(namedCollection.getString("user_profile_attr.key1", null))
+                .thenReturn("{\"key1\":\"value1\"}");
+        assertTrue(profileData.loadPersistenceData());
+        assertEquals(
+                new HashMap<String, Object>() {
+                    {
+                        put("key1", "value1");
+                    }
+                },
+                profileData.getMap());
+
+        // following changes only write the updated attribute
+        profileData.updateOrDelete(
+                new HashMap<String, Object>() {
+                    {
+                        put("key1", "value2");
+                    }
+                });
+        assertTrue(profileData.persist());
+        verify(namedCollection).setString("user_profile_attr.key1", "{\"key1\":\"value2\"}");
+        verify(namedCollection, never()).setString(eq("user_profile"), any());
+        verify(namedCollection, never()).setString(eq("user_profile_keys"), any());
+    }
+
+    @Test
+    public void test_setStorageMode_journalWithoutDirectoryUsesSingleKey() {
+        assertTrue(profileData.setStorageMode("journal"));
+        verifyNoInteractions(namedCollection);
+    }
+
+    @Test
+    public void test_setStorageMode_migratesToJournal() throws IOException {
+        File directory = temporaryFolder.newFolder();
+        profileData = new ProfileData(namedCollection, directory);
+        profileData.updateOrDelete(
+                new HashMap<String, Object>() {
+                    {
+                        put("key1", "value1");
+                    }
+                });
+        assertTrue(profileData.setStorageMode("journal"));
+        assertTrue(new File(directory, JournalProfileStore.SNAPSHOT_FILE_NAME).exists());
+        verify(namedCollection).remove("user_profile");
+
+        // the journal layout is detected on the next launch
+        when(namedCollection.getString("user_profile", "{}")).thenReturn("{}");
+        ProfileData reloadedProfileData = new ProfileData(namedCollection, directory);
+        assertTrue(reloadedProfileData.loadPersistenceData());
+        assertEquals("value1", reloadedProfileData.get("key1"));
+    }
+
+    @Test
+    public void test_setStorageMode_migratesToBinary() throws IOException {
+        File directory = temporaryFolder.newFolder();
+        profileData = new ProfileData(namedCollection, directory);
+        when(namedCollection.getString("user_profile", "{}"))
+                .thenReturn("{\"key1\":\"value1\",\"key2\":{\"inner\":2}}");
+        when(namedCollection.contains("user_profile")).thenReturn(true);
+        assertTrue(profileData.loadPersistenceData());
+        assertTrue(profileData.setStorageMode("binary"));
+        assertTrue(new File(directory, BinaryProfileStore.PROFILE_FILE_NAME).exists());
+        verify(namedCollection).remove("user_profile");
+
+        when(namedCollection.contains("user_profile")).thenReturn(false);
+        ProfileData reloadedProfileData = new ProfileData(namedCollection, directory);
+        assertTrue(reloadedProfileData.loadPersistenceData());
+        assertEquals(profileData.getMap(), reloadedProfileData.getMap());
+    }
+
+    @Test
+    public void test_setLazyLoadingEnabled() {
+        assertFalse(profileData.isLazyLoadingEnabled());
+        profileData.setLazyLoadingEnabled(true);
+        verify(namedCollection).setBoolean("user_profile_lazy_load", true);
+
+        when(namedCollection.getBoolean("user_profile_lazy_load", false)).thenReturn(true);
+        assertTrue(profileData.isLazyLoadingEnabled());
+        // the setting is only written when it changes
+        profileData.setLazyLoadingEnabled(true);
+        verify(namedCollection).setBoolean("user_profile_lazy_load", true);
+    }
+
+    @Test
+    public void test_updateOrDelete_reportsChangedKeys() {
+        Map<String, Object> nested = new HashMap<>();
+        nested.put("inner", 1);
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put("key1", "value1");
+        attributes.put("key2", nested);
+        assertEquals(attributes.keySet(), profileData.updateOrDelete(attributes));
+        assertTrue(profileData.persist());
+
+        // equal values, including an equal nested map, are not changes
+        Map<String, Object> sameAttributes = new HashMap<>();
+        sameAttributes.put("key1", "value1");
+        sameAttributes.put("key2", new HashMap<>(nested));
+        sameAttributes.put("missing", null);
+        assertTrue(profileData.updateOrDelete(sameAttributes).isEmpty());
+        reset(namedCollection);
+        assertTrue(profileData.persist());
+        verifyNoInteractions(namedCollection);
+
+        Map<String, Object> changedAttributes = new HashMap<>();
+        changedAttributes.put("key1", "value2");
+        changedAttributes.put("key2", null);
+        assertEquals(changedAttributes.keySet(), profileData.updateOrDelete(changedAttributes));
+    }
+
+    @Test
+    public void test_delete_reportsDeletedKeys() {
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put("key1", "value1");
+        profileData.updateOrDelete(attributes);
+        List<String> keys = new ArrayList<>();
+        keys.add("key1");
+        keys.add("missing");
+        assertEquals(1, profileData.delete(keys).size());
+        assertTrue(profileData.delete(keys).isEmpty());
+    }
+
+    @Test
+    public void test_persist_profileUpdatedDuringWrite() throws Exception {
+        CountDownLatch writeStarted = new CountDownLatch(1);
+        CountDownLatch releaseWrite = new CountDownLatch(1);
+        List<String> writtenJson = new ArrayList<>();
+        doAnswer(
+                        invocation -> {
+                            writtenJson.add(invocation.getArgument(1));
+                            writeStarted.countDown();
+                            releaseWrite.await(5, TimeUnit.SECONDS);
+                            return null;
+                        })
+                .when(namedCollection)
+                .setString(any(), any());
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put("key1", "value1");
+        profileData.updateOrDelete(attributes);
+        ExecutorService writer = Executors.newSingleThreadExecutor();
+        try {
+            Future<Boolean> write = writer.submit(profileData::persist);
+            assertTrue(writeStarted.await(5, TimeUnit.SECONDS));
+            // the profile is not locked while it is written
+            attributes.put("key1", "value2");
+            assertEquals(1, profileData.updateOrDelete(attributes).size());
+            assertEquals("value2", profileData.get("key1"));
+            releaseWrite.countDown();
+            assertTrue(write.get(5, TimeUnit.SECONDS));
+        } finally {
+            writer.shutdown();
+        }
+        assertEquals("{\"key1\":\"value1\"}", writtenJson.get(0));
+        // the change made during the write is written by the next call
+        assertTrue(profileData.persist());
+        assertEquals("{\"key1\":\"value2\"}", writtenJson.get(1));
+    }
+
+    @Test
+    public void test_persist_failedWriteIsRetried() {
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put("key1", "value1");
+        profileData.updateOrDelete(attributes);
+        doThrow(new RuntimeException("")).when(namedCollection).setString(any(), any());
+        assertFalse(profileData.persist());
+
+        reset(namedCollection);
+        ArgumentCaptor<String> jsonCaptor = ArgumentCaptor.forClass(String.class);
+        doNothing().when(namedCollection).setString(any(), jsonCaptor.capture());
+        assertTrue(profileData.persist());
+        assertEquals("{\"key1\":\"value1\"}", jsonCaptor.getValue());
+    }
+
+    @Test
+    public void test_reserveProfileVersions() {
+        when(namedCollection.getLong("user_profile_reserved_version", 0)).thenReturn(0L);
+        assertEquals(0, profileData.getReservedProfileVersion());
+        profileData.reserveProfileVersions(1000);
+        verify(namedCollection).setLong("user_profile_reserved_version", 1000);
+    }
+
+    @Test
+    public void test_setQuota_evictsLeastRecentlyUsedAttributes() {
+        List<Set<String>> evictions = new ArrayList<>();
+        profileData.setEvictionListener(evictions::add);
+        for (int i = 1; i <= 4; i++) {
+            Map<String, Object> attributes = new HashMap<>();
+            attributes.put("key" + i, "value" + i);
+            profileData.updateOrDelete(attributes);
+        }
+        // reading an attribute makes it recently used
+        profileData.get("key1");
+
+        Set<String> evictedKeys = profileData.setQuota(2, 0, 0);
+        assertEquals(new HashSet<>(Arrays.asList("key2", "key3")), evictedKeys);
+        assertEquals(new HashSet<>(Arrays.asList("key1", "key4")), profileData.getMap().keySet());
+        assertEquals(1, evictions.size());
+        assertEquals(evictedKeys, evictions.get(0));
+    }
+
+    @Test
+    public void test_updateOrDelete_evictsWhenAboveAttributeQuota() {
+        profileData.setQuota(2, 0, 0);
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put("key1", "value1");
+        attributes.put("key2", "value2");
+        profileData.updateOrDelete(attributes);
+
+        Map<String, Object> update = new HashMap<>();
+        update.put("key3", "value3");
+        // an evicted attribute is a change to persist and share
+        assertEquals(2, profileData.updateOrDelete(update).size());
+        assertEquals(2, profileData.getMap().size());
+        assertTrue(profileData.getMap().containsKey("key3"));
+    }
+
+    @Test
+    public void test_updateOrDelete_evictsWhenAboveProfileSizeQuota() {
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put("key1", "value1");
+        profileData.updateOrDelete(attributes);
+        attributes.clear();
+        attributes.put("key2", "value2");
+        profileData.updateOrDelete(attributes);
+        // {"key1":"value1","key2":"value2"} is 33 bytes
+        assertTrue(profileData.setQuota(0, 33, 0).isEmpty());
+        // the sizes tracked since the first call are kept when the quota is set again
+        assertTrue(profileData.setQuota(0, 33, 0).isEmpty());
+
+        attributes.clear();
+        attributes.put("key3", "value3");
+        profileData.updateOrDelete(attributes);
+        assertEquals(new HashSet<>(Arrays.asList("key2", "key3")), profileData.getMap().keySet());
+        assertEquals(
+                "{\"key2\":\"value2\",\"key3\":\"value3\"}".length(),
+                new ProfileJsonEncoder().encode(profileData.getMap()).length());
+    }
+
+    @Test
+    public void test_updateOrDelete_rejectsAttributeAboveSizeQuota() {
+        profileData.setQuota(0, 0, 16);
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put("key1", "short");
+        attributes.put("key2", "a value longer than the quota");
+        assertEquals(Collections.singleton("key1"), profileData.updateOrDelete(attributes));
+        assertNull(profileData.get("key2"));
+    }
+
+    @Test
+    public void test_updateOrDelete_attributeExpires() {
+        long[] now = {1000};
+        profileData.setClock(() -> now[0]);
+        Map<String, Object> expiring = new HashMap<>();
+        expiring.put("key1", "value1");
+        profileData.updateOrDelete(expiring, 60000);
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put("key2", "value2");
+        profileData.updateOrDelete(attributes);
+        assertEquals(61000, profileData.getNextExpirationTime());
+
+        now[0] = 60999;
+        assertEquals("value1", profileData.get("key1"));
+        assertTrue(profileData.purgeExpired().isEmpty());
+        now[0] = 61000;
+        assertNull(profileData.get("key1"));
+        assertEquals(Collections.singleton("key1"), profileData.purgeExpired());
+        assertEquals(Collections.singleton("key2"), profileData.getMap().keySet());
+        assertEquals(0, profileData.getNextExpirationTime());
+    }
+
+    @Test
+    public void test_updateOrDelete_rewriteChangesTimeToLive() {
+        long[] now = {1000};
+        profileData.setClock(() -> now[0]);
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put("key1", "value1");
+        profileData.updateOrDelete(attributes, 60000);
+
+        // the same value written again restarts the time to live
+        now[0] = 31000;
+        assertEquals(Collections.singleton("key1"), profileData.updateOrDelete(attributes, 60000));
+        assertEquals(91000, profileData.getNextExpirationTime());
+        // and is kept once written without a time to live
+        assertEquals(Collections.singleton("key1"), profileData.updateOrDelete(attributes));
+        assertEquals(0, profileData.getNextExpirationTime());
+        assertTrue(profileData.updateOrDelete(attributes).isEmpty());
+        now[0] = 200000;
+        assertEquals("value1", profileData.get("key1"));
+    }
+
+    @Test
+    public void test_updateOrDelete_removesExpiredAttributes() {
+        long[] now = {1000};
+        profileData.setClock(() -> now[0]);
+        Map<String, Object> expiring = new HashMap<>();
+        expiring.put("key1", "value1");
+        expiring.put("key2", "value2");
+        profileData.updateOrDelete(expiring, 1000);
+
+        now[0] = 5000;
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put("key3", "value3");
+        // the expired attributes are removed in the same batch as the update
+        assertEquals(
+                new HashSet<>(Arrays.asList("key1", "key2", "key3")),
+                profileData.updateOrDelete(attributes));
+        assertEquals(Collections.singleton("key3"), profileData.getMap().keySet());
+    }
+
+    @Test
+    public void test_findKeys() {
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put("cart.item.1", "shoes");
+        attributes.put("cart.item.2", "socks");
+        attributes.put("cart.total", 2);
+        attributes.put("pref.color", "blue");
+        attributes.put("pref.size", "M");
+        profileData.updateOrDelete(attributes);
+
+        assertEquals(
+                Arrays.asList("cart.item.1", "cart.item.2"), profileData.findKeys("cart.item.*"));
+        assertEquals(Arrays.asList("pref.color", "pref.size"), profileData.findKeys("pref.*"));
+        assertEquals(Arrays.asList("cart.item.2"), profileData.findKeys("cart.*.2"));
+        assertEquals(Arrays.asList("pref.size"), profileData.findKeys("pref.s?ze"));
+        assertEquals(5, profileData.findKeys("*").size());
+        assertTrue(profileData.findKeys("order.*").isEmpty());
+    }
+
+    @Test
+    public void test_findKeys_skipsExpiredAttributes() {
+        long[] now = {1000};
+        profileData.setClock(() -> now[0]);
+        profileData.updateOrDelete(Collections.singletonMap("pref.color", "blue"), 1000);
+        profileData.updateOrDelete(Collections.singletonMap("pref.size", "M"));
+
+        now[0] = 5000;
+        assertEquals(Arrays.asList("pref.size"), profileData.findKeys("pref.*"));
+    }
+
+    @Test
+    public void test_deleteMatching() {
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put("cart.item.1", "shoes");
+        attributes.put("cart.item.2", "socks");
+        attributes.put("cart.total", 2);
+        profileData.updateOrDelete(attributes);
+
+        assertEquals(
+                new HashSet<>(Arrays.asList("cart.item.1", "cart.item.2")),
+                profileData.deleteMatching(Collections.singletonList("cart.item.*")));
+        assertEquals(Collections.singleton("cart.total"), profileData.getMap().keySet());
+        assertTrue(profileData.findKeys("cart.item.*").isEmpty());
+        assertTrue(profileData.deleteMatching(Collections.singletonList("cart.item.*")).isEmpty());
+        // a key without wildcards is removed alone
+        assertEquals(
+                Collections.singleton("cart.total"),
+                profileData.deleteMatching(Collections.singletonList("cart.total")));
+    }
+
+    @Test
+    public void test_delete_literalKeyWithWildcards() {
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put("promo*", "spring");
+        attributes.put("promo.code", "SAVE10");
+        attributes.put("promo?", "summer");
+        profileData.updateOrDelete(attributes);
+
+        assertEquals(
+                Collections.singleton("promo*"),
+                profileData.delete(Collections.singletonList("promo*")));
+        assertEquals(
+                new HashSet<>(Arrays.asList("promo.code", "promo?")),
+                profileData.getMap().keySet());
+    }
+
+    @Test
+    public void test_persist_savesExpirations() {
+        InMemoryNamedCollection storage = spy(new InMemoryNamedCollection());
+        profileData = new ProfileData(storage);
+        long[] now = {1000};
+        profileData.setClock(() -> now[0]);
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put("key1", "value1");
+        profileData.updateOrDelete(attributes, 60000);
+        assertTrue(profileData.persist());
+        // restarting the time to live only writes the expirations
+        now[0] = 2000;
+        profileData.updateOrDelete(attributes, 60000);
+        assertTrue(profileData.persist());
+        verify(storage).setString(eq("user_profile"), any());
+
+        ProfileData relaunched = new ProfileData(storage);
+        relaunched.setClock(() -> now[0]);
+        assertTrue(relaunched.loadPersistenceData());
+        assertEquals(62000, relaunched.getNextExpirationTime());
+        now[0] = 62000;
+        assertEquals(Collections.singleton("key1"), relaunched.purgeExpired());
+        assertTrue(relaunched.persist());
+        assertFalse(storage.contains("user_profile_expirations"));
+    }
+
+    @Test
+    public void test_getMap_nestedMapsAreImmutable() {
+        Map<String, Object> preferences = new HashMap<>();
+        preferences.put("language", "en");
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put("preferences", preferences);
+        profileData.updateOrDelete(attributes);
+
+        // the map given by the caller is copied
+        preferences.put("language", "fr");
+        Map<?, ?> stored = (Map<?, ?>) profileData.getMap().get("preferences");
+        assertEquals("en", stored.get("language"));
+        try {
+            ((Map<String, Object>) stored).put("language", "fr");
+            fail("a nested map of the profile was modified");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void test_loadPersistenceData_nestedMapsAreImmutable() {
+        when(namedCollection.getString(eq("user_profile"), any()))
+                .thenReturn("{\"preferences\":{\"language\":\"en\"}}");
+        assertTrue(profileData.loadPersistenceData());
+        Map<?, ?> stored = (Map<?, ?>) profileData.getMap().get("preferences");
+        try {
+            ((Map<String, Object>) stored).remove("language");
+            fail("a nested map of the profile was modified");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        assertEquals("en", stored.get("language"));
+    }
+
+    @Test
+    public void test_getMap_snapshotNotAffectedByLaterUpdates() {
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put("key1", "value1");
+        profileData.updateOrDelete(attributes);
+        Map<String, Object> snapshot = profileData.getMap();
+
+        attributes.put("key1", "value2");
+        attributes.put("key2", "value2");
+        profileData.updateOrDelete(attributes);
+        profileData.delete(Collections.singletonList("key1"));
+        assertEquals(Collections.singletonMap("key1", "value1"), snapshot);
+        assertEquals(Collections.singletonMap("key2", "value2"), profileData.getMap());
+    }
+
+    @Test
+    public void test_updateOrDeletePaths() {
+        Map<String, Object> notifications = new HashMap<>();
+        notifications.put("email", true);
+        notifications.put("push", true);
+        Map<String, Object> preferences = new HashMap<>();
+        preferences.put("notifications", notifications);
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put("preferences", preferences);
+        attributes.put("key1", "value1");
+        profileData.updateOrDelete(attributes);
+        Map<String, Object> snapshot = profileData.getMap();
+
+        Map<String, Object> values = new HashMap<>();
+        values.put("preferences.notifications.email", false);
+        values.put("/preferences/language", "en");
+        // only the attribute containing the paths changed
+        assertEquals(Collections.singleton("preferences"), profileData.updateOrDeletePaths(values));
+        assertEquals(false, profileData.getPath("/preferences/notifications/email"));
+        assertEquals(true, profileData.getPath("preferences.notifications.push"));
+        assertEquals("en", profileData.getPath("preferences.language"));
+        assertEquals(
+                true,
+                AttributePath.get(
+                        snapshot.get("preferences"),
+                        AttributePath.parse("preferences.notifications.email")));
+
+        assertEquals(
+                Collections.singleton("preferences"),
+                profileData.deletePaths(Collections.singletonList("preferences.language")));
+        assertNull(profileData.getPath("preferences.language"));
+        assertTrue(
+                profileData
+                        .deletePaths(Collections.singletonList("preferences.language"))
+                        .isEmpty());
+        assertTrue(
+                profileData
+                        .updateOrDeletePaths(
+                                Collections.singletonMap("preferences.notifications.push", true))
+                        .isEmpty());
+    }
+
+    @Test
+    public void test_updateOrDeletePaths_createsAttributeAndKeepsTimeToLive() {
+        long[] now = {1000};
+        profileData.setClock(() -> now[0]);
+        profileData.updateOrDelete(Collections.singletonMap("cart", new HashMap<>()), 1000);
+
+        assertEquals(
+                new HashSet<>(Arrays.asList("cart", "preferences")),
+                profileData.updateOrDeletePaths(
+                        new HashMap<String, Object>() {
+                            {
+                                put("cart.total", 2);
+                                put("preferences.language", "en");
+                            }
+                        }));
+        assertEquals(2, profileData.getPath("cart.total"));
+        assertEquals("en", profileData.getPath("preferences.language"));
+
+        now[0] = 5000;
+        assertNull(profileData.getPath("cart.total"));
+        assertEquals("en", profileData.getPath("preferences.language"));
+    }
+
+    @Test
+    public void test_updateOrDeletePaths_skipsPathThroughValueNotAMap() {
+        profileData.updateOrDelete(Collections.singletonMap("language", "en"));
+        assertTrue(
+                profileData
+                        .updateOrDeletePaths(Collections.singletonMap("language.code", "fr"))
+                        .isEmpty());
+        assertTrue(
+                profileData.updateOrDeletePaths(Collections.singletonMap("a..b", "fr")).isEmpty());
+        assertEquals(Collections.singletonMap("language", "en"), profileData.getMap());
+    }
+
+    @Test
+    public void test_merge() {
+        long[] now = {1000};
+        profileData.setClock(() -> now[0]);
+        Map<String, Object> notifications = new HashMap<>();
+        notifications.put("email", true);
+        notifications.put("push", true);
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put("preferences", Collections.singletonMap("notifications", notifications));
+        attributes.put("key1", "value1");
+        attributes.put("key2", "value2");
+        profileData.updateOrDelete(attributes, 1000);
+        Map<String, Object> snapshot = profileData.getMap();
+
+        Map<String, Object> patch = new HashMap<>();
+        patch.put(
+                "preferences",
+                Collections.singletonMap(
+                        "notifications", Collections.singletonMap("email", false)));
+        patch.put("key1", null);
+        patch.put("key2", "value2");
+        // key2 already has the patched value
+        assertEquals(new HashSet<>(Arrays.asList("preferences", "key1")), profileData.merge(patch));
+        assertEquals(false, profileData.getPath("preferences.notifications.email"));
+        assertEquals(true, profileData.getPath("preferences.notifications.push"));
+        assertNull(profileData.get("key1"));
+        assertEquals(notifications, ((Map<?, ?>) snapshot.get("preferences")).get("notifications"));
+        assertTrue(profileData.merge(patch).isEmpty());
+
+        // the merged attributes keep their time to live
+        now[0] = 5000;
+        assertNull(profileData.get("preferences"));
+    }
+
+    @Test
+    public void test_applyCounterOperation() {
+        assertEquals(
+                Collections.singleton("visits"),
+                profileData.applyCounterOperation("visits", "increment", 1L));
+        profileData.applyCounterOperation("visits", "increment", 2L);
+        assertEquals(3L, profileData.get("visits"));
+
+        profileData.applyCounterOperation("bestScore", "max", 10L);
+        assertTrue(profileData.applyCounterOperation("bestScore", "max", 7L).isEmpty());
+        assertEquals(10L, profileData.get("bestScore"));
+
+        // an overflowing increment is not applied
+        profileData.updateOrDelete(Collections.singletonMap("big", Long.MAX_VALUE));
+        assertTrue(profileData.applyCounterOperation("big", "increment", 1L).isEmpty());
+        assertEquals(Long.MAX_VALUE, profileData.get("big"));
+    }
+
+    @Test
+    public void test_applyCounterOperation_nonFinite() {
+        profileData.updateOrDelete(Collections.singletonMap("score", Double.MAX_VALUE));
+        // neither a non-finite operand nor a result overflowing to infinity is applied
+        assertTrue(profileData.applyCounterOperation("score", "increment", Double.NaN).isEmpty());
+        assertTrue(
+                profileData
+                        .applyCounterOperation("score", "max", Double.POSITIVE_INFINITY)
+                        .isEmpty());
+        assertTrue(
+                profileData
+                        .applyCounterOperation("score", "increment", Double.MAX_VALUE)
+                        .isEmpty());
+        assertEquals(Double.MAX_VALUE, profileData.get("score"));
+
+        // so the profile can still be persisted
+        assertTrue(profileData.persist());
+        verify(namedCollection).setString(eq("user_profile"), any());
+    }
+
+    @Test
+    public void test_compareAndSet() {
+        assertEquals(0, profileData.getVersion("count"));
+        assertEquals(
+                Collections.singleton("count"), profileData.compareVersionAndSet("count", 0, 1));
+        long version = profileData.getVersion("count");
+        assertTrue(version > 0);
+        // a stale version is rejected
+        assertNull(profileData.compareVersionAndSet("count", 0, 5));
+        assertEquals(1, profileData.get("count"));
+
+        // the numbers are compared by value, whatever their type
+        assertEquals(Collections.singleton("count"), profileData.compareAndSet("count", 1L, 2));
+        assertTrue(profileData.getVersion("count") > version);
+        assertNull(profileData.compareAndSet("count", 1, 3));
+        assertEquals(2, profileData.get("count"));
+
+        // an attribute removed and written again does not get its previous version back
+        version = profileData.getVersion("count");
+        profileData.delete(Collections.singletonList("count"));
+        assertEquals(0, profileData.getVersion("count"));
+        profileData.updateOrDelete(Collections.singletonMap("count", 2));
+        assertNull(profileData.compareVersionAndSet("count", version, 3));
+    }
+
+    @Test
+    public void test_applyTransaction() {
+        Map<String, Object> profile = new HashMap<>();
+        profile.put("cart.item.1", "shoes");
+        profile.put("cart.item.2", "socks");
+        profile.put("visits", 1L);
+        profileData.updateOrDelete(profile);
+
+        List<Map<String, Object>> operations = new ArrayList<>();
+        operations.add(transactionOperation("removeMatching", "cart.item.*", null));
+        operations.add(transactionOperation("set", "cart.item.1", "hat"));
+        // removed as given, not as a pattern
+        operations.add(transactionOperation("remove", "visits*", null));
+        operations.add(transactionOperation("increment", "visits", 2L));
+        // a counter operation sees the previous operations
+        operations.add(transactionOperation("set", "count", 5L));
+        operations.add(transactionOperation("decrement", "count", 1L));
+        assertEquals(
+                new HashSet<>(Arrays.asList("cart.item.1", "cart.item.2", "visits", "count")),
+                profileData.applyTransaction(operations));
+
+        Map<String, Object> expected = new HashMap<>();
+        expected.put("cart.item.1", "hat");
+        expected.put("visits", 3L);
+        expected.put("count", 4L);
+        assertEquals(expected, profileData.getMap());
+    }
+
+    @Test
+    public void test_applyTransaction_rejectedWhenAnOperationFails() {
+        Map<String, Object> profile = new HashMap<>();
+        profile.put("cart.item.1", "shoes");
+        profile.put("visits", 1L);
+        profileData.updateOrDelete(profile);
+        long version = profileData.getVersion("cart.item.1");
+
+        List<Map<String, Object>> operations = new ArrayList<>();
+        operations.add(transactionOperation("removeMatching", "cart.item.*", null));
+        operations.add(transactionOperation("set", "cart.item.2", "hat"));
+        operations.add(transactionOperation("increment", "visits", 2L));
+        // overflows the staged value only
+        operations.add(transactionOperation("increment", "visits", Long.MAX_VALUE - 1));
+        assertTrue(profileData.applyTransaction(operations).isEmpty());
+
+        assertEquals(profile, profileData.getMap());
+        assertEquals(version, profileData.getVersion("cart.item.1"));
+        assertEquals(Collections.singletonList("cart.item.1"), profileData.findKeys("cart.*"));
+
+        // a value exceeding the attribute quota rejects the transaction too
+        profileData.setQuota(0, 0, 16);
+        operations.clear();
+        operations.add(transactionOperation("remove", "visits", null));
+        operations.add(transactionOperation("set", "cart.item.2", "a value too large"));
+        assertTrue(profileData.applyTransaction(operations).isEmpty());
+        assertEquals(profile, profileData.getMap());
+    }
+
+    private static Map<String, Object> transactionOperation(
+            final String name, final String key, final Object value) {
+        Map<String, Object> operation = new HashMap<>();
+        operation.put("operation", name);
+        operation.put("key", key);
+        operation.put("value", value);
+        return operation;
+    }
 }
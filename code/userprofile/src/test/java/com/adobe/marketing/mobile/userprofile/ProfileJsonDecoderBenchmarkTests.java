@@ -0,0 +1,109 @@
+/*
+  Copyright 2026 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile.userprofile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.HashMap;
+import java.util.Map;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+
+/**
+ * Compares the load latency and peak heap usage of {@link ProfileJsonDecoder} with the previous
+ * {@link JSONObject} based decoding, for profiles from 1 KB to 5 MB. It is skipped unless the tests
+ * run with the {@code userProfile.benchmark} Gradle property set to {@code true}.
+ */
+public class ProfileJsonDecoderBenchmarkTests {
+
+    private static final int[] PROFILE_SIZES = {1024, 64 * 1024, 1024 * 1024, 5 * 1024 * 1024};
+    private static final int ITERATIONS = 10;
+
+    @Test
+    public void benchmark_decode() throws JSONException {
+        assumeTrue(Boolean.getBoolean("userProfile.benchmark"));
+        for (int size : PROFILE_SIZES) {
+            String json = createProfileJson(size);
+            assertEquals(decodeWithJSONObject(json), ProfileJsonDecoder.decode(json));
+
+            long jsonObjectNanos = 0;
+            long streamingNanos = 0;
+            long jsonObjectPeak = 0;
+            long streamingPeak = 0;
+            for (int i = 0; i < ITERATIONS; i++) {
+                resetPeakUsage();
+                long start = System.nanoTime();
+                decodeWithJSONObject(json);
+                jsonObjectNanos += System.nanoTime() - start;
+                jsonObjectPeak = Math.max(jsonObjectPeak, peakUsage());
+
+                resetPeakUsage();
+                start = System.nanoTime();
+                ProfileJsonDecoder.decode(json);
+                streamingNanos += System.nanoTime() - start;
+                streamingPeak = Math.max(streamingPeak, peakUsage());
+            }
+            System.out.printf(
+                    "%8d bytes | JSONObject: %8.3f ms, peak %6d KB | streaming: %8.3f ms, peak"
+                            + " %6d KB%n",
+                    json.length(),
+                    jsonObjectNanos / 1e6 / ITERATIONS,
+                    jsonObjectPeak / 1024,
+                    streamingNanos / 1e6 / ITERATIONS,
+                    streamingPeak / 1024);
+        }
+    }
+
+    private static Map<String, Object> decodeWithJSONObject(final String json)
+            throws JSONException {
+        return JSONUtils.convertJsonObjectToNestedMap(new JSONObject(json));
+    }
+
+    private static String createProfileJson(final int size) {
+        Map<String, Object> profile = new HashMap<>();
+        int i = 0;
+        while (new JSONObject(profile).toString().length() < size) {
+            for (int j = 0; j < 100; j++, i++) {
+                Map<String, Object> nested = new HashMap<>();
+                nested.put("count", i);
+                nested.put("ratio", i / 3.0);
+                nested.put("name", "attribute value " + i);
+                profile.put("key" + i, i % 2 == 0 ? "value " + i : nested);
+            }
+        }
+        return new JSONObject(profile).toString();
+    }
+
+    private static void resetPeakUsage() {
+        System.gc();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    private static long peakUsage() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+}
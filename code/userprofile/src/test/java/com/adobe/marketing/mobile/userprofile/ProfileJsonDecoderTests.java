@@ -0,0 +1,157 @@
+/*
+  Copyright 2026 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile.userprofile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Map;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+
+public class ProfileJsonDecoderTests {
+
+    @Test
+    public void test_basicTypes() throws JSONException {
+        String json =
+                "{\"key1\":\"value\",\"key2\":1,\"key3\":1.2,\"key4\":true,\"key5\":false,"
+                        + "\"key6\":12345678901,\"key7\":-1e3,\"key8\":null}";
+        Map<String, Object> map = ProfileJsonDecoder.decode(json);
+        assertEquals("value", map.get("key1"));
+        assertEquals(1, map.get("key2"));
+        assertEquals(1.2, map.get("key3"));
+        assertEquals(true, map.get("key4"));
+        assertEquals(false, map.get("key5"));
+        assertEquals(12345678901L, map.get("key6"));
+        assertEquals(-1000.0, map.get("key7"));
+        assertEquals(JSONObject.NULL, map.get("key8"));
+    }
+
+    @Test
+    public void test_mapAsValue() throws JSONException {
+        String json = " { \"key1\" : \"value\" ,\n \"key2\" : {\"key1\":\"value\",\"key2\":{}} }\n";
+        Map<String, Object> map = ProfileJsonDecoder.decode(json);
+        assertEquals("value", map.get("key1"));
+        assertEquals(
+                new HashMap<String, Object>() {
+                    {
+                        put("key1", "value");
+                        put("key2", new HashMap<String, Object>());
+                    }
+                },
+                map.get("key2"));
+    }
+
+    @Test
+    public void test_arrayAsValue() throws JSONException {
+        String json = "{\"key\":[\"Ford\",[1,2],{\"a\":[]}],\"key2\":\"value\"}";
+        Map<String, Object> map = ProfileJsonDecoder.decode(json);
+        assertEquals(1, map.size());
+        assertEquals("value", map.get("key2"));
+    }
+
+    @Test
+    public void test_escapedStrings() throws JSONException {
+        String json = "{\"k\\\"ey\":\"a\\\\b\\/c\\n\\t\\u00e9\\u2603\"}";
+        Map<String, Object> map = ProfileJsonDecoder.decode(json);
+        assertEquals("a\\b/c\n\t\u00e9\u2603", map.get("k\"ey"));
+    }
+
+    @Test
+    public void test_longStringAcrossBuffers() throws JSONException, IOException {
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            value.append(i % 10);
+        }
+        String json = new JSONObject(singletonMap("key", value + "\"")).toString();
+        assertEquals(value + "\"", ProfileJsonDecoder.decode(new StringReader(json)).get("key"));
+    }
+
+    @Test
+    public void test_decodeMembers() throws JSONException, IOException {
+        String json = "{\"key1\":\"value\",\"key2\":{\"a\":1},\"key3\":[1],\"key4\":null}";
+        Map<String, Object> members = new HashMap<>();
+        assertTrue(
+                ProfileJsonDecoder.decodeMembers(
+                        new StringReader(json),
+                        (key, value) -> {
+                            members.put(key, value);
+                            return true;
+                        }));
+        assertEquals(3, members.size());
+        assertEquals(1, ((Map<?, ?>) members.get("key2")).get("a"));
+        assertEquals(JSONObject.NULL, members.get("key4"));
+
+        // the handler can stop the decoding, the rest of the input is not read
+        members.clear();
+        assertFalse(
+                ProfileJsonDecoder.decodeMembers(
+                        new StringReader("{\"key1\":1,\"key2\":2,invalid"),
+                        (key, value) -> {
+                            members.put(key, value);
+                            return members.size() < 2;
+                        }));
+        assertEquals(2, members.size());
+    }
+
+    @Test
+    public void test_matchesJSONObjectConversion() throws JSONException {
+        Map<String, Object> nested = new HashMap<>();
+        nested.put("int", 42);
+        nested.put("double", 0.5);
+        nested.put("string", "line\nbreak");
+        Map<String, Object> data = new HashMap<>();
+        data.put("nested", nested);
+        data.put("long", Long.MAX_VALUE);
+        data.put("bool", true);
+        String json = new JSONObject(data).toString();
+        assertEquals(
+                JSONUtils.convertJsonObjectToNestedMap(new JSONObject(json)),
+                ProfileJsonDecoder.decode(json));
+    }
+
+    @Test
+    public void test_invalidJson() {
+        String[] invalidInputs = {
+            "",
+            "[]",
+            "{",
+            "{\"key\"}",
+            "{\"key\":}",
+            "{\"key\":tru}",
+            "{\"key\":\"value}",
+            "{\"key\":1,}",
+            "{\"key\":1} trailing",
+            "{\"key\":\"\\x\"}",
+            "{key:1}"
+        };
+        for (String input : invalidInputs) {
+            try {
+                ProfileJsonDecoder.decode(input);
+                throw new AssertionError("Expected a JSONException for " + input);
+            } catch (JSONException e) {
+                assertTrue(e.getMessage() != null);
+            }
+        }
+    }
+
+    private static Map<String, Object> singletonMap(final String key, final Object value) {
+        Map<String, Object> map = new HashMap<>();
+        map.put(key, value);
+        return map;
+    }
+}
@@ -0,0 +1,95 @@
+/*
+  Copyright 2026 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile.userprofile;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+
+public class ProfileJsonEncoderTests {
+
+    private final ProfileJsonEncoder encoder = new ProfileJsonEncoder();
+
+    @Test
+    public void test_basicTypes() {
+        assertEquals(
+                "{\"key\":\"value\"}", encoder.encode(Collections.singletonMap("key", "value")));
+        assertEquals("{\"key\":1}", encoder.encode(Collections.singletonMap("key", 1)));
+        assertEquals(
+                "{\"key\":12345678901}",
+                encoder.encode(Collections.singletonMap("key", 12345678901L)));
+        assertEquals("{\"key\":1.5}", encoder.encode(Collections.singletonMap("key", 1.5)));
+        assertEquals("{\"key\":2}", encoder.encode(Collections.singletonMap("key", 2.0)));
+        assertEquals("{\"key\":true}", encoder.encode(Collections.singletonMap("key", true)));
+        assertEquals("{}", encoder.encode(Collections.<String, Object>emptyMap()));
+    }
+
+    @Test
+    public void test_nestedValues() {
+        Map<String, Object> nested = new HashMap<>();
+        nested.put("inner", Collections.singletonMap("list", Arrays.asList(1, "two", null)));
+        assertEquals("{\"inner\":{\"list\":[1,\"two\",null]}}", encoder.encode(nested));
+        assertEquals(
+                "{\"array\":[1,2]}",
+                encoder.encode(Collections.singletonMap("array", new int[] {1, 2})));
+    }
+
+    @Test
+    public void test_escapedStrings() {
+        assertEquals(
+                "{\"k\\\"ey\":\"a\\\\b/c\\n\\t\\u0001\\u2028\u00e9\"}",
+                encoder.encode(Collections.singletonMap("k\"ey", "a\\b/c\n\t\u0001\u2028\u00e9")));
+    }
+
+    @Test
+    public void test_unescapedSlash_decodedByJSONObject() throws JSONException {
+        String encoded = encoder.encode(Collections.singletonMap("url", "https://a.b/c"));
+        assertEquals("{\"url\":\"https://a.b/c\"}", encoded);
+        assertEquals("https://a.b/c", new JSONObject(encoded).getString("url"));
+    }
+
+    @Test
+    public void test_roundTrip() throws JSONException {
+        Map<String, Object> nested = new HashMap<>();
+        nested.put("int", 42);
+        nested.put("double", 0.25);
+        nested.put("string", "line\nbreak \"quoted\"");
+        Map<String, Object> data = new HashMap<>();
+        data.put("nested", nested);
+        data.put("long", Long.MAX_VALUE);
+        data.put("bool", false);
+        assertEquals(data, ProfileJsonDecoder.decode(encoder.encode(data)));
+        // the buffer is reused by the following calls
+        assertEquals(data, ProfileJsonDecoder.decode(encoder.encode(data)));
+    }
+
+    @Test
+    public void test_largeProfile() throws JSONException {
+        Map<String, Object> data = new HashMap<>();
+        for (int i = 0; i < 10000; i++) {
+            data.put("key" + i, "value" + i);
+        }
+        assertEquals(data, ProfileJsonDecoder.decode(encoder.encode(data)));
+        assertEquals("{\"key\":1}", encoder.encode(Collections.singletonMap("key", 1)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_nonFiniteNumber() {
+        encoder.encode(Collections.singletonMap("key", Double.NaN));
+    }
+}
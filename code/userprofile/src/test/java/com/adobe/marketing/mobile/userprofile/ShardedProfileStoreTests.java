@@ -0,0 +1,156 @@
+/*
+  Copyright 2026 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile.userprofile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ShardedProfileStoreTests {
+
+    private final InMemoryNamedCollection namedCollection = new InMemoryNamedCollection();
+    private final Map<String, Object> storage = namedCollection.getValues();
+    private ShardedProfileStore store;
+
+    @Before
+    public void setup() {
+        store = new ShardedProfileStore(namedCollection);
+    }
+
+    @Test
+    public void test_save_fullProfile() {
+        Map<String, Object> data = createProfile(100);
+        assertFalse(store.exists());
+        assertTrue(store.save(data, null));
+        assertTrue(store.exists());
+        assertEquals(4, storage.get("user_profile_buckets"));
+        assertEquals(data, new ShardedProfileStore(namedCollection).load());
+    }
+
+    @Test
+    public void test_save_onlyWritesChangedBuckets() {
+        Map<String, Object> data = createProfile(100);
+        store.save(data, null);
+        Map<String, Object> before = new HashMap<>(storage);
+
+        data.put("key7", "changed");
+        assertTrue(store.save(data, Collections.singleton("key7")));
+        int changedBucket = ShardedProfileStore.bucketOf("key7", 4);
+        for (int bucket = 0; bucket < 4; bucket++) {
+            String key = "user_profile_bucket.4." + bucket;
+            if (bucket == changedBucket) {
+                assertNotEquals(before.get(key), storage.get(key));
+            } else {
+                assertEquals(before.get(key), storage.get(key));
+            }
+        }
+        assertEquals(data, store.load());
+    }
+
+    @Test
+    public void test_save_afterLoad_onlyWritesChangedBuckets() {
+        Map<String, Object> data = createProfile(100);
+        store.save(data, null);
+        ShardedProfileStore loadedStore = new ShardedProfileStore(namedCollection);
+        Map<String, Object> loaded = loadedStore.load();
+        Map<String, Object> before = new HashMap<>(storage);
+
+        loaded.put("added", "value");
+        assertTrue(loadedStore.save(loaded, Collections.singleton("added")));
+        int changedBucket = ShardedProfileStore.bucketOf("added", 4);
+        for (int bucket = 0; bucket < 4; bucket++) {
+            if (bucket != changedBucket) {
+                String key = "user_profile_bucket.4." + bucket;
+                assertEquals(before.get(key), storage.get(key));
+            }
+        }
+        assertEquals(loaded, new ShardedProfileStore(namedCollection).load());
+    }
+
+    @Test
+    public void test_save_removedAttribute() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("key1", "value1");
+        store.save(data, null);
+        data.remove("key1");
+        assertTrue(store.save(data, Collections.singleton("key1")));
+        // an empty bucket is not kept
+        assertEquals(1, storage.size());
+        assertEquals(data, store.load());
+    }
+
+    @Test
+    public void test_save_redistributesWhenProfileGrows() {
+        Map<String, Object> data = createProfile(10);
+        store.save(data, null);
+        assertEquals(1, storage.get("user_profile_buckets"));
+
+        Map<String, Object> grown = createProfile(200);
+        assertTrue(store.save(grown, grown.keySet()));
+        assertEquals(8, storage.get("user_profile_buckets"));
+        assertFalse(storage.containsKey("user_profile_bucket.1.0"));
+        assertEquals(grown, store.load());
+    }
+
+    @Test
+    public void test_resizeBucketCount() {
+        assertEquals(1, ShardedProfileStore.resizeBucketCount(0, 0));
+        assertEquals(1, ShardedProfileStore.resizeBucketCount(0, 32));
+        assertEquals(2, ShardedProfileStore.resizeBucketCount(0, 33));
+        assertEquals(64, ShardedProfileStore.resizeBucketCount(0, 100000));
+        // shrinking only happens when the buckets are four times more than needed
+        assertEquals(8, ShardedProfileStore.resizeBucketCount(8, 65));
+        assertEquals(2, ShardedProfileStore.resizeBucketCount(8, 64));
+    }
+
+    @Test
+    public void test_load_skipsUnreadableBucket() {
+        Map<String, Object> data = createProfile(100);
+        store.save(data, null);
+        int bucket = ShardedProfileStore.bucketOf("key1", 4);
+        storage.put("user_profile_bucket.4." + bucket, "{invalid");
+        Map<String, Object> loaded = store.load();
+        assertFalse(loaded.containsKey("key1"));
+        assertTrue(loaded.containsKey(firstKeyOutsideBucket(bucket)));
+    }
+
+    @Test
+    public void test_clear() {
+        store.save(createProfile(100), null);
+        store.clear();
+        assertFalse(store.exists());
+        assertTrue(storage.isEmpty());
+    }
+
+    private static Map<String, Object> createProfile(final int size) {
+        Map<String, Object> data = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            data.put("key" + i, "value" + i);
+        }
+        return data;
+    }
+
+    private static String firstKeyOutsideBucket(final int bucket) {
+        for (int i = 0; ; i++) {
+            if (ShardedProfileStore.bucketOf("key" + i, 4) != bucket) {
+                return "key" + i;
+            }
+        }
+    }
+}
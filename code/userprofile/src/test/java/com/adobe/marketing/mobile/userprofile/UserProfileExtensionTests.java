@@ -12,13 +12,20 @@
 package com.adobe.marketing.mobile.userprofile;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeast;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.mockConstruction;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
@@ -31,8 +38,10 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -290,6 +299,9 @@ public class UserProfileExtensionTests {
                             when(mock.getMap()).thenReturn(data);
                             when(mock.loadPersistenceData()).thenReturn(true);
                             when(mock.persist()).thenReturn(true);
+                            when(mock.updateOrDelete(any()))
+                                    .thenReturn(Collections.singleton("key"));
+                            when(mock.delete(any())).thenReturn(Collections.singleton("key"));
                         })) {
             userProfileExtension.onRegistered();
             userProfileExtension.handleProfileRequestEvent(updateProfileEvent);
@@ -310,6 +322,131 @@ public class UserProfileExtensionTests {
         }
     }
 
+    @Test
+    public void test_handleProfileUpdatePathsEvent() {
+        Map<String, Object> data =
+                Collections.singletonMap("preferences", Collections.singletonMap("language", "en"));
+        Map<String, Object> values = Collections.singletonMap("preferences.language", "en");
+        Event updatePathsEvent =
+                new Event.Builder(
+                                "UserProfileUpdatePaths",
+                                "com.adobe.eventType.userProfile",
+                                "com.adobe.eventSource.requestProfile")
+                        .setEventData(Collections.singletonMap("userprofileupdatepaths", values))
+                        .build();
+
+        try (MockedConstruction<ProfileData> profileDataMocks =
+                mockConstruction(
+                        ProfileData.class,
+                        (mock, context) -> {
+                            when(mock.getMap()).thenReturn(data);
+                            when(mock.loadPersistenceData()).thenReturn(true);
+                            when(mock.persist()).thenReturn(true);
+                            when(mock.updateOrDeletePaths(any()))
+                                    .thenReturn(Collections.singleton("preferences"));
+                        })) {
+            userProfileExtension.onRegistered();
+            userProfileExtension.handleProfileRequestEvent(updatePathsEvent);
+            verify(profileDataMocks.constructed().get(0), times(1)).updateOrDeletePaths(values);
+            verify(profileDataMocks.constructed().get(0), never()).updateOrDelete(any());
+            verify(profileDataMocks.constructed().get(0), times(1)).persist();
+            verifySharedSateAndDispatchedEvent(updatePathsEvent, data);
+            // the response event identifies the request which changed the profile
+            ArgumentCaptor<Event> eventCaptor = ArgumentCaptor.forClass(Event.class);
+            verify(extensionApiMock, times(2)).dispatch(eventCaptor.capture());
+            assertEquals(
+                    updatePathsEvent.getUniqueIdentifier(),
+                    eventCaptor.getValue().getEventData().get("userprofilerequesteventid"));
+        }
+    }
+
+    @Test
+    public void test_handleProfileMergeEvent() {
+        Map<String, Object> patch =
+                Collections.singletonMap("preferences", Collections.singletonMap("language", "en"));
+        Event mergeEvent =
+                new Event.Builder(
+                                "UserProfileMerge",
+                                "com.adobe.eventType.userProfile",
+                                "com.adobe.eventSource.requestProfile")
+                        .setEventData(Collections.singletonMap("userprofilemergekey", patch))
+                        .build();
+
+        try (MockedConstruction<ProfileData> profileDataMocks =
+                mockConstruction(
+                        ProfileData.class,
+                        (mock, context) -> {
+                            when(mock.getMap()).thenReturn(patch);
+                            when(mock.loadPersistenceData()).thenReturn(true);
+                            when(mock.persist()).thenReturn(true);
+                            when(mock.merge(any()))
+                                    .thenReturn(Collections.singleton("preferences"));
+                        })) {
+            userProfileExtension.onRegistered();
+            userProfileExtension.handleProfileRequestEvent(mergeEvent);
+            verify(profileDataMocks.constructed().get(0), times(1)).merge(patch);
+            verify(profileDataMocks.constructed().get(0), never()).updateOrDelete(any());
+            verify(profileDataMocks.constructed().get(0), times(1)).persist();
+            verifySharedSateAndDispatchedEvent(mergeEvent, patch);
+        }
+    }
+
+    @Test
+    public void test_handleProfileResetEvent_removesPaths() {
+        List<String> paths = Collections.singletonList("/preferences/language");
+        Event removePathsEvent =
+                new Event.Builder(
+                                "RemoveUserProfilePaths",
+                                "com.adobe.eventType.userProfile",
+                                "com.adobe.eventSource.requestReset")
+                        .setEventData(Collections.singletonMap("userprofileremovepaths", paths))
+                        .build();
+
+        try (MockedConstruction<ProfileData> profileDataMocks =
+                mockConstruction(
+                        ProfileData.class,
+                        (mock, context) -> {
+                            when(mock.loadPersistenceData()).thenReturn(true);
+                            when(mock.persist()).thenReturn(true);
+                        })) {
+            userProfileExtension.onRegistered();
+            userProfileExtension.handleProfileResetEvent(removePathsEvent);
+            verify(profileDataMocks.constructed().get(0), times(1)).deletePaths(paths);
+            verify(profileDataMocks.constructed().get(0), never()).delete(any());
+            // nothing was removed, so nothing is persisted
+            verify(profileDataMocks.constructed().get(0), never()).persist();
+        }
+    }
+
+    @Test
+    public void test_handleProfileResetEvent_removesMatchingKeys() {
+        List<String> patterns = Collections.singletonList("cart.item.*");
+        Event removePatternsEvent =
+                new Event.Builder(
+                                "RemoveUserProfilePatterns",
+                                "com.adobe.eventType.userProfile",
+                                "com.adobe.eventSource.requestReset")
+                        .setEventData(
+                                Collections.singletonMap("userprofileremovepatterns", patterns))
+                        .build();
+
+        try (MockedConstruction<ProfileData> profileDataMocks =
+                mockConstruction(
+                        ProfileData.class,
+                        (mock, context) -> {
+                            when(mock.loadPersistenceData()).thenReturn(true);
+                            when(mock.persist()).thenReturn(true);
+                            when(mock.deleteMatching(patterns))
+                                    .thenReturn(Collections.singleton("cart.item.1"));
+                        })) {
+            userProfileExtension.onRegistered();
+            userProfileExtension.handleProfileResetEvent(removePatternsEvent);
+            verify(profileDataMocks.constructed().get(0), times(1)).deleteMatching(patterns);
+            verify(profileDataMocks.constructed().get(0), never()).delete(any());
+            verify(profileDataMocks.constructed().get(0), times(1)).persist();
+        }
+    }
+
     @Test
     public void test_handleProfileUpdateEvent_withInvalidEventData() {
         Map<String, Object> eventDataMap =
@@ -367,6 +504,9 @@ public class UserProfileExtensionTests {
                             when(mock.getMap()).thenReturn(profileMap);
                             when(mock.loadPersistenceData()).thenReturn(true);
                             when(mock.persist()).thenReturn(true);
+                            when(mock.updateOrDelete(any()))
+                                    .thenReturn(Collections.singleton("key"));
+                            when(mock.delete(any())).thenReturn(Collections.singleton("key"));
                         })) {
             userProfileExtension.onRegistered();
             userProfileExtension.handleProfileUpdateEvent(updateProfileEvent);
@@ -410,6 +550,9 @@ public class UserProfileExtensionTests {
                         (mock, context) -> {
                             when(mock.loadPersistenceData()).thenReturn(true);
                             when(mock.persist()).thenReturn(true);
+                            when(mock.updateOrDelete(any()))
+                                    .thenReturn(Collections.singleton("key"));
+                            when(mock.delete(any())).thenReturn(Collections.singleton("key"));
                         })) {
             userProfileExtension.handleProfileUpdateEvent(updateProfileEvent);
             assertEquals(0, profileDataMocks.constructed().size());
@@ -473,6 +616,9 @@ public class UserProfileExtensionTests {
 
                             when(mock.loadPersistenceData()).thenReturn(true);
                             when(mock.persist()).thenReturn(true);
+                            when(mock.updateOrDelete(any()))
+                                    .thenReturn(Collections.singleton("key"));
+                            when(mock.delete(any())).thenReturn(Collections.singleton("key"));
                         })) {
             ArgumentCaptor<Event> eventCaptor = ArgumentCaptor.forClass(Event.class);
             doNothing().when(extensionApiMock).dispatch(eventCaptor.capture());
@@ -532,6 +678,9 @@ public class UserProfileExtensionTests {
 
                             when(mock.loadPersistenceData()).thenReturn(true);
                             when(mock.persist()).thenReturn(true);
+                            when(mock.updateOrDelete(any()))
+                                    .thenReturn(Collections.singleton("key"));
+                            when(mock.delete(any())).thenReturn(Collections.singleton("key"));
                         })) {
             ArgumentCaptor<Event> eventCaptor = ArgumentCaptor.forClass(Event.class);
             doNothing().when(extensionApiMock).dispatch(eventCaptor.capture());
@@ -553,6 +702,50 @@ public class UserProfileExtensionTests {
         }
     }
 
+    @Test
+    public void test_handleProfileGetAttributesEvent_withPattern() {
+        List<String> keys = Arrays.asList("cart.item.*", "key1");
+        Event getProfileEvent =
+                new Event.Builder(
+                                "getUserAttributes",
+                                "com.adobe.eventType.userProfile",
+                                "com.adobe.eventSource.requestProfile")
+                        .setEventData(
+                                new HashMap<String, Object>() {
+                                    {
+                                        put("userprofilegetattributes", keys);
+                                    }
+                                })
+                        .build();
+
+        Map<String, Object> data =
+                new HashMap<String, Object>() {
+                    {
+                        put("cart.item.1", "shoes");
+                        put("cart.item.2", "socks");
+                        put("key1", "value1");
+                    }
+                };
+        try (MockedConstruction<ProfileData> profileDataMocks =
+                mockConstruction(
+                        ProfileData.class,
+                        (mock, context) -> {
+                            when(mock.get(anyString()))
+                                    .thenAnswer(invocation -> data.get(invocation.getArgument(0)));
+                            when(mock.findKeys("cart.item.*"))
+                                    .thenReturn(Arrays.asList("cart.item.1", "cart.item.2"));
+                            when(mock.loadPersistenceData()).thenReturn(true);
+                        })) {
+            ArgumentCaptor<Event> eventCaptor = ArgumentCaptor.forClass(Event.class);
+            doNothing().when(extensionApiMock).dispatch(eventCaptor.capture());
+            userProfileExtension.onRegistered();
+            userProfileExtension.handleProfileGetAttributesEvent(getProfileEvent);
+            verify(profileDataMocks.constructed().get(0), never()).get("cart.item.*");
+            Event responseEvent = eventCaptor.getValue();
+            assertEquals(data, responseEvent.getEventData().get("userprofilegetattributes"));
+        }
+    }
+
     @Test
     public void test_handleProfileGetAttributesEvent_keyNotExists() {
         List<String> keys = Arrays.asList("key1", "key2");
@@ -576,6 +769,9 @@ public class UserProfileExtensionTests {
 
                             when(mock.loadPersistenceData()).thenReturn(true);
                             when(mock.persist()).thenReturn(true);
+                            when(mock.updateOrDelete(any()))
+                                    .thenReturn(Collections.singleton("key"));
+                            when(mock.delete(any())).thenReturn(Collections.singleton("key"));
                         })) {
             ArgumentCaptor<Event> eventCaptor = ArgumentCaptor.forClass(Event.class);
             doNothing().when(extensionApiMock).dispatch(eventCaptor.capture());
@@ -653,6 +849,9 @@ public class UserProfileExtensionTests {
                             when(mock.getMap()).thenReturn(data);
                             when(mock.loadPersistenceData()).thenReturn(true);
                             when(mock.persist()).thenReturn(true);
+                            when(mock.updateOrDelete(any()))
+                                    .thenReturn(Collections.singleton("key"));
+                            when(mock.delete(any())).thenReturn(Collections.singleton("key"));
                         })) {
             userProfileExtension.onRegistered();
             userProfileExtension.handleProfileResetEvent(removeProfileEvent);
@@ -736,6 +935,9 @@ public class UserProfileExtensionTests {
                             when(mock.getMap()).thenReturn(data);
                             when(mock.loadPersistenceData()).thenReturn(true);
                             when(mock.persist()).thenReturn(true);
+                            when(mock.updateOrDelete(any()))
+                                    .thenReturn(Collections.singleton("key"));
+                            when(mock.delete(any())).thenReturn(Collections.singleton("key"));
                         })) {
             userProfileExtension.onRegistered();
             userProfileExtension.handleRulesEvent(ruleConsequenceEvent);
@@ -788,6 +990,9 @@ public class UserProfileExtensionTests {
                             when(mock.getMap()).thenReturn(data);
                             when(mock.loadPersistenceData()).thenReturn(true);
                             when(mock.persist()).thenReturn(true);
+                            when(mock.updateOrDelete(any()))
+                                    .thenReturn(Collections.singleton("key"));
+                            when(mock.delete(any())).thenReturn(Collections.singleton("key"));
                         })) {
             userProfileExtension.onRegistered();
             userProfileExtension.handleRulesEvent(ruleConsequenceEvent);
@@ -844,6 +1049,9 @@ public class UserProfileExtensionTests {
                             when(mock.getMap()).thenReturn(data);
                             when(mock.loadPersistenceData()).thenReturn(true);
                             when(mock.persist()).thenReturn(true);
+                            when(mock.updateOrDelete(any()))
+                                    .thenReturn(Collections.singleton("key"));
+                            when(mock.delete(any())).thenReturn(Collections.singleton("key"));
                         })) {
             userProfileExtension.onRegistered();
             userProfileExtension.handleRulesEvent(ruleConsequenceEvent);
@@ -896,6 +1104,9 @@ public class UserProfileExtensionTests {
                             when(mock.getMap()).thenReturn(data);
                             when(mock.loadPersistenceData()).thenReturn(true);
                             when(mock.persist()).thenReturn(true);
+                            when(mock.updateOrDelete(any()))
+                                    .thenReturn(Collections.singleton("key"));
+                            when(mock.delete(any())).thenReturn(Collections.singleton("key"));
                         })) {
             userProfileExtension.onRegistered();
             userProfileExtension.handleRulesEvent(ruleConsequenceEvent);
@@ -960,6 +1171,9 @@ public class UserProfileExtensionTests {
                             when(mock.getMap()).thenReturn(data);
                             when(mock.loadPersistenceData()).thenReturn(true);
                             when(mock.persist()).thenReturn(true);
+                            when(mock.updateOrDelete(any()))
+                                    .thenReturn(Collections.singleton("key"));
+                            when(mock.delete(any())).thenReturn(Collections.singleton("key"));
                         })) {
             userProfileExtension.onRegistered();
             userProfileExtension.handleRulesEvent(ruleConsequenceEvent);
@@ -1017,6 +1231,9 @@ public class UserProfileExtensionTests {
                             when(mock.getMap()).thenReturn(data);
                             when(mock.loadPersistenceData()).thenReturn(true);
                             when(mock.persist()).thenReturn(true);
+                            when(mock.updateOrDelete(any()))
+                                    .thenReturn(Collections.singleton("key"));
+                            when(mock.delete(any())).thenReturn(Collections.singleton("key"));
                         })) {
             userProfileExtension.onRegistered();
             userProfileExtension.handleRulesEvent(ruleConsequenceEvent);
@@ -1086,6 +1303,9 @@ public class UserProfileExtensionTests {
                             when(mock.getMap()).thenReturn(data);
                             when(mock.loadPersistenceData()).thenReturn(true);
                             when(mock.persist()).thenReturn(true);
+                            when(mock.updateOrDelete(any()))
+                                    .thenReturn(Collections.singleton("key"));
+                            when(mock.delete(any())).thenReturn(Collections.singleton("key"));
                         })) {
             userProfileExtension.onRegistered();
             userProfileExtension.handleRulesEvent(ruleConsequenceEvent);
@@ -1155,6 +1375,9 @@ public class UserProfileExtensionTests {
                             when(mock.getMap()).thenReturn(data);
                             when(mock.loadPersistenceData()).thenReturn(true);
                             when(mock.persist()).thenReturn(true);
+                            when(mock.updateOrDelete(any()))
+                                    .thenReturn(Collections.singleton("key"));
+                            when(mock.delete(any())).thenReturn(Collections.singleton("key"));
                         })) {
             userProfileExtension.onRegistered();
             userProfileExtension.handleRulesEvent(ruleConsequenceEvent);
@@ -1223,6 +1446,9 @@ public class UserProfileExtensionTests {
                         (mock, context) -> {
                             when(mock.loadPersistenceData()).thenReturn(true);
                             when(mock.persist()).thenReturn(true);
+                            when(mock.updateOrDelete(any()))
+                                    .thenReturn(Collections.singleton("key"));
+                            when(mock.delete(any())).thenReturn(Collections.singleton("key"));
                             when(mock.getMap()).thenReturn(data);
                             when(mock.getMap("a.clicked"))
                                     .thenAnswer(
@@ -1293,6 +1519,9 @@ public class UserProfileExtensionTests {
                             when(mock.getMap()).thenReturn(data);
                             when(mock.loadPersistenceData()).thenReturn(true);
                             when(mock.persist()).thenReturn(true);
+                            when(mock.updateOrDelete(any()))
+                                    .thenReturn(Collections.singleton("key"));
+                            when(mock.delete(any())).thenReturn(Collections.singleton("key"));
                         })) {
             userProfileExtension.onRegistered();
             userProfileExtension.handleRulesEvent(ruleConsequenceEvent);
@@ -1361,6 +1590,9 @@ public class UserProfileExtensionTests {
                             when(mock.getMap()).thenReturn(data);
                             when(mock.loadPersistenceData()).thenReturn(true);
                             when(mock.persist()).thenReturn(true);
+                            when(mock.updateOrDelete(any()))
+                                    .thenReturn(Collections.singleton("key"));
+                            when(mock.delete(any())).thenReturn(Collections.singleton("key"));
                         })) {
             userProfileExtension.onRegistered();
             userProfileExtension.handleRulesEvent(ruleConsequenceEvent);
@@ -1423,6 +1655,9 @@ public class UserProfileExtensionTests {
                             when(mock.getMap()).thenReturn(data);
                             when(mock.loadPersistenceData()).thenReturn(true);
                             when(mock.persist()).thenReturn(true);
+                            when(mock.updateOrDelete(any()))
+                                    .thenReturn(Collections.singleton("key"));
+                            when(mock.delete(any())).thenReturn(Collections.singleton("key"));
                         })) {
             userProfileExtension.onRegistered();
             reset(extensionApiMock);
@@ -1473,6 +1708,9 @@ public class UserProfileExtensionTests {
                             when(mock.getMap()).thenReturn(data);
                             when(mock.loadPersistenceData()).thenReturn(true);
                             when(mock.persist()).thenReturn(true);
+                            when(mock.updateOrDelete(any()))
+                                    .thenReturn(Collections.singleton("key"));
+                            when(mock.delete(any())).thenReturn(Collections.singleton("key"));
                         })) {
             userProfileExtension.onRegistered();
             reset(extensionApiMock);
@@ -1510,23 +1748,886 @@ public class UserProfileExtensionTests {
         }
     }
 
-    private void verifySharedSateAndDispatchedEvent(
-            Event triggerEvent, Map<String, Object> eventData) {
-        ArgumentCaptor<Map> mapCaptor = ArgumentCaptor.forClass(Map.class);
-        ArgumentCaptor<Event> eventCaptor = ArgumentCaptor.forClass(Event.class);
-        verify(extensionApiMock, times(2))
-                .createSharedState(mapCaptor.capture(), eventCaptor.capture());
-        ArgumentCaptor<Event> eventCaptor2 = ArgumentCaptor.forClass(Event.class);
-        verify(extensionApiMock, times(2)).dispatch(eventCaptor2.capture());
-        Object profileData = mapCaptor.getValue().get("userprofiledata");
-        assertTrue(profileData instanceof Map);
-        assertEquals(eventData, ((Map<?, ?>) profileData));
-        assertEquals(triggerEvent, eventCaptor.getValue());
-        Event dispatchedEvent = eventCaptor2.getValue();
-        assertNotNull(dispatchedEvent);
-        assertEquals("UserProfile Response Event", dispatchedEvent.getName());
-        assertEquals("com.adobe.eventSource.responseProfile", dispatchedEvent.getSource());
-        assertEquals("com.adobe.eventType.userProfile", dispatchedEvent.getType());
-        assertEquals(eventData, ((Map<?, ?>) profileData));
+    @Test
+    public void test_handleConfigurationResponseEvent() {
+        Event configurationEvent =
+                new Event.Builder(
+                                "Configuration Response Event",
+                                "com.adobe.eventType.configuration",
+                                "com.adobe.eventSource.responseContent")
+                        .setEventData(
+                                new HashMap<String, Object>() {
+                                    {
+                                        put("userProfile.storageMode", "incremental");
+                                    }
+                                })
+                        .build();
+        try (MockedConstruction<ProfileData> profileDataMocks =
+                mockConstruction(
+                        ProfileData.class,
+                        (mock, context) -> {
+                            when(mock.loadPersistenceData()).thenReturn(true);
+                            when(mock.setStorageMode(anyString())).thenReturn(true);
+                        })) {
+            userProfileExtension.onRegistered();
+            reset(extensionApiMock);
+            userProfileExtension.handleConfigurationResponseEvent(configurationEvent);
+            verify(profileDataMocks.constructed().get(0), times(1)).setStorageMode("incremental");
+            // migrating the storage does not change the profile, no shared state is created
+            verifyNoInteractions(extensionApiMock);
+        }
+    }
+
+    @Test
+    public void test_onRegistered_lazyLoad() throws InterruptedException {
+        Map<String, Object> data = new HashMap<>();
+        data.put("key", "value");
+        Event event =
+                new Event.Builder(
+                                "UserProfileUpdate",
+                                "com.adobe.eventType.userProfile",
+                                "com.adobe.eventSource.requestProfile")
+                        .build();
+        CountDownLatch diskRead = new CountDownLatch(1);
+        try (MockedConstruction<ProfileData> profileDataMocks =
+                mockConstruction(
+                        ProfileData.class,
+                        (mock, context) -> {
+                            when(mock.isLazyLoadingEnabled()).thenReturn(true);
+                            when(mock.getMap()).thenReturn(data);
+                            when(mock.loadPersistenceData())
+                                    .thenAnswer(
+                                            invocation -> {
+                                                diskRead.await();
+                                                return true;
+                                            });
+                        })) {
+            userProfileExtension.onRegistered();
+            // events are held, without blocking the event hub, until the background load is
+            // completed
+            assertFalse(userProfileExtension.readyForEvent(event));
+            diskRead.countDown();
+            verify(extensionApiMock, timeout(1000)).startEvents();
+            assertTrue(userProfileExtension.readyForEvent(event));
+            verify(profileDataMocks.constructed().get(0), times(1)).loadPersistenceData();
+            // the loaded profile is shared once
+            verify(extensionApiMock, times(1)).createSharedState(any(), any());
+            assertTrue(userProfileExtension.readyForEvent(event));
+            verify(profileDataMocks.constructed().get(0), times(1)).loadPersistenceData();
+            userProfileExtension.onUnregistered();
+        }
+    }
+
+    @Test
+    public void test_handleConfigurationResponseEvent_lazyLoad() {
+        Event configurationEvent =
+                new Event.Builder(
+                                "Configuration Response Event",
+                                "com.adobe.eventType.configuration",
+                                "com.adobe.eventSource.responseContent")
+                        .setEventData(
+                                new HashMap<String, Object>() {
+                                    {
+                                        put("userProfile.lazyLoad", true);
+                                    }
+                                })
+                        .build();
+        try (MockedConstruction<ProfileData> profileDataMocks =
+                mockConstruction(
+                        ProfileData.class,
+                        (mock, context) -> when(mock.loadPersistenceData()).thenReturn(true))) {
+            userProfileExtension.onRegistered();
+            userProfileExtension.handleConfigurationResponseEvent(configurationEvent);
+            verify(profileDataMocks.constructed().get(0), times(1)).setLazyLoadingEnabled(true);
+        }
+    }
+
+    @Test
+    public void test_handleConfigurationResponseEvent_quotaEvictsAttributes() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("key1", "value1");
+        Event configurationEvent =
+                new Event.Builder(
+                                "Configuration Response Event",
+                                "com.adobe.eventType.configuration",
+                                "com.adobe.eventSource.responseContent")
+                        .setEventData(
+                                new HashMap<String, Object>() {
+                                    {
+                                        put("userProfile.maxAttributes", 1);
+                                        put("userProfile.maxProfileBytes", 1024L);
+                                        put("userProfile.maxAttributeBytes", 128);
+                                    }
+                                })
+                        .build();
+        ArgumentCaptor<ProfileData.EvictionListener> listenerCaptor =
+                ArgumentCaptor.forClass(ProfileData.EvictionListener.class);
+        try (MockedConstruction<ProfileData> profileDataMocks =
+                mockConstruction(
+                        ProfileData.class,
+                        (mock, context) -> {
+                            when(mock.getMap()).thenReturn(data);
+                            when(mock.loadPersistenceData()).thenReturn(true);
+                            when(mock.setStorageMode(anyString())).thenReturn(true);
+                            when(mock.persist()).thenReturn(true);
+                            when(mock.setQuota(1, 1024L, 128))
+                                    .thenReturn(Collections.singleton("key2"));
+                        })) {
+            userProfileExtension.onRegistered();
+            ProfileData profileData = profileDataMocks.constructed().get(0);
+            verify(profileData).setEvictionListener(listenerCaptor.capture());
+            reset(extensionApiMock);
+            userProfileExtension.handleConfigurationResponseEvent(configurationEvent);
+            verify(profileData, times(1)).setQuota(1, 1024L, 128);
+            verify(profileData, times(1)).persist();
+            verify(extensionApiMock, times(1)).createSharedState(any(), any());
+
+            reset(extensionApiMock);
+            listenerCaptor.getValue().onAttributesEvicted(Collections.singleton("key2"));
+            ArgumentCaptor<Event> eventCaptor = ArgumentCaptor.forClass(Event.class);
+            verify(extensionApiMock, times(1)).dispatch(eventCaptor.capture());
+            assertEquals("com.adobe.eventSource.notification", eventCaptor.getValue().getSource());
+            assertEquals(
+                    Collections.singletonList("key2"),
+                    eventCaptor.getValue().getEventData().get("evictedkeys"));
+        }
+    }
+
+    @Test
+    public void test_handleConfigurationResponseEvent_withoutStorageMode() {
+        Event configurationEvent =
+                new Event.Builder(
+                                "Configuration Response Event",
+                                "com.adobe.eventType.configuration",
+                                "com.adobe.eventSource.responseContent")
+                        .setEventData(new HashMap<>())
+                        .build();
+        try (MockedConstruction<ProfileData> profileDataMocks =
+                mockConstruction(
+                        ProfileData.class,
+                        (mock, context) -> when(mock.loadPersistenceData()).thenReturn(true))) {
+            userProfileExtension.onRegistered();
+            userProfileExtension.handleConfigurationResponseEvent(configurationEvent);
+            verify(profileDataMocks.constructed().get(0), times(1)).setStorageMode("singleKey");
+        }
+    }
+
+    @Test
+    public void test_handleProfileUpdateEvent_durableWithAsyncWrites() {
+        Map<String, Object> data =
+                new HashMap<String, Object>() {
+                    {
+                        put("key", "value");
+                    }
+                };
+        Event configurationEvent =
+                new Event.Builder(
+                                "Configuration Response Event",
+                                "com.adobe.eventType.configuration",
+                                "com.adobe.eventSource.responseContent")
+                        .setEventData(
+                                new HashMap<String, Object>() {
+                                    {
+                                        put("userProfile.persistAsync", true);
+                                    }
+                                })
+                        .build();
+        Event updateProfileEvent =
+                new Event.Builder(
+                                "UserProfileUpdate",
+                                "com.adobe.eventType.userProfile",
+                                "com.adobe.eventSource.requestProfile")
+                        .setEventData(
+                                new HashMap<String, Object>() {
+                                    {
+                                        put("userprofileupdatekey", data);
+                                        put("userprofiledurable", true);
+                                    }
+                                })
+                        .build();
+        try (MockedConstruction<ProfileData> profileDataMocks =
+                mockConstruction(
+                        ProfileData.class,
+                        (mock, context) -> {
+                            when(mock.getMap()).thenReturn(data);
+                            when(mock.loadPersistenceData()).thenReturn(true);
+                            when(mock.setStorageMode(anyString())).thenReturn(true);
+                            when(mock.persist()).thenReturn(true);
+                            when(mock.updateOrDelete(any()))
+                                    .thenReturn(Collections.singleton("key"));
+                        })) {
+            userProfileExtension.onRegistered();
+            userProfileExtension.handleConfigurationResponseEvent(configurationEvent);
+            reset(extensionApiMock);
+            userProfileExtension.handleProfileRequestEvent(updateProfileEvent);
+            // a durable update is on disk before it is shared
+            verify(profileDataMocks.constructed().get(0), times(1)).persist();
+            verify(extensionApiMock, times(1)).createSharedState(any(), any());
+            userProfileExtension.onUnregistered();
+        }
+    }
+
+    @Test
+    public void test_handleProfileUpdateEvent_unchangedAttributes() {
+        Map<String, Object> data =
+                new HashMap<String, Object>() {
+                    {
+                        put("key", "value");
+                    }
+                };
+        Event updateProfileEvent =
+                new Event.Builder(
+                                "UserProfileUpdate",
+                                "com.adobe.eventType.userProfile",
+                                "com.adobe.eventSource.requestProfile")
+                        .setEventData(
+                                new HashMap<String, Object>() {
+                                    {
+                                        put("userprofileupdatekey", data);
+                                    }
+                                })
+                        .build();
+        try (MockedConstruction<ProfileData> profileDataMocks =
+                mockConstruction(
+                        ProfileData.class,
+                        (mock, context) -> {
+                            when(mock.getMap()).thenReturn(data);
+                            when(mock.loadPersistenceData()).thenReturn(true);
+                            when(mock.persist()).thenReturn(true);
+                            when(mock.updateOrDelete(any())).thenReturn(Collections.emptySet());
+                        })) {
+            userProfileExtension.onRegistered();
+            reset(extensionApiMock);
+            userProfileExtension.handleProfileRequestEvent(updateProfileEvent);
+            verify(profileDataMocks.constructed().get(0), times(1)).updateOrDelete(any());
+            // nothing changed, so nothing is persisted or shared
+            verify(profileDataMocks.constructed().get(0), times(0)).persist();
+            verify(extensionApiMock, never()).createSharedState(any(), any());
+            // the request is still answered, for the read cache
+            verifyAcknowledged(updateProfileEvent);
+        }
+    }
+
+    @Test
+    public void test_handleProfileDeleteEvent_missingAttributes() {
+        Event deleteProfileEvent =
+                new Event.Builder(
+                                "UserProfileDelete",
+                                "com.adobe.eventType.userProfile",
+                                "com.adobe.eventSource.requestReset")
+                        .setEventData(
+                                new HashMap<String, Object>() {
+                                    {
+                                        put(
+                                                "userprofileremovekeys",
+                                                Collections.singletonList("missing"));
+                                    }
+                                })
+                        .build();
+        try (MockedConstruction<ProfileData> profileDataMocks =
+                mockConstruction(
+                        ProfileData.class,
+                        (mock, context) -> {
+                            when(mock.loadPersistenceData()).thenReturn(true);
+                            when(mock.persist()).thenReturn(true);
+                            when(mock.delete(any())).thenReturn(Collections.emptySet());
+                        })) {
+            userProfileExtension.onRegistered();
+            reset(extensionApiMock);
+            userProfileExtension.handleProfileResetEvent(deleteProfileEvent);
+            verify(profileDataMocks.constructed().get(0), times(1)).delete(any());
+            verify(profileDataMocks.constructed().get(0), times(0)).persist();
+            verify(extensionApiMock, never()).createSharedState(any(), any());
+            verifyAcknowledged(deleteProfileEvent);
+        }
+    }
+
+    private void verifyAcknowledged(final Event requestEvent) {
+        ArgumentCaptor<Event> eventCaptor = ArgumentCaptor.forClass(Event.class);
+        verify(extensionApiMock, times(1)).dispatch(eventCaptor.capture());
+        Event responseEvent = eventCaptor.getValue();
+        assertEquals("com.adobe.eventSource.responseProfile", responseEvent.getSource());
+        assertEquals(
+                Collections.singletonMap(
+                        "userprofilerequesteventid", requestEvent.getUniqueIdentifier()),
+                responseEvent.getEventData());
+        assertEquals(requestEvent.getUniqueIdentifier(), responseEvent.getResponseID());
+    }
+
+    @Test
+    public void test_handleProfileUpdateEvent_writeBehind() {
+        Map<String, Object> data =
+                new HashMap<String, Object>() {
+                    {
+                        put("key", "value");
+                    }
+                };
+        Event updateProfileEvent =
+                new Event.Builder(
+                                "UserProfileUpdate",
+                                "com.adobe.eventType.userProfile",
+                                "com.adobe.eventSource.requestProfile")
+                        .setEventData(
+                                new HashMap<String, Object>() {
+                                    {
+                                        put("userprofileupdatekey", data);
+                                    }
+                                })
+                        .build();
+        Event configurationEvent =
+                new Event.Builder(
+                                "Configuration Response Event",
+                                "com.adobe.eventType.configuration",
+                                "com.adobe.eventSource.responseContent")
+                        .setEventData(
+                                new HashMap<String, Object>() {
+                                    {
+                                        put("userProfile.persistWindowMs", 60000);
+                                    }
+                                })
+                        .build();
+        Event pauseEvent =
+                new Event.Builder(
+                                "LifecyclePause",
+                                "com.adobe.eventType.generic.lifecycle",
+                                "com.adobe.eventSource.requestContent")
+                        .setEventData(
+                                new HashMap<String, Object>() {
+                                    {
+                                        put("action", "pause");
+                                    }
+                                })
+                        .build();
+        try (MockedConstruction<ProfileData> profileDataMocks =
+                mockConstruction(
+                        ProfileData.class,
+                        (mock, context) -> {
+                            when(mock.getMap()).thenReturn(data);
+                            when(mock.loadPersistenceData()).thenReturn(true);
+                            when(mock.setStorageMode(anyString())).thenReturn(true);
+                            when(mock.persist()).thenReturn(true);
+                            when(mock.updateOrDelete(any()))
+                                    .thenReturn(Collections.singleton("key"));
+                            when(mock.delete(any())).thenReturn(Collections.singleton("key"));
+                        })) {
+            userProfileExtension.onRegistered();
+            userProfileExtension.handleConfigurationResponseEvent(configurationEvent);
+            userProfileExtension.handleProfileRequestEvent(updateProfileEvent);
+            userProfileExtension.handleProfileRequestEvent(updateProfileEvent);
+            // the shared states are created right away, the write is deferred
+            verify(extensionApiMock, times(3)).createSharedState(any(), any());
+            verify(profileDataMocks.constructed().get(0), times(0)).persist();
+
+            userProfileExtension.handleLifecycleRequestEvent(pauseEvent);
+            verify(profileDataMocks.constructed().get(0), times(1)).persist();
+            userProfileExtension.onUnregistered();
+        }
+    }
+
+    @Test
+    public void test_handleRulesEvent_writeWithTimeToLive() {
+        Map<String, Object> data =
+                new HashMap<String, Object>() {
+                    {
+                        put("key", "value");
+                    }
+                };
+        Event ruleConsequenceEvent =
+                new Event.Builder(
+                                "Consequence Rule",
+                                "com.adobe.eventType.rulesEngine",
+                                "com.adobe.eventSource.responseContent")
+                        .setEventData(
+                                new HashMap<String, Object>() {
+                                    {
+                                        put(
+                                                "triggeredconsequence",
+                                                new HashMap<String, Object>() {
+                                                    {
+                                                        put("type", "csp");
+                                                        put("id", "xxx");
+                                                        put(
+                                                                "detail",
+                                                                new HashMap<String, Object>() {
+                                                                    {
+                                                                        put("operation", "write");
+                                                                        put("key", "key");
+                                                                        put("value", "value");
+                                                                        put("ttl", 3600);
+                                                                    }
+                                                                });
+                                                    }
+                                                });
+                                    }
+                                })
+                        .build();
+        try (MockedConstruction<ProfileData> profileDataMocks =
+                mockConstruction(
+                        ProfileData.class,
+                        (mock, context) -> {
+                            when(mock.getMap()).thenReturn(data);
+                            when(mock.loadPersistenceData()).thenReturn(true);
+                            when(mock.persist()).thenReturn(true);
+                            when(mock.updateOrDelete(any(), anyLong()))
+                                    .thenReturn(Collections.singleton("key"));
+                        })) {
+            userProfileExtension.onRegistered();
+            userProfileExtension.handleRulesEvent(ruleConsequenceEvent);
+            // the time to live is given in seconds
+            verify(profileDataMocks.constructed().get(0), times(1))
+                    .updateOrDelete(eq(data), eq(3600000L));
+            verify(extensionApiMock, times(1)).createSharedState(any(), eq(ruleConsequenceEvent));
+            userProfileExtension.onUnregistered();
+        }
+    }
+
+    @Test
+    public void test_handleRulesEvent_increment() {
+        Map<String, Object> detail = new HashMap<>();
+        detail.put("operation", "increment");
+        detail.put("key", "visits");
+        Map<String, Object> consequence = new HashMap<>();
+        consequence.put("type", "csp");
+        consequence.put("id", "xxx");
+        consequence.put("detail", detail);
+        Event ruleConsequenceEvent =
+                new Event.Builder(
+                                "Consequence Rule",
+                                "com.adobe.eventType.rulesEngine",
+                                "com.adobe.eventSource.responseContent")
+                        .setEventData(Collections.singletonMap("triggeredconsequence", consequence))
+                        .build();
+        try (MockedConstruction<ProfileData> profileDataMocks =
+                mockConstruction(
+                        ProfileData.class,
+                        (mock, context) -> {
+                            when(mock.getMap()).thenReturn(Collections.singletonMap("visits", 1L));
+                            when(mock.loadPersistenceData()).thenReturn(true);
+                            when(mock.persist()).thenReturn(true);
+                            when(mock.applyCounterOperation(any(), any(), any()))
+                                    .thenReturn(Collections.singleton("visits"));
+                        })) {
+            userProfileExtension.onRegistered();
+            // the increment defaults to 1
+            userProfileExtension.handleRulesEvent(ruleConsequenceEvent);
+            verify(profileDataMocks.constructed().get(0), times(1))
+                    .applyCounterOperation("visits", "increment", 1L);
+
+            // the token expanded value is a string
+            detail.put("operation", "max");
+            detail.put("value", "42");
+            Event maxConsequenceEvent =
+                    new Event.Builder(
+                                    "Consequence Rule",
+                                    "com.adobe.eventType.rulesEngine",
+                                    "com.adobe.eventSource.responseContent")
+                            .setEventData(
+                                    Collections.singletonMap("triggeredconsequence", consequence))
+                            .build();
+            userProfileExtension.handleRulesEvent(maxConsequenceEvent);
+            verify(profileDataMocks.constructed().get(0), times(1))
+                    .applyCounterOperation("visits", "max", 42L);
+            verify(extensionApiMock, times(1)).createSharedState(any(), eq(ruleConsequenceEvent));
+            verify(extensionApiMock, times(1)).createSharedState(any(), eq(maxConsequenceEvent));
+            userProfileExtension.onUnregistered();
+        }
+    }
+
+    @Test
+    public void test_handleProfileGetAttributesEvent_sharesExpiredAttributes() {
+        Map<String, Object> data = new HashMap<>();
+        Event getAttributesEvent =
+                new Event.Builder(
+                                "UserProfileGetAttributes",
+                                "com.adobe.eventType.userProfile",
+                                "com.adobe.eventSource.requestProfile")
+                        .setEventData(
+                                new HashMap<String, Object>() {
+                                    {
+                                        put(
+                                                "userprofilegetattributes",
+                                                Arrays.asList("key1", "key2"));
+                                    }
+                                })
+                        .build();
+        try (MockedConstruction<ProfileData> profileDataMocks =
+                mockConstruction(
+                        ProfileData.class,
+                        (mock, context) -> {
+                            when(mock.getMap()).thenReturn(data);
+                            when(mock.loadPersistenceData()).thenReturn(true);
+                            when(mock.persist()).thenReturn(true);
+                            when(mock.purgeExpired())
+                                    .thenReturn(
+                                            Collections.emptySet(),
+                                            new HashSet<>(Arrays.asList("key1", "key2")));
+                        })) {
+            userProfileExtension.onRegistered();
+            userProfileExtension.handleProfileRequestEvent(getAttributesEvent);
+            // the attributes which expired together are shared once
+            verify(profileDataMocks.constructed().get(0), times(1)).persist();
+            verify(extensionApiMock, times(1)).createSharedState(any(), eq(getAttributesEvent));
+            userProfileExtension.onUnregistered();
+        }
+    }
+
+    @Test
+    public void test_handleProfileUpdateEvent_deltaEvents() {
+        Map<String, Object> data =
+                new HashMap<String, Object>() {
+                    {
+                        put("key", "value");
+                        put("other", "unchanged");
+                    }
+                };
+        Event configurationEvent =
+                new Event.Builder(
+                                "Configuration Response Event",
+                                "com.adobe.eventType.configuration",
+                                "com.adobe.eventSource.responseContent")
+                        .setEventData(
+                                new HashMap<String, Object>() {
+                                    {
+                                        put("userProfile.deltaEvents", true);
+                                    }
+                                })
+                        .build();
+        Event updateProfileEvent =
+                new Event.Builder(
+                                "UserProfileUpdate",
+                                "com.adobe.eventType.userProfile",
+                                "com.adobe.eventSource.requestProfile")
+                        .setEventData(
+                                new HashMap<String, Object>() {
+                                    {
+                                        put(
+                                                "userprofileupdatekey",
+                                                new HashMap<String, Object>() {
+                                                    {
+                                                        put("key", "value");
+                                                        put("removed", null);
+                                                    }
+                                                });
+                                    }
+                                })
+                        .build();
+        try (MockedConstruction<ProfileData> profileDataMocks =
+                mockConstruction(
+                        ProfileData.class,
+                        (mock, context) -> {
+                            when(mock.getMap()).thenReturn(data);
+                            when(mock.loadPersistenceData()).thenReturn(true);
+                            when(mock.setStorageMode(anyString())).thenReturn(true);
+                            when(mock.persist()).thenReturn(true);
+                            when(mock.updateOrDelete(any()))
+                                    .thenReturn(new HashSet<>(Arrays.asList("key", "removed")));
+                        })) {
+            userProfileExtension.onRegistered();
+            userProfileExtension.handleConfigurationResponseEvent(configurationEvent);
+            reset(extensionApiMock);
+            userProfileExtension.handleProfileRequestEvent(updateProfileEvent);
+
+            // the shared state holds the whole profile
+            ArgumentCaptor<Map> sharedStateCaptor = ArgumentCaptor.forClass(Map.class);
+            verify(extensionApiMock, times(1))
+                    .createSharedState(sharedStateCaptor.capture(), eq(updateProfileEvent));
+            assertEquals(data, sharedStateCaptor.getValue().get("userprofiledata"));
+            Object version = sharedStateCaptor.getValue().get("userprofileversion");
+            assertEquals(2L, version);
+            // the response event only holds the changes
+            ArgumentCaptor<Event> eventCaptor = ArgumentCaptor.forClass(Event.class);
+            verify(extensionApiMock, times(1)).dispatch(eventCaptor.capture());
+            Map<String, Object> eventData = eventCaptor.getValue().getEventData();
+            assertEquals(version, eventData.get("userprofileversion"));
+            assertEquals(
+                    Collections.singletonMap("key", "value"),
+                    eventData.get("userprofilechangedattributes"));
+            assertEquals(
+                    Collections.singletonList("removed"), eventData.get("userprofileremovedkeys"));
+            assertFalse(eventData.containsKey("userprofiledata"));
+            userProfileExtension.onUnregistered();
+        }
+    }
+
+    @Test
+    public void test_deltaEvents_versionsContinueAfterPreviousLaunch() {
+        Event configurationEvent =
+                new Event.Builder(
+                                "Configuration Response Event",
+                                "com.adobe.eventType.configuration",
+                                "com.adobe.eventSource.responseContent")
+                        .setEventData(Collections.singletonMap("userProfile.deltaEvents", true))
+                        .build();
+        Event updateProfileEvent =
+                new Event.Builder(
+                                "UserProfileUpdate",
+                                "com.adobe.eventType.userProfile",
+                                "com.adobe.eventSource.requestProfile")
+                        .setEventData(
+                                Collections.singletonMap(
+                                        "userprofileupdatekey",
+                                        Collections.singletonMap("key", "value")))
+                        .build();
+        try (MockedConstruction<ProfileData> profileDataMocks =
+                mockConstruction(
+                        ProfileData.class,
+                        (mock, context) -> {
+                            when(mock.getMap())
+                                    .thenReturn(Collections.singletonMap("key", "value"));
+                            when(mock.loadPersistenceData()).thenReturn(true);
+                            when(mock.persist()).thenReturn(true);
+                            when(mock.getReservedProfileVersion()).thenReturn(5000L);
+                            when(mock.updateOrDelete(any()))
+                                    .thenReturn(new HashSet<>(Arrays.asList("key")));
+                        })) {
+            userProfileExtension.onRegistered();
+            userProfileExtension.handleConfigurationResponseEvent(configurationEvent);
+            userProfileExtension.handleProfileRequestEvent(updateProfileEvent);
+
+            // the versions of the previous launches were at most 5000
+            ArgumentCaptor<Map> sharedStateCaptor = ArgumentCaptor.forClass(Map.class);
+            verify(extensionApiMock, times(1))
+                    .createSharedState(sharedStateCaptor.capture(), eq(updateProfileEvent));
+            assertEquals(5002L, sharedStateCaptor.getValue().get("userprofileversion"));
+            // a block of versions is reserved for the next changes
+            verify(profileDataMocks.constructed().get(0), times(1)).reserveProfileVersions(6001L);
+            userProfileExtension.onUnregistered();
+        }
+    }
+
+    @Test
+    public void test_getUserAttributesSync_readsLatestSharedProfile() {
+        Map<String, Object> loaded = Collections.singletonMap("key1", "value1");
+        Map<String, Object> updated = new HashMap<>();
+        updated.put("key1", "value1");
+        updated.put("key2", "value2");
+        Event updateProfileEvent =
+                new Event.Builder(
+                                "UserProfileUpdate",
+                                "com.adobe.eventType.userProfile",
+                                "com.adobe.eventSource.requestProfile")
+                        .setEventData(
+                                new HashMap<String, Object>() {
+                                    {
+                                        put(
+                                                "userprofileupdatekey",
+                                                Collections.singletonMap("key2", "value2"));
+                                    }
+                                })
+                        .build();
+        try (MockedConstruction<ProfileData> profileDataMocks =
+                mockConstruction(
+                        ProfileData.class,
+                        (mock, context) -> {
+                            when(mock.getMap()).thenReturn(loaded, loaded, updated);
+                            when(mock.loadPersistenceData()).thenReturn(true);
+                            when(mock.persist()).thenReturn(true);
+                            when(mock.updateOrDelete(any()))
+                                    .thenReturn(Collections.singleton("key2"));
+                        })) {
+            userProfileExtension.onRegistered();
+            assertEquals(loaded, UserProfile.getUserProfileSnapshot());
+
+            userProfileExtension.handleProfileRequestEvent(updateProfileEvent);
+            assertEquals(updated, UserProfile.getUserProfileSnapshot());
+            assertEquals(
+                    Collections.singletonMap("key2", "value2"),
+                    UserProfile.getUserAttributesSync(Arrays.asList("key2", "key3")));
+            userProfileExtension.onUnregistered();
+            assertNull(UserProfile.getUserAttributesSync(Collections.singletonList("key1")));
+        }
+    }
+
+    private void verifySharedSateAndDispatchedEvent(
+            Event triggerEvent, Map<String, Object> eventData) {
+        ArgumentCaptor<Map> mapCaptor = ArgumentCaptor.forClass(Map.class);
+        ArgumentCaptor<Event> eventCaptor = ArgumentCaptor.forClass(Event.class);
+        verify(extensionApiMock, times(2))
+                .createSharedState(mapCaptor.capture(), eventCaptor.capture());
+        ArgumentCaptor<Event> eventCaptor2 = ArgumentCaptor.forClass(Event.class);
+        verify(extensionApiMock, times(2)).dispatch(eventCaptor2.capture());
+        Object profileData = mapCaptor.getValue().get("userprofiledata");
+        assertTrue(profileData instanceof Map);
+        assertEquals(eventData, ((Map<?, ?>) profileData));
+        assertEquals(triggerEvent, eventCaptor.getValue());
+        Event dispatchedEvent = eventCaptor2.getValue();
+        assertNotNull(dispatchedEvent);
+        assertEquals("UserProfile Response Event", dispatchedEvent.getName());
+        assertEquals("com.adobe.eventSource.responseProfile", dispatchedEvent.getSource());
+        assertEquals("com.adobe.eventType.userProfile", dispatchedEvent.getType());
+        assertEquals(eventData, ((Map<?, ?>) profileData));
+    }
+
+    @Test
+    public void test_handleProfileCompareAndSetEvent() {
+        Map<String, Object> eventData = new HashMap<>();
+        eventData.put("userprofilecaskey", "count");
+        eventData.put("userprofileexpectedversion", 3L);
+        eventData.put("userprofilecasvalue", 2);
+        Event staleEvent =
+                new Event.Builder(
+                                "UserProfileCompareAndSet",
+                                "com.adobe.eventType.userProfile",
+                                "com.adobe.eventSource.requestProfile")
+                        .setEventData(eventData)
+                        .build();
+        eventData.put("userprofileexpectedversion", 7L);
+        Event currentEvent =
+                new Event.Builder(
+                                "UserProfileCompareAndSet",
+                                "com.adobe.eventType.userProfile",
+                                "com.adobe.eventSource.requestProfile")
+                        .setEventData(eventData)
+                        .build();
+        try (MockedConstruction<ProfileData> profileDataMocks =
+                mockConstruction(
+                        ProfileData.class,
+                        (mock, context) -> {
+                            when(mock.loadPersistenceData()).thenReturn(true);
+                            when(mock.persist()).thenReturn(true);
+                            when(mock.get("count")).thenReturn(1);
+                            when(mock.getVersion("count")).thenReturn(7L);
+                            when(mock.compareVersionAndSet("count", 3L, 2)).thenReturn(null);
+                            when(mock.compareVersionAndSet("count", 7L, 2))
+                                    .thenReturn(Collections.singleton("count"));
+                        })) {
+            ArgumentCaptor<Event> eventCaptor = ArgumentCaptor.forClass(Event.class);
+            doNothing().when(extensionApiMock).dispatch(eventCaptor.capture());
+            userProfileExtension.onRegistered();
+
+            userProfileExtension.handleProfileRequestEvent(staleEvent);
+            Event responseEvent = eventCaptor.getValue();
+            assertEquals(staleEvent.getUniqueIdentifier(), responseEvent.getResponseID());
+            assertEquals(false, responseEvent.getEventData().get("succeeded"));
+            assertEquals(1, responseEvent.getEventData().get("value"));
+            assertEquals(7L, responseEvent.getEventData().get("version"));
+            verify(extensionApiMock, never()).createSharedState(any(), eq(staleEvent));
+
+            userProfileExtension.handleProfileRequestEvent(currentEvent);
+            responseEvent = eventCaptor.getValue();
+            assertEquals(currentEvent.getUniqueIdentifier(), responseEvent.getResponseID());
+            assertEquals(true, responseEvent.getEventData().get("succeeded"));
+            verify(extensionApiMock, times(1)).createSharedState(any(), eq(currentEvent));
+            userProfileExtension.onUnregistered();
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void test_handleProfileTransactionEvent() {
+        Map<String, Object> remove = new HashMap<>();
+        remove.put("operation", "remove");
+        remove.put("key", "key1");
+        Map<String, Object> increment = new HashMap<>();
+        increment.put("operation", "increment");
+        increment.put("key", "visits");
+        increment.put("value", "2");
+        Event transactionEvent =
+                new Event.Builder(
+                                "UserProfileTransaction",
+                                "com.adobe.eventType.userProfile",
+                                "com.adobe.eventSource.requestProfile")
+                        .setEventData(
+                                Collections.singletonMap(
+                                        "userprofiletransaction", Arrays.asList(remove, increment)))
+                        .build();
+        Map<String, Object> invalid = new HashMap<>();
+        invalid.put("operation", "rename");
+        invalid.put("key", "key2");
+        Event invalidEvent =
+                new Event.Builder(
+                                "UserProfileTransaction",
+                                "com.adobe.eventType.userProfile",
+                                "com.adobe.eventSource.requestProfile")
+                        .setEventData(
+                                Collections.singletonMap(
+                                        "userprofiletransaction", Arrays.asList(remove, invalid)))
+                        .build();
+        try (MockedConstruction<ProfileData> profileDataMocks =
+                mockConstruction(
+                        ProfileData.class,
+                        (mock, context) -> {
+                            when(mock.loadPersistenceData()).thenReturn(true);
+                            when(mock.persist()).thenReturn(true);
+                            when(mock.applyTransaction(any()))
+                                    .thenReturn(new HashSet<>(Arrays.asList("key1", "visits")));
+                        })) {
+            userProfileExtension.onRegistered();
+            // the whole transaction is ignored when one of its operations is invalid
+            userProfileExtension.handleProfileRequestEvent(invalidEvent);
+            verify(profileDataMocks.constructed().get(0), never()).applyTransaction(any());
+
+            userProfileExtension.handleProfileRequestEvent(transactionEvent);
+            ArgumentCaptor<List<Map<String, Object>>> operationsCaptor =
+                    ArgumentCaptor.forClass(List.class);
+            verify(profileDataMocks.constructed().get(0), times(1))
+                    .applyTransaction(operationsCaptor.capture());
+            List<Map<String, Object>> operations = operationsCaptor.getValue();
+            assertEquals(2, operations.size());
+            assertEquals("remove", operations.get(0).get("operation"));
+            // the counter operands are parsed
+            assertEquals(2L, operations.get(1).get("value"));
+            // the changes are shared once
+            verify(extensionApiMock, times(1)).createSharedState(any(), eq(transactionEvent));
+            userProfileExtension.onUnregistered();
+        }
+    }
+
+    @Test
+    public void test_handleProfileImportEvent() {
+        Map<String, Object> chunkData = new HashMap<>();
+        chunkData.put("userprofileimportid", "import1");
+        chunkData.put("userprofileimportdata", Collections.singletonMap("key1", "value1"));
+        Event chunkEvent =
+                new Event.Builder(
+                                "UserProfileImport",
+                                "com.adobe.eventType.userProfile",
+                                "com.adobe.eventSource.requestProfile")
+                        .setEventData(chunkData)
+                        .build();
+        Map<String, Object> completeData = new HashMap<>();
+        completeData.put("userprofileimportid", "import1");
+        completeData.put("userprofileimportcomplete", true);
+        Event completeEvent =
+                new Event.Builder(
+                                "UserProfileImport",
+                                "com.adobe.eventType.userProfile",
+                                "com.adobe.eventSource.requestProfile")
+                        .setEventData(completeData)
+                        .build();
+        try (MockedConstruction<ProfileData> profileDataMocks =
+                mockConstruction(
+                        ProfileData.class,
+                        (mock, context) -> {
+                            when(mock.loadPersistenceData()).thenReturn(true);
+                            when(mock.persist()).thenReturn(true);
+                            when(mock.updateOrDelete(any()))
+                                    .thenReturn(new HashSet<>(Arrays.asList("key1")));
+                        })) {
+            userProfileExtension.onRegistered();
+            userProfileExtension.handleProfileRequestEvent(chunkEvent);
+            verify(profileDataMocks.constructed().get(0), times(1)).updateOrDelete(any());
+            // the chunks are only shared once the import is complete
+            verify(extensionApiMock, never()).createSharedState(any(), eq(chunkEvent));
+
+            userProfileExtension.handleProfileRequestEvent(completeEvent);
+            verify(extensionApiMock, times(1)).createSharedState(any(), eq(completeEvent));
+
+            // every request of the import is answered
+            ArgumentCaptor<Event> eventCaptor = ArgumentCaptor.forClass(Event.class);
+            verify(extensionApiMock, atLeast(2)).dispatch(eventCaptor.capture());
+            List<String> answered = new ArrayList<>();
+            for (Event response : eventCaptor.getAllValues()) {
+                if (response.getEventData() != null
+                        && "import1".equals(response.getEventData().get("userprofileimportid"))) {
+                    answered.add(response.getResponseID());
+                }
+            }
+            assertEquals(
+                    Arrays.asList(
+                            chunkEvent.getUniqueIdentifier(), completeEvent.getUniqueIdentifier()),
+                    answered);
+            userProfileExtension.onUnregistered();
+        }
     }
 }